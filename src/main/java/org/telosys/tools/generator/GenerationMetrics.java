@@ -0,0 +1,112 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Generation metrics : named counters updated during the generation <br>
+ * (e.g. caches hits and misses) <br>
+ * A single instance is shared by all the generations of a task
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class GenerationMetrics {
+
+	//--- Counters names
+	public static final String IMPORTS_CACHE_HITS   = "imports.cache.hits" ;
+	public static final String IMPORTS_CACHE_MISSES = "imports.cache.misses" ;
+	public static final String TEXT_CACHE_HITS      = "text.cache.hits" ;
+	public static final String TEXT_CACHE_MISSES    = "text.cache.misses" ;
+	public static final String RENDER_CACHE_HITS        = "render.cache.hits" ;
+	public static final String RENDER_CACHE_MISSES      = "render.cache.misses" ;
+	public static final String RENDER_CACHE_UNCACHEABLE = "render.cache.uncacheable" ;
+	public static final String RENDER_CACHE_EVICTIONS   = "render.cache.evictions" ;
+
+	private final Map<String, Long> counters = new TreeMap<>(); // sorted by name
+
+	/**
+	 * Constructor
+	 */
+	public GenerationMetrics() {
+		super();
+	}
+
+	/**
+	 * Increments the given counter
+	 * @param name
+	 */
+	public void increment(String name) {
+		add(name, 1);
+	}
+
+	/**
+	 * Adds the given value to the given counter
+	 * @param name
+	 * @param value
+	 */
+	public synchronized void add(String name, long value) {
+		counters.merge(name, value, Long::sum);
+	}
+
+	/**
+	 * Adds all the counters of the given metrics (e.g. to merge the metrics of several tasks)
+	 * @param other
+	 */
+	public void addAll(GenerationMetrics other) {
+		for ( Map.Entry<String, Long> entry : other.getCounters().entrySet() ) {
+			add(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Returns the current value of the given counter (0 if never updated)
+	 * @param name
+	 * @return
+	 */
+	public synchronized long get(String name) {
+		Long value = counters.get(name);
+		return value != null ? value : 0L ;
+	}
+
+	/**
+	 * Returns the hit rate (between 0 and 1) for the given hits/misses counters
+	 * @param hitsName
+	 * @param missesName
+	 * @return the rate or 0 if no hit and no miss
+	 */
+	public synchronized double getHitRate(String hitsName, String missesName) {
+		long hits = get(hitsName);
+		long total = hits + get(missesName);
+		return total > 0 ? (double) hits / total : 0 ;
+	}
+
+	/**
+	 * Returns a copy of all the counters (sorted by name)
+	 * @return
+	 */
+	public synchronized Map<String, Long> getCounters() {
+		return Collections.unmodifiableMap(new TreeMap<>(counters));
+	}
+
+	@Override
+	public synchronized String toString() {
+		return counters.toString();
+	}
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 import org.telosys.tools.commons.DirUtil;
 import org.telosys.tools.commons.FileUtil;
@@ -49,6 +50,22 @@ public class Generator {
 	private final TelosysToolsCfg          telosysToolsCfg ; // v 3.0.0
 	private final String                   bundleName ; // v 3.0.0
 	private final TelosysToolsLogger       logger ;
+	private GenerationMetrics              metrics = null ; // v 4.1.0
+	private GeneratorContextBase           contextBase = null ; // v 4.1.0
+	private GeneratorContext               parentContext = null ; // v 4.1.0
+	private ModelSnapshot                  modelSnapshot = null ; // v 4.1.0
+	private RenderCache                    renderCache = null ; // v 4.1.0
+	private TemplatesPreflight             templatesPreflight = null ; // v 4.1.0
+	private BooleanSupplier                cancellationCheck = null ; // v 4.1.0
+	private boolean                        skipUnchangedFiles = false ; // v 4.1.0
+	
+	//--- Result of the last target generation (v 4.1.0)
+	private long                           renderDuration = 0 ;
+	private long                           writeDuration = 0 ;
+	private boolean                        restoredFromCache = false ;
+	private boolean                        cancelledByTemplate = false ;
+	private boolean                        outputWritten = false ;
+	private boolean                        outputVoid = false ;
 
 	/**
 	 * Constructor 
@@ -69,6 +86,155 @@ public class Generator {
 		this.bundleName = bundleName ; // v 3.0.0
 	}
 	
+	/**
+	 * Set the metrics to be updated during the generation (optional)
+	 * @param metrics
+	 */
+	public void setMetrics(GenerationMetrics metrics) { // v 4.1.0
+		this.metrics = metrics ;
+	}
+	
+	/**
+	 * Set the base layer of the context shared by all the generations of the task (optional)
+	 * @param contextBase
+	 */
+	public void setContextBase(GeneratorContextBase contextBase) { // v 4.1.0
+		this.contextBase = contextBase ;
+	}
+	
+	/**
+	 * Set the context of the parent target for a sub-target generated by the embedded generator (optional) <br>
+	 * The '$model' and '$env' objects of the parent context are reused
+	 * @param parentContext
+	 */
+	public void setParentContext(GeneratorContext parentContext) { // v 4.1.0
+		this.parentContext = parentContext ;
+	}
+	
+	/**
+	 * Set the model snapshot shared by all the generations of the task (optional) <br>
+	 * If not set a new '$model' is built for the target
+	 * @param modelSnapshot
+	 */
+	public void setModelSnapshot(ModelSnapshot modelSnapshot) { // v 4.1.0
+		this.modelSnapshot = modelSnapshot ;
+	}
+	
+	/**
+	 * Set the cache used to restore the results of the previous generations (optional)
+	 * @param renderCache
+	 */
+	public void setRenderCache(RenderCache renderCache) { // v 4.1.0
+		this.renderCache = renderCache ;
+	}
+
+	/**
+	 * Set the preflight providing the templates already checked for the task (optional) <br>
+	 * A template not checked by the preflight is loaded as usual
+	 * @param templatesPreflight
+	 */
+	public void setTemplatesPreflight(TemplatesPreflight templatesPreflight) { // v 4.1.0
+		this.templatesPreflight = templatesPreflight ;
+	}
+
+	/**
+	 * Set the function used to know if the task has been cancelled (optional) <br>
+	 * Cancellation is checked before each target, including the targets generated by the embedded generator
+	 * @param cancellationCheck
+	 */
+	public void setCancellationCheck(BooleanSupplier cancellationCheck) { // v 4.1.0
+		this.cancellationCheck = cancellationCheck ;
+	}
+
+	/**
+	 * Set whether a file with the same content as the generated one is left untouched (default is false) <br>
+	 * If true an unchanged file keeps its last modification date, it is not added in the generated targets 
+	 * (not counted as generated) <br>
+	 * NB : the targets generated by the embedded generator are always written
+	 * @param skipUnchangedFiles
+	 */
+	public void setSkipUnchangedFiles(boolean skipUnchangedFiles) { // v 4.1.0
+		this.skipUnchangedFiles = skipUnchangedFiles ;
+	}
+
+	/**
+	 * Returns the duration of the last target rendering (including the sub-targets if any)
+	 * @return the duration in nanoseconds (0 if restored from cache)
+	 */
+	public long getRenderDuration() { // v 4.1.0
+		return renderDuration ;
+	}
+
+	/**
+	 * Returns the duration of the last target file writing
+	 * @return the duration in nanoseconds
+	 */
+	public long getWriteDuration() { // v 4.1.0
+		return writeDuration ;
+	}
+
+	/**
+	 * Returns true if the last target result has been restored from the render cache
+	 * @return
+	 */
+	public boolean isRestoredFromCache() { // v 4.1.0
+		return restoredFromCache ;
+	}
+
+	/**
+	 * Returns true if the last target has been cancelled by the template ('#cancel' directive)
+	 * @return
+	 */
+	public boolean isCancelledByTemplate() { // v 4.1.0
+		return cancelledByTemplate ;
+	}
+
+	/**
+	 * Returns true if the last target file has been written <br>
+	 * (false if the result is void or identical to the existing file)
+	 * @return
+	 */
+	public boolean isOutputWritten() { // v 4.1.0
+		return outputWritten ;
+	}
+
+	/**
+	 * Returns true if the last target result is void (nothing written, the file may not exist)
+	 * @return
+	 */
+	public boolean isOutputVoid() { // v 4.1.0
+		return outputVoid ;
+	}
+
+	private void checkCancellation(Target target) throws TaskCancelledException { // v 4.1.0
+		if ( cancellationCheck != null && cancellationCheck.getAsBoolean() ) {
+			throw new TaskCancelledException("Generation cancelled before target '" + target.getFile() + "'");
+		}
+	}
+
+	/**
+	 * Returns the cancellation at the origin of the given exception (if any) <br>
+	 * (a cancellation in the embedded generator is wrapped by the template engine)
+	 * @param exception
+	 * @return the cancellation or null
+	 */
+	private TaskCancelledException getCancellation(Throwable exception) { // v 4.1.0
+		Throwable e = exception ;
+		while ( e != null ) {
+			if ( e instanceof TaskCancelledException ) {
+				return (TaskCancelledException) e ;
+			}
+			e = ( e.getCause() != e ? e.getCause() : null ) ;
+		}
+		return null ;
+	}
+
+	private void incrementMetric(String name) {
+		if ( metrics != null ) {
+			metrics.increment(name);
+		}
+	}
+
 	private void log(String s) {
 		if (logger != null) {
 			logger.log(s);
@@ -81,6 +247,13 @@ public class Generator {
 	private GeneratorTemplate loadTemplate(Target target) { //throws GeneratorException {
 		
 		String templateFileName  = target.getTemplate();
+		//--- Template already resolved and checked by the preflight (v 4.1.0)
+		if ( templatesPreflight != null ) {
+			GeneratorTemplate template = templatesPreflight.getTemplate(templateFileName);
+			if ( template != null ) {
+				return template ;
+			}
+		}
 		String templateDirectory = telosysToolsCfg.getTemplatesFolderAbsolutePath(); // v 3.0.0
 
 		checkTemplate( templateDirectory, templateFileName);
@@ -194,8 +367,41 @@ public class Generator {
 		
 		logger.info("Gen : " + target.getTemplate() + " : " +  entityName  );
 		
+		checkCancellation(target); // v 4.1.0
+		renderDuration = 0 ;
+		writeDuration = 0 ;
+		restoredFromCache = false ;
+		cancelledByTemplate = false ;
+		outputWritten = false ;
+		outputVoid = false ;
+		
+		//--- Result already in the render cache ? (v 4.1.0)
+		String renderKey = null ;
+		if ( renderCache != null ) {
+			renderKey = renderCache.getKeyBuilder(telosysToolsCfg, bundleName, model).buildKey(target, selectedEntitiesNames);
+			if ( renderKey == null ) {
+				incrementMetric(GenerationMetrics.RENDER_CACHE_UNCACHEABLE);
+			}
+			else {
+				String cachedResult = renderCache.get(renderKey);
+				if ( cachedResult != null ) {
+					incrementMetric(GenerationMetrics.RENDER_CACHE_HITS);
+					logger.log("Result restored from render cache");
+					restoredFromCache = true ;
+					saveResult(target, cachedResult, generatedTargets);
+					return ;
+				}
+				incrementMetric(GenerationMetrics.RENDER_CACHE_MISSES);
+			}
+		}
+		
 		//--- Creation of a full context for the generator
 		GeneratorContextBuilder generatorContextBuilder = new GeneratorContextBuilder(telosysToolsCfg, logger);
+		generatorContextBuilder.setMetrics(metrics); // v 4.1.0
+		generatorContextBuilder.setContextBase(contextBase); // v 4.1.0
+		generatorContextBuilder.setParentContext(parentContext); // v 4.1.0
+		generatorContextBuilder.setModelSnapshot(modelSnapshot); // v 4.1.0
+		generatorContextBuilder.setCancellationCheck(cancellationCheck); // v 4.1.0
 		GeneratorContext generatorContext = generatorContextBuilder.initFullContext(
 				model, 
 				//_databasesConfigurations, 
@@ -208,6 +414,7 @@ public class Generator {
 		CancelDirectiveException cancelException = null ;
 		String result = null; // v 3.3.0
 //		InputStream is = null;
+		long renderStart = System.nanoTime(); // v 4.1.0
 		try {
 //			is = generateInMemory(target, generatorContext);
 			result = generateInMemory(target, generatorContext); // v 3.3.0
@@ -216,12 +423,21 @@ public class Generator {
 			// generation has been canceled with #cancel directive
 			logger.log("catch(CancelDirectiveException) ");
 			cancelException = e ;
+			cancelledByTemplate = true ; // v 4.1.0
 		} catch (Exception e) { // All exceptions 
 			logger.log("catch(Exception) ");
+			//--- Task cancelled during the generation of a sub-target : the current target is not saved (v 4.1.0)
+			TaskCancelledException cancellation = getCancellation(e);
+			if ( cancellation != null ) {
+				logger.info("CANCELLED : " + target.getTemplate() + " : " + entityName );
+				throw cancellation ;
+			}
 			String msg = "Entity '" + target.getEntityName() + "' - Template '" + target.getTemplate() + "'" ;
 			logger.error(msg);
 			logger.error(e.getMessage());
 			throw new GeneratorException(msg + " : " + e.getMessage(), e);
+		} finally {
+			renderDuration = System.nanoTime() - renderStart ; // v 4.1.0
 		} // Generate the target in memory
 
 		if ( cancelException != null ) {
@@ -230,24 +446,62 @@ public class Generator {
 		}
 		else {
 			//--- GENERATION OK : Save generation result in the destiantion file
-			String outputFileName = target.getOutputFileNameInFileSystem( 
-					telosysToolsCfg.getDestinationFolderAbsolutePath() ); // v 3.0.0
-			logger.log("Saving target file : " + outputFileName );
-//			saveStreamInFile(is, outputFileName, true );
-			if (result != null && !result.isEmpty()) {//SICODE
-				saveResultInFile(result, outputFileName, true); // v 3.0.0
-			}//SICODE
-			logger.info("OK :  " + target.getOutputFileNameInProject() );
-			
-			//--- Add the generated target in the list if any
-			if ( generatedTargets != null ) {
-				generatedTargets.add(target);
+			saveResult(target, result, generatedTargets);
+			//--- Keep the result for the next generations (v 4.1.0)
+			if ( renderKey != null && result != null ) {
+				storeInRenderCache(renderKey, result);
 			}
 		}
 	}
 	
+	private void saveResult(Target target, String result, List<Target> generatedTargets) throws GeneratorException {
+		String outputFileName = target.getOutputFileNameInFileSystem( 
+				telosysToolsCfg.getDestinationFolderAbsolutePath() ); // v 3.0.0
+		logger.log("Saving target file : " + outputFileName );
+//		saveStreamInFile(is, outputFileName, true );
+		long writeStart = System.nanoTime(); // v 4.1.0
+		if (result != null && !result.isEmpty()) {//SICODE
+			outputWritten = saveResultInFile(result, outputFileName, true); // v 3.0.0
+		}//SICODE
+		else {
+			outputVoid = true ; // v 4.1.0
+		}
+		writeDuration = System.nanoTime() - writeStart ; // v 4.1.0
+		if ( ! outputWritten && ! outputVoid ) {
+			//--- Same content : file not written and not counted as generated (v 4.1.0)
+			logger.info("UNCHANGED :  " + target.getOutputFileNameInProject() );
+			return ;
+		}
+		logger.info("OK :  " + target.getOutputFileNameInProject() );
+		
+		//--- Add the generated target in the list if any
+		if ( generatedTargets != null ) {
+			generatedTargets.add(target);
+		}
+	}
+	
+	private void storeInRenderCache(String renderKey, String result) { // v 4.1.0
+		try {
+			int evictions = renderCache.put(renderKey, result);
+			if ( metrics != null ) {
+				metrics.add(GenerationMetrics.RENDER_CACHE_EVICTIONS, evictions);
+			}
+		} catch (GeneratorException e) {
+			// not blocking : the file is generated, only the cache is not updated
+			logger.error(e.getMessage());
+		}
+	}
+	
 	//private void saveStreamInFile(InputStream is, String fileName, boolean bCreateDir) throws GeneratorException
-	private void saveResultInFile(String result, String fileName, boolean bCreateDir) throws GeneratorException
+	/**
+	 * Saves the result in the given file (only if the file content is different if 'skipUnchangedFiles')
+	 * @param result
+	 * @param fileName
+	 * @param bCreateDir
+	 * @return true if the file has been written, false if unchanged
+	 * @throws GeneratorException
+	 */
+	private boolean saveResultInFile(String result, String fileName, boolean bCreateDir) throws GeneratorException
 	{
 		File file = new File(fileName);
 		
@@ -281,7 +535,11 @@ public class Generator {
 //		} catch (IOException e) {
 //			throw new GeneratorException("Cannot save file "+fileName, e);
 //		}
+		if ( skipUnchangedFiles ) { // v 4.1.0
+			return GeneratorFileWriter.writeGenerationResultIfChanged(result, file); 
+		}
 		GeneratorFileWriter.writeGenerationResult(result, file);
+		return true ;
 	}
 	
 }
\ No newline at end of file
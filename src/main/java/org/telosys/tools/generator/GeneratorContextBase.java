@@ -0,0 +1,171 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.context.BeanValidation;
+import org.telosys.tools.generator.context.BundleInContext;
+import org.telosys.tools.generator.context.Const;
+import org.telosys.tools.generator.context.CsharpInContext;
+import org.telosys.tools.generator.context.FactoryInContext;
+import org.telosys.tools.generator.context.H2InContext;
+import org.telosys.tools.generator.context.HtmlInContext;
+import org.telosys.tools.generator.context.Java;
+import org.telosys.tools.generator.context.Loader;
+import org.telosys.tools.generator.context.NowInContext;
+import org.telosys.tools.generator.context.PhpInContext;
+import org.telosys.tools.generator.context.ProjectInContext;
+import org.telosys.tools.generator.context.Today;
+import org.telosys.tools.generator.context.names.ContextName;
+import org.telosys.tools.generator.engine.GeneratorContext;
+
+/**
+ * Base layer of the generator context, built once for a generation task (for a bundle) <br>
+ * It contains the objects that never change during the generation : <br>
+ * . the project variables <br>
+ * . the special characters <br>
+ * . the stateless tools ( $java, $html, $const, $h2, etc ) <br>
+ * . the objects depending only on the configuration and the bundle ( $project, $bundle, $loader ) <br>
+ * <br>
+ * The objects with a state ( $env, $fn, $jpa, $jdbcFactory, $model, $generator, $target, $entity, etc ) 
+ * are not in this base layer, they are created for each target by the GeneratorContextBuilder 
+ * 
+ * @author Laurent Guerin
+ *  
+ */
+public class GeneratorContextBase {
+
+	private final TelosysToolsCfg     telosysToolsCfg ;
+	private final String              bundleName ;
+	private final Map<String, Object> sharedObjects ; // in the original context order 
+
+	/**
+	 * Names of the objects put after the plugins in the original context (cannot be overridden by a plugin)
+	 */
+	private static final String[] NOT_OVERRIDABLE_NAMES = { 
+			ContextName.LOADER, ContextName.PROJECT, ContextName.BUNDLE, ContextName.FACTORY } ;
+
+	/**
+	 * Constructor
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 */
+	public GeneratorContextBase(TelosysToolsCfg telosysToolsCfg, String bundleName) {
+		super();
+		if ( telosysToolsCfg == null ) {
+			throw new IllegalArgumentException("TelosysToolsCfg parameter is null");
+		}
+		this.telosysToolsCfg = telosysToolsCfg ;
+		this.bundleName = bundleName ;
+		
+		Map<String, Object> map = new LinkedHashMap<>();
+		initProjectVariables(map);
+		initSpecialCharacters(map);
+		initSharedObjects(map);
+		this.sharedObjects = Collections.unmodifiableMap(map);
+	}
+	
+	private void initProjectVariables(Map<String, Object> map) {
+		//--- Get all the project variables 
+		Variable[] projectVariables = telosysToolsCfg.getAllVariables();
+		if ( projectVariables != null ) {
+			for ( Variable var : projectVariables ) {
+				map.put( var.getName(), var.getValue() );
+			}
+		}
+	}
+	
+	private void initSpecialCharacters(Map<String, Object> map) {
+		map.put(ContextName.DOLLAR , "$"  );
+		map.put(ContextName.SHARP,   "#"  );
+		map.put(ContextName.AMP,     "&"  ); // ampersand 
+		map.put(ContextName.QUOT,    "\"" ); // double quotation mark
+		map.put(ContextName.LT,      "<"  ); // less-than sign
+		map.put(ContextName.GT,      ">"  ); // greater-than sign
+		map.put(ContextName.LBRACE,  "{"  ); // left brace
+		map.put(ContextName.RBRACE,  "}"  ); // right brace
+		map.put(ContextName.NEWLINE, "\n" ); 
+		map.put(ContextName.TAB,     "\t" ); 
+	}
+	
+	private void initSharedObjects(Map<String, Object> map) {
+		map.put(ContextName.TODAY,           new Today()); // Current date and time 
+		map.put(ContextName.NOW,             new NowInContext()); // Current date and time ( ver 3.3.0 )
+		map.put(ContextName.CONST,           new Const()); // Constants (static values)
+		map.put(ContextName.H2,              new H2InContext());  // JDBC factory ( ver 2.1.1 )
+		map.put(ContextName.JAVA,            new Java());  // Java utility functions
+		map.put(ContextName.BEAN_VALIDATION, new BeanValidation()); // Bean Validation utility functions
+		map.put(ContextName.HTML,            new HtmlInContext());  // HTML utilities ( ver 3.0.0 )
+		map.put(ContextName.PHP,             new PhpInContext());  // PHP utilities ( ver 4.1.0 )
+		map.put(ContextName.CSHARP,          new CsharpInContext());  // C# utilities ( ver 4.1.0 )
+		map.put(ContextName.FACTORY,         new FactoryInContext());  // v 3.4.0
+		//--- The dynamic class loader 
+		map.put(ContextName.LOADER, new Loader( telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName) ) );
+		//--- The "$bundle" object ( new in v 3.3.0 ) 
+		map.put(ContextName.BUNDLE, new BundleInContext(bundleName) ); 
+		//--- The "$project" object
+		map.put(ContextName.PROJECT, new ProjectInContext(telosysToolsCfg)); 
+	}
+
+	/**
+	 * Returns true if this base can be used for the given configuration and bundle
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @return
+	 */
+	public boolean isUsableFor(TelosysToolsCfg telosysToolsCfg, String bundleName) {
+		return this.telosysToolsCfg == telosysToolsCfg 
+				&& ( this.bundleName == null ? bundleName == null : this.bundleName.equals(bundleName) ) ;
+	}
+
+	/**
+	 * Puts all the objects of this base layer in the given context
+	 * @param generatorContext
+	 */
+	public void populate(GeneratorContext generatorContext) {
+		for ( Map.Entry<String, Object> entry : sharedObjects.entrySet() ) {
+			generatorContext.put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Puts again the objects that the plugins are not allowed to override ( $loader, $project, $bundle, $factory ) <br>
+	 * To be called after the plugins contexts in order to keep the original precedence
+	 * @param generatorContext
+	 */
+	public void populateNotOverridable(GeneratorContext generatorContext) {
+		for ( String name : NOT_OVERRIDABLE_NAMES ) {
+			generatorContext.put(name, sharedObjects.get(name));
+		}
+	}
+
+	/**
+	 * Returns all the objects of this base layer (unmodifiable map)
+	 * @return
+	 */
+	public Map<String, Object> getSharedObjects() {
+		return sharedObjects ;
+	}
+
+	public String getBundleName() {
+		return bundleName ;
+	}
+}
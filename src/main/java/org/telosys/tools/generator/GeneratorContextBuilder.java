@@ -16,33 +16,20 @@
 package org.telosys.tools.generator;
 
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 import org.telosys.tools.commons.StrUtil;
 import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.cfg.TelosysToolsCfg;
 import org.telosys.tools.commons.plugins.PluginHandler;
-import org.telosys.tools.commons.variables.Variable;
-import org.telosys.tools.generator.context.BeanValidation;
-import org.telosys.tools.generator.context.BundleInContext;
-import org.telosys.tools.generator.context.Const;
-import org.telosys.tools.generator.context.CsharpInContext;
 import org.telosys.tools.generator.context.EmbeddedGenerator;
 import org.telosys.tools.generator.context.EntityInContext;
 import org.telosys.tools.generator.context.EnvInContext;
-import org.telosys.tools.generator.context.FactoryInContext;
 import org.telosys.tools.generator.context.FnInContext;
-import org.telosys.tools.generator.context.H2InContext;
-import org.telosys.tools.generator.context.HtmlInContext;
-import org.telosys.tools.generator.context.Java;
 import org.telosys.tools.generator.context.JdbcFactoryInContext;
 import org.telosys.tools.generator.context.JpaInContext;
-import org.telosys.tools.generator.context.Loader;
 import org.telosys.tools.generator.context.ModelInContext;
-import org.telosys.tools.generator.context.NowInContext;
-import org.telosys.tools.generator.context.PhpInContext;
-import org.telosys.tools.generator.context.ProjectInContext;
 import org.telosys.tools.generator.context.Target;
-import org.telosys.tools.generator.context.Today;
 import org.telosys.tools.generator.context.names.ContextName;
 import org.telosys.tools.generator.engine.GeneratorContext;
 import org.telosys.tools.generic.model.Model;
@@ -62,6 +49,12 @@ public class GeneratorContextBuilder {
 	private Model                     model = null ;
 	private ModelInContext            modelInContext = null ;
 	
+	private GenerationMetrics         metrics = null ; // v 4.1.0
+	private GeneratorContextBase      contextBase = null ; // v 4.1.0
+	private GeneratorContext          parentContext = null ; // v 4.1.0
+	private ModelSnapshot             modelSnapshot = null ; // v 4.1.0
+	private BooleanSupplier           cancellationCheck = null ; // v 4.1.0
+	
 	private void log(String s) {
 		if (logger != null) {
 			logger.log(s);
@@ -84,99 +77,140 @@ public class GeneratorContextBuilder {
 //		generatorContext = new GeneratorContext(); 		
 	}
 	
+	/**
+	 * Set the metrics to be updated by the context objects (optional)
+	 * @param metrics
+	 */
+	public void setMetrics(GenerationMetrics metrics) { // v 4.1.0
+		this.metrics = metrics ;
+	}
+	
+	/**
+	 * Set the base layer shared by all the contexts of the task (optional) <br>
+	 * If not set (or not usable for the bundle) a new base layer is created 
+	 * @param contextBase
+	 */
+	public void setContextBase(GeneratorContextBase contextBase) { // v 4.1.0
+		this.contextBase = contextBase ;
+	}
+
+	/**
+	 * Set the context of the parent target (optional, only for a sub-target) <br>
+	 * If set, the '$model' and '$env' objects of the parent context are reused (no new model) <br>
+	 * NB : the '$env' settings are reset and restored by the embedded generator
+	 * @param parentContext
+	 */
+	public void setParentContext(GeneratorContext parentContext) { // v 4.1.0
+		this.parentContext = parentContext ;
+	}
+
+	/**
+	 * Set the model snapshot shared by all the targets of the task (optional) <br>
+	 * If set (and usable for the model) its '$model' is reused and its '$env' is reset (no new model) <br>
+	 * Not used for a sub-target (the parent context is used)
+	 * @param modelSnapshot
+	 */
+	public void setModelSnapshot(ModelSnapshot modelSnapshot) { // v 4.1.0
+		this.modelSnapshot = modelSnapshot ;
+	}
+
+	/**
+	 * Set the function used to know if the task has been cancelled (optional) <br>
+	 * Used by the embedded generator before each sub-target
+	 * @param cancellationCheck
+	 */
+	public void setCancellationCheck(BooleanSupplier cancellationCheck) { // v 4.1.0
+		this.cancellationCheck = cancellationCheck ;
+	}
+
 //	public GeneratorContext getGeneratorContext() {
 //		return generatorContext ;		
 //	}
 
-	private void initProjectVariables(GeneratorContext generatorContext) {
-		//--- Get all the project variables and put them in the context	
-		Variable[] projectVariables = telosysToolsCfg.getAllVariables();
-		log("initProjectVariables() : Project variables count = " + ( projectVariables != null ? projectVariables.length : 0 ) );
-		//--- Set the project variables in the context ( if any )
-		if ( projectVariables != null ) {
-			for ( int i = 0 ; i < projectVariables.length ; i++ ) {
-				Variable var = projectVariables[i];
-				generatorContext.put( var.getName(), var.getValue() );
-			}
+	/**
+	 * Returns the base layer to be used for the given bundle <br>
+	 * (the base layer defined for the task if any, or a new one)
+	 * @param bundleName
+	 * @return
+	 */
+	private GeneratorContextBase getContextBase(String bundleName) {
+		if ( contextBase == null || ! contextBase.isUsableFor(telosysToolsCfg, bundleName) ) {
+			log("getContextBase() : new base layer for bundle '" + bundleName + "'");
+			contextBase = new GeneratorContextBase(telosysToolsCfg, bundleName);
 		}
+		return contextBase ;
 	}
 
 	/**
-	 * Initializes the context with basic objects
+	 * Initializes the context with the objects specific to each target (with a state)
 	 * @param generatorContext
 	 * @param model
 	 * @param bundleName
 	 * @return
 	 */
-	private void initBasicObjects(GeneratorContext generatorContext, Model model, String bundleName ) {
-		
-		//--- Special Characters
-		generatorContext.put(ContextName.DOLLAR , "$"  );
-		generatorContext.put(ContextName.SHARP,   "#"  );
-		generatorContext.put(ContextName.AMP,     "&"  ); // ampersand 
-		generatorContext.put(ContextName.QUOT,    "\"" ); // double quotation mark
-		generatorContext.put(ContextName.LT,      "<"  ); // less-than sign
-		generatorContext.put(ContextName.GT,      ">"  ); // greater-than sign
-		generatorContext.put(ContextName.LBRACE,  "{"  ); // left brace
-		generatorContext.put(ContextName.RBRACE,  "}"  ); // right brace
-		
-		generatorContext.put(ContextName.NEWLINE, "\n"  ); // #LGU 2017-08-16
-		generatorContext.put(ContextName.TAB,     "\t"  ); // #LGU 2017-08-16
-		
-//		//--- Get all the project variables and put them in the context	
-//		Variable[] projectVariables = telosysToolsCfg.getAllVariables();
-//		log("initContext() : Project variables count = " + ( projectVariables != null ? projectVariables.length : 0 ) );
-//		//--- Set the project variables in the context ( if any )
-//		if ( projectVariables != null ) {
-//			for ( int i = 0 ; i < projectVariables.length ; i++ ) {
-//				Variable var = projectVariables[i];
-//				generatorContext.put( var.getName(), var.getValue() );
-//			}
-//		}
+	private void initTargetObjects(GeneratorContext generatorContext, Model model, String bundleName ) {
 		
+		//--- Objects reused from the parent context if any (v 4.1.0)
+		EnvInContext   parentEnv   = getFromParentContext(ContextName.ENV, EnvInContext.class);
+		ModelInContext parentModel = getFromParentContext(ContextName.MODEL, ModelInContext.class);
+		boolean reuseParent = ( parentEnv != null && parentModel != null ) ;
+		//--- Objects reused from the model snapshot of the task if any (v 4.1.0)
+		boolean reuseSnapshot = ( ! reuseParent && modelSnapshot != null && modelSnapshot.isUsableFor(model, telosysToolsCfg) ) ;
+
 		//--- Set "$env" object ( environment configuration )
-		EnvInContext env = new EnvInContext() ;
+		EnvInContext env ;
+		if ( reuseParent ) {
+			env = parentEnv ;
+		}
+		else if ( reuseSnapshot ) {
+			env = modelSnapshot.getEnv() ;
+			env.reset(); // same as a new '$env' for each target
+		}
+		else {
+			env = new EnvInContext() ;
+		}
 		generatorContext.put(ContextName.ENV, env);  
 
 		//--- Set the standard Velocity variables in the context
 		generatorContext.put(ContextName.GENERATOR,       new EmbeddedGenerator());  // Limited generator without generation capability 
-		generatorContext.put(ContextName.TODAY,           new Today()); // Current date and time 
-		generatorContext.put(ContextName.NOW,             new NowInContext()); // Current date and time ( ver 3.3.0 )
-		generatorContext.put(ContextName.CONST,           new Const()); // Constants (static values)
 		generatorContext.put(ContextName.FN,              new FnInContext(generatorContext, env)); // Utility functions
-		generatorContext.put(ContextName.H2,              new H2InContext());  // JDBC factory ( ver 2.1.1 )
-		
-		generatorContext.put(ContextName.JAVA,            new Java());  // Java utility functions
 		generatorContext.put(ContextName.JPA,             new JpaInContext());   // JPA utility functions
 		generatorContext.put(ContextName.JDBC_FACTORY,    new JdbcFactoryInContext());  // JDBC factory ( ver 2.1.1 )
-		generatorContext.put(ContextName.BEAN_VALIDATION, new BeanValidation()); // Bean Validation utility functions
-		generatorContext.put(ContextName.HTML,            new HtmlInContext());  // HTML utilities ( ver 3.0.0 )
-		generatorContext.put(ContextName.PHP,             new PhpInContext());  // PHP utilities ( ver 4.1.0 )
-		generatorContext.put(ContextName.CSHARP,          new CsharpInContext());  // C# utilities ( ver 4.1.0 )
 		
 		//SICODE
 		PluginHandler.putGeneratorContexts(generatorContext, telosysToolsCfg, model, bundleName);
-
-		//--- Set the dynamic class loader 
-		Loader loader = new Loader( telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName) ); 
-		generatorContext.put(ContextName.LOADER, loader);
-		
-		//--- Set the "$project" variable in the context
-		generatorContext.put(ContextName.PROJECT, new ProjectInContext(telosysToolsCfg)); 
+		//--- Objects put after the plugins in the original context ( not overridable ) v 4.1.0
+		getContextBase(bundleName).populateNotOverridable(generatorContext);
 
 		//--- Set "$model" object : full model with  all the entities 
 		this.model = model ;
-		this.modelInContext = new ModelInContext(model, telosysToolsCfg, env ); 
+		if ( reuseParent ) {
+			log("initTargetObjects() : model reused from parent context");
+			this.modelInContext = parentModel ; // v 4.1.0
+		}
+		else if ( reuseSnapshot ) {
+			this.modelInContext = modelSnapshot.getModelInContext() ; // v 4.1.0
+		}
+		else {
+			this.modelInContext = new ModelInContext(model, telosysToolsCfg, env, metrics ); 
+		}
 		generatorContext.put(ContextName.MODEL, modelInContext); 
-		
-		//--- Set "$bundle" object ( new in v 3.3.0 ) 
-		BundleInContext bundle = new BundleInContext(bundleName); // v 3.3.0
-		generatorContext.put(ContextName.BUNDLE, bundle); // v 3.0.0
-		
-		//--- Set "$factory" object (version 3.4.0) 
-		generatorContext.put(ContextName.FACTORY, new FactoryInContext());  // v 3.4.0
-
-		// return generatorContext ;
+	}
+	
+	/**
+	 * Returns the object with the given name and type from the parent context (or null if none)
+	 * @param name
+	 * @param type
+	 * @return
+	 */
+	private <T> T getFromParentContext(String name, Class<T> type) { // v 4.1.0
+		if ( parentContext != null ) {
+			Object o = parentContext.get(name);
+			if ( type.isInstance(o) ) {
+				return type.cast(o);
+			}
+		}
+		return null ;
 	}
 	
 	/**
@@ -194,10 +228,10 @@ public class GeneratorContextBuilder {
 
 		//--- New context 
 		GeneratorContext generatorContext = new GeneratorContext();
-		//--- Init with specific variables
-		initProjectVariables(generatorContext);
-		//--- Initialize with basic objects
-		initBasicObjects(generatorContext, model, bundleName);		
+		//--- Init with the base layer : project variables and objects without state (v 4.1.0)
+		getContextBase(bundleName).populate(generatorContext);
+		//--- Init with the objects specific to the target 
+		initTargetObjects(generatorContext, model, bundleName);		
 		//--- Init with further elements
 		setEmbeddedGenerator(generatorContext, selectedEntitiesNames, bundleName, generatedTargets);
 		setSelectedEntities(generatorContext, selectedEntitiesNames);
@@ -235,7 +269,7 @@ public class GeneratorContextBuilder {
 	private void setEmbeddedGenerator(GeneratorContext generatorContext, List<String> selectedEntitiesNames, String bundleName, List<Target> generatedTargets) {
 		//--- Set the "$generator"  in the context ( "real" embedded generator )
 		EmbeddedGenerator embeddedGenerator = new EmbeddedGenerator( telosysToolsCfg, bundleName, logger,
-				this.model, selectedEntitiesNames, generatedTargets );
+				this.model, selectedEntitiesNames, generatedTargets, metrics, contextBase, generatorContext, cancellationCheck );
 		generatorContext.put(ContextName.GENERATOR, embeddedGenerator );
 	}		
 }
\ No newline at end of file
@@ -22,6 +22,14 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The file writer used by the generator to write generated files
@@ -49,17 +57,132 @@ public class GeneratorFileWriter {
 	}
 	
 	/**
-	 * Writes the given content in the given file with UTF-8 charset
+	 * Writes the given content in the given file with UTF-8 charset (see 'replaceFile') 
 	 * @param content
 	 * @param file
 	 * @throws GeneratorException
 	 */
 	public static void writeGenerationResult(String content, File file) throws GeneratorException {
 		try {
-			writeFileUTF8(content, file);
+			replaceFile(file, content.getBytes(StandardCharsets.UTF_8)); // v 4.1.0
 		} catch (IOException e) {
 			throw new GeneratorException("Cannot write result in file '"+ file.toString() +"'", e);
 		}
 	}
+
+	/**
+	 * Replaces the given file with the given content <br>
+	 * The content is written in a temporary file (unique name in the same folder) renamed at the end, 
+	 * so the file is never partially written (if the process is stopped or in case of error the 
+	 * original file is unchanged) and concurrent writers of the same file do not collide <br>
+	 * NB : the file is replaced (not rewritten) : its POSIX permissions are kept, a symbolic link 
+	 * is kept (the file it points to is replaced), but a hard link is no longer shared
+	 * @param file
+	 * @param content
+	 * @throws IOException (no temporary file left)
+	 */
+	public static void replaceFile(File file, byte[] content) throws IOException { // v 4.1.0
+		Path tmpPath = null ; 
+		try {
+			Path targetPath = resolveLinks(file.getAbsoluteFile().toPath());
+			tmpPath = createTemporaryFile(targetPath);
+			Files.write(tmpPath, content);
+			copyPermissions(targetPath, tmpPath);
+			moveFile(tmpPath, targetPath);
+		} catch (IOException e) {
+			deleteTemporaryFile(tmpPath, e); // no temporary file left in the destination folder
+			throw e ;
+		}
+	}
+
+	/**
+	 * Returns the file to be replaced for the given path (the final target if the path is a symbolic link)
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	private static Path resolveLinks(Path path) throws IOException { // v 4.1.0
+		Path p = path ;
+		int n = 0 ;
+		while ( Files.isSymbolicLink(p) ) {
+			if ( ++n > 40 ) {
+				throw new IOException("Too many levels of symbolic links for '" + path + "'");
+			}
+			p = p.getParent().resolve(Files.readSymbolicLink(p)); // also for a link to a file not yet created
+		}
+		return p ;
+	}
+
+	/**
+	 * Creates a new temporary file (unique name) in the folder of the given file <br>
+	 * NB : not created with 'Files.createTempFile' (owner only permissions) in order to 
+	 * have the default permissions for a new generated file
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	private static Path createTemporaryFile(Path path) throws IOException { // v 4.1.0
+		Path folder = path.getParent();
+		String prefix = "." + path.getFileName() + "." ;
+		while ( true ) {
+			Path tmpPath = folder.resolve(prefix + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+			try {
+				return Files.createFile(tmpPath);
+			} catch (FileAlreadyExistsException e) {
+				// name already used : try another one
+			}
+		}
+	}
+
+	private static void copyPermissions(Path source, Path target) throws IOException { // v 4.1.0
+		if ( Files.exists(source) && Files.getFileAttributeView(source, PosixFileAttributeView.class) != null ) {
+			Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+		}
+	}
+
+	private static void deleteTemporaryFile(Path tmpPath, IOException originalException) { // v 4.1.0
+		if ( tmpPath != null ) {
+			try {
+				Files.deleteIfExists(tmpPath);
+			} catch (IOException e) {
+				originalException.addSuppressed(e); // reported with the original error
+			}
+		}
+	}
+
+	/**
+	 * Writes the given content in the given file with UTF-8 charset, only if the file content is different <br>
+	 * (an unchanged file keeps its last modification date)
+	 * @param content
+	 * @param file
+	 * @return true if the file has been written, false if the file was already up to date
+	 * @throws GeneratorException
+	 */
+	public static boolean writeGenerationResultIfChanged(String content, File file) throws GeneratorException { // v 4.1.0
+		if ( file.isFile() ) {
+			byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+			if ( file.length() == bytes.length && sameContent(file, bytes) ) {
+				return false ;
+			}
+		}
+		writeGenerationResult(content, file);
+		return true ;
+	}
+
+	private static boolean sameContent(File file, byte[] bytes) {
+		try {
+			return Arrays.equals(Files.readAllBytes(file.toPath()), bytes);
+		} catch (IOException e) {
+			return false ; // cannot compare => file to be written
+		}
+	}
+
+	private static void moveFile(Path source, Path target) throws IOException { // v 4.1.0
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
 	
 }
\ No newline at end of file
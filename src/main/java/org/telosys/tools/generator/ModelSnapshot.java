@@ -0,0 +1,80 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generator.context.EnvInContext;
+import org.telosys.tools.generator.context.ModelInContext;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Model snapshot shared by all the targets of a generation task <br>
+ * The '$model' object (with all its entities, attributes, links and their caches) is built only once 
+ * and reused for each target, so the values computed for one template are reused by the next ones <br>
+ * The '$env' object referenced by the entities is also shared : its settings are reset before each target 
+ * (each template starts with a new '$env' as before) <br>
+ * NB : a snapshot is not designed to be used by several threads at the same time
+ * 
+ * @author Laurent Guerin
+ *  
+ */
+public class ModelSnapshot {
+
+	private final Model           model ;
+	private final TelosysToolsCfg telosysToolsCfg ;
+	private final EnvInContext    env ;
+	private final ModelInContext  modelInContext ;
+
+	/**
+	 * Constructor
+	 * @param model
+	 * @param telosysToolsCfg
+	 * @param metrics the metrics to be updated by the model objects (or null if not used)
+	 */
+	public ModelSnapshot(Model model, TelosysToolsCfg telosysToolsCfg, GenerationMetrics metrics) {
+		super();
+		this.model = model ;
+		this.telosysToolsCfg = telosysToolsCfg ;
+		this.env = new EnvInContext();
+		this.modelInContext = new ModelInContext(model, telosysToolsCfg, env, metrics);
+	}
+
+	/**
+	 * Returns true if this snapshot can be used for the given model and configuration
+	 * @param model
+	 * @param telosysToolsCfg
+	 * @return
+	 */
+	public boolean isUsableFor(Model model, TelosysToolsCfg telosysToolsCfg) {
+		return this.model == model && this.telosysToolsCfg == telosysToolsCfg ;
+	}
+
+	/**
+	 * Returns the '$env' object shared by all the targets (to be reset before each target)
+	 * @return
+	 */
+	public EnvInContext getEnv() {
+		return env ;
+	}
+
+	/**
+	 * Returns the '$model' object shared by all the targets
+	 * @return
+	 */
+	public ModelInContext getModelInContext() {
+		return modelInContext ;
+	}
+}
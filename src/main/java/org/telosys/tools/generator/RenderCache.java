@@ -0,0 +1,214 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * On-disk cache of the generation results (content-addressed) <br>
+ * Each result is stored in a file named with its key (a hash of all the generation inputs, see RenderCacheKeyBuilder) <br>
+ * The cache size is limited : the least recently used results are removed when the maximum size is reached <br>
+ * The cache folder can be shared by successive generations (the files last modification time is used to keep the LRU order)
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public class RenderCache {
+
+	private static final String FILE_SUFFIX = ".render" ;
+	
+	private final File folder ;
+	private final long maxSize ;
+	
+	private final LinkedHashMap<String, Long> entries ; // key --> file size (access order : least recently used first)
+	private long currentSize = 0 ;
+	
+	private RenderCacheKeyBuilder keyBuilder = null ; // last key builder (for the current model) 
+	
+	/**
+	 * Constructor <br>
+	 * The results already stored in the folder are reused 
+	 * @param folder the cache folder (created if it doesn't exist)
+	 * @param maxSize maximum size of all the results (in bytes)
+	 * @throws GeneratorException
+	 */
+	public RenderCache(File folder, long maxSize) throws GeneratorException {
+		super();
+		if ( folder == null ) {
+			throw new IllegalArgumentException("Render cache folder is null");
+		}
+		if ( maxSize <= 0 ) {
+			throw new IllegalArgumentException("Invalid render cache max size " + maxSize);
+		}
+		if ( ! folder.exists() && ! folder.mkdirs() ) {
+			throw new GeneratorException("Cannot create render cache folder '" + folder + "'");
+		}
+		if ( ! folder.isDirectory() ) {
+			throw new GeneratorException("Render cache folder '" + folder + "' is not a directory");
+		}
+		this.folder = folder ;
+		this.maxSize = maxSize ;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true); 
+		loadEntries();
+		evict();
+	}
+	
+	private void loadEntries() {
+		File[] files = folder.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+		if ( files != null ) {
+			// oldest first 
+			Arrays.sort(files, Comparator.comparingLong(File::lastModified).thenComparing(File::getName));
+			for ( File file : files ) {
+				String name = file.getName();
+				long size = file.length();
+				entries.put(name.substring(0, name.length() - FILE_SUFFIX.length()), size);
+				currentSize += size ;
+			}
+		}
+	}
+	
+	private File getFile(String key) {
+		return new File(folder, key + FILE_SUFFIX);
+	}
+	
+	/**
+	 * Removes the least recently used results until the cache size is under the maximum size
+	 * @return the number of results removed
+	 */
+	private int evict() {
+		int count = 0 ;
+		Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+		while ( currentSize > maxSize && iterator.hasNext() ) {
+			Map.Entry<String, Long> entry = iterator.next();
+			deleteFile(getFile(entry.getKey()));
+			currentSize -= entry.getValue();
+			iterator.remove();
+			count++;
+		}
+		return count ;
+	}
+	
+	private void deleteFile(File file) {
+		try {
+			Files.deleteIfExists(file.toPath());
+		} catch (IOException e) {
+			// not blocking : the file will be overwritten if the same result is stored again
+		}
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Notifies the beginning of a new generation : the templates or the model may have changed <br>
+	 * so the keys inputs (templates hashes, model fingerprints) will be computed again
+	 */
+	public synchronized void newGeneration() {
+		keyBuilder = null ;
+	}
+	
+	/**
+	 * Returns the key builder for the given generation inputs (reused during a generation)
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @param model
+	 * @return
+	 */
+	protected synchronized RenderCacheKeyBuilder getKeyBuilder(TelosysToolsCfg telosysToolsCfg, String bundleName, Model model) {
+		if ( keyBuilder == null || ! keyBuilder.isUsableFor(telosysToolsCfg, bundleName, model) ) {
+			keyBuilder = new RenderCacheKeyBuilder(telosysToolsCfg, bundleName, model);
+		}
+		return keyBuilder ;
+	}
+	
+	/**
+	 * Returns the result stored with the given key 
+	 * @param key
+	 * @return the result (or null if not in the cache)
+	 */
+	public synchronized String get(String key) {
+		if ( entries.get(key) == null ) { // 'get' to update the access order
+			return null ;
+		}
+		File file = getFile(key);
+		try {
+			String result = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			file.setLastModified(System.currentTimeMillis()); // keep the LRU order for the next generations
+			return result ;
+		} catch (IOException e) {
+			// file removed or not readable : no longer in the cache
+			currentSize -= entries.remove(key);
+			return null ;
+		}
+	}
+	
+	/**
+	 * Stores the given result with the given key 
+	 * @param key
+	 * @param result
+	 * @return the number of results removed to respect the maximum size 
+	 * @throws GeneratorException
+	 */
+	public synchronized int put(String key, String result) throws GeneratorException {
+		byte[] bytes = result.getBytes(StandardCharsets.UTF_8);
+		File file = getFile(key);
+		try {
+			//--- Written in a temporary file and renamed (a partial result is never visible)
+			GeneratorFileWriter.replaceFile(file, bytes);
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot store result in render cache '" + file + "'", e);
+		}
+		Long previousSize = entries.put(key, (long) bytes.length);
+		if ( previousSize != null ) {
+			currentSize -= previousSize ;
+		}
+		currentSize += bytes.length ;
+		return evict();
+	}
+
+	/**
+	 * Returns the number of results currently in the cache
+	 * @return
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the size of all the results currently in the cache (in bytes)
+	 * @return
+	 */
+	public synchronized long getCurrentSize() {
+		return currentSize ;
+	}
+
+	public long getMaxSize() {
+		return maxSize ;
+	}
+
+	public File getFolder() {
+		return folder ;
+	}
+}
@@ -0,0 +1,286 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.telosys.tools.commons.StrUtil;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.plugins.PluginHandler;
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.context.tools.ModelFingerprint;
+import org.telosys.tools.generator.engine.GeneratorContext;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Builds the render cache keys for a given configuration, bundle and model <br>
+ * A key is a SHA-256 hash of all the inputs of a generation : <br>
+ * . the generator version, the bundle name and the project variables <br>
+ * . the template file and all the files included with '#parse' or '#include' <br>
+ * . the target ( file, folder, entity name ) <br>
+ * . the raw structure (SHA-256 digest) of the entity and of all the entities it references 
+ *   (or of the whole model if the template uses '$model' or the incoming links) <br>
+ * . the selected entities and their raw structure (deep digest) if used by the template <br>
+ * <br>
+ * A template using objects that are not determined by these inputs ( $today, $now, $generator, $loader, 
+ * $fn.file..., non literal '#parse', objects provided by the plugins, etc ) cannot be cached (no key) 
+ * 
+ * @author Laurent Guerin
+ *
+ */
+class RenderCacheKeyBuilder {
+
+	private static final String KEY_VERSION = "3" ; // to be changed if the key composition changes
+
+	//--- Files included in the template 
+	private static final Pattern INCLUSION         = Pattern.compile("#\\{?(parse|include)\\b");
+	private static final Pattern LITERAL_INCLUSION = Pattern.compile("#\\{?(parse|include)\\}?\\s*\\(\\s*(?:\"([^\"$]*)\"|'([^']*)')\\s*\\)");
+	//--- Objects not determined by the key inputs
+	private static final Pattern VOLATILE_REFERENCE = Pattern.compile(
+			"\\$!?\\{?(today|now|generator|loader)\\b|\\$!?\\{?fn\\.file|outputFileExists");
+	//--- Objects requiring specific inputs in the key
+	private static final Pattern MODEL_REFERENCE    = Pattern.compile("\\$!?\\{?model\\b|[iI]ncoming");
+	private static final Pattern SELECTED_REFERENCE = Pattern.compile("\\$!?\\{?selectedEntities\\b");
+	private static final Pattern PROJECT_REFERENCE  = Pattern.compile("\\$!?\\{?project\\b|outputFileFullPath");
+	//--- All the references (to check the objects provided by the plugins)
+	private static final Pattern REFERENCE          = Pattern.compile("\\$!?\\{?([a-zA-Z][a-zA-Z0-9_\\-]*)");
+	
+	/**
+	 * Template information (built only once for each template)
+	 */
+	private static class TemplateInfo {
+		boolean cacheable = true ;
+		boolean usesModel = false ;
+		boolean usesSelectedEntities = false ;
+		boolean usesProject = false ;
+		String  digest = null ; // hash of the template and all its inclusions
+		final Set<String> references = new HashSet<>(); // names referenced in the template and its inclusions
+	}
+	
+	private final TelosysToolsCfg telosysToolsCfg ;
+	private final String bundleName ;
+	private final Model model ;
+	private final File bundleFolder ;
+	private final ModelFingerprint modelFingerprint ;
+	private final String commonInputs ; // inputs shared by all the keys
+	private GeneratorContext pluginsContext = null ; // objects provided by the plugins (built on first use)
+	
+	private final Map<String, TemplateInfo> templates = new HashMap<>();
+
+	/**
+	 * Constructor
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @param model
+	 */
+	protected RenderCacheKeyBuilder(TelosysToolsCfg telosysToolsCfg, String bundleName, Model model) {
+		super();
+		this.telosysToolsCfg = telosysToolsCfg ;
+		this.bundleName = bundleName ;
+		this.model = model ;
+		this.bundleFolder = new File(telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName));
+		this.modelFingerprint = new ModelFingerprint(model);
+		
+		StringBuilder sb = new StringBuilder();
+		sb.append(KEY_VERSION).append('\n');
+		sb.append(GeneratorVersion.GENERATOR_VERSION).append('\n');
+		sb.append(bundleName).append('\n');
+		Variable[] variables = telosysToolsCfg.getAllVariables();
+		if ( variables != null ) {
+			for ( Variable var : variables ) {
+				sb.append(var.getName()).append('=').append(var.getValue()).append('\n');
+			}
+		}
+		this.commonInputs = sb.toString();
+	}
+
+	/**
+	 * Returns true if this builder can be used for the given inputs 
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @param model
+	 * @return
+	 */
+	protected boolean isUsableFor(TelosysToolsCfg telosysToolsCfg, String bundleName, Model model) {
+		return this.telosysToolsCfg == telosysToolsCfg && this.model == model && this.bundleName.equals(bundleName) ;
+	}
+
+	/**
+	 * Returns the cache key for the given target 
+	 * @param target
+	 * @param selectedEntitiesNames
+	 * @return the key (or null if the target cannot be cached)
+	 */
+	protected String buildKey(Target target, List<String> selectedEntitiesNames) {
+		TemplateInfo templateInfo = getTemplateInfo(target.getTemplate());
+		if ( ! templateInfo.cacheable ) {
+			return null ;
+		}
+		MessageDigest md = newMessageDigest();
+		update(md, commonInputs);
+		update(md, target.getTemplate());
+		update(md, templateInfo.digest);
+		//--- Target
+		update(md, target.getFile());
+		update(md, target.getFolder());
+		update(md, target.getEntityName());
+		update(md, target.getType());
+		//--- Model
+		String entityName = target.getEntityName() ;
+		if ( templateInfo.usesModel || StrUtil.nullOrVoid(entityName) ) {
+			update(md, modelFingerprint.getModelDigest());
+		}
+		else {
+			update(md, modelFingerprint.getDeepEntityDigest(entityName));
+		}
+		//--- Optional inputs
+		if ( templateInfo.usesSelectedEntities && selectedEntitiesNames != null ) {
+			for ( String name : selectedEntitiesNames ) {
+				update(md, name);
+				// structure of each selected entity (usable by the template through '$selectedEntities')
+				update(md, modelFingerprint.getDeepEntityDigest(name));
+			}
+		}
+		if ( templateInfo.usesProject ) {
+			update(md, telosysToolsCfg.getProjectAbsolutePath());
+			update(md, telosysToolsCfg.getDestinationFolderAbsolutePath());
+		}
+		return toHex(md.digest());
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	private synchronized TemplateInfo getTemplateInfo(String templateName) {
+		TemplateInfo templateInfo = templates.get(templateName);
+		if ( templateInfo == null ) {
+			templateInfo = new TemplateInfo();
+			MessageDigest md = newMessageDigest();
+			analyzeTemplate(templateName, true, templateInfo, md, new HashSet<>());
+			if ( templateInfo.cacheable && usesPlugins(templateInfo) ) {
+				templateInfo.cacheable = false ; // objects not determined by the key inputs
+			}
+			if ( templateInfo.cacheable ) {
+				templateInfo.digest = toHex(md.digest());
+			}
+			templates.put(templateName, templateInfo);
+		}
+		return templateInfo ;
+	}
+	
+	private void analyzeTemplate(String fileName, boolean parsed, TemplateInfo templateInfo, MessageDigest md, Set<String> visited) {
+		if ( ! templateInfo.cacheable || ! visited.add(fileName) ) {
+			return ; // already known as not cacheable or file already analyzed 
+		}
+		byte[] bytes ;
+		try {
+			bytes = Files.readAllBytes(new File(bundleFolder, fileName).toPath());
+		} catch (IOException e) {
+			templateInfo.cacheable = false ; // the generation will report the error 
+			return ;
+		}
+		update(md, fileName);
+		md.update(bytes);
+		if ( ! parsed ) {
+			return ; // file included "as is" ('#include')
+		}
+		String text = new String(bytes, StandardCharsets.UTF_8);
+		if ( VOLATILE_REFERENCE.matcher(text).find() ) {
+			templateInfo.cacheable = false ;
+			return ;
+		}
+		templateInfo.usesModel |= MODEL_REFERENCE.matcher(text).find() ;
+		templateInfo.usesSelectedEntities |= SELECTED_REFERENCE.matcher(text).find() ;
+		templateInfo.usesProject |= PROJECT_REFERENCE.matcher(text).find() ;
+		Matcher reference = REFERENCE.matcher(text);
+		while ( reference.find() ) {
+			templateInfo.references.add(reference.group(1));
+		}
+		//--- Inclusions : all must be literal file names
+		int inclusions = 0 ;
+		Matcher m = INCLUSION.matcher(text);
+		while ( m.find() ) {
+			inclusions++ ;
+		}
+		Matcher literal = LITERAL_INCLUSION.matcher(text);
+		while ( literal.find() ) {
+			inclusions-- ;
+			String includedFile = literal.group(2) != null ? literal.group(2) : literal.group(3) ;
+			analyzeTemplate(includedFile, "parse".equals(literal.group(1)), templateInfo, md, visited);
+		}
+		if ( inclusions != 0 ) {
+			templateInfo.cacheable = false ; // file name defined with a variable 
+		}
+	}
+
+	/**
+	 * Returns true if the template references at least one object provided by the plugins
+	 * @param templateInfo
+	 * @return
+	 */
+	private boolean usesPlugins(TemplateInfo templateInfo) {
+		if ( pluginsContext == null ) {
+			pluginsContext = new GeneratorContext();
+			PluginHandler.putGeneratorContexts(pluginsContext, telosysToolsCfg, model, bundleName);
+		}
+		for ( String name : templateInfo.references ) {
+			if ( pluginsContext.get(name) != null ) {
+				return true ;
+			}
+		}
+		return false ;
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+	private static void update(MessageDigest md, byte[] bytes) {
+		if ( bytes != null ) {
+			md.update(bytes);
+		}
+		md.update((byte) 0);
+	}
+	private static void update(MessageDigest md, String s) {
+		if ( s != null ) {
+			md.update(s.getBytes(StandardCharsets.UTF_8));
+		}
+		md.update((byte) 0);
+	}
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for ( byte b : bytes ) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+}
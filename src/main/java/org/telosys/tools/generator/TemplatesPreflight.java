@@ -0,0 +1,201 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.runtime.log.NullLogChute;
+import org.apache.velocity.runtime.parser.ParseException;
+import org.telosys.tools.commons.FileUtil;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generator.engine.GeneratorTemplate;
+
+/**
+ * Templates preflight : all the templates of a generation task are resolved, checked and parsed 
+ * (in parallel) before generating any file <br>
+ * All the problems are reported at once and the resolved templates are reused for the whole task 
+ * (no more file checks for each target)
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public class TemplatesPreflight {
+
+	private final TelosysToolsCfg telosysToolsCfg ;
+	private final String          bundleName ;
+	
+	//--- Templates successfully checked and parsed (template file name --> template)
+	private final Map<String, GeneratorTemplate> templates = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 */
+	public TemplatesPreflight(TelosysToolsCfg telosysToolsCfg, String bundleName) {
+		super();
+		if ( telosysToolsCfg == null ) {
+			throw new IllegalArgumentException("TelosysToolsCfg parameter is null");
+		}
+		if ( bundleName == null ) {
+			throw new IllegalArgumentException("Bundle name parameter is null");
+		}
+		this.telosysToolsCfg = telosysToolsCfg ;
+		this.bundleName = bundleName ;
+	}
+
+	/**
+	 * Checks and parses the given templates (each template is checked only once) 
+	 * @param templateFileNames the templates used by the targets (duplicates allowed)
+	 * @return all the problems found (void list if all the templates are usable)
+	 */
+	public List<String> check(Collection<String> templateFileNames) {
+		List<String> problems = new LinkedList<>();
+		//--- Bundle folder checked only once for all the templates
+		String bundleFolderAbsolutePath = telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName) ;
+		File bundleFolder = new File(bundleFolderAbsolutePath);
+		if ( ! bundleFolder.isDirectory() ) {
+			problems.add("Templates folder '" + bundleFolderAbsolutePath + "' doesn't exist or is not a directory");
+			return problems ;
+		}
+		//--- Each template checked only once, in parallel
+		List<String> names = new LinkedList<>(new LinkedHashSet<>(templateFileNames));
+		if ( names.isEmpty() ) {
+			return problems ;
+		}
+		RuntimeInstance velocity = buildVelocityRuntime();
+		int nbThreads = Math.min(names.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+		try {
+			List<Future<String>> futures = new LinkedList<>();
+			for ( String templateFileName : names ) {
+				futures.add(executor.submit(buildCheckTask(velocity, bundleFolderAbsolutePath, templateFileName)));
+			}
+			for ( Future<String> future : futures ) { // problems kept in the templates order
+				String problem = waitFor(future);
+				if ( problem != null ) {
+					problems.add(problem);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return problems ;
+	}
+
+	/**
+	 * Returns the template resolved and checked by the preflight 
+	 * @param templateFileName
+	 * @return the template or null if not checked (or invalid)
+	 */
+	protected GeneratorTemplate getTemplate(String templateFileName) {
+		return templateFileName != null ? templates.get(templateFileName) : null ;
+	}
+
+	/**
+	 * Returns the number of templates successfully checked
+	 * @return
+	 */
+	public int getTemplatesCount() {
+		return templates.size();
+	}
+
+	/**
+	 * Returns the names of the templates successfully checked
+	 * @return
+	 */
+	public Collection<String> getTemplatesNames() {
+		return Collections.unmodifiableSet(templates.keySet());
+	}
+
+	//-------------------------------------------------------------------------------------
+	private String waitFor(Future<String> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "Templates preflight interrupted" ;
+		} catch (ExecutionException e) {
+			return "Templates preflight error : " + e.getCause() ;
+		}
+	}
+
+	private Callable<String> buildCheckTask(RuntimeInstance velocity, String bundleFolderAbsolutePath, String templateFileName) {
+		return () -> checkTemplate(velocity, bundleFolderAbsolutePath, templateFileName) ;
+	}
+
+	private String checkTemplate(RuntimeInstance velocity, String bundleFolderAbsolutePath, String templateFileName) {
+		if ( templateFileName == null ) {
+			return "Template file name is null" ;
+		}
+		File file = new File(FileUtil.buildFilePath(bundleFolderAbsolutePath, templateFileName));
+		if ( ! file.exists() ) {
+			return "Template file '" + file.getAbsolutePath() + "' doesn't exist" ;
+		}
+		if ( ! file.isFile() ) {
+			return "Template file '" + file.getAbsolutePath() + "' is not a file" ;
+		}
+		try ( Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8) ) {
+			velocity.parse(reader, templateFileName);
+		} catch (IOException e) {
+			return "Template '" + templateFileName + "' : cannot read file (" + e.getMessage() + ")" ;
+		} catch (ParseException e) {
+			return "Template '" + templateFileName + "' : " + e.getMessage() ;
+		}
+		// Same template parameters as the standard generation (see Generator) 
+		templates.put(templateFileName, new GeneratorTemplate(bundleFolderAbsolutePath, templateFileName));
+		return null ;
+	}
+
+	/**
+	 * Builds a Velocity runtime used only for parsing (no logs, no macro library)
+	 * @return
+	 */
+	private RuntimeInstance buildVelocityRuntime() {
+		//--- Workaround for Velocity error in OSGi environment (see Generator)
+		Thread currentThread = Thread.currentThread();
+		ClassLoader originalClassLoader = currentThread.getContextClassLoader();
+		currentThread.setContextClassLoader(this.getClass().getClassLoader());
+		try {
+			RuntimeInstance velocity = new RuntimeInstance();
+			velocity.setProperty(RuntimeConstants.RUNTIME_LOG_LOGSYSTEM_CLASS, NullLogChute.class.getName());
+			velocity.setProperty(RuntimeConstants.VM_LIBRARY, "");
+			velocity.init();
+			return velocity ;
+		} finally {
+			currentThread.setContextClassLoader(originalClassLoader);
+		}
+	}
+}
@@ -16,6 +16,7 @@
 package org.telosys.tools.generator.context;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -171,6 +172,8 @@ public class AttributeInContext {
 	
     private final boolean isUnique ;  // v 3.4.0
 
+    private final GeneratedTextCache annotationsCache ; // v 4.1.0
+
 
     //-----------------------------------------------------------------------------------------------
 	/**
@@ -285,10 +288,27 @@ public class AttributeInContext {
 		
 		this.isUnique = attribute.isUnique() ;  // v 3.4.0
 
+		this.annotationsCache = new GeneratedTextCache(env, modelInContext != null ? modelInContext.getMetrics() : null) ; // v 4.1.0
+	}
+
+	/**
+	 * Returns the cache for the annotations built for this attribute (by '$jpa', '$beanValidation', etc)
+	 * @return
+	 */
+	protected GeneratedTextCache getAnnotationsCache() { // v 4.1.0
+		return this.annotationsCache ;
 	}
 
 	protected final LanguageType getLanguageType() {
-		TypeConverter typeConverter = envInContext.getTypeConverter();
+		return getLanguageType(envInContext.getTypeConverter());
+	}
+	
+	/**
+	 * Returns the language type for the given type converter (not necessarily the current one)
+	 * @param typeConverter
+	 * @return
+	 */
+	/* package */ final LanguageType getLanguageType(TypeConverter typeConverter) {
 		LanguageType languageType = typeConverter.getType(this.attributeTypeInfo);
 		if ( languageType != null ) {
 			return languageType ;
@@ -853,7 +873,7 @@ public class AttributeInContext {
 	)
 	@VelocityReturnType("List of 'fkPart' objects")
 	public List<ForeignKeyPartInContext> getFkParts() {
-		return fkParts ;
+		return Collections.unmodifiableList(fkParts) ; // shared by all the targets of the task (v 4.1.0)
 	}
 	//-------------------------------------------------------------------------------------
 	@VelocityMethod ( text= { 
@@ -50,8 +50,10 @@ public class BeanValidation {
 	)
 	public String annotations(int iLeftMargin, AttributeInContext attribute )
     {
-		AnnotationsForBeanValidation annotations = new AnnotationsForBeanValidation(attribute);
-		return annotations.getValidationAnnotations(iLeftMargin );
+		return attribute.getAnnotationsCache().get("beanValidation|" + iLeftMargin, () -> { // v 4.1.0
+			AnnotationsForBeanValidation annotations = new AnnotationsForBeanValidation(attribute);
+			return annotations.getValidationAnnotations(iLeftMargin );
+		});
     }
 
 	//-------------------------------------------------------------------------------------------------------------
@@ -72,8 +74,10 @@ public class BeanValidation {
 	)
 	public String annotationsForWrapperType(int iLeftMargin, AttributeInContext attribute )
     {
-		AnnotationsForBeanValidation annotations = new AnnotationsForBeanValidation(attribute);
-		return annotations.getValidationAnnotationsForWrapperType(iLeftMargin );
+		return attribute.getAnnotationsCache().get("beanValidation.wrapperType|" + iLeftMargin, () -> { // v 4.1.0
+			AnnotationsForBeanValidation annotations = new AnnotationsForBeanValidation(attribute);
+			return annotations.getValidationAnnotationsForWrapperType(iLeftMargin );
+		});
     }
 
 }
@@ -0,0 +1,106 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.context;
+
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.variables.VariablesManager;
+
+/**
+ * Target definition prepared once for all the entities <br>
+ * . the project variables are loaded only once (with '${XXX_PKG}' variables converted to folders) <br>
+ * . the folder is resolved only once if it doesn't depend on the entity (no '${BEANNAME}' in the folder) <br>
+ * The variables manager is only read after its creation, so it can be shared by all the targets 
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public class CompiledTargetDefinition {
+
+	private static final String BEANNAME_PREFIX = "${BEANNAME" ;
+
+	private final TelosysToolsCfg  telosysToolsCfg ;
+	private final TargetDefinition targetDefinition ;
+	private final VariablesManager variablesManager ;
+	private final String           folder ; // folder after variables substitution (or null if it depends on the entity)
+
+	/**
+	 * Builds a variables manager with all the project variables <br>
+	 * (package variables '${XXX_PKG}' are converted to folders : '.' replaced by '/' )
+	 * @param telosysToolsCfg
+	 * @return
+	 */
+	public static VariablesManager buildVariablesManager(TelosysToolsCfg telosysToolsCfg) {
+		VariablesManager variablesManager = new VariablesManager( telosysToolsCfg.getAllVariables() ); 
+		variablesManager.transformPackageVariablesToDirPath(); // for each variable ${XXXX_PKG} : replace '.' by '/' 
+		return variablesManager ;
+	}
+
+	/**
+	 * Constructor 
+	 * @param telosysToolsCfg
+	 * @param targetDefinition
+	 */
+	public CompiledTargetDefinition(TelosysToolsCfg telosysToolsCfg, TargetDefinition targetDefinition) {
+		this(telosysToolsCfg, targetDefinition, buildVariablesManager(telosysToolsCfg));
+	}
+
+	/**
+	 * Constructor with a variables manager shared by several target definitions
+	 * @param telosysToolsCfg
+	 * @param targetDefinition
+	 * @param variablesManager the variables manager (built with 'buildVariablesManager') 
+	 */
+	public CompiledTargetDefinition(TelosysToolsCfg telosysToolsCfg, TargetDefinition targetDefinition, 
+			VariablesManager variablesManager) {
+		super();
+		this.telosysToolsCfg = telosysToolsCfg ;
+		this.targetDefinition = targetDefinition ;
+		this.variablesManager = variablesManager ;
+		String folderDefinition = targetDefinition.getFolder() ;
+		if ( folderDefinition != null && ! folderDefinition.contains(BEANNAME_PREFIX) ) {
+			this.folder = variablesManager.replaceVariables(folderDefinition);
+		}
+		else {
+			this.folder = null ;
+		}
+	}
+
+	public TelosysToolsCfg getTelosysToolsCfg() {
+		return telosysToolsCfg;
+	}
+
+	public TargetDefinition getTargetDefinition() {
+		return targetDefinition;
+	}
+
+	public VariablesManager getVariablesManager() {
+		return variablesManager;
+	}
+
+	/**
+	 * Returns the folder after variables substitution if it doesn't depend on the entity 
+	 * @return the folder or null if it must be resolved for each entity
+	 */
+	public String getFolder() {
+		return folder;
+	}
+
+	@Override
+	public String toString() {
+		return "CompiledTargetDefinition [target=" + targetDefinition.getName() + ", folder=" + folder + "]";
+	}
+}
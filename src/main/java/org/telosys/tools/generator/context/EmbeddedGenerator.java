@@ -16,16 +16,20 @@
 package org.telosys.tools.generator.context;
 
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.bundles.TargetDefinition;
 import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generator.GenerationMetrics;
 import org.telosys.tools.generator.Generator;
+import org.telosys.tools.generator.GeneratorContextBase;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.GeneratorVersion;
 import org.telosys.tools.generator.context.doc.VelocityMethod;
 import org.telosys.tools.generator.context.doc.VelocityObject;
 import org.telosys.tools.generator.context.names.ContextName;
+import org.telosys.tools.generator.engine.GeneratorContext;
 import org.telosys.tools.generic.model.Entity;
 import org.telosys.tools.generic.model.Model;
 
@@ -52,6 +56,10 @@ public class EmbeddedGenerator {
 	private final List<String>       selectedEntitiesNames;	
 	private final boolean            canGenerate ;
 	private final List<Target>       generatedTargets ;
+	private final GenerationMetrics  metrics ; // v 4.1.0
+	private final GeneratorContextBase contextBase ; // v 4.1.0
+	private final GeneratorContext   parentContext ; // v 4.1.0
+	private final BooleanSupplier    cancellationCheck ; // v 4.1.0
 	
 	/**
 	 * Constructor for limited embedded generator without generation capabilities
@@ -65,6 +73,10 @@ public class EmbeddedGenerator {
 		this.selectedEntitiesNames = null ;
 		this.canGenerate = false ;
 		this.generatedTargets = null ;
+		this.metrics = null ;
+		this.contextBase = null ;
+		this.parentContext = null ;
+		this.cancellationCheck = null ;
 	}
 
 	/**
@@ -84,7 +96,40 @@ public class EmbeddedGenerator {
 			Model model, 
 			List<String> selectedEntitiesNames,
 			List<Target> generatedTargets) {
+		this(telosysToolsCfg, bundleName, logger, model, selectedEntitiesNames, generatedTargets, null, null, null, null);
+	}
+
+	/**
+	 * Constructor for real embedded generator that can generate sub-targets from a template
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @param logger
+	 * @param model
+	 * @param selectedEntitiesNames
+	 * @param generatedTargets
+	 * @param metrics metrics to be updated by the sub-targets generation (or null)
+	 * @param contextBase base layer of the context to be reused for the sub-targets (or null)
+	 * @param parentContext context of the current target, its '$model' and '$env' are reused for the sub-targets (or null) 
+	 *        ( '$env' reset for each sub-target and restored after it )
+	 * @param cancellationCheck function used to know if the task has been cancelled (or null)
+	 */
+	public EmbeddedGenerator(	
+			TelosysToolsCfg telosysToolsCfg, 
+			String bundleName, 
+			TelosysToolsLogger logger, 
+			
+			Model model, 
+			List<String> selectedEntitiesNames,
+			List<Target> generatedTargets,
+			GenerationMetrics metrics, 
+			GeneratorContextBase contextBase,
+			GeneratorContext parentContext,
+			BooleanSupplier cancellationCheck) { // v 4.1.0
 		super();
+		this.cancellationCheck = cancellationCheck ;
+		this.metrics = metrics ;
+		this.contextBase = contextBase ;
+		this.parentContext = parentContext ;
 		// this.generatorConfig = generatorConfig; // v 3.0.0
 		this.telosysToolsCfg = telosysToolsCfg ; // v 3.0.0
 		this.bundleName = bundleName ; // v 3.0.0
@@ -181,8 +226,40 @@ public class EmbeddedGenerator {
 		Target target = new Target( telosysToolsCfg, genericTarget, entity ); // v 3.3.0
 		
 		Generator generator = new Generator(this.telosysToolsCfg, this.bundleName, logger); // v 3.0.0
+		generator.setMetrics(metrics); // v 4.1.0
+		generator.setContextBase(contextBase); // v 4.1.0
+		generator.setParentContext(parentContext); // v 4.1.0 : no new '$model' for the sub-target
+		generator.setCancellationCheck(cancellationCheck); // v 4.1.0 : stops the current template if cancelled
 		
-		generator.generateTarget(target, model, selectedEntitiesNames, this.generatedTargets);
+		//--- The sub-target starts with a new '$env' and cannot change the '$env' of the current target (v 4.1.0)
+		EnvInContext env = getParentEnv();
+		EnvInContext savedEnv = null ;
+		if ( env != null ) {
+			savedEnv = env.copy();
+			env.reset();
+		}
+		try {
+			generator.generateTarget(target, model, selectedEntitiesNames, this.generatedTargets);
+		}
+		finally {
+			if ( env != null ) {
+				env.restore(savedEnv);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the '$env' shared with the sub-targets (or null if none)
+	 * @return
+	 */
+	private EnvInContext getParentEnv() { // v 4.1.0
+		if ( parentContext != null ) {
+			Object env = parentContext.get(ContextName.ENV);
+			if ( env instanceof EnvInContext ) {
+				return (EnvInContext) env ;
+			}
+		}
+		return null ;
 	}
 	
 }
@@ -16,14 +16,18 @@
 package org.telosys.tools.generator.context;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import org.telosys.tools.commons.ListUtil;
 import org.telosys.tools.commons.StrUtil;
 import org.telosys.tools.commons.plugins.PluginHandler;
+import org.telosys.tools.generator.GenerationMetrics;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.context.doc.VelocityMethod;
 import org.telosys.tools.generator.context.doc.VelocityNoDoc;
@@ -31,6 +35,9 @@ import org.telosys.tools.generator.context.doc.VelocityObject;
 import org.telosys.tools.generator.context.doc.VelocityReturnType;
 import org.telosys.tools.generator.context.names.ContextName;
 import org.telosys.tools.generator.context.tools.AmbiguousTypesDetector;
+import org.telosys.tools.generator.context.tools.ModelFingerprint;
+import org.telosys.tools.generator.languages.types.LanguageType;
+import org.telosys.tools.generator.languages.types.TypeConverter;
 import org.telosys.tools.generic.model.Attribute;
 import org.telosys.tools.generic.model.Entity;
 import org.telosys.tools.generic.model.ForeignKey;
@@ -61,10 +68,7 @@ public class EntityInContext
 {
 	//--- Static void lists
 	private static final List<AttributeInContext>  VOID_ATTRIBUTES_LIST    = new LinkedList<>();
-	private static final List<ForeignKeyInContext> VOID_FOREIGN_KEYS_LIST  = new LinkedList<>();
-	private static final List<LinkInContext>       VOID_LINKS_LIST         = new LinkedList<>();
-	private static final List<EntityInContext>     VOID_ENTITIES_LIST      = new LinkedList<>();
-	private static final List<ReferenceInContext>  VOID_REFERENCES_LIST    = new LinkedList<>();
+	private static final List<LinkInContext>       VOID_LINKS_LIST         = Collections.emptyList(); // v 4.1.0 (shared => not modifiable)
 	
 	private final String     className ;
 	private final String     packageName ;
@@ -75,17 +79,28 @@ public class EntityInContext
     private final String     databaseType     ; // The table's type "table" or "view" 
     private final String     databaseComment  ; // The table's database comment  (since ver 3.1.0 )
     
-	private final List<AttributeInContext> attributes ; // The attributes for this class ( ALL ATTRIBUTES )
-	private final List<AttributeInContext> keyAttributes ;   // The KEY attributes for this class
-	private final List<AttributeInContext> nonKeyAttributes; // The NON KEY attributes for this class
+	private final Entity entity ; // The original entity (kept for lazy initialization) v 4.1.0
 
-	private final List<ForeignKeyInContext> foreignKeys ; // The database FOREIGN KEYS attributes for this entity
+	//--- Lazy initialization (built on first access)  v 4.1.0
+	private volatile boolean attributesInitialized = false ;
+	private List<AttributeInContext> attributes ; // The attributes for this class ( ALL ATTRIBUTES )
+	private List<AttributeInContext> keyAttributes ;   // The KEY attributes for this class
+	private List<AttributeInContext> nonKeyAttributes; // The NON KEY attributes for this class
+	private Map<String, AttributeInContext> attributesByName ; // Key = attribute name (v 4.1.0)
+
+	private volatile List<ForeignKeyInContext> foreignKeys ; // The database FOREIGN KEYS attributes for this entity
 	
-	private final List<LinkInContext> links ; // The links for this class ( ALL LINKS )
+	private volatile List<LinkInContext> links ; // The links for this class ( ALL LINKS )
 	
 	private final ModelInContext modelInContext ;  // v 3.0.0
 	
 	private final EnvInContext   env ; // ver 2.1.0
+
+	private final Map<String, List<String>> importsCache = new HashMap<>(); // computed imports lists (v 4.1.0)
+	private final Map<Boolean, JdbcInContext> jdbcCache = new HashMap<>(); // JDBC requests by 'useSchema' (v 4.1.0)
+	private SqlInContext jdbcCacheSql = null ; // the SQL conventions used to build the JDBC requests in cache (v 4.1.0)
+	private final GeneratedTextCache annotationsCache ; // v 4.1.0
+	private final GeneratedTextCache methodsCache ; // v 4.1.0
 	
 	private final TagContainer tagContainer ; // All tags defined for the entity  ( added in v 3.4.0 )
 	
@@ -135,6 +150,8 @@ public class EntityInContext
 			throw new IllegalArgumentException("EnvInContext is null");
 		}
 		this.env = env ;
+		this.annotationsCache = new GeneratedTextCache(env, modelInContext.getMetrics()) ; // v 4.1.0
+		this.methodsCache = new GeneratedTextCache(env, modelInContext.getMetrics()) ; // v 4.1.0
 
 		this.databaseTable   = entity.getDatabaseTable();
 		
@@ -146,37 +163,8 @@ public class EntityInContext
 
 		this.databaseComment = entity.getDatabaseComment();
 		
-		//--- Initialize all the ATTRIBUTES for the current entity
-		this.attributes = new LinkedList<>();
-		for ( Attribute attribute : entity.getAttributes() ) { // v 3.0.0
-			AttributeInContext attributeInContext = (AttributeInContext) PluginHandler.newAttributeInContext(this, attribute, this.modelInContext, this.env);
-			if (attributeInContext == null) {
-				attributeInContext = new AttributeInContext(this, attribute, this.modelInContext, this.env);	
-			}
-			this.attributes.add(attributeInContext);
-		}
-
-		//--- Initialize all the LINKS for the current entity
-		this.links = new LinkedList<>();
-		for ( Link link : entity.getLinks() ) {
-			LinkInContext linkInContext = (LinkInContext) PluginHandler.newLinkInContext(this, link, this.modelInContext, this.env);
-			if (linkInContext == null) {
-				linkInContext = new LinkInContext(this, link, this.modelInContext, this.env );
-			}
-			this.links.add(linkInContext);
-		}
-		
-		//--- Init all the DATABASE FOREIGN KEYS 
-		this.foreignKeys = new LinkedList<>();
-		for ( ForeignKey fk : entity.getForeignKeys() ) { 
-			this.foreignKeys.add( new ForeignKeyInContext(fk, modelInContext, env) );
-		}
-		
-		//--- Build the list of the "KEY" attributes
-		this.keyAttributes = selectAttributesIfKeyElement(true);
-		
-		//--- Build the list of the "NON KEY" attributes
-		this.nonKeyAttributes = selectAttributesIfKeyElement(false); 
+		//--- ATTRIBUTES, LINKS and FOREIGN KEYS are built on first access (v 4.1.0)
+		this.entity = entity ;
 
 		this.tagContainer = entity.getTagContainer(); 
 		
@@ -191,9 +179,104 @@ public class EntityInContext
 		this.databaseTablespace = entity.getDatabaseTablespace(); // v 3.4.0
 
 		this.isJoinEntity = entity.isJoinEntity() ; // v 4.1.0
+	}
 
-		//--- Post processing : import resolution
-		endOfAttributesDefinition();
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Initializes all the ATTRIBUTES for the current entity (only once, on first access) <br>
+	 * The "KEY" and "NON KEY" lists and the ambiguous types are determined at the same time
+	 */
+	private void initAttributes() {
+		if ( ! attributesInitialized ) {
+			synchronized (this) {
+				if ( ! attributesInitialized ) {
+					List<AttributeInContext> list = new LinkedList<>();
+					for ( Attribute attribute : entity.getAttributes() ) { // v 3.0.0
+						AttributeInContext attributeInContext = (AttributeInContext) PluginHandler.newAttributeInContext(this, attribute, this.modelInContext, this.env);
+						if (attributeInContext == null) {
+							attributeInContext = new AttributeInContext(this, attribute, this.modelInContext, this.env);	
+						}
+						list.add(attributeInContext);
+					}
+					//--- Not modifiable : shared by all the targets of the task (v 4.1.0)
+					this.attributes = Collections.unmodifiableList(list) ;
+					//--- Build the list of the "KEY" attributes
+					this.keyAttributes = Collections.unmodifiableList(selectAttributesIfKeyElement(true));
+					//--- Build the list of the "NON KEY" attributes
+					this.nonKeyAttributes = Collections.unmodifiableList(selectAttributesIfKeyElement(false)); 
+					//--- Index by name (the first one is kept if the name is not unique)
+					Map<String, AttributeInContext> map = new HashMap<>();
+					for ( AttributeInContext attribute : list ) {
+						map.putIfAbsent(attribute.getName(), attribute);
+					}
+					this.attributesByName = map ;
+					//--- Post processing : import resolution
+					endOfAttributesDefinition();
+					//--- Publish (volatile write)
+					attributesInitialized = true ;
+				}
+			}
+		}
+	}
+	private List<AttributeInContext> attributes() {
+		initAttributes();
+		return attributes ;
+	}
+	private List<AttributeInContext> keyAttributes() {
+		initAttributes();
+		return keyAttributes ;
+	}
+	private List<AttributeInContext> nonKeyAttributes() {
+		initAttributes();
+		return nonKeyAttributes ;
+	}
+
+	/**
+	 * Returns all the LINKS for the current entity (built only once, on first access)
+	 * @return
+	 */
+	private List<LinkInContext> links() {
+		List<LinkInContext> list = this.links ;
+		if ( list == null ) {
+			synchronized (this) {
+				list = this.links ;
+				if ( list == null ) {
+					list = new LinkedList<>();
+					for ( Link link : entity.getLinks() ) {
+						LinkInContext linkInContext = (LinkInContext) PluginHandler.newLinkInContext(this, link, this.modelInContext, this.env);
+						if (linkInContext == null) {
+							linkInContext = new LinkInContext(this, link, this.modelInContext, this.env );
+						}
+						list.add(linkInContext);
+					}
+					list = Collections.unmodifiableList(list); // shared by all the targets of the task (v 4.1.0)
+					this.links = list ;
+				}
+			}
+		}
+		return list ;
+	}
+
+	/**
+	 * Returns all the DATABASE FOREIGN KEYS for the current entity (built only once, on first access)
+	 * @return
+	 */
+	private List<ForeignKeyInContext> foreignKeys() {
+		List<ForeignKeyInContext> list = this.foreignKeys ;
+		if ( list == null ) {
+			synchronized (this) {
+				list = this.foreignKeys ;
+				if ( list == null ) {
+					list = new LinkedList<>();
+					for ( ForeignKey fk : entity.getForeignKeys() ) { 
+						list.add( new ForeignKeyInContext(fk, modelInContext, env) );
+					}
+					list = Collections.unmodifiableList(list); // shared by all the targets of the task (v 4.1.0)
+					this.foreignKeys = list ;
+				}
+			}
+		}
+		return list ;
 	}
 	//-----------------------------------------------------------------------------------------------
 	/**
@@ -205,18 +288,114 @@ public class EntityInContext
 	 */
 	private void endOfAttributesDefinition() {
 		if ( attributes == null ) return ;
+		//--- Use the types as they were when the model was created (attributes are built later)
+		TypeConverter typeConverter = modelInContext.getInitialTypeConverter();
 		//--- Duplicated short types detection
-		AmbiguousTypesDetector duplicatedTypesDetector = new AmbiguousTypesDetector(attributes);
-		List<String> ambiguousTypes = duplicatedTypesDetector.getAmbiguousTypes();
+		AmbiguousTypesDetector duplicatedTypesDetector = new AmbiguousTypesDetector();
+		List<String> fullTypes = new LinkedList<>(); // one full type per attribute (same order)
+		for ( AttributeInContext attribute : attributes ) {
+			LanguageType languageType = attribute.getLanguageType(typeConverter);
+			if ( ! languageType.isPrimitiveType() ) {
+				duplicatedTypesDetector.registerType( languageType.getFullType() );
+			}
+			fullTypes.add(languageType.getFullType());
+		}
+		Iterator<String> fullTypesIterator = fullTypes.iterator();
 		for ( AttributeInContext attribute : attributes ) {
 			//--- Is this attribute's type ambiguous ?
-			if ( ambiguousTypes.contains( attribute.getFullType() ) ) {
+			if ( duplicatedTypesDetector.isAmbiguousType( fullTypesIterator.next() ) ) {
 				//--- Yes => force this attribute to use its "full type" for variable declaration
 				attribute.useFullType() ; 
 			}
 		}
 	}
 
+	//-----------------------------------------------------------------------------------------------	
+	/**
+	 * Returns the imports list kept in cache for the given key and the current '$env' state <br>
+	 * If not yet in cache the list is built with the given builder and kept in cache <br>
+	 * (the returned list cannot be modified)
+	 * @param key the key identifying the imports list (eg '$java.imports(entity)')
+	 * @param builder the builder to be used if the list is not yet in cache
+	 * @return
+	 */
+	protected synchronized List<String> getImports(String key, Supplier<List<String>> builder) { // v 4.1.0
+		// The imports depend on the target language and the collection type
+		String cacheKey = key + "|" + env.getLanguage() + "|" + env.getCollectionType() + "|" + env.getTypeWithNullableMark() ;
+		List<String> imports = importsCache.get(cacheKey);
+		if ( imports != null ) {
+			modelInContext.getMetrics().increment(GenerationMetrics.IMPORTS_CACHE_HITS);
+		}
+		else {
+			modelInContext.getMetrics().increment(GenerationMetrics.IMPORTS_CACHE_MISSES);
+			imports = Collections.unmodifiableList(new LinkedList<>(builder.get()));
+			importsCache.put(cacheKey, imports);
+		}
+		return imports ;
+	}
+
+	//-----------------------------------------------------------------------------------------------	
+	/**
+	 * Returns the name of the given list if it is one of the attributes lists of this entity (same instance) <br>
+	 * These lists cannot be modified, so the same instance always holds the same attributes 
+	 * @param list
+	 * @return 'all', 'key', 'nonKey' or null if not a list of this entity
+	 */
+	String getAttributesListName(List<AttributeInContext> list) { // v 4.1.0
+		if ( list == attributes() ) {
+			return "all" ;
+		}
+		else if ( list == keyAttributes() ) {
+			return "key" ;
+		}
+		else if ( list == nonKeyAttributes() ) {
+			return "nonKey" ;
+		}
+		return null ;
+	}
+
+	//-----------------------------------------------------------------------------------------------	
+	/**
+	 * Returns the cache for the annotations built for this entity (by '$jpa', '$beanValidation', etc)
+	 * @return
+	 */
+	protected GeneratedTextCache getAnnotationsCache() { // v 4.1.0
+		return this.annotationsCache ;
+	}
+
+	/**
+	 * Returns the cache for the methods code built for this entity (by '$java.equalsMethod', etc)
+	 * @return
+	 */
+	protected GeneratedTextCache getMethodsCache() { // v 4.1.0
+		return this.methodsCache ;
+	}
+
+	//-----------------------------------------------------------------------------------------------	
+	/**
+	 * Returns the JDBC tool for this entity (SQL requests built only once and kept in cache) <br>
+	 * The cache is reset if the SQL conventions defined in '$env' have changed (database name or file)
+	 * @param useSchema
+	 * @return
+	 */
+	protected synchronized JdbcInContext getJdbc(boolean useSchema) { // v 4.1.0
+		SqlInContext sql = env.getSql();
+		if ( sql != jdbcCacheSql ) {
+			jdbcCache.clear();
+			jdbcCacheSql = sql ;
+		}
+		return jdbcCache.computeIfAbsent(useSchema, b -> new JdbcInContext(this, b) );
+	}
+
+	//-----------------------------------------------------------------------------------------------	
+	/**
+	 * Returns the original class name as defined in the model (without '$env' prefix/suffix)
+	 * @return
+	 */
+	String getClassName() { // v 4.1.0
+		return className ;
+	}
+	
 	//-----------------------------------------------------------------------------------------------	
 	/**
 	 * Returns the entity class name without the package ( ie : "MyClass" )
@@ -340,13 +519,15 @@ public class EntityInContext
 		}
 	}
 	
-	private AttributeInContext getAttributeWithName(String attributeName) {
+	/**
+	 * Returns the attribute for the given name or null if not found
+	 * @param attributeName
+	 * @return
+	 */
+	protected AttributeInContext getAttributeWithName(String attributeName) {
 		if ( attributeName != null ) {
-			for( AttributeInContext attribute : this.getAttributes() ) {
-				if ( attributeName.equals( attribute.getName() ) ) {
-					return attribute ;
-				}
-			}
+			initAttributes();
+			return attributesByName.get(attributeName); // v 4.1.0
 		}
 		return null;
 	}
@@ -363,10 +544,7 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'attribute' objects")
 	public List<AttributeInContext> getAttributes() {
-		if ( attributes != null ) {
-			return attributes ;
-		}
-		return VOID_ATTRIBUTES_LIST ;
+		return attributes() ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -377,10 +555,7 @@ public class EntityInContext
 		since="2.0.7"
 	)
 	public int getAttributesCount() {
-		if ( attributes != null ) {
-			return attributes.size() ;
-		}
-		return 0 ;
+		return attributes().size() ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -391,10 +566,7 @@ public class EntityInContext
 		since="3.3.0"
 	)
 	public int getLinksCount() {
-		if ( links != null ) {
-			return links.size() ;
-		}
-		return 0 ;
+		return links().size() ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -408,7 +580,7 @@ public class EntityInContext
 		}
 	)
 	public boolean hasLinks() {
-		return ( links != null && ! links.isEmpty() ) ;
+		return ! links().isEmpty() ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -423,11 +595,9 @@ public class EntityInContext
 		since="3.4.0"
 	)
 	public boolean hasCollections() {
-		if ( links != null ) {
-			for ( LinkInContext link : links ) {
-				if ( link.isCollectionType() ) {
-					return true ;
-				}
+		for ( LinkInContext link : links() ) {
+			if ( link.isCollectionType() ) {
+				return true ;
 			}
 		}
 		return false;
@@ -445,8 +615,8 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'link' objects")
 	public List<LinkInContext> getLinks() {
-		if ( links != null && ! links.isEmpty() ) {
-			return links ;
+		if ( ! links().isEmpty() ) {
+			return links() ;
 		}
 		return VOID_LINKS_LIST ;
 	}
@@ -465,19 +635,16 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'entity' objects")
 	public Collection<EntityInContext> getReferencedEntities() {
-		if ( links != null ) {
-			Map<String, EntityInContext> map = new HashMap<>();
-			for ( LinkInContext link : links ) {
-				try {
-					EntityInContext entity = link.getTargetEntity();
-					map.put(entity.getName(), entity);
-				} catch (GeneratorException e) {
-					// Invalid link (no no target entity) => just ignore it
-				}
+		Map<String, EntityInContext> map = new HashMap<>();
+		for ( LinkInContext link : links() ) {
+			try {
+				EntityInContext entity = link.getTargetEntity();
+				map.put(entity.getName(), entity);
+			} catch (GeneratorException e) {
+				// Invalid link (no no target entity) => just ignore it
 			}
-			return map.values();
 		}
-		return VOID_ENTITIES_LIST;		
+		return map.values();
 	}	
 	
 	//-------------------------------------------------------------------------------------
@@ -494,25 +661,40 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'entity' objects")
 	public Collection<EntityInContext> getReferencedEntitiesForAllLevels() {
-		Map<String, EntityInContext> map = new HashMap<>();
-		registerReferencedEntities(getLinks(), map, 1, 100); 
-		return map.values();
+		return modelInContext.getReferencesGraph().getReferencedEntitiesForAllLevels(this); // v 4.1.0
 	}
-	private void registerReferencedEntities(List<LinkInContext> entityLinks, Map<String, EntityInContext> map, 
-			int level, int maxLevel) {
-		if ( entityLinks != null && level <= maxLevel) {
-			for ( LinkInContext link : entityLinks ) {
-				try {
-					EntityInContext targetEntity = link.getTargetEntity(); // throws GeneratorException
-					map.put(targetEntity.getName(), targetEntity);
-					if ( targetEntity.hasLinks() ) {
-						registerReferencedEntities(targetEntity.getLinks(), map, level+1, maxLevel); // recursive call
-					}
-				} catch (GeneratorException e) {
-					// Invalid link (no no target entity) => just ignore it
-				}
-			}
-		}
+	
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod ( text= { 
+			"Returns the structural fingerprint of the entity (16 hexadecimal characters)",
+			"The fingerprint changes if any value usable by the templates changes in the entity : ",
+			"entity information, tags and database info, attributes (types, type expectations, constraints, ",
+			"generated values, tags, database info, FK parts), links (cardinality, mapped by, join entity, ",
+			"tags, etc) and FK. Values computed from these values (e.g. 'autoIncremented', 'owningSide') are covered",
+			"It is computed only once for the current model"
+		},
+		example={	
+			"// fingerprint : $entity.fingerprint"
+		},
+		since="4.1.0"
+	)
+	public String getFingerprint() {
+		return ModelFingerprint.toHex(modelInContext.getFingerprints().getEntityFingerprint(className));
+	}
+	
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod ( text= { 
+			"Returns the deep structural fingerprint of the entity (16 hexadecimal characters)",
+			"The fingerprint changes if the entity or any entity it references (at all levels) changes",
+			"It is computed only once for the current model"
+		},
+		example={	
+			"// deep fingerprint : $entity.deepFingerprint"
+		},
+		since="4.1.0"
+	)
+	public String getDeepFingerprint() {
+		return ModelFingerprint.toHex(modelInContext.getFingerprints().getDeepEntityFingerprint(className));
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -529,16 +711,13 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'reference' objects")
 	public Collection<ReferenceInContext> getReferences() {
-		if ( links != null ) {
-			Map<String, ReferenceInContext> map = new HashMap<>();
-			for ( LinkInContext link : links ) {
-				registerReference(link, map);
-			}
-			return map.values();
+		Map<String, ReferenceInContext> map = new HashMap<>();
+		for ( LinkInContext link : links() ) {
+			registerReference(link, map);
 		}
-		return VOID_REFERENCES_LIST;		
+		return map.values();
 	}
-	private List<LinkInContext> registerReference(LinkInContext link, Map<String, ReferenceInContext> map ) {
+	private void registerReference(LinkInContext link, Map<String, ReferenceInContext> map ) {
 		try {
 			EntityInContext targetEntity = link.getTargetEntity(); // throws GeneratorException
 			ReferenceInContext reference = map.get(targetEntity.getName());
@@ -553,13 +732,60 @@ public class EntityInContext
 			else {
 				reference.incrementToOne();
 			}
-			return targetEntity.getLinks(); 
 		} catch (GeneratorException e) {
 			// Invalid link (no no target entity) 
 			// Not supposed to happen => just ignore it
-			return null;
 		}		
 	}
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod ( text= { 
+			"Returns all the links (defined in any entity of the model) referencing the current entity",
+			"(the inverse relationships)"
+		},
+		example={	
+			"#foreach( $link in $entity.incomingLinks )",
+			"...",
+			"#end" 
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'link' objects")
+	public List<LinkInContext> getIncomingLinks() {
+		return modelInContext.getReferencesGraph().getIncomingLinks(this);
+	}
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod ( text= { 
+			"Returns TRUE if at least one entity of the model has a link referencing the current entity"
+		},
+		example={	
+			"#if ( $entity.hasIncomingLinks() )",
+			"...",
+			"#end" 
+		},
+		since="4.1.0"
+	)
+	public boolean hasIncomingLinks() {
+		return ! getIncomingLinks().isEmpty();
+	}
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod ( text= { 
+			"Returns a list containing all references to the current entity",
+			"(one reference for each entity holding at least one link to the current entity)"
+		},
+		example={	
+			"#foreach( $reference in $entity.incomingReferences )",
+			"...",
+			"#end" 
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'reference' objects")
+	public Collection<ReferenceInContext> getIncomingReferences() {
+		return modelInContext.getReferencesGraph().getIncomingReferences(this);
+	}
+
 	//-------------------------------------------------------------------------------------
 	@VelocityMethod ( text= { 
 			"Returns a list containing all references hold by the current entity",
@@ -574,22 +800,7 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'reference' objects")
 	public Collection<ReferenceInContext> getReferencesInDepth() {
-		Map<String, ReferenceInContext> map = new HashMap<>();
-		registerReferences(getLinks(), map, 1, 100); 
-		return map.values();
-	}
-
-	private void registerReferences(List<LinkInContext> entityLinks, Map<String, ReferenceInContext> map, 
-			int level, int maxLevel) {
-		if ( entityLinks != null && level <= maxLevel) {
-			for ( LinkInContext link : entityLinks ) {
-				List<LinkInContext> subLinks = registerReference(link, map);
-				if ( subLinks != null ) {
-					// continue in depth with sublinks
-					registerReferences(subLinks, map, level+1, maxLevel); // recursive call
-				}
-			}
-		}
+		return modelInContext.getReferencesGraph().getReferencesInDepth(this); // v 4.1.0
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -604,10 +815,10 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'link' objects")
 	public List<LinkInContext> getSelectedLinks() {
-		if ( links != null && ! links.isEmpty() )
+		if ( ! links().isEmpty() )
 		{
 			LinkedList<LinkInContext> selectedLinks = new LinkedList<>();
-			for ( LinkInContext link : links ) {
+			for ( LinkInContext link : links() ) {
 				if ( link.isSelected() ) {
 					selectedLinks.add(link) ;
 				}
@@ -683,7 +894,7 @@ public class EntityInContext
 	{
 		LinkedList<AttributeInContext> selectedAttributes = new LinkedList<>();
 		
-		for ( AttributeInContext attribute : attributes ) {
+		for ( AttributeInContext attribute : attributes() ) {
 			Boolean selectedByKey  = null ;
 			Boolean selectedByText = null ;
 			Boolean selectedByLink = null ;
@@ -766,10 +977,7 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'attribute' objects")
 	public List<AttributeInContext> getKeyAttributes() {
-		if ( keyAttributes != null ) {
-			return keyAttributes ;
-		}
-		return VOID_ATTRIBUTES_LIST ;
+		return keyAttributes() ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -961,10 +1169,7 @@ public class EntityInContext
 	)
 	public int getKeyAttributesCount() 
 	{
-		if ( keyAttributes != null ) {
-			return keyAttributes.size() ;
-		}
-		return 0 ;
+		return keyAttributes().size() ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -979,10 +1184,7 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'attribute' objects")
 	public List<AttributeInContext> getNonKeyAttributes() {
-		if ( nonKeyAttributes != null ) {
-			return nonKeyAttributes ;
-		}
-		return VOID_ATTRIBUTES_LIST ;
+		return nonKeyAttributes() ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -995,10 +1197,7 @@ public class EntityInContext
 		since="2.0.7"
 	)
 	public int getNonKeyAttributesCount() {
-		if ( nonKeyAttributes != null ) {
-			return nonKeyAttributes.size() ;
-		}
-		return 0 ;
+		return nonKeyAttributes().size() ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -1057,10 +1256,8 @@ public class EntityInContext
 	public List<String> getSqlPrimaryKeyColumns() {
 		List<String> list = new LinkedList<>();
 		SqlInContext sql = this.env.getSql();
-		if ( keyAttributes != null ) {
-			for ( AttributeInContext attribute : keyAttributes ) {
-				list.add(sql.columnName(attribute));
-			}
+		for ( AttributeInContext attribute : keyAttributes() ) {
+			list.add(sql.columnName(attribute));
 		}
 		return list ;
 	}
@@ -1137,10 +1334,7 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'foreign keys' objects")
 	public List<ForeignKeyInContext> getDatabaseForeignKeys() {
-		if ( foreignKeys != null ) {
-			return foreignKeys ;
-		}
-		return VOID_FOREIGN_KEYS_LIST ;
+		return foreignKeys() ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -1155,10 +1349,7 @@ public class EntityInContext
 		since="2.0.7"		
 	)
 	public int getDatabaseForeignKeysCount() {
-		if ( foreignKeys != null ) {
-			return foreignKeys.size() ;
-		}
-		return 0 ;
+		return foreignKeys().size() ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -1279,12 +1470,10 @@ public class EntityInContext
 		}
 	)
 	public boolean hasTextAttribute() {
-    	if ( attributes != null ) {
-        	for ( AttributeInContext attribute : attributes ) {
-                if ( attribute.isLongText() ) {
-                	return true ;
-                }
-        	}
+    	for ( AttributeInContext attribute : attributes() ) {
+            if ( attribute.isLongText() ) {
+            	return true ;
+            }
     	}
     	return false ;
 	}
@@ -1301,10 +1490,7 @@ public class EntityInContext
 		}
 	)
 	public boolean hasCompositePrimaryKey() {
-		if ( keyAttributes != null ) {
-			return keyAttributes.size() > 1 ;
-		}
-		return false ; // No key attributes
+		return keyAttributes().size() > 1 ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -1320,10 +1506,7 @@ public class EntityInContext
 		since="2.0.7"
 	)
 	public boolean hasPrimaryKey() {
-		if ( keyAttributes != null ) {
-			return ! keyAttributes.isEmpty() ; // At least 1 key attribute
-		}
-		return false ; // No key attributes
+		return ! keyAttributes().isEmpty() ; // At least 1 key attribute
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -1338,7 +1521,7 @@ public class EntityInContext
 		since="3.4.0"
 	)
 	public boolean hasForeignKeys() {
-		return ( foreignKeys != null && ! foreignKeys.isEmpty() ) ;
+		return ! foreignKeys().isEmpty() ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -1354,11 +1537,9 @@ public class EntityInContext
 		}
 	)
 	public boolean hasAutoIncrementedKey() {
-		if ( keyAttributes != null ) {
-			for ( AttributeInContext keyAttribute : keyAttributes ) {
-				if ( keyAttribute.isAutoIncremented() ) {
-					return true ; 
-				}
+		for ( AttributeInContext keyAttribute : keyAttributes() ) {
+			if ( keyAttribute.isAutoIncremented() ) {
+				return true ; 
 			}
 		}
 		return false ; 
@@ -1377,11 +1558,9 @@ public class EntityInContext
 		since="4.1.0"
 	)
 	public boolean hasGeneratedKey() {
-		if ( keyAttributes != null ) {
-			for ( AttributeInContext keyAttribute : keyAttributes ) {
-				if ( keyAttribute.isGeneratedValue() ) {
-					return true ; 
-				}
+		for ( AttributeInContext keyAttribute : keyAttributes() ) {
+			if ( keyAttribute.isGeneratedValue() ) {
+				return true ; 
 			}
 		}
 		return false ; 
@@ -1492,13 +1671,11 @@ public class EntityInContext
 	 */
 	private List<AttributeInContext> selectAttributesIfLongText(boolean bLongText) {
 		LinkedList<AttributeInContext> list = new LinkedList<>();
-    	if ( attributes != null ) {
-            for ( AttributeInContext attribute : attributes ) {
-                if ( attribute.isLongText() == bLongText ) {
-                	list.add(attribute);
-                }        		
-            }
-    	}
+        for ( AttributeInContext attribute : attributes() ) {
+            if ( attribute.isLongText() == bLongText ) {
+            	list.add(attribute);
+            }        		
+        }
 		return list ;
 	}
 	
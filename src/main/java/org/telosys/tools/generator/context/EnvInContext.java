@@ -16,6 +16,7 @@
 package org.telosys.tools.generator.context;
 
 import java.io.File;
+import java.util.Objects;
 
 import org.telosys.tools.commons.StrUtil;
 import org.telosys.tools.commons.exception.TelosysRuntimeException;
@@ -210,6 +211,48 @@ public class EnvInContext {
 	public boolean getTypeWithNullableMark() {
 		return this.typeWithNullableMark ;
 	}
+	//-------------------------------------------------------------------------------------
+	// STATE (v 4.1.0)
+	//-------------------------------------------------------------------------------------
+	/**
+	 * Returns a copy of the current settings (to be restored later)
+	 * @return
+	 */
+	public EnvInContext copy() { // v 4.1.0
+		EnvInContext copy = new EnvInContext();
+		copy.copyFrom(this);
+		return copy ;
+	}
+
+	/**
+	 * Restores the settings previously saved with 'copy()'
+	 * @param savedEnv
+	 */
+	public void restore(EnvInContext savedEnv) { // v 4.1.0
+		copyFrom(savedEnv);
+	}
+
+	/**
+	 * Resets all the settings to their default values (as a new '$env')
+	 */
+	public void reset() { // v 4.1.0
+		copyFrom(new EnvInContext());
+	}
+
+	private void copyFrom(EnvInContext other) {
+		this.entityClassNamePrefix = other.entityClassNamePrefix ;
+		this.entityClassNameSuffix = other.entityClassNameSuffix ;
+		this.language = other.language ;
+		this.specificCollectionType = other.specificCollectionType ;
+		this.typeWithNullableMark = other.typeWithNullableMark ;
+		if ( ! ( Objects.equals(this.database, other.database) && Objects.equals(this.databaseConvFile, other.databaseConvFile) ) ) {
+			// database changed => current "sql" no longer usable 
+			this.database = other.database ;
+			this.databaseConvFile = other.databaseConvFile ;
+			this.sqlInContext = other.sqlInContext ;
+		}
+	}
+
 	//-------------------------------------------------------------------------------------
 	//-------------------------------------------------------------------------------------
 	/**
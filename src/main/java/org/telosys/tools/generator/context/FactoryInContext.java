@@ -151,7 +151,7 @@ public class FactoryInContext {
 		if ( entity == null ) {
 			throw new IllegalArgumentException("$jdbcFactory.getInstance($entity) : $entity is null");
 		}
-		return new JdbcInContext(entity, false); 
+		return entity.getJdbc(false); // cached in the entity (v 4.1.0)
     }
 
 	//-------------------------------------------------------------------------------------
@@ -15,6 +15,7 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -239,7 +240,7 @@ public class ForeignKeyInContext {
 	since= "3.4.0")
 	@VelocityReturnType("List of 'Foreign Key Attribute' objects ( List of '$fkAttribute' )")
 	public List<ForeignKeyAttributeInContext> getAttributes() {
-		return this.fkAttributes ;
+		return Collections.unmodifiableList(this.fkAttributes) ; // shared by all the targets of the task (v 4.1.0)
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -15,8 +15,9 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.List;
+
 import org.telosys.tools.commons.StrUtil;
-import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.context.doc.VelocityMethod;
 import org.telosys.tools.generator.context.doc.VelocityObject;
 import org.telosys.tools.generator.context.names.ContextName;
@@ -51,6 +52,12 @@ public class ForeignKeyPartInContext
 	private final String referencedAttributeName ;
 	private final ModelInContext modelInContext ;  
 
+	//--- References resolved only once (v 4.1.0)
+	private volatile boolean    referencesResolved = false ;
+	private EntityInContext     referencedEntity ;
+	private AttributeInContext  referencedAttribute ;
+	private String              error ;
+
 	//-------------------------------------------------------------------------------------
 	public ForeignKeyPartInContext( ForeignKeyPart fkPart, ModelInContext modelInContext ) {
 		super();
@@ -72,6 +79,37 @@ public class ForeignKeyPartInContext
 		this.modelInContext = modelInContext;
 	}
 	 
+	/**
+	 * Resolves the referenced entity and attribute <br>
+	 * The resolution is done only once, the error (if any) is reported in the given list 
+	 * @param originEntityName the name of the entity holding the FK part (for error message)
+	 * @param errors the list where to report the unresolved references (or null)
+	 */
+	protected synchronized void resolveReferences(String originEntityName, List<String> errors) { // v 4.1.0
+		if ( ! referencesResolved ) {
+			if ( modelInContext.hasEntityWithClassName(this.referencedEntityName) ) {
+				referencedEntity = modelInContext.getEntityByClassName(this.referencedEntityName);
+				referencedAttribute = referencedEntity.getAttributeWithName(this.referencedAttributeName);
+				if ( referencedAttribute == null ) {
+					error = ContextName.FKPART + " : unknown attribute '" + this.referencedAttributeName + "'" ;
+				}
+			}
+			else {
+				error = ContextName.FKPART + " : unknown entity '" + this.referencedEntityName + "'" ;
+			}
+			referencesResolved = true ;
+		}
+		if ( errors != null && error != null ) {
+			errors.add("Entity '" + originEntityName + "' : FK '" + fkName + "' : " + error);
+		}
+	}
+	private void resolveReferencesIfNecessary() {
+		if ( ! referencesResolved ) {
+			// resolve only the references of this FK part (the other entities are not materialized)
+			resolveReferences(null, null);
+		}
+	}
+
 	//-------------------------------------------------------------------------------------
 	@VelocityMethod(
 		text={	
@@ -102,11 +140,11 @@ public class ForeignKeyPartInContext
 		since="4.1.0"
 	)
 	public EntityInContext getReferencedEntity() {
-		EntityInContext entity = modelInContext.getEntityByClassName(this.referencedEntityName);
-		if ( entity == null ) {
-			throw new IllegalStateException(ContextName.FKPART + " : unknown entity '" + this.referencedEntityName + "'");
+		resolveReferencesIfNecessary(); // v 4.1.0
+		if ( referencedEntity == null ) {
+			throw new IllegalStateException(error);
 		}
-		return entity;
+		return referencedEntity;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -128,12 +166,11 @@ public class ForeignKeyPartInContext
 		since="4.1.0"
 	)
 	public AttributeInContext getReferencedAttribute() {
-		EntityInContext entity = getReferencedEntity();
-		try {
-			return entity.getAttributeByName(this.referencedAttributeName);
-		} catch (GeneratorException e) {
-			throw new IllegalStateException(ContextName.FKPART + " : unknown attribute '" + this.referencedAttributeName + "'");
+		resolveReferencesIfNecessary(); // v 4.1.0
+		if ( referencedAttribute == null ) {
+			throw new IllegalStateException(error);
 		}
+		return referencedAttribute;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -0,0 +1,134 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.context;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.telosys.tools.generator.GenerationMetrics;
+import org.telosys.tools.generator.GeneratorException;
+
+/**
+ * Cache for the texts generated for a model element (entity, attribute or link) <br>
+ * eg : JPA annotations, bean validation annotations, 'equals' or 'toString' methods <br>
+ * The key must contain all the inputs of the text (eg kind, margin, '$jpa' settings) <br>
+ * The texts are kept separately for each '$env' state used to build them 
+ * (target language, nullable mark, database, entity class name prefix/suffix, collection type) <br>
+ * The model elements are shared by all the targets of a task, so a text built for a template 
+ * is reused by the next templates with the same '$env' state 
+ *
+ * @author Laurent Guerin
+ *
+ */
+class GeneratedTextCache {
+
+	/**
+	 * Text builder (can throw a GeneratorException like the '$jpa' methods)
+	 */
+	@FunctionalInterface
+	interface TextSupplier {
+		String get() throws GeneratorException ;
+	}
+
+	private final EnvInContext env ;
+
+	private final GenerationMetrics metrics ;
+
+	private final Map<String, Map<String, String>> textsByEnvState = new HashMap<>();
+
+	/**
+	 * Constructor
+	 * @param env the environment used to build the texts
+	 * @param metrics the metrics to be updated (cache hits and misses) or null if not used
+	 */
+	protected GeneratedTextCache(EnvInContext env, GenerationMetrics metrics) {
+		super();
+		this.env = env ;
+		this.metrics = metrics != null ? metrics : new GenerationMetrics() ;
+	}
+
+	/**
+	 * Returns the text kept in cache for the given key <br>
+	 * If not yet in cache the text is built with the given supplier and kept in cache
+	 * @param key
+	 * @param supplier
+	 * @return
+	 */
+	protected synchronized String get(String key, Supplier<String> supplier) {
+		Map<String, String> texts = getTexts();
+		String result = texts.get(key);
+		if ( result == null ) {
+			metrics.increment(GenerationMetrics.TEXT_CACHE_MISSES);
+			result = supplier.get();
+			texts.put(key, result);
+		}
+		else {
+			metrics.increment(GenerationMetrics.TEXT_CACHE_HITS);
+		}
+		return result ;
+	}
+
+	/**
+	 * Same as 'get' for a supplier that can throw a GeneratorException <br>
+	 * (nothing is kept in cache if an exception is thrown)
+	 * @param key
+	 * @param supplier
+	 * @return
+	 * @throws GeneratorException
+	 */
+	protected synchronized String getChecked(String key, TextSupplier supplier) throws GeneratorException {
+		Map<String, String> texts = getTexts();
+		String result = texts.get(key);
+		if ( result == null ) {
+			metrics.increment(GenerationMetrics.TEXT_CACHE_MISSES);
+			result = supplier.get();
+			texts.put(key, result);
+		}
+		else {
+			metrics.increment(GenerationMetrics.TEXT_CACHE_HITS);
+		}
+		return result ;
+	}
+
+	/**
+	 * Returns the texts built with the current '$env' state
+	 * @return
+	 */
+	private Map<String, String> getTexts() {
+		return textsByEnvState.computeIfAbsent(getEnvState(), k -> new HashMap<>());
+	}
+
+	/**
+	 * Returns the current '$env' state (all the '$env' settings used to build the texts)
+	 * @return
+	 */
+	protected String getEnvState() {
+		// NB : the entity names (eg in JPA 'mappedBy') depend on the prefix and suffix
+		return env.getLanguage() + "|" + env.getTypeWithNullableMark() 
+			+ "|" + env.getDatabase() + "|" + env.getDatabaseConvFile() 
+			+ "|" + env.getEntityClassNamePrefix() + "|" + env.getEntityClassNameSuffix() 
+			+ "|" + env.getCollectionType() ;
+	}
+
+	/**
+	 * Returns the number of texts currently in cache for the current '$env' state
+	 * @return
+	 */
+	protected synchronized int size() {
+		return getTexts().size();
+	}
+}
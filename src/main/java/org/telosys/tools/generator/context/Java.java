@@ -15,8 +15,10 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.telosys.tools.generator.context.doc.VelocityMethod;
 import org.telosys.tools.generator.context.doc.VelocityObject;
@@ -35,16 +37,56 @@ import org.telosys.tools.generator.context.tools.LinesBuilder;
 //-------------------------------------------------------------------------------------
 public class Java {
 
-	private static final List<String> VOID_STRINGS_LIST = new LinkedList<>();
+	private static final List<String> VOID_STRINGS_LIST = Collections.emptyList(); // cannot be modified (v 4.1.0)
+
+	private static final String TAB = "\t" ;
+	private static final String SPACES = "                " ; // most common indentations (up to 16 spaces)
 
 	private String buildIndentationWithSpaces(int nSpaces) {
-		StringBuilder spaces = new StringBuilder();
+		if ( nSpaces <= SPACES.length() ) {
+			return SPACES.substring(0, Math.max(nSpaces, 0)); // no copy for 0 or 16 
+		}
+		StringBuilder spaces = new StringBuilder(nSpaces);
 		for ( int n = 0 ; n < nSpaces ; n++ ) {
 			spaces.append(" ");
 		}
 		return spaces.toString();
 	}
 	
+	/**
+	 * Returns a new LinesBuilder with a capacity large enough for the given attributes
+	 * @param indentation
+	 * @param attributes
+	 * @return
+	 */
+	private LinesBuilder newLinesBuilder(String indentation, List<AttributeInContext> attributes) {
+		int n = attributes != null ? attributes.size() : 0 ;
+		return new LinesBuilder(indentation, 256 + n * 160 );
+	}
+	
+	/**
+	 * Returns the method code kept in the cache of the entity holding the given attributes <br>
+	 * Only the lists of the entity are cached (identified by instance, eg '$entity.attributes', 
+	 * not modifiable), the code is built directly (not cached) for any other list  
+	 * @param method the method kind ('equals', 'hashCode', etc)
+	 * @param name the class or entity name used in the method
+	 * @param attributes
+	 * @param indentationLevel
+	 * @param indentation
+	 * @param builder
+	 * @return
+	 */
+	private String getMethodCode(String method, String name, List<AttributeInContext> attributes, 
+			int indentationLevel, String indentation, Supplier<String> builder) { // v 4.1.0
+		EntityInContext entity = ( attributes != null && ! attributes.isEmpty() ) ? attributes.get(0).getEntity() : null ;
+		String listName = entity != null ? entity.getAttributesListName(attributes) : null ;
+		if ( listName == null || name == null ) {
+			return builder.get();
+		}
+		String key = method + '|' + name + '|' + listName + '|' + indentationLevel + '|' + indentation ;
+		return entity.getMethodsCache().get(key, builder);
+	}
+	
 	//-------------------------------------------------------------------------------------
 	@VelocityMethod(
 		text={	
@@ -59,8 +101,7 @@ public class Java {
 		since = "2.0.7"
 			)
 	public String equalsMethod( String className, List<AttributeInContext> attributes ) {
-		
-		return equalsMethod( className , attributes, new LinesBuilder() ); 
+		return equalsMethod( className , attributes, TAB ); 
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -78,12 +119,18 @@ public class Java {
 		since = "2.0.7"
 			)
 	public String equalsMethod( String className, List<AttributeInContext> attributes, int indentSpaces ) {
-		
-		return equalsMethod( className , attributes, new LinesBuilder(buildIndentationWithSpaces(indentSpaces)) ); 
+		return equalsMethod( className , attributes, buildIndentationWithSpaces(indentSpaces) ); 
 	}
 	
 	//-------------------------------------------------------------------------------------
-	private String equalsMethod( String className, List<AttributeInContext> fieldsList, LinesBuilder lb ) {
+	private String equalsMethod( String className, List<AttributeInContext> attributes, String indentation ) {
+		// same code for the same inputs => kept in cache (v 4.1.0)
+		return getMethodCode("equals", className, attributes, 1, indentation, 
+				() -> buildEqualsMethod( className, attributes, newLinesBuilder(indentation, attributes) ) ); 
+	}
+	
+	//-------------------------------------------------------------------------------------
+	private String buildEqualsMethod( String className, List<AttributeInContext> fieldsList, LinesBuilder lb ) {
 
 		int indent = 1 ;
 		lb.append(indent, "public boolean equals(Object obj) { ");
@@ -94,40 +141,38 @@ public class Java {
 		lb.append(indent, "if ( this.getClass() != obj.getClass() ) return false ; ");
 		
 		// Cast obj to the given className 
-		lb.append( indent, className + " other = (" + className + ") obj; ");
+		lb.appendParts( indent, className, " other = (", className, ") obj; ");
 		
 		if ( fieldsList != null ) {
 			for ( AttributeInContext attribute : fieldsList ) {
 				
 				String attributeName = attribute.getName() ;
-				lb.append(indent, "//--- Attribute " + attributeName );
+				lb.appendParts(indent, "//--- Attribute ", attributeName );
 				if ( attribute.isPrimitiveType() ) {
 					if ( attribute.isFloatType() ) {
 						// float
-						lb.append(indent, 
-								"if ( Float.floatToIntBits(" + attributeName 
-								+ ") != Float.floatToIntBits(other." + attributeName + ") ) return false ; ");
+						lb.appendParts(indent, 
+								"if ( Float.floatToIntBits(", attributeName, ") != Float.floatToIntBits(other.", attributeName, ") ) return false ; ");
 					}
 					else if ( attribute.isDoubleType() ) {
 						// double 
-						lb.append(indent, 
-								"if ( Double.doubleToLongBits(" + attributeName 
-								+ ") != Double.doubleToLongBits(other." + attributeName + ") ) return false ; ");
+						lb.appendParts(indent, 
+								"if ( Double.doubleToLongBits(", attributeName, ") != Double.doubleToLongBits(other.", attributeName, ") ) return false ; ");
 					}
 					else {
 						// char, byte, short, int, long, boolean 
-						lb.append(indent, "if ( " + attributeName + " != other." + attributeName + " ) return false ; ");
+						lb.appendParts(indent, "if ( ", attributeName, " != other.", attributeName, " ) return false ; ");
 					}
 				}
 				else if ( isArray(attribute) ) {
 					// char[], byte[], String[], ...
-					lb.append(indent, "if ( ! Arrays.equals(" + attributeName + ", other." + attributeName + ") ) return false ; ");
+					lb.appendParts(indent, "if ( ! Arrays.equals(", attributeName, ", other.", attributeName, ") ) return false ; ");
 				}
 				else {
-					lb.append(indent, "if ( " + attributeName + " == null ) { ");
-						lb.append(indent+1, "if ( other." + attributeName + " != null ) ");
+					lb.appendParts(indent, "if ( ", attributeName, " == null ) { ");
+						lb.appendParts(indent+1, "if ( other.", attributeName, " != null ) ");
 							lb.append(indent+2, "return false ; ");
-					lb.append(indent, "} else if ( ! " + attributeName + ".equals(other."+attributeName+") ) " );
+					lb.appendParts(indent, "} else if ( ! ", attributeName, ".equals(other.", attributeName, ") ) " );
 						lb.append(indent+1, "return false ; ");
 				}
 			}
@@ -155,7 +200,7 @@ public class Java {
 			since = "2.0.7"
 				)
 	public String hashCodeMethod( String className, List<AttributeInContext> attributes ) {
-		return hashCodeMethod(attributes, new LinesBuilder() ); 
+		return hashCodeMethod(attributes, TAB ); 
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -173,11 +218,18 @@ public class Java {
 			since = "2.0.7"
 				)
 	public String hashCodeMethod( String className, List<AttributeInContext> attributes, int indentSpaces ) {
-		return hashCodeMethod(attributes, new LinesBuilder(buildIndentationWithSpaces(indentSpaces)) ); 
+		return hashCodeMethod(attributes, buildIndentationWithSpaces(indentSpaces) ); 
+	}
+	
+	//-------------------------------------------------------------------------------------
+	private String hashCodeMethod(List<AttributeInContext> attributes, String indentation ) {
+		// same code for the same inputs => kept in cache (v 4.1.0)
+		return getMethodCode("hashCode", "", attributes, 1, indentation, 
+				() -> buildHashCodeMethod( attributes, newLinesBuilder(indentation, attributes) ) ); 
 	}
 	
 	//-------------------------------------------------------------------------------------
-	private String hashCodeMethod(List<AttributeInContext> fieldsList, LinesBuilder lb ) {
+	private String buildHashCodeMethod(List<AttributeInContext> fieldsList, LinesBuilder lb ) {
 
 		int indent = 1 ;
 		lb.append(indent, "public int hashCode() { ");
@@ -192,21 +244,20 @@ public class Java {
 				for ( AttributeInContext attribute : fieldsList ) {
 					
 					String attributeName = attribute.getName() ;
-					lb.append(indent, "//--- Attribute " + attributeName );
+					lb.appendParts(indent, "//--- Attribute ", attributeName );
 					if ( attribute.isPrimitiveType() ) {
 						//--- Primitive types
 						if ( attribute.isBooleanType() ) {
 							// boolean
-							lb.append(indent, "result = prime * result + (" + attributeName + " ? 1231 : 1237 );");
+							lb.appendParts(indent, "result = prime * result + (", attributeName, " ? 1231 : 1237 );");
 						}
 						else if ( attribute.isLongType() ) {
 							// long (must be converted to int)
-							lb.append(indent, "result = prime * result + (int) (" + attributeName 
-									+ " ^ (" + attributeName + " >>> 32));");
+							lb.appendParts(indent, "result = prime * result + (int) (", attributeName, " ^ (", attributeName, " >>> 32));");
 						}
 						else if ( attribute.isFloatType() ) {
 							// float
-							lb.append(indent, "result = prime * result + Float.floatToIntBits(" + attributeName + ");");
+							lb.appendParts(indent, "result = prime * result + Float.floatToIntBits(", attributeName, ");");
 						}
 						else if ( attribute.isDoubleType() ) {
 							// double
@@ -214,22 +265,21 @@ public class Java {
 								lb.append(indent, "long temp;");
 								longtempVarDefined = true ;
 							}
-							lb.append(indent, "temp = Double.doubleToLongBits(" + attributeName + ");");
+							lb.appendParts(indent, "temp = Double.doubleToLongBits(", attributeName, ");");
 							lb.append(indent, "result = prime * result + (int) (temp ^ (temp >>> 32));");
 						}
 						else {
 							// char, byte, short, int 
-							lb.append(indent, "result = prime * result + " + attributeName + ";");
+							lb.appendParts(indent, "result = prime * result + ", attributeName, ";");
 						}
 					}
 					else if ( isArray(attribute) ) { 
 						// char[], byte[], String[], ...
-						lb.append(indent, "result = prime * result + Arrays.hashCode(" + attributeName + ");");
+						lb.appendParts(indent, "result = prime * result + Arrays.hashCode(", attributeName, ");");
 					}
 					else {
 						//--- Objects : just use the 'hashCode' method
-						lb.append(indent, "result = prime * result + ((" + attributeName + " == null) ? 0 : " 
-								+ attributeName + ".hashCode() ) ; ");
+						lb.appendParts(indent, "result = prime * result + ((", attributeName, " == null) ? 0 : ", attributeName, ".hashCode() ) ; ");
 					}
 				}
 			} 
@@ -258,15 +308,47 @@ public class Java {
 				)
 	public List<String> imports( List<AttributeInContext> attributesList ) {
 		if ( attributesList != null ) {
-			JavaImportsList imports = new JavaImportsList();
-			for ( AttributeInContext attribute : attributesList ) {
-				// register the type to be imported if necessary
-				imports.declareType( attribute.getFullType() ); 
+			EntityInContext entity = getCommonEntity(attributesList);
+			if ( entity != null ) {
+				// all the attributes belong to the same entity => keep the result in the entity cache (v 4.1.0)
+				StringBuilder key = new StringBuilder("$java.imports(attributes)");
+				for ( AttributeInContext attribute : attributesList ) {
+					key.append(":").append(attribute.getName());
+				}
+				return entity.getImports(key.toString(), () -> buildImports(attributesList) );
 			}
-			return imports.getFinalImportsList();			
+			return buildImports(attributesList);
 		}
 		return VOID_STRINGS_LIST ;
 	}
+	private List<String> buildImports( List<AttributeInContext> attributesList ) {
+		JavaImportsList imports = new JavaImportsList();
+		for ( AttributeInContext attribute : attributesList ) {
+			// register the type to be imported if necessary
+			imports.declareType( attribute.getFullType() ); 
+		}
+		return imports.getFinalImportsList();			
+	}
+	/**
+	 * Returns the entity holding all the given attributes or null if none or more than one
+	 * @param attributesList
+	 * @return
+	 */
+	private EntityInContext getCommonEntity( List<AttributeInContext> attributesList ) {
+		EntityInContext entity = null ;
+		for ( AttributeInContext attribute : attributesList ) {
+			if ( attribute.getEntity() == null ) {
+				return null ;
+			}
+			else if ( entity == null ) {
+				entity = attribute.getEntity();
+			}
+			else if ( entity != attribute.getEntity() ) {
+				return null ;
+			}
+		}
+		return entity ;
+	}
 	
 	//-------------------------------------------------------------------------------------
 	@VelocityMethod(
@@ -286,36 +368,40 @@ public class Java {
 				)
 	public List<String> imports( EntityInContext entity ) {
 		if ( entity != null ) {
-			JavaImportsList imports = new JavaImportsList();
-			//--- All the attributes
-			for ( AttributeInContext attribute : entity.getAttributes() ) {
-				// register the type to be imported if necessary
-				imports.declareType( attribute.getFullType() ); 
-			}
-			//--- All the links 
-			for ( LinkInContext link : entity.getLinks() ) {
-				if ( link.isCardinalityOneToMany() || link.isCardinalityManyToMany() ) {
-					String type = link.getFieldType();
-					if ( type.contains("Set<") && type.contains(">") ) {
-						imports.declareType("java.util.Set");
-					} 
-					else if ( type.contains("Collection<") && type.contains(">") ) {
-						imports.declareType("java.util.Collection");
-					} 
-					else {
-						// by default "List" 
-						imports.declareType("java.util.List");
-					}
-				}
+			// keep the result in the entity cache (v 4.1.0)
+			return entity.getImports("$java.imports(entity)", () -> buildImports(entity) );
+		}
+		return VOID_STRINGS_LIST ;
+	}
+	private List<String> buildImports( EntityInContext entity ) {
+		JavaImportsList imports = new JavaImportsList();
+		//--- All the attributes
+		for ( AttributeInContext attribute : entity.getAttributes() ) {
+			// register the type to be imported if necessary
+			imports.declareType( attribute.getFullType() ); 
+		}
+		//--- All the links 
+		for ( LinkInContext link : entity.getLinks() ) {
+			if ( link.isCardinalityOneToMany() || link.isCardinalityManyToMany() ) {
+				String type = link.getFieldType();
+				if ( type.contains("Set<") && type.contains(">") ) {
+					imports.declareType("java.util.Set");
+				} 
+				else if ( type.contains("Collection<") && type.contains(">") ) {
+					imports.declareType("java.util.Collection");
+				} 
 				else {
-					// ManyToOne or OneToOne => bean ( "Book", "Person", ... )
-					// Supposed to be in the same package
+					// by default "List" 
+					imports.declareType("java.util.List");
 				}
 			}
-			//--- Resulting list of imports
-			return imports.getFinalImportsList();
+			else {
+				// ManyToOne or OneToOne => bean ( "Book", "Person", ... )
+				// Supposed to be in the same package
+			}
 		}
-		return VOID_STRINGS_LIST ;
+		//--- Resulting list of imports
+		return imports.getFinalImportsList();
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -338,7 +424,7 @@ public class Java {
 //	public String toStringMethod( EntityInContext entity, int indentSpaces ) {
 	public String toStringMethod( EntityInContext entity, int indentationLevel ) {
 //		return toStringMethod(entity.getAttributes(), indentSpaces );
-		return buildToStringMethod( entity, entity.getAttributes(), indentationLevel, new LinesBuilder() ); 		
+		return toStringMethod( entity, entity.getAttributes(), indentationLevel, TAB ); 		
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -358,7 +444,7 @@ public class Java {
 		since = "4.1.0"
 			)
 	public String toStringMethod( EntityInContext entity, int indentationLevel, String indentationString ) {
-		return buildToStringMethod( entity, entity.getAttributes(), indentationLevel, new LinesBuilder(indentationString) ); 
+		return toStringMethod( entity, entity.getAttributes(), indentationLevel, indentationString ); 
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -378,7 +464,7 @@ public class Java {
 		since = "4.1.0"
 			)
 	public String toStringMethod( EntityInContext entity, List<AttributeInContext> attributes, int indentationLevel ) {
-		return buildToStringMethod( entity, attributes, indentationLevel, new LinesBuilder() ); 
+		return toStringMethod( entity, attributes, indentationLevel, TAB ); 
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -399,7 +485,10 @@ public class Java {
 		since = "4.1.0"
 			)
 	public String toStringMethod( EntityInContext entity, List<AttributeInContext> attributes, int indentationLevel, String indentationString ) {
-		return buildToStringMethod( entity, attributes, indentationLevel, new LinesBuilder(indentationString) ); 
+		// same code for the same inputs => kept in cache (v 4.1.0)
+		// NB : null entity => not cached, exception thrown by the builder 
+		return getMethodCode("toString", entity != null ? entity.getName() : null, attributes, indentationLevel, indentationString, 
+				() -> buildToStringMethod( entity, attributes, indentationLevel, newLinesBuilder(indentationString, attributes) ) ); 
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -596,7 +685,7 @@ public class Java {
 		indent++;
     	if ( attributes.isEmpty() ) {
     		//--- No attributes
-    		lb.append(indent, "return \"" + entity.getName() + " [no attribute]\" ;");
+    		lb.appendParts(indent, "return \"", entity.getName(), " [no attribute]\" ;");
     	}
     	else {
     		//--- Build return concat with all the given attributes 
@@ -621,7 +710,7 @@ public class Java {
     	// first lines
     	lb.append(indentationLevel, "String separator = \"|\";");
 		lb.append(indentationLevel, "StringBuilder sb = new StringBuilder();"); 
-		lb.append(indentationLevel, "sb.append(\"" + entity.getName() + "[\");");  // append the class name, example : sb.append("Employee[")
+		lb.appendParts(indentationLevel, "sb.append(\"", entity.getName(), "[\");");  // append the class name, example : sb.append("Employee[")
     	for ( AttributeInContext attribute : attributes ) {
     		if ( usableInToString( attribute ) ) {
     			String startOfLine = "";
@@ -631,12 +720,12 @@ public class Java {
                 else {
                 	startOfLine = "sb" ; // first one => no separator before
                 }
-    			lb.append(indentationLevel, startOfLine + ".append(\"" + attribute.getName() + "=\").append(" + attribute.getName() + ");"); 
+    			lb.appendParts(indentationLevel, startOfLine, ".append(\"", attribute.getName(), "=\").append(", attribute.getName(), ");"); 
     			// example: sb.append("firstName=").append(firstName) 
     			count++ ;
     		}
     		else {
-    			lb.append(indentationLevel, "// attribute '" + attribute.getName() + "' (type " + attribute.getType() + ") not usable in toString() " );
+    			lb.appendParts(indentationLevel, "// attribute '", attribute.getName(), "' (type ", attribute.getType(), ") not usable in toString() " );
     		}
     	}
     	// last line
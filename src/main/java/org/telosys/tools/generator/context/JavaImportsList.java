@@ -15,8 +15,11 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.telosys.tools.commons.JavaTypeUtil;
 
@@ -29,7 +32,9 @@ import org.telosys.tools.commons.JavaTypeUtil;
  */
 public class JavaImportsList {
 
-	private final LinkedList<String> imports = new LinkedList<>() ; // List of Java "full types" to import ( eg : "java.math.BigDecimal" )
+	private final Set<String> imports = new HashSet<>() ; // Set of Java "full types" to import ( eg : "java.math.BigDecimal" )
+	
+	private List<String> finalImports = null ; // sorted only once, reset if a new type is declared (v 4.1.0)
 	
 	/**
 	 * Constructor
@@ -43,8 +48,9 @@ public class JavaImportsList {
 	 * @param fullTypeName 
 	 */
 	public void declareType(String fullTypeName ) {
-		if ( JavaTypeUtil.needsImport(fullTypeName) && ( ! imports.contains(fullTypeName) ) ) {
+		if ( ( ! imports.contains(fullTypeName) ) && JavaTypeUtil.needsImport(fullTypeName) ) {
 			imports.add(fullTypeName);
+			finalImports = null ;
 		}
 	}
 	
@@ -67,9 +73,13 @@ public class JavaImportsList {
 	 * @return
 	 */
 	public List<String> getFinalImportsList() {
-		removeCollidedTypes();
-		java.util.Collections.sort(imports);
-		return imports ;		
+		if ( finalImports == null ) {
+			removeCollidedTypes();
+			List<String> list = new LinkedList<>(imports);
+			Collections.sort(list);
+			finalImports = list ;
+		}
+		return finalImports ;		
 	}
 
 	private static final Class<?>[] COLLECTIONS = {
@@ -81,7 +81,7 @@ public class JdbcFactoryInContext {
 		if ( entity == null ) {
 			throw new IllegalArgumentException("$jdbcFactory.getInstance($entity) : $entity is null");
 		}
-		return new JdbcInContext(entity, this.useSchema); 
+		return entity.getJdbc(this.useSchema); // cached in the entity (v 4.1.0)
     }
 	
 	//-------------------------------------------------------------------------------------
@@ -15,6 +15,7 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -56,6 +57,8 @@ public class JpaInContext {
 	
 	private boolean  genColumnDefinition = false ; // v 3.4.0
 	
+	private String   settingsKey = null ; // all the settings in a single key for the annotations cache (v 4.1.0)
+	
 	//-------------------------------------------------------------------------------------
 	// CONSTRUCTOR
 	//-------------------------------------------------------------------------------------
@@ -81,6 +84,7 @@ public class JpaInContext {
 	@VelocityNoDoc // just the setter for 'genTargetEntity'
 	public void setGenTargetEntity(boolean v) {
 		this.genTargetEntity = v;
+		this.settingsKey = null ; // settings changed
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -101,6 +105,7 @@ public class JpaInContext {
 	@VelocityNoDoc // just the setter 
 	public void setGenColumnDefinition(boolean v) { // v 3.4.0
 		this.genColumnDefinition = v;
+		this.settingsKey = null ; // settings changed
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -111,6 +116,7 @@ public class JpaInContext {
 	@VelocityNoDoc  // for future use ( currently $env.collectionType is used )
 	public void setCollectionType(String v) {
 		this.collectionType = v;
+		this.settingsKey = null ; // settings changed
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -129,6 +135,7 @@ public class JpaInContext {
 	@VelocityNoDoc // just the setter 
 	public void setManyToOneFetchType(String s) {
 		this.linkManyToOneFetchType = getFetchType(s);
+		this.settingsKey = null ; // settings changed
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -147,6 +154,7 @@ public class JpaInContext {
 	@VelocityNoDoc // just the setter 
 	public void setOneToOneFetchType(String s) {
 		this.linkOneToOneFetchType = getFetchType(s);
+		this.settingsKey = null ; // settings changed
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -165,6 +173,7 @@ public class JpaInContext {
 	@VelocityNoDoc // just the setter 
 	public void setOneToManyFetchType(String s) {
 		this.linkOneToManyFetchType = getFetchType(s);
+		this.settingsKey = null ; // settings changed
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -183,6 +192,7 @@ public class JpaInContext {
 	@VelocityNoDoc // just the setter 
 	public void setManyToManyFetchType(String s) {
 		this.linkManyToManyFetchType = getFetchType(s);
+		this.settingsKey = null ; // settings changed
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -217,10 +227,12 @@ public class JpaInContext {
 	@VelocityNoDoc // just the setter
 	public void setJoinColumnInsertable(String s) {
 		this.joinColumnInsertable = getBooleanValue(s);
+		this.settingsKey = null ; // settings changed
 	}
 	@VelocityNoDoc // just the setter
 	public void setJoinColumnInsertable(boolean b) {
 		this.joinColumnInsertable = getBooleanValue(b);
+		this.settingsKey = null ; // settings changed
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -240,10 +252,12 @@ public class JpaInContext {
 	@VelocityNoDoc // just the setter
 	public void setJoinColumnUpdatable(String s) {
 		this.joinColumnUpdatable = getBooleanValue(s);
+		this.settingsKey = null ; // settings changed
 	}
 	@VelocityNoDoc // just the setter
 	public void setJoinColumnUpdatable(boolean b) {
 		this.joinColumnUpdatable = getBooleanValue(b);
+		this.settingsKey = null ; // settings changed
 	}
 
 	private BooleanValue getBooleanValue(String s) {
@@ -267,6 +281,36 @@ public class JpaInContext {
 			return BooleanValue.FALSE; 
 		}
 	}
+	
+	//-------------------------------------------------------------------------------------
+	// ANNOTATIONS CACHE KEY
+	//-------------------------------------------------------------------------------------
+	/**
+	 * Returns the key for the annotations cache <br>
+	 * The key contains all the '$jpa' settings => any change in settings gives a new key
+	 * @param kind the kind of annotations
+	 * @param leftMargin
+	 * @return
+	 */
+	private String cacheKey(String kind, int leftMargin) { // v 4.1.0
+		if ( settingsKey == null ) {
+			settingsKey = genTargetEntity + "|" + genColumnDefinition + "|" + collectionType 
+				+ "|" + linkManyToOneFetchType + "|" + linkOneToOneFetchType 
+				+ "|" + linkOneToManyFetchType + "|" + linkManyToManyFetchType 
+				+ "|" + joinColumnInsertable + "|" + joinColumnUpdatable ;
+		}
+		return kind + "|" + leftMargin + "|" + settingsKey ;
+	}
+	private String cacheKey(String kind, int leftMargin, List<AttributeInContext> alreadyMappedFields) { // v 4.1.0
+		StringBuilder sb = new StringBuilder(cacheKey(kind, leftMargin));
+		if ( alreadyMappedFields != null ) {
+			sb.append("|mapped:");
+			for ( AttributeInContext attribute : alreadyMappedFields ) {
+				sb.append(attribute.getName()).append(",");
+			}
+		}
+		return sb.toString();
+	}
 
 	//-------------------------------------------------------------------------------------
 	// JPA IMPORTS
@@ -288,10 +332,10 @@ public class JpaInContext {
 	)
 	@VelocityReturnType("List of 'String'")
 	public List<String> imports(EntityInContext entity) {
-		List<String> list = new LinkedList<>();
-		list.add("javax.persistence.*");
-		return list;
+		// always the same imports => shared list (v 4.1.0)
+		return JPA_IMPORTS;
 	}
+	private static final List<String> JPA_IMPORTS = Collections.singletonList("javax.persistence.*");
 	
 	//-------------------------------------------------------------------------------------
 	// ENTITY JPA ANNOTATIONS
@@ -311,6 +355,11 @@ public class JpaInContext {
 		since = "2.0.7"
 	)
 	public String entityAnnotations(int iLeftMargin, EntityInContext entity)
+    {
+		return entity.getAnnotationsCache().get(cacheKey("jpa.entity", iLeftMargin), 
+				() -> buildEntityAnnotations(iLeftMargin, entity) ); // v 4.1.0
+    }
+	private String buildEntityAnnotations(int iLeftMargin, EntityInContext entity)
     {
 		AnnotationsBuilder b = new AnnotationsBuilder(iLeftMargin);
 		
@@ -349,6 +398,11 @@ public class JpaInContext {
 			)
 	public String linkAnnotations( int leftMargin, LinkInContext link, List<AttributeInContext> alreadyMappedFields )
 				throws GeneratorException {		
+		return link.getAnnotationsCache().getChecked(cacheKey("jpa.link", leftMargin, alreadyMappedFields), 
+				() -> buildLinkAnnotations(leftMargin, link, alreadyMappedFields) ); // v 4.1.0
+	}
+	private String buildLinkAnnotations( int leftMargin, LinkInContext link, List<AttributeInContext> alreadyMappedFields )
+				throws GeneratorException {		
 		AnnotationsBuilder annotations = new AnnotationsBuilder(leftMargin);
 		processLinkCardinalityAnnotation(annotations, link) ;
 		processLinkJoinAnnotation(annotations, link, alreadyMappedFields );
@@ -370,10 +424,7 @@ public class JpaInContext {
 			)
 	public String linkAnnotations( int leftMargin, LinkInContext link )
 				throws GeneratorException {
-		AnnotationsBuilder annotations = new AnnotationsBuilder(leftMargin);
-		processLinkCardinalityAnnotation(annotations, link) ;
-		processLinkJoinAnnotation(annotations, link, null );
-		return annotations.getAnnotations();
+		return linkAnnotations(leftMargin, link, null); // same annotations with no mapped fields (v 4.1.0)
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -389,9 +440,11 @@ public class JpaInContext {
 		since = "3.3.0"
 			)
 	public String linkCardinalityAnnotation(int leftMargin, LinkInContext link ) {
-		AnnotationsBuilder annotations = new AnnotationsBuilder(leftMargin);
-		processLinkCardinalityAnnotation(annotations, link) ;
-		return annotations.getAnnotations();
+		return link.getAnnotationsCache().get(cacheKey("jpa.linkCardinality", leftMargin), () -> { // v 4.1.0
+			AnnotationsBuilder annotations = new AnnotationsBuilder(leftMargin);
+			processLinkCardinalityAnnotation(annotations, link) ;
+			return annotations.getAnnotations();
+		});
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -410,9 +463,11 @@ public class JpaInContext {
 		since = "3.3.0"
 			)
 	public String linkJoinAnnotation(int leftMargin, LinkInContext link, List<AttributeInContext> alreadyMappedFields ) throws GeneratorException {
-		AnnotationsBuilder annotations = new AnnotationsBuilder(leftMargin);
-		processLinkJoinAnnotation(annotations, link, alreadyMappedFields );
-		return annotations.getAnnotations();
+		return link.getAnnotationsCache().getChecked(cacheKey("jpa.linkJoin", leftMargin, alreadyMappedFields), () -> { // v 4.1.0
+			AnnotationsBuilder annotations = new AnnotationsBuilder(leftMargin);
+			processLinkJoinAnnotation(annotations, link, alreadyMappedFields );
+			return annotations.getAnnotations();
+		});
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -427,9 +482,7 @@ public class JpaInContext {
 		since = "3.3.0"
 			)
 	public String linkJoinAnnotation(int leftMargin, LinkInContext link ) throws GeneratorException {
-		AnnotationsBuilder annotations = new AnnotationsBuilder(leftMargin);
-		processLinkJoinAnnotation(annotations, link, null );
-		return annotations.getAnnotations();
+		return linkJoinAnnotation(leftMargin, link, null); // same annotations with no mapped fields (v 4.1.0)
 	}
 	
 	private String buildCardinalityAnnotation( LinkInContext link ) {
@@ -965,8 +1018,10 @@ public class JpaInContext {
 	)
 	public String fieldAnnotations(int leftMargin, AttributeInContext attribute )
     {
-		JpaAnnotations annotationsJPA = new JpaAnnotations(attribute, genColumnDefinition); // v 3.4.0
-		return annotationsJPA.getJpaAnnotations(leftMargin, JpaAnnotations.EMBEDDED_ID_FALSE );
+		return attribute.getAnnotationsCache().get(cacheKey("jpa.field", leftMargin), () -> { // v 4.1.0
+			JpaAnnotations annotationsJPA = new JpaAnnotations(attribute, genColumnDefinition); // v 3.4.0
+			return annotationsJPA.getJpaAnnotations(leftMargin, JpaAnnotations.EMBEDDED_ID_FALSE );
+		});
     }
 
 	//-------------------------------------------------------------------------------------------------------------
@@ -985,8 +1040,10 @@ public class JpaInContext {
 		)
 	public String embeddedIdAnnotations(int leftMargin, AttributeInContext attribute )
     {
-		JpaAnnotations annotationsJPA = new JpaAnnotations(attribute, genColumnDefinition); // v 3.4.0
-		return annotationsJPA.getJpaAnnotations(leftMargin, JpaAnnotations.EMBEDDED_ID_TRUE );
+		return attribute.getAnnotationsCache().get(cacheKey("jpa.embeddedId", leftMargin), () -> { // v 4.1.0
+			JpaAnnotations annotationsJPA = new JpaAnnotations(attribute, genColumnDefinition); // v 3.4.0
+			return annotationsJPA.getJpaAnnotations(leftMargin, JpaAnnotations.EMBEDDED_ID_TRUE );
+		});
     }
 	//-------------------------------------------------------------------------------------------------------------
 	
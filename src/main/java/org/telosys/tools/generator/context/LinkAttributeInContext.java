@@ -15,6 +15,8 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.List;
+
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.context.doc.VelocityMethod;
 import org.telosys.tools.generator.context.doc.VelocityObject;
@@ -55,6 +57,13 @@ public class LinkAttributeInContext {
 	
 	private final ModelInContext modelInContext ;  // v 3.4.0
 
+	//--- References resolved only once (v 4.1.0)
+	private volatile boolean    referencesResolved = false ;
+	private AttributeInContext  originAttribute ;
+	private String              originAttributeError ;
+	private AttributeInContext  referencedAttribute ;
+	private String              referencedAttributeError ;
+
 	//-------------------------------------------------------------------------------------
 	/**
 	 * Constructor
@@ -78,6 +87,51 @@ public class LinkAttributeInContext {
 		return this.linkName;
 	}
 
+	private String resolveAttribute(String entityName, String attributeName, boolean origin) {
+		String side = origin ? "origin" : "referenced" ;
+		if ( ! modelInContext.hasEntityWithClassName(entityName) ) {
+			return "Link '" + linkName + "' : unknown " + side + " entity '" + entityName + "'" ;
+		}
+		AttributeInContext attribute = modelInContext.getEntityByClassName(entityName).getAttributeWithName(attributeName);
+		if ( attribute == null ) {
+			return "Link '" + linkName + "' : unknown " + side + " attribute '" + entityName + "." + attributeName + "'" ;
+		}
+		if ( origin ) {
+			originAttribute = attribute ;
+		}
+		else {
+			referencedAttribute = attribute ;
+		}
+		return null ;
+	}
+
+	/**
+	 * Resolves the origin and referenced attributes <br>
+	 * The resolution is done only once, the errors (if any) are reported in the given list 
+	 * @param errors the list where to report the unresolved references (or null)
+	 */
+	protected synchronized void resolveReferences(List<String> errors) { // v 4.1.0
+		if ( ! referencesResolved ) {
+			originAttributeError = resolveAttribute(originEntityName, originAttributeName, true);
+			referencedAttributeError = resolveAttribute(referencedEntityName, referencedAttributeName, false);
+			referencesResolved = true ;
+		}
+		if ( errors != null ) {
+			if ( originAttributeError != null ) {
+				errors.add("Entity '" + originEntityName + "' : " + originAttributeError);
+			}
+			if ( referencedAttributeError != null ) {
+				errors.add("Entity '" + originEntityName + "' : " + referencedAttributeError);
+			}
+		}
+	}
+	private void resolveReferencesIfNecessary() {
+		if ( ! referencesResolved ) {
+			// resolve only the references of this link attribute (the other entities are not materialized)
+			resolveReferences(null);
+		}
+	}
+
 	//-------------------------------------------------------------------------------------
 	@VelocityMethod(
 		text={	
@@ -95,8 +149,11 @@ public class LinkAttributeInContext {
 			}
 	)
 	public AttributeInContext getOriginAttribute() throws GeneratorException {
-		EntityInContext entity = this.modelInContext.getEntityByClassName(this.originEntityName);
-		return entity.getAttributeByName(this.originAttributeName);
+		resolveReferencesIfNecessary(); // v 4.1.0
+		if ( this.originAttribute == null ) {
+			throw new GeneratorException(this.originAttributeError);
+		}
+		return this.originAttribute ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -116,8 +173,11 @@ public class LinkAttributeInContext {
 			}
 	)
 	public AttributeInContext getReferencedAttribute() throws GeneratorException {
-		EntityInContext entity = this.modelInContext.getEntityByClassName(this.referencedEntityName);
-		return entity.getAttributeByName(this.referencedAttributeName);
+		resolveReferencesIfNecessary(); // v 4.1.0
+		if ( this.referencedAttribute == null ) {
+			throw new GeneratorException(this.referencedAttributeError);
+		}
+		return this.referencedAttribute ;
 	}
 
 }
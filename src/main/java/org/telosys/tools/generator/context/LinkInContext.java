@@ -15,6 +15,7 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -63,6 +64,7 @@ public class LinkInContext {
 
 	private final ModelInContext   modelInContext ;  // v 3.0.0 (replaces EntitiesManager)
 	private final EnvInContext     envInContext ; // ver 3.3.0
+	private final GeneratedTextCache annotationsCache ; // v 4.1.0
 
 //	private final List<JoinColumnInContext> joinColumns ;  // removed in v 3.4.0
 	private final List<LinkAttributeInContext> linkAttributes ; // added in v 3.4.0  (replaces joinColumns)
@@ -96,6 +98,13 @@ public class LinkInContext {
 
 	private final boolean      isOrphanRemoval ; // Added in v 4.1.0
 
+	//--- References resolved only once (v 4.1.0)
+	private volatile boolean   referencesResolved = false ;
+	private EntityInContext    targetEntity ; 
+	private String             targetEntityError ;
+	private EntityInContext    joinEntity ; 
+	private String             joinEntityError ;
+
 	//-------------------------------------------------------------------------------------
 	/**
 	 * Constructor
@@ -144,8 +153,61 @@ public class LinkInContext {
 		this.tagContainer = link.getTagContainer(); // V 3.4.0
 		
 		this.isOrphanRemoval = link.isOrphanRemoval(); // v 4.1.0
+		this.annotationsCache = new GeneratedTextCache(envInContext, modelInContext != null ? modelInContext.getMetrics() : null) ; // v 4.1.0
+	}
+
+	/**
+	 * Returns the cache for the annotations built for this link (by '$jpa', '$beanValidation', etc)
+	 * @return
+	 */
+	protected GeneratedTextCache getAnnotationsCache() { // v 4.1.0
+		return this.annotationsCache ;
 	}
 	
+	/**
+	 * Resolves the entities referenced by name (target entity and join entity) <br>
+	 * The resolution is done only once, the errors (if any) are reported in the given list 
+	 * @param errors the list where to report the unresolved references (or null)
+	 */
+	protected synchronized void resolveReferences(List<String> errors) { // v 4.1.0
+		if ( ! referencesResolved ) {
+			//--- Target entity
+			if ( this.targetEntityName == null ) {
+				targetEntityError = "No target entity name in link '" + this.fieldName + "'" ;
+			}
+			else if ( modelInContext.hasEntityWithClassName(this.targetEntityName) ) {
+				targetEntity = modelInContext.getEntityByClassName(this.targetEntityName);
+			}
+			else {
+				targetEntityError = "Unknown target entity '" + this.targetEntityName + "' in link '" + this.fieldName + "'" ;
+			}
+			//--- Join entity (optional)
+			if ( ! StrUtil.nullOrVoid(this.joinEntityName) ) {
+				if ( modelInContext.hasEntityWithClassName(this.joinEntityName) ) {
+					joinEntity = modelInContext.getEntityByClassName(this.joinEntityName);
+				}
+				else {
+					joinEntityError = "Unknown join entity '" + this.joinEntityName + "' in link '" + this.fieldName + "'" ;
+				}
+			}
+			referencesResolved = true ;
+		}
+		if ( errors != null ) {
+			if ( targetEntityError != null ) {
+				errors.add("Entity '" + entity.getName() + "' : " + targetEntityError);
+			}
+			if ( joinEntityError != null ) {
+				errors.add("Entity '" + entity.getName() + "' : " + joinEntityError);
+			}
+		}
+	}
+	private void resolveReferencesIfNecessary() {
+		if ( ! referencesResolved ) {
+			// resolve only the references of this link (the other entities are not materialized)
+			resolveReferences(null);
+		}
+	}
+
 	/**
 	 * Returns the collection type <br>
 	 * depending on the current language and the specific collection type if any
@@ -274,7 +336,11 @@ public class LinkInContext {
 		)
 	public EntityInContext getJoinEntity() {
 		if ( ! StrUtil.nullOrVoid(this.joinEntityName) ) {
-			return modelInContext.getEntityByClassName(this.joinEntityName);
+			resolveReferencesIfNecessary(); // v 4.1.0
+			if ( joinEntity == null ) {
+				throw new GeneratorContextException(joinEntityError);
+			}
+			return joinEntity ;
 		}
 		else {
 			throw new GeneratorContextException("No 'join entity' for this link");
@@ -321,7 +387,7 @@ public class LinkInContext {
 	)
 	@VelocityReturnType("List of '$linkAttribute' (origin-target association) ")	
 	public List<LinkAttributeInContext> getAttributes() {
-		return this.linkAttributes;
+		return Collections.unmodifiableList(this.linkAttributes); // shared by all the targets of the task (v 4.1.0)
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -442,15 +508,11 @@ public class LinkInContext {
 	)
 	// new version based on 'targetEntityName'
 	public EntityInContext getTargetEntity() throws GeneratorException {
-		if ( this.targetEntityName == null ) {
-			throw new GeneratorException("No target entity name in link '" + this.fieldName + "'" );
-		}
-		EntityInContext targetEntity = modelInContext.getEntityByClassName(this.targetEntityName);
-		if ( targetEntity == null ) {
-			throw new GeneratorException("Unknown target entity '" + this.targetEntityName 
-					+ "' in link '" + this.fieldName + "'");
+		resolveReferencesIfNecessary(); // v 4.1.0
+		if ( this.targetEntity == null ) {
+			throw new GeneratorException(this.targetEntityError);
 		}
-		return targetEntity ;
+		return this.targetEntity ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -47,7 +47,7 @@ import org.telosys.tools.generator.context.names.ContextName;
 //-------------------------------------------------------------------------------------
 public class Loader {
 	
-    private final SpecificClassLoader    specificClassLoader ; // Specific Class Loader instance
+    private SpecificClassLoader          specificClassLoader = null ; // Specific Class Loader instance (built on first use, v 4.1.0)
 
 	private final String                 templatesFolderFullPath ; // Full templates full path with bundle name
 	private final File                   classesFolder ; // "templates/(bundle)/classes"
@@ -63,7 +63,18 @@ public class Loader {
 		this.templatesFolderFullPath = templatesFolderFullPath;
 		this.classesFolder = new File ( FileUtil.buildFilePath(this.templatesFolderFullPath, "classes" ) );
 		this.libFolder     = new File ( FileUtil.buildFilePath(this.templatesFolderFullPath, "lib"     ) );
-		this.specificClassLoader = buildClassLoader() ;
+		// the class loader is built only if used by a template (v 4.1.0)
+	}
+	
+	/**
+	 * Returns the specific class loader (built on the first call)
+	 * @return
+	 */
+	private synchronized SpecificClassLoader getSpecificClassLoader() { // v 4.1.0
+		if ( this.specificClassLoader == null ) {
+			this.specificClassLoader = buildClassLoader() ;
+		}
+		return this.specificClassLoader ;
 	}
 	
 	private SpecificClassLoader buildClassLoader() {
@@ -110,7 +121,7 @@ public class Loader {
 		since="3.0.0"
 	)
 	public URL[] getURLs() {
-		return this.specificClassLoader.getURLs();
+		return getSpecificClassLoader().getURLs();
 	}
 	
 	//--------------------------------------------------------------------------------------------------------------
@@ -182,7 +193,7 @@ public class Loader {
 	{
 		Class<?> javaClass = null ;
 		try {
-			javaClass = specificClassLoader.loadClass(javaClassName);
+			javaClass = getSpecificClassLoader().loadClass(javaClassName);
 		} catch (ClassNotFoundException e) {
 			throw new GeneratorException("Cannot load class " + javaClassName + " (ClassNotFoundException)", e);
 		}
@@ -15,6 +15,8 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -23,11 +25,15 @@ import java.util.Map;
 import org.telosys.tools.commons.NamingStyleConverter;
 import org.telosys.tools.commons.cfg.TelosysToolsCfg;
 import org.telosys.tools.commons.plugins.PluginHandler;
+import org.telosys.tools.generator.GenerationMetrics;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.context.doc.VelocityMethod;
 import org.telosys.tools.generator.context.doc.VelocityNoDoc;
 import org.telosys.tools.generator.context.doc.VelocityObject;
+import org.telosys.tools.generator.context.doc.VelocityReturnType;
 import org.telosys.tools.generator.context.names.ContextName;
+import org.telosys.tools.generator.context.tools.ModelFingerprint;
+import org.telosys.tools.generator.languages.types.TypeConverter;
 import org.telosys.tools.generic.model.Entity;
 import org.telosys.tools.generic.model.Model;
 import org.telosys.tools.generic.model.enums.ModelType;
@@ -65,6 +71,18 @@ public class ModelInContext
 	private final Map<String,EntityInContext> entitiesByTableName ; // Key = table name in upper case
 	private final Map<String,EntityInContext> entitiesByClassName ; // Key = entity name as is
 
+	private final TypeConverter initialTypeConverter ; // type converter when the model is created (v 4.1.0)
+
+	private final ReferencesGraph referencesGraph ; // transitive and reverse references (v 4.1.0)
+
+	private final ModelSelectInContext select ; // indexed queries (v 4.1.0)
+
+	private final ModelFingerprint fingerprints ; // structural fingerprints (v 4.1.0)
+
+	private final GenerationMetrics metrics ; // v 4.1.0
+
+	private volatile List<String> unresolvedReferences = null ; // set when all references are resolved (v 4.1.0)
+
 	private String notNull(String s) {
 		return s != null ? s : "" ;
 	}
@@ -77,6 +95,17 @@ public class ModelInContext
 	 * @param env
 	 */
 	public ModelInContext( Model model, TelosysToolsCfg telosysToolsCfg, EnvInContext env ) { // v 3.3.0
+		this(model, telosysToolsCfg, env, null);
+	}
+
+	/**
+	 * Constructor
+	 * @param model
+	 * @param telosysToolsCfg
+	 * @param env
+	 * @param metrics the metrics to be updated (or null if not used)
+	 */
+	public ModelInContext( Model model, TelosysToolsCfg telosysToolsCfg, EnvInContext env, GenerationMetrics metrics ) { // v 4.1.0
 		super();
 		if ( model == null ) throw new IllegalArgumentException("Model is null");
 		if ( telosysToolsCfg == null ) throw new IllegalArgumentException("TelosysToolsCfg is null");
@@ -95,8 +124,13 @@ public class ModelInContext
 		this.modelTitle = model.getTitle() != null ? model.getTitle() : "" ;
 		this.modelDescription = model.getDescription() != null ? model.getDescription() : "" ;
 		
+		this.metrics = metrics != null ? metrics : new GenerationMetrics() ; // v 4.1.0
+
+		//--- Keep the initial type converter (entities attributes are built later, the '$env' can change)
+		this.initialTypeConverter = env.getTypeConverter();
+
 		//--- All the entities (the original model order is kept)
-		this.allEntities = new LinkedList<>(); // v 3.0.0
+		List<EntityInContext> entities = new LinkedList<>(); // v 3.0.0
 		for ( Entity entity : model.getEntities() ) { // v 3.0.0
 			EntityInContext entityInContext = (EntityInContext) PluginHandler.newEntityInContext(entity, telosysToolsCfg.getEntityPackage(), this, env);
 			if (entityInContext == null) {
@@ -106,8 +140,9 @@ public class ModelInContext
 			}
 			
 			//_allEntities.add( new EntityInContext(entity, entitiesPackage, this, env) );// v 3.0.0
-			this.allEntities.add(entityInContext); 
+			entities.add(entityInContext); 
 		}
+		this.allEntities = Collections.unmodifiableList(entities); // shared by all the targets of the task (v 4.1.0)
 		
 		//--- Entities by TABLE NAME
 		this.entitiesByTableName = new HashMap<>();
@@ -127,6 +162,79 @@ public class ModelInContext
 		this.databaseId = notNull(model.getDatabaseId());
 		this.databaseName = notNull(model.getDatabaseName());
 		this.databaseType = notNull(model.getDatabaseType());
+
+		//--- References between entities (computed on demand, only once for this model) 
+		this.referencesGraph = new ReferencesGraph(this.allEntities); // v 4.1.0
+		
+		//--- Indexed queries (indexes built on demand, only once for this model) 
+		this.select = new ModelSelectInContext(this.allEntities); // v 4.1.0
+
+		//--- Structural fingerprints (computed on demand, only once for this model) 
+		this.fingerprints = new ModelFingerprint(model); // v 4.1.0
+	}
+
+	/**
+	 * Returns the type converter available when the model has been created <br>
+	 * (used to keep the same ambiguous types detection even if the entities are built later)
+	 * @return
+	 */
+	protected TypeConverter getInitialTypeConverter() { // v 4.1.0
+		return initialTypeConverter ;
+	}
+
+	/**
+	 * Returns the metrics to be updated by the context objects (never null)
+	 * @return
+	 */
+	protected GenerationMetrics getMetrics() { // v 4.1.0
+		return metrics ;
+	}
+
+	/**
+	 * Returns the structural fingerprints of this model snapshot (computed only once for each entity)
+	 * @return
+	 */
+	protected ModelFingerprint getFingerprints() { // v 4.1.0
+		return fingerprints ;
+	}
+
+	/**
+	 * Returns the references graph (transitive closures computed once for all the templates using this model)
+	 * @return
+	 */
+	protected ReferencesGraph getReferencesGraph() { // v 4.1.0
+		return referencesGraph ;
+	}
+
+	/**
+	 * Resolves all the references by name (links, link attributes and FK parts) in one pass <br>
+	 * (done only once for the model, on first request for the unresolved references) <br>
+	 * NB : the context objects resolve their own references lazily, on first use (without this pass)
+	 * @return the unresolved references (void list if none)
+	 */
+	protected List<String> resolveReferences() { // v 4.1.0
+		if ( unresolvedReferences == null ) {
+			synchronized (this) {
+				if ( unresolvedReferences == null ) {
+					List<String> errors = new LinkedList<>();
+					for ( EntityInContext entity : allEntities ) {
+						for ( LinkInContext link : entity.getLinks() ) {
+							link.resolveReferences(errors);
+							for ( LinkAttributeInContext linkAttribute : link.getAttributes() ) {
+								linkAttribute.resolveReferences(errors);
+							}
+						}
+						for ( AttributeInContext attribute : entity.getAttributes() ) {
+							for ( ForeignKeyPartInContext fkPart : attribute.getFkParts() ) {
+								fkPart.resolveReferences(entity.getName(), errors);
+							}
+						}
+					}
+					unresolvedReferences = Collections.unmodifiableList(errors);
+				}
+			}
+		}
+		return unresolvedReferences ;
 	}
 
 	/**
@@ -266,6 +374,43 @@ public class ModelInContext
 		return allEntities ;
     }
 	
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={	
+			"Returns the object providing indexed queries on the model entities and attributes",
+			"(by tag, domain, context, package, neutral type, etc)",
+			"The indexes are built only once for the model"
+			},
+		example = {
+			"#foreach ( $entity in $model.select.entitiesInDomain('sales') )",
+			"...",
+			"#end",
+			""
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("'select' object")
+    public ModelSelectInContext getSelect() {
+		return select ;
+    }
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={	
+			"Returns the structural fingerprint of the model (16 hexadecimal characters)",
+			"The fingerprint changes if the model information (name, version, type, database id, name and type) ",
+			"or any entity of the model changes (see '$entity.fingerprint')",
+			"It is computed only once for the model"
+			},
+		example = {
+			"// model fingerprint : $model.fingerprint"
+		},
+		since="4.1.0"
+	)
+    public String getFingerprint() {
+		return ModelFingerprint.toHex(fingerprints.getModelFingerprint());
+    }
+
 	//---------------------------------------------------------------------------------------------------
 	/**
 	 * Returns a list of entities for the given entities names
@@ -396,6 +541,148 @@ public class ModelInContext
 		return ( searchEntityByTableName(tableName) != null ) ; // v 4.1.0
     }
 
+	//-------------------------------------------------------------------------------------
+	// References between entities (v 4.1.0)
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={	
+			"Returns all the links (defined in any entity of the model) referencing the given entity",
+			"The reverse index is computed only once for the model"
+			},
+		parameters={
+			"entityName : the name identifying the referenced entity in the model (eg 'Car', 'Student', etc) "
+		},
+		example = {
+			"#foreach ( $link in $model.getIncomingLinks($entity.name) )",
+			" $link.entity.name . $link.fieldName ",
+			"#end",
+			""
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'link' objects")
+    public List<LinkInContext> getIncomingLinks( String entityName ) {
+		return referencesGraph.getIncomingLinks(getEntityByClassName(entityName));
+    }
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={	
+			"Returns the references to the given entity ",
+			"(one reference for each entity holding at least one link to the given entity)",
+			"The reference entity is the entity holding the links"
+			},
+		parameters={
+			"entityName : the name identifying the referenced entity in the model (eg 'Car', 'Student', etc) "
+		},
+		example = {
+			"#foreach ( $reference in $model.getIncomingReferences($entity.name) )",
+			" $reference.entityName : $reference.totalCount link(s) ",
+			"#end",
+			""
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'reference' objects")
+    public Collection<ReferenceInContext> getIncomingReferences( String entityName ) {
+		return referencesGraph.getIncomingReferences(getEntityByClassName(entityName));
+    }
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={	
+			"Returns all the entities sorted according to the foreign keys dependencies ",
+			"(each entity comes after the entities referenced by its foreign keys)",
+			"Usable to create the tables in a safe order (DDL)",
+			"The entities involved in the same cycle are kept together (see 'dependencyCycles')"
+			},
+		example = {
+			"#foreach ( $entity in $model.entitiesInDependencyOrder )",
+			"CREATE TABLE $entity.sqlTableName ( ... );",
+			"#end",
+			""
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'entity' objects")
+    public List<EntityInContext> getEntitiesInDependencyOrder() {
+		return referencesGraph.getEntitiesInDependencyOrder();
+    }
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={	
+			"Returns the groups of entities involved in a foreign keys cycle",
+			"(each group is a list of entities, void list if no cycle)",
+			"NB : a foreign key referencing its own entity is not considered as a cycle"
+			},
+		example = {
+			"#foreach ( $group in $model.dependencyCycles )",
+			"#foreach ( $entity in $group ) $entity.name #end",
+			"#end",
+			""
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of lists of 'entity' objects")
+    public List<List<EntityInContext>> getDependencyCycles() {
+		return referencesGraph.getDependencyCycles();
+    }
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={	
+			"Returns TRUE if at least one foreign keys cycle exists in the model"
+			},
+		example = {
+			"#if ( $model.hasDependencyCycles() )",
+			"...",
+			"#end",
+			""
+		},
+		since="4.1.0"
+	)
+    public boolean hasDependencyCycles() {
+		return ! referencesGraph.getDependencyCycles().isEmpty();
+    }
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={	
+			"Returns the references by name that cannot be resolved in the model",
+			"(links, link attributes and FK parts referencing an unknown entity or attribute)",
+			"Each item is a message describing the unresolved reference (void list if none)"
+			},
+		example = {
+			"#foreach ( $msg in $model.unresolvedReferences )",
+			"## $msg",
+			"#end",
+			""
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'String'")
+    public List<String> getUnresolvedReferences() {
+		return resolveReferences();
+    }
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={	
+			"Returns TRUE if at least one reference by name cannot be resolved in the model"
+			},
+		example = {
+			"#if ( $model.hasUnresolvedReferences() )",
+			"...",
+			"#end",
+			""
+		},
+		since="4.1.0"
+	)
+    public boolean hasUnresolvedReferences() {
+		return ! resolveReferences().isEmpty();
+    }
+
 	//-------------------------------------------------------------------------------------
 	// Database info
 	//-------------------------------------------------------------------------------------
@@ -0,0 +1,362 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.context;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.telosys.tools.generator.context.doc.VelocityMethod;
+import org.telosys.tools.generator.context.doc.VelocityObject;
+import org.telosys.tools.generator.context.doc.VelocityReturnType;
+import org.telosys.tools.generator.context.names.ContextName;
+
+/**
+ * Model query API ( '$model.select' ) <br>
+ * Selects entities and attributes using indexes built only once for the model (on first request) <br>
+ * The returned lists are shared and cannot be modified
+ *
+ * @author Laurent Guerin
+ *
+ */
+//-------------------------------------------------------------------------------------
+@VelocityObject(
+		contextName = ContextName.SELECT ,
+		text = {
+				"Object providing indexed queries on the current model",
+				"(each result is computed only once for the model and cannot be modified)",
+				"Available via '$model.select' ",
+				""
+		},
+		since = "4.1.0",
+		example= {
+				"",
+				"#foreach( $entity in $model.select.entitiesWithTag('Audit') )",
+				"    $entity.name ",
+				"#end",
+				"#foreach( $attribute in $model.select.attributesWithNeutralType('date') )",
+				"    $attribute.entity.name . $attribute.name ",
+				"#end"
+		}
+ )
+//-------------------------------------------------------------------------------------
+public class ModelSelectInContext {
+
+	private final List<EntityInContext> allEntities ;
+
+	//--- Indexes built on first request
+	private Map<String, List<EntityInContext>> entitiesByDomain = null ;
+	private Map<String, List<EntityInContext>> entitiesByContext = null ;
+	private Map<String, List<EntityInContext>> entitiesByPackage = null ;
+	private List<EntityInContext> aggregateRoots = null ;
+	private List<EntityInContext> databaseTables = null ;
+	private List<EntityInContext> databaseViews = null ;
+	private Map<String, List<AttributeInContext>> attributesByNeutralType = null ;
+
+	//--- Tags cannot be listed => results kept for each requested tag
+	private final Map<String, List<EntityInContext>> entitiesByTag = new HashMap<>();
+	private final Map<String, List<AttributeInContext>> attributesByTag = new HashMap<>();
+
+	/**
+	 * Constructor
+	 * @param allEntities all the entities of the model (in the model order)
+	 */
+	protected ModelSelectInContext(List<EntityInContext> allEntities) {
+		super();
+		this.allEntities = allEntities ;
+	}
+
+	//-------------------------------------------------------------------------------------
+	private static <T> void addToIndex(Map<String, List<T>> index, String key, T element) {
+		List<T> list = index.get(key);
+		if ( list == null ) {
+			list = new LinkedList<>();
+			index.put(key, list);
+		}
+		list.add(element);
+	}
+	private static <T> Map<String, List<T>> freeze(Map<String, List<T>> index) {
+		for ( Map.Entry<String, List<T>> entry : index.entrySet() ) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		return index ;
+	}
+	private static <T> List<T> getFromIndex(Map<String, List<T>> index, String key) {
+		List<T> list = index.get(key);
+		if ( list != null ) {
+			return list ;
+		}
+		else {
+			return Collections.emptyList();
+		}
+	}
+
+	private synchronized void buildEntitiesIndexes() {
+		if ( entitiesByDomain == null ) {
+			Map<String, List<EntityInContext>> byDomain = new HashMap<>();
+			Map<String, List<EntityInContext>> byContext = new HashMap<>();
+			Map<String, List<EntityInContext>> byPackage = new HashMap<>();
+			List<EntityInContext> roots = new LinkedList<>();
+			List<EntityInContext> tables = new LinkedList<>();
+			List<EntityInContext> views = new LinkedList<>();
+			for ( EntityInContext entity : allEntities ) {
+				if ( entity.hasDomain() ) {
+					addToIndex(byDomain, entity.getDomain(), entity);
+				}
+				if ( entity.hasContext() ) {
+					addToIndex(byContext, entity.getContext(), entity);
+				}
+				addToIndex(byPackage, entity.getPackage(), entity);
+				if ( entity.isAggregateRoot() ) {
+					roots.add(entity);
+				}
+				if ( entity.isDatabaseView() || entity.isViewType() ) {
+					views.add(entity);
+				}
+				else {
+					tables.add(entity);
+				}
+			}
+			entitiesByContext = freeze(byContext);
+			entitiesByPackage = freeze(byPackage);
+			aggregateRoots = Collections.unmodifiableList(roots);
+			databaseTables = Collections.unmodifiableList(tables);
+			databaseViews = Collections.unmodifiableList(views);
+			entitiesByDomain = freeze(byDomain); // last one (used as 'indexes built' flag)
+		}
+	}
+
+	private synchronized void buildAttributesIndexes() {
+		if ( attributesByNeutralType == null ) {
+			Map<String, List<AttributeInContext>> byNeutralType = new HashMap<>();
+			for ( EntityInContext entity : allEntities ) {
+				for ( AttributeInContext attribute : entity.getAttributes() ) {
+					addToIndex(byNeutralType, attribute.getNeutralType(), attribute);
+				}
+			}
+			attributesByNeutralType = freeze(byNeutralType);
+		}
+	}
+
+	//-------------------------------------------------------------------------------------
+	// Entities
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={
+			"Returns all the entities having the given tag"
+			},
+		parameters={
+			"tagName : the tag name (without '#')"
+		},
+		example={
+			"#foreach( $entity in $model.select.entitiesWithTag('Audit') )",
+			"...",
+			"#end"
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'entity' objects")
+	public synchronized List<EntityInContext> entitiesWithTag(String tagName) {
+		List<EntityInContext> result = entitiesByTag.get(tagName);
+		if ( result == null ) {
+			List<EntityInContext> list = new LinkedList<>();
+			for ( EntityInContext entity : allEntities ) {
+				if ( entity.hasTag(tagName) ) {
+					list.add(entity);
+				}
+			}
+			result = Collections.unmodifiableList(list);
+			entitiesByTag.put(tagName, result);
+		}
+		return result ;
+	}
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={
+			"Returns all the entities belonging to the given domain"
+			},
+		parameters={
+			"domain : the domain name"
+		},
+		example={
+			"#foreach( $entity in $model.select.entitiesInDomain('sales') )",
+			"...",
+			"#end"
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'entity' objects")
+	public List<EntityInContext> entitiesInDomain(String domain) {
+		buildEntitiesIndexes();
+		return getFromIndex(entitiesByDomain, domain);
+	}
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={
+			"Returns all the entities belonging to the given context"
+			},
+		parameters={
+			"context : the context name"
+		},
+		example={
+			"#foreach( $entity in $model.select.entitiesInContext('billing') )",
+			"...",
+			"#end"
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'entity' objects")
+	public List<EntityInContext> entitiesInContext(String context) {
+		buildEntitiesIndexes();
+		return getFromIndex(entitiesByContext, context);
+	}
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={
+			"Returns all the entities located in the given package"
+			},
+		parameters={
+			"packageName : the package name (eg 'org.demo.bean') "
+		},
+		example={
+			"#foreach( $entity in $model.select.entitiesInPackage('org.demo.bean') )",
+			"...",
+			"#end"
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'entity' objects")
+	public List<EntityInContext> entitiesInPackage(String packageName) {
+		buildEntitiesIndexes();
+		return getFromIndex(entitiesByPackage, packageName);
+	}
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={
+			"Returns all the entities defined as 'aggregate root'"
+			},
+		example={
+			"#foreach( $entity in $model.select.aggregateRoots )",
+			"...",
+			"#end"
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'entity' objects")
+	public List<EntityInContext> getAggregateRoots() {
+		buildEntitiesIndexes();
+		return aggregateRoots ;
+	}
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={
+			"Returns all the entities mapped on a database table (all the entities except the views)"
+			},
+		example={
+			"#foreach( $entity in $model.select.databaseTables )",
+			"...",
+			"#end"
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'entity' objects")
+	public List<EntityInContext> getDatabaseTables() {
+		buildEntitiesIndexes();
+		return databaseTables ;
+	}
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={
+			"Returns all the entities mapped on a database view ",
+			"(defined as 'database view' in the model or with 'VIEW' as database type)"
+			},
+		example={
+			"#foreach( $entity in $model.select.databaseViews )",
+			"...",
+			"#end"
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'entity' objects")
+	public List<EntityInContext> getDatabaseViews() {
+		buildEntitiesIndexes();
+		return databaseViews ;
+	}
+
+	//-------------------------------------------------------------------------------------
+	// Attributes
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={
+			"Returns all the attributes (of all the entities) having the given tag"
+			},
+		parameters={
+			"tagName : the tag name (without '#')"
+		},
+		example={
+			"#foreach( $attribute in $model.select.attributesWithTag('Secret') )",
+			"...",
+			"#end"
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'attribute' objects")
+	public synchronized List<AttributeInContext> attributesWithTag(String tagName) {
+		List<AttributeInContext> result = attributesByTag.get(tagName);
+		if ( result == null ) {
+			List<AttributeInContext> list = new LinkedList<>();
+			for ( EntityInContext entity : allEntities ) {
+				for ( AttributeInContext attribute : entity.getAttributes() ) {
+					if ( attribute.hasTag(tagName) ) {
+						list.add(attribute);
+					}
+				}
+			}
+			result = Collections.unmodifiableList(list);
+			attributesByTag.put(tagName, result);
+		}
+		return result ;
+	}
+
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod(
+		text={
+			"Returns all the attributes (of all the entities) having the given neutral type"
+			},
+		parameters={
+			"neutralType : the neutral type (eg 'string', 'date', 'decimal', etc) "
+		},
+		example={
+			"#foreach( $attribute in $model.select.attributesWithNeutralType('date') )",
+			"...",
+			"#end"
+		},
+		since="4.1.0"
+	)
+	@VelocityReturnType("List of 'attribute' objects")
+	public List<AttributeInContext> attributesWithNeutralType(String neutralType) {
+		buildAttributesIndexes();
+		return getFromIndex(attributesByNeutralType, neutralType);
+	}
+}
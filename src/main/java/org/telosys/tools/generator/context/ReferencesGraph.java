@@ -0,0 +1,379 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.context;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.telosys.tools.generator.GeneratorException;
+
+/**
+ * References graph for all the entities of a model <br>
+ * Keeps the transitive closure of each entity (computed only once, on first request) <br>
+ * Also provides the reverse links index (incoming links/references) and the entities 
+ * sorted according to the foreign keys dependencies (computed only once, on first request) <br>
+ * Each entity is visited only once during the traversal, so cycles and bidirectional links
+ * do not cause redundant work <br>
+ * The returned collections are shared and cannot be modified <br>
+ * NB : entities are identified by instance (the entity name can change with '$env' prefix/suffix)
+ *
+ * @author Laurent Guerin
+ *
+ */
+class ReferencesGraph {
+
+	/**
+	 * Max depth in the dependencies tree (same limit as the original recursive implementation)
+	 */
+	protected static final int MAX_LEVEL = 100 ;
+
+	private final Map<EntityInContext, Collection<EntityInContext>>    referencedEntitiesForAllLevels = new HashMap<>();
+
+	private final Map<EntityInContext, Collection<ReferenceInContext>> referencesInDepth = new HashMap<>();
+
+	private final List<EntityInContext> allEntities ;
+
+	// Reverse index : key = referenced entity, value = links pointing to this entity (built on first request)
+	private Map<EntityInContext, List<LinkInContext>> incomingLinks = null ;
+	
+	private final Map<EntityInContext, Collection<ReferenceInContext>> incomingReferences = new HashMap<>();
+
+	// Foreign keys dependencies (built on first request)
+	private List<EntityInContext>       entitiesInDependencyOrder = null ;
+	private List<List<EntityInContext>> dependencyCycles = null ;
+
+	/**
+	 * Constructor
+	 * @param allEntities all the entities of the model (in the model order)
+	 */
+	protected ReferencesGraph(List<EntityInContext> allEntities) {
+		super();
+		this.allEntities = allEntities ;
+	}
+
+	/**
+	 * Returns the entity referenced by the given link or null if the link is invalid
+	 * @param link
+	 * @return
+	 */
+	private EntityInContext getTargetEntity(LinkInContext link) {
+		try {
+			return link.getTargetEntity(); // throws GeneratorException
+		} catch (GeneratorException e) {
+			// Invalid link (no target entity) => just ignore it
+			return null ;
+		}
+	}
+
+	/**
+	 * Returns all the entities referenced by the given entity at all levels of the dependencies tree
+	 * @param entity
+	 * @return
+	 */
+	protected synchronized Collection<EntityInContext> getReferencedEntitiesForAllLevels(EntityInContext entity) {
+		Collection<EntityInContext> result = referencedEntitiesForAllLevels.get(entity);
+		if ( result == null ) {
+			Map<EntityInContext, EntityInContext> map = new LinkedHashMap<>();
+			traverse(entity, map, null);
+			result = Collections.unmodifiableCollection(map.values());
+			referencedEntitiesForAllLevels.put(entity, result);
+		}
+		return result ;
+	}
+
+	/**
+	 * Returns all the references hold by the given entity at all levels of the dependencies tree <br>
+	 * Each link of the visited entities is counted only once
+	 * @param entity
+	 * @return
+	 */
+	protected synchronized Collection<ReferenceInContext> getReferencesInDepth(EntityInContext entity) {
+		Collection<ReferenceInContext> result = referencesInDepth.get(entity);
+		if ( result == null ) {
+			Map<EntityInContext, ReferenceInContext> map = new LinkedHashMap<>();
+			traverse(entity, null, map);
+			result = Collections.unmodifiableCollection(map.values());
+			referencesInDepth.put(entity, result);
+		}
+		return result ;
+	}
+
+	/**
+	 * Breadth-first traversal of the links starting from the given entity
+	 * @param origin the origin entity
+	 * @param entities map to be populated with the referenced entities (or null if not used)
+	 * @param references map to be populated with the references (or null if not used)
+	 */
+	private void traverse(EntityInContext origin, Map<EntityInContext, EntityInContext> entities, Map<EntityInContext, ReferenceInContext> references) {
+		Set<EntityInContext> visited = new HashSet<>();
+		visited.add(origin);
+		LinkedList<EntityInContext> currentLevel = new LinkedList<>();
+		currentLevel.add(origin);
+		int level = 1 ;
+		while ( ! currentLevel.isEmpty() && level <= MAX_LEVEL ) {
+			LinkedList<EntityInContext> nextLevel = new LinkedList<>();
+			for ( EntityInContext entity : currentLevel ) {
+				for ( LinkInContext link : entity.getLinks() ) {
+					EntityInContext targetEntity = getTargetEntity(link);
+					if ( targetEntity != null ) {
+						register(link, targetEntity, entities, references);
+						if ( visited.add(targetEntity) ) {
+							// first time this entity is reached => continue in depth with its links
+							nextLevel.add(targetEntity);
+						}
+					}
+				}
+			}
+			currentLevel = nextLevel ;
+			level++ ;
+		}
+	}
+
+	private void register(LinkInContext link, EntityInContext targetEntity,
+			Map<EntityInContext, EntityInContext> entities, Map<EntityInContext, ReferenceInContext> references) {
+		if ( entities != null ) {
+			entities.put(targetEntity, targetEntity);
+		}
+		if ( references != null ) {
+			ReferenceInContext reference = references.get(targetEntity);
+			if ( reference == null ) {
+				// new reference => init
+				reference = new ReferenceInContext(targetEntity);
+				references.put(targetEntity, reference);
+			}
+			if ( link.isCardinalityToMany() ) {
+				reference.incrementToMany();
+			}
+			else {
+				reference.incrementToOne();
+			}
+		}
+	}
+
+	//-------------------------------------------------------------------------------------
+	// Reverse links index 
+	//-------------------------------------------------------------------------------------
+	private Map<EntityInContext, List<LinkInContext>> getIncomingLinksIndex() {
+		if ( incomingLinks == null ) {
+			Map<EntityInContext, List<LinkInContext>> index = new HashMap<>();
+			for ( EntityInContext entity : allEntities ) {
+				for ( LinkInContext link : entity.getLinks() ) {
+					EntityInContext targetEntity = getTargetEntity(link);
+					if ( targetEntity != null ) {
+						List<LinkInContext> list = index.get(targetEntity);
+						if ( list == null ) {
+							list = new LinkedList<>();
+							index.put(targetEntity, list);
+						}
+						list.add(link);
+					}
+				}
+			}
+			// lists cannot be modified (shared by all the templates)
+			for ( Map.Entry<EntityInContext, List<LinkInContext>> entry : index.entrySet() ) {
+				entry.setValue(Collections.unmodifiableList(entry.getValue()));
+			}
+			incomingLinks = index ;
+		}
+		return incomingLinks ;
+	}
+
+	/**
+	 * Returns all the links (defined in any entity of the model) referencing the given entity
+	 * @param entity
+	 * @return
+	 */
+	protected synchronized List<LinkInContext> getIncomingLinks(EntityInContext entity) {
+		List<LinkInContext> list = getIncomingLinksIndex().get(entity);
+		if ( list != null ) {
+			return list ;
+		}
+		else {
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Returns the references to the given entity (one reference for each entity holding at least one link
+	 * to the given entity, with the number of 'to one' and 'to many' links)
+	 * @param entity
+	 * @return
+	 */
+	protected synchronized Collection<ReferenceInContext> getIncomingReferences(EntityInContext entity) {
+		Collection<ReferenceInContext> result = incomingReferences.get(entity);
+		if ( result == null ) {
+			Map<EntityInContext, ReferenceInContext> map = new LinkedHashMap<>();
+			for ( LinkInContext link : getIncomingLinks(entity) ) {
+				register(link, link.getEntity(), null, map);
+			}
+			result = Collections.unmodifiableCollection(map.values());
+			incomingReferences.put(entity, result);
+		}
+		return result ;
+	}
+
+	//-------------------------------------------------------------------------------------
+	// Foreign keys dependencies 
+	//-------------------------------------------------------------------------------------
+	/**
+	 * Returns all the entities sorted according to the foreign keys dependencies <br>
+	 * (each entity comes after the entities it references, except in case of cycle) <br>
+	 * The entities involved in the same cycle are kept together (in the model order)
+	 * @return
+	 */
+	protected synchronized List<EntityInContext> getEntitiesInDependencyOrder() {
+		if ( entitiesInDependencyOrder == null ) {
+			computeDependencies();
+		}
+		return entitiesInDependencyOrder ;
+	}
+
+	/**
+	 * Returns the groups of entities involved in a foreign keys cycle <br>
+	 * (a foreign key referencing its own entity is not considered as a cycle)
+	 * @return
+	 */
+	protected synchronized List<List<EntityInContext>> getDependencyCycles() {
+		if ( dependencyCycles == null ) {
+			computeDependencies();
+		}
+		return dependencyCycles ;
+	}
+
+	private List<EntityInContext> getForeignKeysDependencies(EntityInContext entity, Map<String, EntityInContext> entitiesByName) {
+		List<EntityInContext> dependencies = new LinkedList<>();
+		for ( ForeignKeyInContext fk : entity.getDatabaseForeignKeys() ) {
+			EntityInContext referencedEntity = entitiesByName.get(fk.getReferencedEntityName());
+			// ignore invalid foreign keys and foreign keys referencing the entity itself
+			if ( referencedEntity != null && referencedEntity != entity ) {
+				dependencies.add(referencedEntity);
+			}
+		}
+		return dependencies ;
+	}
+
+	/**
+	 * Strongly connected components (Tarjan algorithm) <br>
+	 * Each component is produced after all the components it depends on
+	 */
+	private void computeDependencies() {
+		Map<String, EntityInContext> entitiesByName = new HashMap<>();
+		for ( EntityInContext entity : allEntities ) {
+			entitiesByName.put(entity.getClassName(), entity); // FK : original class name (without '$env' prefix/suffix)
+		}
+		Map<EntityInContext, Integer> modelOrder = new HashMap<>();
+		Map<EntityInContext, List<EntityInContext>> dependencies = new HashMap<>();
+		for ( EntityInContext entity : allEntities ) {
+			modelOrder.put(entity, modelOrder.size());
+			dependencies.put(entity, getForeignKeysDependencies(entity, entitiesByName));
+		}
+		TarjanState state = new TarjanState(dependencies, modelOrder);
+		for ( EntityInContext entity : allEntities ) {
+			if ( ! state.index.containsKey(entity) ) {
+				state.visit(entity);
+			}
+		}
+		entitiesInDependencyOrder = Collections.unmodifiableList(state.sorted);
+		dependencyCycles = Collections.unmodifiableList(state.cycles);
+	}
+
+	private static class TarjanState {
+		private final Map<EntityInContext, List<EntityInContext>> dependencies ;
+		private final Map<EntityInContext, Integer> modelOrder ;
+		private final Map<EntityInContext, Integer> index = new HashMap<>();
+		private final Map<EntityInContext, Integer> lowLink = new HashMap<>();
+		private final Set<EntityInContext> onStack = new HashSet<>();
+		private final LinkedList<EntityInContext> stack = new LinkedList<>();
+		private final List<EntityInContext> sorted = new LinkedList<>();
+		private final List<List<EntityInContext>> cycles = new LinkedList<>();
+
+		private TarjanState(Map<EntityInContext, List<EntityInContext>> dependencies, Map<EntityInContext, Integer> modelOrder) {
+			this.dependencies = dependencies ;
+			this.modelOrder = modelOrder ;
+		}
+
+		/**
+		 * Visits the given entity and all its dependencies <br>
+		 * Iterative implementation (explicit stack) : no stack overflow with a long chain of foreign keys
+		 * @param root
+		 */
+		private void visit(EntityInContext root) {
+			LinkedList<EntityInContext> path = new LinkedList<>();
+			LinkedList<Iterator<EntityInContext>> iterators = new LinkedList<>();
+			enter(root, path, iterators);
+			while ( ! path.isEmpty() ) {
+				EntityInContext entity = path.peek();
+				Iterator<EntityInContext> iterator = iterators.peek();
+				if ( iterator.hasNext() ) {
+					EntityInContext dependency = iterator.next();
+					if ( ! index.containsKey(dependency) ) {
+						enter(dependency, path, iterators); // continue with the dependency
+					}
+					else if ( onStack.contains(dependency) ) {
+						lowLink.put(entity, Math.min(lowLink.get(entity), index.get(dependency)));
+					}
+				}
+				else {
+					//--- All the dependencies visited => back to the caller
+					path.pop();
+					iterators.pop();
+					leave(entity);
+					EntityInContext caller = path.peek();
+					if ( caller != null ) {
+						lowLink.put(caller, Math.min(lowLink.get(caller), lowLink.get(entity)));
+					}
+				}
+			}
+		}
+
+		private void enter(EntityInContext entity, LinkedList<EntityInContext> path, LinkedList<Iterator<EntityInContext>> iterators) {
+			int i = index.size();
+			index.put(entity, i);
+			lowLink.put(entity, i);
+			stack.push(entity);
+			onStack.add(entity);
+			path.push(entity);
+			iterators.push(dependencies.get(entity).iterator());
+		}
+
+		private void leave(EntityInContext entity) {
+			if ( lowLink.get(entity).intValue() == index.get(entity).intValue() ) {
+				// root of a component => pop the component
+				List<EntityInContext> component = new LinkedList<>();
+				EntityInContext e ;
+				do {
+					e = stack.pop();
+					onStack.remove(e);
+					component.add(e);
+				} while ( e != entity );
+				// keep the model order inside the component
+				Collections.sort(component, (e1, e2) -> modelOrder.get(e1) - modelOrder.get(e2) );
+				sorted.addAll(component);
+				if ( component.size() > 1 ) {
+					cycles.add(Collections.unmodifiableList(component));
+				}
+			}
+		}
+	}
+}
@@ -16,7 +16,6 @@
 package org.telosys.tools.generator.context;
 
 import java.io.File;
-import java.util.HashMap;
 
 import org.telosys.tools.commons.FileUtil;
 import org.telosys.tools.commons.bundles.TargetDefinition;
@@ -64,12 +63,14 @@ public class Target {
 	private final String    folder ; // folder after variable substitution
 
 	
-	private Target(TelosysToolsCfg telosysToolsCfg, TargetDefinition targetDefinition, String entityName ) {
+	private Target(String entityName, CompiledTargetDefinition compiledTargetDefinition ) {
 		super();
-		this.telosysToolsCfg = telosysToolsCfg ;
-		this.variablesManager = new VariablesManager( telosysToolsCfg.getAllVariables() ); 
+		this.telosysToolsCfg = compiledTargetDefinition.getTelosysToolsCfg() ;
+		// variables manager shared by all the targets with the same definition (v 4.1.0)
+		this.variablesManager = compiledTargetDefinition.getVariablesManager() ; 
 		
 		//--- Keep target definition
+		TargetDefinition targetDefinition = compiledTargetDefinition.getTargetDefinition();
 		this.targetName = targetDefinition.getName();
 		this.originalFileDefinition   = targetDefinition.getFile() ;
 		this.originalFolderDefinition = targetDefinition.getFolder();
@@ -87,9 +88,13 @@ public class Target {
 		this.forcedEntityName = null ;
 
 		//--- Replace the "$" variables in folder
-		
-		this.variablesManager.transformPackageVariablesToDirPath(); // for each variable ${XXXX_PKG} : replace '.' by '/' 
-		this.folder = replaceVariables( targetDefinition.getFolder(), variablesManager );
+		if ( compiledTargetDefinition.getFolder() != null ) {
+			// folder already resolved (doesn't depend on the entity) v 4.1.0
+			this.folder = compiledTargetDefinition.getFolder();
+		}
+		else {
+			this.folder = replaceVariables( targetDefinition.getFolder(), variablesManager );
+		}
 	}
 	
 	/**
@@ -99,7 +104,17 @@ public class Target {
 	 * @param entity
 	 */
 	public Target(TelosysToolsCfg telosysToolsCfg, TargetDefinition targetDefinition, Entity entity) {
-		this(telosysToolsCfg, targetDefinition, entity.getClassName());
+		this(entity.getClassName(), new CompiledTargetDefinition(telosysToolsCfg, targetDefinition));
+	}
+	
+	/**
+	 * Constructor for a generation with an entity and a template (target definition prepared once for all the entities)
+	 * @param compiledTargetDefinition
+	 * @param entity
+	 * @since v 4.1.0
+	 */
+	public Target(CompiledTargetDefinition compiledTargetDefinition, Entity entity) {
+		this(entity.getClassName(), compiledTargetDefinition);
 	}
 	
 	/**
@@ -108,7 +123,16 @@ public class Target {
 	 * @param targetDefinition
 	 */
 	public Target(TelosysToolsCfg telosysToolsCfg, TargetDefinition targetDefinition) {
-		this(telosysToolsCfg, targetDefinition, "");
+		this("", new CompiledTargetDefinition(telosysToolsCfg, targetDefinition));
+	}
+	
+	/**
+	 * Constructor for a 'ONCE' target or a 'RESOURCE' target (target definition prepared once)
+	 * @param compiledTargetDefinition
+	 * @since v 4.1.0
+	 */
+	public Target(CompiledTargetDefinition compiledTargetDefinition) {
+		this("", compiledTargetDefinition);
 	}
 	
 //	/**
@@ -399,13 +423,11 @@ public class Target {
     	if ( beannameValue == null ) return originalString ;
     	if ( beannameValue.length() == 0 ) return originalString ;
     	// beannameValue is defined => replace "${BEANNAME}" 
-    	HashMap<String,String> hm = new HashMap<>();
-    	hm.put("${BEANNAME}",    beannameValue );		
-    	hm.put("${BEANNAME_LC}", beannameValue.toLowerCase() );
-    	hm.put("${BEANNAME_UC}", beannameValue.toUpperCase() );
-
-    	VariablesManager varManager = new VariablesManager(hm) ;
-    	return varManager.replaceVariables(originalString);
+    	if ( originalString.indexOf("${BEANNAME") < 0 ) return originalString ; // nothing to replace (v 4.1.0)
+    	// direct replacement (no map and no variables manager for each call) v 4.1.0
+    	return originalString.replace("${BEANNAME}", beannameValue)
+    			.replace("${BEANNAME_LC}", beannameValue.toLowerCase())
+    			.replace("${BEANNAME_UC}", beannameValue.toUpperCase());
     }
 
 	/**
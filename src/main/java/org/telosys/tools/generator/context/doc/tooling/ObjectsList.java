@@ -39,6 +39,7 @@ import org.telosys.tools.generator.context.LinkAttributeInContext;
 import org.telosys.tools.generator.context.LinkInContext;
 import org.telosys.tools.generator.context.Loader;
 import org.telosys.tools.generator.context.ModelInContext;
+import org.telosys.tools.generator.context.ModelSelectInContext;
 import org.telosys.tools.generator.context.NowInContext;
 import org.telosys.tools.generator.context.PhpInContext;
 import org.telosys.tools.generator.context.ProjectInContext;
@@ -90,6 +91,7 @@ public class ObjectsList {
 		
 		Loader.class,
 		ModelInContext.class, // ver 2.1.0
+		ModelSelectInContext.class, // v 4.1.0
 //		DatabasesInContext.class, // removed in v 3.4.0
 //		DatabaseInContext.class, // removed in v 3.4.0
 		ProjectInContext.class, // ver 2.1.0
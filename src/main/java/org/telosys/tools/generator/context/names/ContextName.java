@@ -97,6 +97,8 @@ public class ContextName {
 	public static final String  FACTORY           = "factory" ; // ver 3.4.0
 	public static final String  REFERENCE         = "reference" ; // ver 3.4.0
 	
+	public static final String  SELECT            = "select" ; // ver 4.1.0
+	
 	// NB : don't forget to also add :
 	//   - the name in "ContextNames" ("ContextNames" class with "s" at the end)
 	//   - the class in "doc.tooling.ObjectsList"
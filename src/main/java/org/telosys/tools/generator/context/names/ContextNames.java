@@ -130,6 +130,7 @@ public class ContextNames {
 		
 		PREDEFINED_NAMES_LIST.add( ContextName.SQL );     // v 3.4.0
 		PREDEFINED_NAMES_LIST.add( ContextName.REFERENCE ); // v 3.4.0
+		PREDEFINED_NAMES_LIST.add( ContextName.SELECT ); // v 4.1.0
 		
 	}
 
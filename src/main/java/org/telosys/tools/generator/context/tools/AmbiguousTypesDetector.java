@@ -15,15 +15,23 @@
  */
 package org.telosys.tools.generator.context.tools;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.telosys.tools.commons.JavaTypeUtil;
 import org.telosys.tools.generator.context.AttributeInContext;
 
 public class AmbiguousTypesDetector {
 
-	private final List<String>  fullTypes ;
+	private final Set<String>  fullTypes = new LinkedHashSet<>(); // registration order is kept
+	
+	private final Map<String, Integer> shortNamesCount = new HashMap<>(); // v 4.1.0
+	
+	private Set<String> ambiguousTypes = null ; // computed on demand, reset if a new type is registered (v 4.1.0)
 
 	//-----------------------------------------------------------------------------------------------
 	/**
@@ -33,7 +41,6 @@ public class AmbiguousTypesDetector {
 	 */
 	public AmbiguousTypesDetector(List<AttributeInContext> attributes) {
 		super();
-		this.fullTypes = new LinkedList<>();
 		for ( AttributeInContext attribute : attributes ) {
 			if ( ! attribute.isPrimitiveType() ) {
 				registerType( attribute.getFullType() ); // "java.math.BigDecimal", "java.util.Date", ...
@@ -47,7 +54,6 @@ public class AmbiguousTypesDetector {
 	 */
 	public AmbiguousTypesDetector() {
 		super();
-		fullTypes = new LinkedList<>();
 	}
 	
 	//-----------------------------------------------------------------------------------------------
@@ -58,12 +64,25 @@ public class AmbiguousTypesDetector {
 	 */
 	public void registerType(String fullType)
 	{
-		// Store it only if not yet present in the list
-		if ( ! fullTypes.contains(fullType) ) {
-			fullTypes.add(fullType);
+		// Store it only if not yet present in the set
+		if ( fullTypes.add(fullType) && fullType != null ) {
+			// Count the short name of the types with a package ( "java.util.Date" -> "Date" )
+			if ( fullType.indexOf('.') >= 0 ) {
+				shortNamesCount.merge(shortName(fullType), 1, Integer::sum);
+			}
+			ambiguousTypes = null ; 
 		}
 	}
 	
+	/**
+	 * Returns the short name used to detect the ambiguous types (same function for registration and detection)
+	 * @param fullType
+	 * @return
+	 */
+	private static String shortName(String fullType) {
+		return JavaTypeUtil.shortType(fullType); // v 3.3.0
+	}
+	
 	//-----------------------------------------------------------------------------------------------
 	/**
 	 * Returns a list containing all the registered types 
@@ -71,13 +90,29 @@ public class AmbiguousTypesDetector {
 	 */
 	public List<String> getAllTypes()
 	{
-		LinkedList<String> list = new LinkedList<>() ;
-		for ( String fullType : fullTypes ) {
-			list.add(fullType);
-		}
-		return list ;
+		return new LinkedList<>(fullTypes) ;
 	}
 	
+	//-----------------------------------------------------------------------------------------------
+	private Set<String> ambiguousTypes() {
+		if ( ambiguousTypes == null ) {
+			Set<String> set = new LinkedHashSet<>();
+			for ( String fullType : fullTypes ) {
+				if ( fullType != null ) {
+					String shortName = shortName(fullType); 
+					// if more than one occurrence of this short name in the registered types 
+					// ( eg  2 occurrences : "java.util.Date" and "java.sql.Date" for the "Date" short name )
+					Integer count = shortNamesCount.get(shortName);
+					if ( count != null && count > 1 ) {
+						set.add(fullType);
+					}
+				}
+			}
+			ambiguousTypes = set ;
+		}
+		return ambiguousTypes ;
+	}
+
 	//-----------------------------------------------------------------------------------------------
 	/**
 	 * Returns a list with all the ambiguous types registered <br>
@@ -86,38 +121,17 @@ public class AmbiguousTypesDetector {
 	 */
 	public List<String> getAmbiguousTypes()
 	{
-		LinkedList<String> ambiguousTypes = new LinkedList<>() ;
-
-		for ( String fullType : fullTypes ) {
-			//String shortName = JavaClassUtil.shortName(fullType);
-			String shortName = JavaTypeUtil.shortType(fullType); // v 3.3.0
-			
-			// if more than one occurrence of this short name in the list 
-			// ( eg  2 occurrences : "java.util.Date" and "java.sql.Date" for the "Date" short name )
-			if ( shortNameCount(shortName) > 1 ) {
-				// Each type is unique in the original list : no risk of duplication
-				ambiguousTypes.add(fullType);
-			}
-		}
-		return ambiguousTypes ;
+		return new LinkedList<>(ambiguousTypes()) ;
 	}
-	
+
 	//-----------------------------------------------------------------------------------------------
 	/**
-	 * Count the number of occurrences of the given short name in the list of types
-	 * @param shortName
+	 * Returns true if the given type is one of the ambiguous types registered 
+	 * @param fullType
 	 * @return
 	 */
-	private int shortNameCount(String shortName)
+	public boolean isAmbiguousType(String fullType) // v 4.1.0
 	{
-		int count = 0 ;
-		String end = "." + shortName ;
-		for ( String s : fullTypes ) {
-			if ( s.endsWith(end))
-			{
-				count++ ;
-			}
-		}
-		return count ;
+		return ambiguousTypes().contains(fullType) ;
 	}
 }
@@ -15,6 +15,8 @@
  */
 package org.telosys.tools.generator.context.tools;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -56,20 +58,25 @@ public class JdbcRequests {
 		
 //		this.table = SqlTableNameProvider.getTableName(entity);
 		this.table = entity.getSqlTableName() ; // v 4.1.0
-		this.attributesForPrimaryKey = buildAttributesForPrimaryKey();
-		this.attributesForSelect = buildAttributesForSelect();
-		this.attributesForInsert = buildAttributesForInsert();
-		this.attributesForUpdate = buildAttributesForUpdate();
+		// attributes lists shared by all the users of this instance => cannot be modified (v 4.1.0)
+		this.attributesForPrimaryKey = Collections.unmodifiableList(buildAttributesForPrimaryKey());
+		this.attributesForSelect = Collections.unmodifiableList(buildAttributesForSelect());
+		this.attributesForInsert = Collections.unmodifiableList(buildAttributesForInsert());
+		this.attributesForUpdate = Collections.unmodifiableList(buildAttributesForUpdate());
+		
+		//--- SQL parts used in several requests (built only once)
+		String selectColumns = buildColumnsList(this.attributesForSelect, false);
+		String whereCriteriaPK = whereCriteria(this.attributesForPrimaryKey, false);
 				
         //--- Build the Select requests
-		this.sqlSelect             = buildSqlSelect();
-		this.sqlSelectWherePK      = buildSqlSelectWherePK();
+		this.sqlSelect             = buildSqlSelect(selectColumns);
+		this.sqlSelectWherePK      = buildSqlSelectWherePK(selectColumns, whereCriteriaPK);
 		this.sqlSelectCount        = buildSqlSelectCount();
-		this.sqlSelectCountWherePK = buildSqlSelectCountWherePK();
+		this.sqlSelectCountWherePK = buildSqlSelectCountWherePK(whereCriteriaPK);
         //--- Build the Insert/Update/Delete requests
 		this.sqlInsert = buildSqlInsert();
-		this.sqlUpdate = buildSqlUpdate();
-		this.sqlDelete = buildSqlDelete();
+		this.sqlUpdate = buildSqlUpdate(whereCriteriaPK);
+		this.sqlDelete = buildSqlDelete(whereCriteriaPK);
 	}
 	
 	
@@ -140,11 +147,7 @@ public class JdbcRequests {
     }
     
     private List<AttributeInContext> buildAttributesForSelect() {
-        List<AttributeInContext> list = new LinkedList<>();
-        for ( AttributeInContext attribute : entity.getAttributes() ) {
-        	list.add(attribute);
-        }
-        return list ;
+        return new ArrayList<>(entity.getAttributes());
     }
 
     private List<AttributeInContext> buildAttributesForInsert() {
@@ -179,7 +182,7 @@ public class JdbcRequests {
                 sb.append(", ");
             }
             if (bPrefix) {
-                sb.append(this.table + ".");
+                sb.append(this.table).append(".");
             }
 //            sb.append( attribute.getDatabaseName() );
             sb.append( attribute.getSqlColumnName() ); // v 4.1.0
@@ -203,10 +206,10 @@ public class JdbcRequests {
                 sb.append(" and ");
             }
             if (bPrefix) {
-                sb.append(this.table + ".");
+                sb.append(this.table).append(".");
             }
 //            sb.append( attribute.getDatabaseName() + " = ?" );
-            sb.append( attribute.getSqlColumnName() + " = ?" ); // v 4.1.0
+            sb.append( attribute.getSqlColumnName() ).append(" = ?"); // v 4.1.0
             n++;
         }
         return sb.toString();
@@ -244,10 +247,10 @@ public class JdbcRequests {
                 sb.append(", ");
             }
             if (bPrefix) {
-                sb.append(this.table + ".");
+                sb.append(this.table).append(".");
             }
 //            sb.append( attribute.getDatabaseName() + " = ?" );
-            sb.append( attribute.getSqlColumnName() + " = ?" ); // v 4.1.0
+            sb.append( attribute.getSqlColumnName() ).append(" = ?"); // v 4.1.0
             n++;
         }
         return sb.toString();
@@ -260,8 +263,8 @@ public class JdbcRequests {
      * Build the SQL SELECT request without WHERE CLAUSE
      * @return
      */
-    private String buildSqlSelect() {
-        return "select " + buildColumnsList(this.attributesForSelect, false) 
+    private String buildSqlSelect(String selectColumns) {
+        return "select " + selectColumns 
         		+ " from " + this.table ;
     }
 
@@ -269,10 +272,10 @@ public class JdbcRequests {
      * Build the SQL SELECT request with WHERE CLAUSE for PRIMARY KEY
      * @return
      */
-    private String buildSqlSelectWherePK() {
-        return "select " + buildColumnsList(this.attributesForSelect, false) 
+    private String buildSqlSelectWherePK(String selectColumns, String whereCriteriaPK) {
+        return "select " + selectColumns 
         		+ " from " + this.table 
-        		+ " where " + whereCriteria(this.attributesForPrimaryKey, false);
+        		+ " where " + whereCriteriaPK;
     }
 
     /**
@@ -287,9 +290,9 @@ public class JdbcRequests {
      * Build the SQL COUNT request with WHERE CLAUSE for PRIMARY KEY
      * @return
      */
-    private String buildSqlSelectCountWherePK() {
+    private String buildSqlSelectCountWherePK(String whereCriteriaPK) {
         return "select count(*) from " + this.table 
-        		+ " where " + whereCriteria(this.attributesForPrimaryKey, false);
+        		+ " where " + whereCriteriaPK;
     }
 
     //------------------------------------------------------------------------------------
@@ -309,21 +312,21 @@ public class JdbcRequests {
      * Build the SQL UPDATE request
      * @return
      */
-    private String buildSqlUpdate()
+    private String buildSqlUpdate(String whereCriteriaPK)
     {
         return "update " + this.table 
         		+ " set " + buildSetValuesForUpdate(this.attributesForUpdate, false) 
-        		+ " where " + whereCriteria(this.attributesForPrimaryKey, false);
+        		+ " where " + whereCriteriaPK;
     }
 
     /**
      * Build the SQL DELETE request
      * @return
      */
-    private String buildSqlDelete()
+    private String buildSqlDelete(String whereCriteriaPK)
     {
         return "delete from " + this.table 
-        		+ " where " + whereCriteria(this.attributesForPrimaryKey, false);
+        		+ " where " + whereCriteriaPK;
     }
 
 }
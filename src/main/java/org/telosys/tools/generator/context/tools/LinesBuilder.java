@@ -17,8 +17,11 @@ package org.telosys.tools.generator.context.tools;
 
 public class LinesBuilder {
 	
+	private static final int DEFAULT_CAPACITY = 256 ;
+	
 	private final StringBuilder sb ;	
 	private final String indentationValue ;
+	private String[] indentations = new String[0] ; // indentation string for each level (built once)
 	
 	/**
 	 * Default constructor (use TABS indentation)
@@ -32,8 +35,17 @@ public class LinesBuilder {
 	 * @param indentationValue
 	 */
 	public LinesBuilder(String indentationValue) {
+		this(indentationValue, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor with indentation value to use and initial capacity 
+	 * @param indentationValue
+	 * @param initialCapacity the expected number of characters
+	 */
+	public LinesBuilder(String indentationValue, int initialCapacity) {
 		super();
-		this.sb = new StringBuilder() ;
+		this.sb = new StringBuilder(initialCapacity) ;
 		this.indentationValue = indentationValue ;
 	}
 
@@ -59,17 +71,39 @@ public class LinesBuilder {
 		sb.append( "\n" );
 	}
 	
+	/**
+	 * Appends the given parts (as a single line) after the indentation for the given level <br>
+	 * (avoids the creation of an intermediate string for the line)
+	 * @param indentationLevel
+	 * @param parts
+	 */
+	public void appendParts(int indentationLevel, String... parts) {
+		sb.append( getIndentationForLevel(indentationLevel) );
+		for ( String part : parts ) {
+			sb.append( part );
+		}
+		sb.append( "\n" );
+	}
+	
 	/**
 	 * Returns indentation to use for the given level
 	 * @param indentLevel
 	 * @return
 	 */
 	private String getIndentationForLevel(int indentLevel) {
-		StringBuilder sbIndent = new StringBuilder();
-		for ( int level = 0 ; level < indentLevel ; level++ ) {
-			sbIndent.append(this.indentationValue);
+		if ( indentLevel <= 0 ) {
+			return "" ;
+		}
+		if ( indentLevel >= indentations.length ) {
+			// build the indentations up to the given level (only once for each level)
+			String[] newIndentations = new String[indentLevel + 1];
+			System.arraycopy(indentations, 0, newIndentations, 0, indentations.length);
+			for ( int level = indentations.length ; level <= indentLevel ; level++ ) {
+				newIndentations[level] = level == 0 ? "" : newIndentations[level - 1] + this.indentationValue ;
+			}
+			indentations = newIndentations ;
 		}
-		return sbIndent.toString();
+		return indentations[indentLevel];
 	}
 
 	@Override
@@ -0,0 +1,493 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.context.tools;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.telosys.tools.generic.model.Attribute;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.ForeignKey;
+import org.telosys.tools.generic.model.ForeignKeyAttribute;
+import org.telosys.tools.generic.model.ForeignKeyPart;
+import org.telosys.tools.generic.model.Link;
+import org.telosys.tools.generic.model.LinkAttribute;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Structural fingerprints of a model snapshot <br>
+ * Each fingerprint is a 64 bits hash (FNV-1a) of the entity structure : attributes, types, tags, links, 
+ * foreign keys and database metadata. <br>
+ * All the values read by the context objects ($entity, $attribute, $link, $fk, $model) are hashed, 
+ * the values computed by these objects are covered by the values they are computed from. <br>
+ * The elements are hashed in the model order (no sort, no intermediate strings for the simple values). <br>
+ * The same structure is also available as a SHA-256 digest of its raw bytes (for the uses where 
+ * a 64 bits collision is not acceptable, e.g. the render cache keys) <br>
+ * Each fingerprint and each digest is computed only once (on first request) 
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public class ModelFingerprint {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L ;
+	private static final long FNV_PRIME        = 0x100000001b3L ;
+	
+	private static final char SEPARATOR = '\u001F' ; // end of each value
+	private static final char NULL_MARK = '\u0000' ; // null value (different from void string)
+
+	private final Model model ;
+	
+	private final Map<String, Long> fingerprints     = new HashMap<>(); // entity class name --> fingerprint
+	private final Map<String, Long> deepFingerprints = new HashMap<>(); // entity class name --> deep fingerprint
+	private Long modelFingerprint = null ;
+	
+	private final Map<String, byte[]> digests     = new HashMap<>(); // entity class name --> SHA-256 digest
+	private final Map<String, byte[]> deepDigests = new HashMap<>(); // entity class name --> deep SHA-256 digest
+	private byte[] modelDigest = null ;
+	
+	/**
+	 * Constructor
+	 * @param model
+	 */
+	public ModelFingerprint(Model model) {
+		super();
+		if ( model == null ) {
+			throw new IllegalArgumentException("Model is null");
+		}
+		this.model = model ;
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Returns the given fingerprint as a string (16 hexadecimal characters)
+	 * @param fingerprint
+	 * @return
+	 */
+	public static String toHex(long fingerprint) {
+		String s = Long.toHexString(fingerprint);
+		StringBuilder sb = new StringBuilder(16);
+		for ( int i = s.length() ; i < 16 ; i++ ) {
+			sb.append('0');
+		}
+		return sb.append(s).toString();
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Returns the fingerprint of the given entity (only the entity itself)
+	 * @param entityClassName
+	 * @return the fingerprint (or 0 if the entity is not in the model)
+	 */
+	public synchronized long getEntityFingerprint(String entityClassName) {
+		Long fingerprint = fingerprints.get(entityClassName);
+		if ( fingerprint == null ) {
+			Entity entity = model.getEntityByClassName(entityClassName);
+			if ( entity != null ) {
+				FnvSink sink = new FnvSink();
+				writeEntity(entity, sink);
+				fingerprint = sink.hash ;
+			}
+			else {
+				fingerprint = 0L ;
+			}
+			fingerprints.put(entityClassName, fingerprint);
+		}
+		return fingerprint ;
+	}
+
+	/**
+	 * Returns the deep fingerprint of the given entity : the entity and all the entities <br>
+	 * it references directly or indirectly (links, foreign keys, super class) 
+	 * @param entityClassName
+	 * @return the fingerprint (or 0 if the entity is not in the model)
+	 */
+	public synchronized long getDeepEntityFingerprint(String entityClassName) {
+		Long fingerprint = deepFingerprints.get(entityClassName);
+		if ( fingerprint == null ) {
+			if ( model.getEntityByClassName(entityClassName) != null ) {
+				FnvSink sink = new FnvSink();
+				sink.hash = getEntityFingerprint(entityClassName);
+				// referenced entities sorted by name (stable whatever the references order)
+				for ( String name : getReferencedEntities(entityClassName) ) {
+					sink.text(name);
+					sink.number(getEntityFingerprint(name));
+				}
+				fingerprint = sink.hash ;
+			}
+			else {
+				fingerprint = 0L ;
+			}
+			deepFingerprints.put(entityClassName, fingerprint);
+		}
+		return fingerprint ;
+	}
+
+	/**
+	 * Returns the fingerprint of the whole model (model information and all the entities in the model order)
+	 * @return
+	 */
+	public synchronized long getModelFingerprint() {
+		if ( modelFingerprint == null ) {
+			FnvSink sink = new FnvSink();
+			writeModelInformation(sink);
+			for ( Entity entity : model.getEntities() ) {
+				sink.number(getEntityFingerprint(entity.getClassName()));
+			}
+			modelFingerprint = sink.hash ;
+		}
+		return modelFingerprint ;
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Returns the SHA-256 digest of the raw structure of the given entity (only the entity itself)
+	 * @param entityClassName
+	 * @return the digest (or null if the entity is not in the model)
+	 */
+	public synchronized byte[] getEntityDigest(String entityClassName) {
+		byte[] digest = digests.get(entityClassName);
+		if ( digest == null ) {
+			Entity entity = model.getEntityByClassName(entityClassName);
+			if ( entity == null ) {
+				return null ;
+			}
+			DigestSink sink = new DigestSink();
+			writeEntity(entity, sink);
+			digest = sink.md.digest();
+			digests.put(entityClassName, digest);
+		}
+		return digest.clone();
+	}
+
+	/**
+	 * Returns the SHA-256 digest of the given entity and of all the entities <br>
+	 * it references directly or indirectly (links, foreign keys, super class) 
+	 * @param entityClassName
+	 * @return the digest (or null if the entity is not in the model)
+	 */
+	public synchronized byte[] getDeepEntityDigest(String entityClassName) {
+		byte[] digest = deepDigests.get(entityClassName);
+		if ( digest == null ) {
+			byte[] entityDigest = getEntityDigest(entityClassName);
+			if ( entityDigest == null ) {
+				return null ;
+			}
+			DigestSink sink = new DigestSink();
+			sink.md.update(entityDigest);
+			// referenced entities sorted by name (stable whatever the references order)
+			for ( String name : getReferencedEntities(entityClassName) ) {
+				sink.text(name);
+				sink.md.update(getEntityDigest(name));
+			}
+			digest = sink.md.digest();
+			deepDigests.put(entityClassName, digest);
+		}
+		return digest.clone();
+	}
+
+	/**
+	 * Returns the SHA-256 digest of the whole model (model information and all the entities in the model order)
+	 * @return
+	 */
+	public synchronized byte[] getModelDigest() {
+		if ( modelDigest == null ) {
+			DigestSink sink = new DigestSink();
+			writeModelInformation(sink);
+			for ( Entity entity : model.getEntities() ) {
+				sink.md.update(getEntityDigest(entity.getClassName()));
+			}
+			modelDigest = sink.md.digest();
+		}
+		return modelDigest.clone();
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Returns the names of all the entities referenced directly or indirectly by the given entity
+	 * @param entityClassName
+	 * @return sorted names (without the given entity)
+	 */
+	private Set<String> getReferencedEntities(String entityClassName) {
+		Set<String> referenced = new TreeSet<>();
+		LinkedList<String> toVisit = new LinkedList<>();
+		toVisit.add(entityClassName);
+		while ( ! toVisit.isEmpty() ) {
+			Entity entity = model.getEntityByClassName(toVisit.removeFirst());
+			if ( entity != null ) {
+				for ( Link link : entity.getLinks() ) {
+					addReference(referenced, toVisit, entityClassName, link.getReferencedEntityName());
+				}
+				for ( ForeignKey fk : entity.getForeignKeys() ) {
+					addReference(referenced, toVisit, entityClassName, fk.getReferencedEntityName());
+				}
+				addReference(referenced, toVisit, entityClassName, entity.getSuperClass());
+			}
+		}
+		return referenced ;
+	}
+	private void addReference(Set<String> referenced, LinkedList<String> toVisit, String origin, String name) {
+		if ( name != null && ! name.equals(origin) && model.getEntityByClassName(name) != null && referenced.add(name) ) {
+			toVisit.add(name);
+		}
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	private void writeModelInformation(StructureSink sink) {
+		sink.text(model.getName());
+		sink.text(model.getFolderName());
+		sink.value(model.getVersion());
+		sink.value(model.getType());
+		sink.text(model.getTitle());
+		sink.text(model.getDescription());
+		//--- Database metadata
+		sink.text(model.getDatabaseId());
+		sink.text(model.getDatabaseName());
+		sink.text(model.getDatabaseType());
+	}
+
+	private static void writeEntity(Entity entity, StructureSink sink) {
+		sink.text(entity.getClassName());
+		sink.text(entity.getPackageName());
+		sink.text(entity.getSuperClass());
+		sink.flag(entity.isAbstract());
+		sink.flag(entity.isAggregateRoot());
+		sink.flag(entity.isReadOnly());
+		sink.flag(entity.isInMemoryRepository());
+		sink.flag(entity.isJoinEntity());
+		sink.text(entity.getDomain());
+		sink.text(entity.getContext());
+		sink.value(entity.getTagContainer());
+		//--- Database metadata
+		sink.text(entity.getDatabaseTable());
+		sink.text(entity.getDatabaseCatalog());
+		sink.text(entity.getDatabaseSchema());
+		sink.text(entity.getDatabaseTablespace());
+		sink.text(entity.getDatabaseType());
+		sink.text(entity.getDatabaseComment());
+		sink.flag(entity.isDatabaseView());
+		//--- Attributes
+		sink.mark('A');
+		for ( Attribute attribute : entity.getAttributes() ) {
+			writeAttribute(attribute, sink);
+		}
+		//--- Links
+		sink.mark('L');
+		for ( Link link : entity.getLinks() ) {
+			writeLink(link, sink);
+		}
+		//--- Foreign keys
+		sink.mark('F');
+		for ( ForeignKey fk : entity.getForeignKeys() ) {
+			writeForeignKey(fk, sink);
+		}
+	}
+
+	private static void writeAttribute(Attribute attribute, StructureSink sink) {
+		sink.text(attribute.getName());
+		sink.text(attribute.getNeutralType());
+		sink.flag(attribute.isPrimitiveTypeExpected());
+		sink.flag(attribute.isObjectTypeExpected());
+		sink.flag(attribute.isUnsignedTypeExpected());
+		sink.flag(attribute.isKeyElement());
+		sink.flag(attribute.isNotNull()); // also 'databaseNotNull' in the context
+		sink.flag(attribute.isUnique());
+		sink.flag(attribute.isTransient());
+		sink.value(attribute.getSize());
+		sink.value(attribute.getMinLength());
+		sink.value(attribute.getMaxLength());
+		sink.value(attribute.getMinValue());
+		sink.value(attribute.getMaxValue());
+		sink.text(attribute.getPattern());
+		sink.flag(attribute.isLongText());
+		sink.flag(attribute.isNotEmpty());
+		sink.flag(attribute.isNotBlank());
+		sink.flag(attribute.isDatePast());
+		sink.flag(attribute.isDateFuture());
+		sink.text(attribute.getDateBeforeValue());
+		sink.text(attribute.getDateAfterValue());
+		sink.text(attribute.getInitialValue());
+		sink.text(attribute.getDefaultValue());
+		sink.text(attribute.getLabel());
+		sink.text(attribute.getInputType());
+		sink.text(attribute.getBooleanTrueValue());
+		sink.text(attribute.getBooleanFalseValue());
+		sink.value(attribute.getInsertable());
+		sink.value(attribute.getUpdatable());
+		sink.value(attribute.getGeneratedValueStrategy()); // also 'autoIncremented' in the context
+		sink.value(attribute.getGeneratedValueAllocationSize());
+		sink.value(attribute.getGeneratedValueInitialValue());
+		sink.text(attribute.getGeneratedValueSequenceName());
+		sink.text(attribute.getGeneratedValueTablePkColumnValue());
+		sink.value(attribute.getTagContainer());
+		//--- Database metadata
+		sink.text(attribute.getDatabaseName());
+		sink.text(attribute.getDatabaseType());
+		sink.text(attribute.getDatabaseComment());
+		sink.text(attribute.getDatabaseDefaultValue());
+		//--- References
+		sink.flag(attribute.isFK());
+		sink.flag(attribute.isFKSimple());
+		sink.flag(attribute.isFKComposite());
+		sink.text(attribute.getReferencedEntityClassName());
+		sink.flag(attribute.isUsedInLinks());
+		sink.flag(attribute.isUsedInSelectedLinks());
+		for ( ForeignKeyPart fkPart : attribute.getFKParts() ) {
+			sink.text(fkPart.getFkName());
+			sink.text(fkPart.getReferencedEntityName());
+			sink.text(fkPart.getReferencedAttributeName());
+		}
+		sink.mark(SEPARATOR);
+	}
+
+	private static void writeLink(Link link, StructureSink sink) {
+		sink.text(link.getFieldName());
+		sink.text(link.getReferencedEntityName());
+		sink.text(link.getJoinEntityName()); // also 'basedOnJoinEntity' in the context
+		sink.text(link.getMappedBy());
+		sink.flag(link.isSelected());
+		sink.value(link.getCardinality()); // 'owningSide' in the context = cardinality + mappedBy + join entity
+		sink.value(link.getFetchType());
+		sink.value(link.getOptional());
+		sink.value(link.getCascadeOptions());
+		sink.value(link.getInsertable());
+		sink.value(link.getUpdatable());
+		sink.flag(link.isTransient());
+		sink.flag(link.isEmbedded());
+		sink.flag(link.isOrphanRemoval());
+		sink.value(link.getTagContainer());
+		if ( link.getAttributes() != null ) {
+			for ( LinkAttribute linkAttribute : link.getAttributes() ) {
+				sink.text(linkAttribute.getOriginAttributeName());
+				sink.text(linkAttribute.getReferencedAttributeName());
+			}
+		}
+		sink.mark(SEPARATOR);
+	}
+
+	private static void writeForeignKey(ForeignKey fk, StructureSink sink) {
+		sink.text(fk.getName());
+		sink.text(fk.getOriginEntityName());
+		sink.text(fk.getReferencedEntityName());
+		for ( ForeignKeyAttribute fkAttribute : fk.getAttributes() ) {
+			sink.number(fkAttribute.getOrdinal());
+			sink.text(fkAttribute.getOriginAttributeName());
+			sink.text(fkAttribute.getReferencedAttributeName());
+		}
+		sink.mark(SEPARATOR);
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	// Structure receivers 
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Receives the structural values in the model order 
+	 */
+	private abstract static class StructureSink {
+		abstract void mark(char c);
+		abstract void number(long value);
+		void text(String s) {
+			if ( s == null ) {
+				mark(NULL_MARK);
+			}
+			else {
+				for ( int i = 0 ; i < s.length() ; i++ ) {
+					mark(s.charAt(i));
+				}
+			}
+			mark(SEPARATOR);
+		}
+		void flag(boolean b) {
+			mark(b ? 'T' : 'F');
+			mark(SEPARATOR);
+		}
+		void value(Object value) {
+			if ( value == null ) {
+				text(null);
+			}
+			else if ( value instanceof Integer || value instanceof Long ) {
+				number(((Number) value).longValue()); // no string for the integer values
+				mark(SEPARATOR);
+			}
+			else if ( value instanceof Enum ) {
+				text(((Enum<?>) value).name());
+			}
+			else {
+				text(value.toString()); // tags, cascade options, numbers, etc
+			}
+		}
+	}
+
+	/**
+	 * FNV-1a hashing 
+	 */
+	private static class FnvSink extends StructureSink {
+		long hash = FNV_OFFSET_BASIS ;
+		@Override
+		void mark(char c) {
+			hash = ( hash ^ c ) * FNV_PRIME ;
+		}
+		@Override
+		void number(long value) {
+			for ( int i = 0 ; i < 64 ; i += 16 ) {
+				hash ^= ( value >>> i ) & 0xFFFF ;
+				hash *= FNV_PRIME ;
+			}
+		}
+	}
+
+	/**
+	 * Raw bytes in a SHA-256 message digest (each text is prefixed with its length : no ambiguity)
+	 */
+	private static class DigestSink extends StructureSink {
+		final MessageDigest md ;
+		DigestSink() {
+			try {
+				md = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("SHA-256 not available", e);
+			}
+		}
+		@Override
+		void mark(char c) {
+			md.update((byte) ( c >>> 8 ));
+			md.update((byte) c);
+		}
+		@Override
+		void number(long value) {
+			for ( int i = 56 ; i >= 0 ; i -= 8 ) {
+				md.update((byte) ( value >>> i ));
+			}
+		}
+		@Override
+		void text(String s) {
+			if ( s == null ) {
+				number(-1);
+			}
+			else {
+				number(s.length());
+				for ( int i = 0 ; i < s.length() ; i++ ) {
+					mark(s.charAt(i));
+				}
+			}
+		}
+	}
+}
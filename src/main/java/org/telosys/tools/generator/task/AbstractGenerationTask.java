@@ -15,10 +15,17 @@
  */
 package org.telosys.tools.generator.task;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import org.telosys.tools.commons.StrUtil;
 import org.telosys.tools.commons.TelosysToolsException;
 import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.bundles.TargetDefinition;
@@ -26,9 +33,16 @@ import org.telosys.tools.commons.cfg.TelosysToolsCfg;
 import org.telosys.tools.commons.io.CopyHandler;
 import org.telosys.tools.commons.io.OverwriteChooser;
 import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.commons.variables.VariablesManager;
 import org.telosys.tools.generator.BundleResourcesManager;
 import org.telosys.tools.generator.Generator;
+import org.telosys.tools.generator.GeneratorContextBase;
 import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.ModelSnapshot;
+import org.telosys.tools.generator.RenderCache;
+import org.telosys.tools.generator.TaskCancelledException;
+import org.telosys.tools.generator.TemplatesPreflight;
+import org.telosys.tools.generator.context.CompiledTargetDefinition;
 import org.telosys.tools.generator.context.Target;
 import org.telosys.tools.generic.model.Entity;
 import org.telosys.tools.generic.model.Model;
@@ -56,6 +70,32 @@ public abstract class AbstractGenerationTask
 	private final GenerationTaskResult    genTaskResult  ;
 	
 	private Target                currentTarget = null ;
+	
+	private GeneratorContextBase  contextBase = null ; // base layer of the context shared by all the targets (v 4.1.0)
+	
+	private ModelSnapshot         modelSnapshot = null ; // '$model' shared by all the targets (v 4.1.0)
+	
+	private RenderCache           renderCache = null ; // v 4.1.0
+	
+	private TemplatesPreflight    templatesPreflight = null ; // templates checked before the generation (v 4.1.0)
+	
+	private GenerationProgress    progress = new GenerationProgress(); // v 4.1.0
+	
+	private GenerationReport      report = null ; // v 4.1.0
+	
+	private ShardSpec             shard = null ; // only a part of the generation (v 4.1.0)
+	
+	private GenerationHistory     history = null ; // durations of the previous generations (v 4.1.0)
+	
+	private GenerationOrder       generationOrder = null ; // v 4.1.0
+	
+	private String                outputFilter = null ; // glob pattern for the output files (v 4.1.0)
+	
+	private boolean               skipOverwrittenTargets = false ; // v 4.1.0
+	
+	private boolean               skipUnchangedFiles = false ; // v 4.1.0
+	
+	private TemplateCircuitBreaker circuitBreaker = new TemplateCircuitBreaker(TemplateCircuitBreaker.DEFAULT_THRESHOLD); // v 4.1.0
 
 	//--------------------------------------------------------------------------------------------------
 	/**
@@ -101,6 +141,134 @@ public abstract class AbstractGenerationTask
 		this.genTaskResult = new GenerationTaskResult();
 	}
 	
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Set the render cache used to restore the files already generated with the same inputs (optional) <br>
+	 * The cache hits and misses are reported in the task result metrics
+	 * @param renderCache the cache (or null for no cache)
+	 */
+	public void setRenderCache(RenderCache renderCache) { // v 4.1.0
+		this.renderCache = renderCache ;
+	}
+	
+	/**
+	 * Set the number of consecutive failures with the same error after which a template is no longer used <br>
+	 * (default is 0 : disabled, all the errors are reported and the templates are always used)
+	 * @param threshold
+	 */
+	public void setTemplateFailuresThreshold(int threshold) { // v 4.1.0
+		this.circuitBreaker = new TemplateCircuitBreaker(threshold);
+	}
+	
+	/**
+	 * Set the machine-readable report where each target is recorded (optional) <br>
+	 * The report is closed at the end of the task
+	 * @param report the report (or null for no report)
+	 */
+	public void setReport(GenerationReport report) { // v 4.1.0
+		this.report = report ;
+	}
+	
+	/**
+	 * Set the shard to be generated by this task (optional) <br>
+	 * Only the (entity, target) units belonging to the shard are generated, 
+	 * the "once" targets and the static resources are generated only by the first shard <br>
+	 * The reports of all the shards can be merged with 'GenerationReport.merge'
+	 * @param shard the shard (or null to generate all the targets)
+	 */
+	public void setShard(ShardSpec shard) { // v 4.1.0
+		this.shard = shard ;
+	}
+	
+	/**
+	 * Set the durations history used to generate the longest targets first (optional) <br>
+	 * The history is updated with the current durations and saved at the end of the task <br>
+	 * If no generation order is set, the order is COST_ORDERED when a history is set 
+	 * @param history the history (or null if none)
+	 */
+	public void setHistory(GenerationHistory history) { // v 4.1.0
+		this.history = history ;
+	}
+	
+	/**
+	 * Set the order of the generations (optional) <br>
+	 * Default order : COST_ORDERED if a history is set, else ENTITY_MAJOR
+	 * @param generationOrder the order (or null for the default order)
+	 */
+	public void setGenerationOrder(GenerationOrder generationOrder) { // v 4.1.0
+		this.generationOrder = generationOrder ;
+	}
+	
+	/**
+	 * Returns the order used for the generations 
+	 * @return
+	 */
+	public GenerationOrder getGenerationOrder() { // v 4.1.0
+		if ( generationOrder != null ) {
+			return generationOrder ;
+		}
+		return history != null ? GenerationOrder.COST_ORDERED : GenerationOrder.ENTITY_MAJOR ;
+	}
+	
+	/**
+	 * Set a glob pattern to generate only the targets with a matching output file (optional) <br>
+	 * The pattern is applied to the output file path in the project (eg "src/main/java/org/demo/bean/*.java")
+	 * @param outputFilter the glob pattern (or null to generate all the targets)
+	 * @throws IllegalArgumentException if the pattern is invalid
+	 */
+	public void setOutputFilter(String outputFilter) { // v 4.1.0
+		if ( outputFilter != null ) {
+			GenerationPlan.buildMatcher(outputFilter); // check pattern validity
+		}
+		this.outputFilter = outputFilter ;
+	}
+	
+	/**
+	 * Set whether a generated file with the same content as the existing file is left untouched (default is false) <br>
+	 * If true an unchanged file keeps its last modification date and is not counted as generated 
+	 * ('afterFileGeneration' is not called)
+	 * @param skipUnchangedFiles
+	 */
+	public void setSkipUnchangedFiles(boolean skipUnchangedFiles) { // v 4.1.0
+		this.skipUnchangedFiles = skipUnchangedFiles ;
+	}
+	
+	/**
+	 * Set whether a target is skipped when its output file is written again by a later target (default is false) <br>
+	 * Only the last writer of each file is generated (files generated by the embedded generator 
+	 * and '#cancel' in the last writer are not taken into account)
+	 * @param skipOverwrittenTargets
+	 */
+	public void setSkipOverwrittenTargets(boolean skipOverwrittenTargets) { // v 4.1.0
+		this.skipOverwrittenTargets = skipOverwrittenTargets ;
+	}
+	
+	private boolean inShard(String entityName, CompiledTargetDefinition targetDefinition) { // v 4.1.0
+		return shard == null || shard.contains(entityName, targetDefinition.getTargetDefinition());
+	}
+	
+	/**
+	 * Returns the machine-readable report (if any)
+	 * @return the report or null
+	 */
+	protected GenerationReport getReport() { // v 4.1.0
+		return report ;
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Returns the generation plan : all the targets to be generated by the task (in the generation order) 
+	 * with their output file and template file <br>
+	 * Nothing is rendered and no context is built, the shard and the output filter are applied (if any)
+	 * @return
+	 */
+	public GenerationPlan plan() { // v 4.1.0
+		List<CompiledTargetDefinition> onceTargets   = new LinkedList<>() ; 
+		List<CompiledTargetDefinition> entityTargets = new LinkedList<>() ; 
+		compileTargets(onceTargets, entityTargets);
+		return buildPlan(onceTargets, entityTargets, new LinkedList<>());
+	}
+	
 	//--------------------------------------------------------------------------------------------------
 	// ABSTRACT METHODS
 	//--------------------------------------------------------------------------------------------------
@@ -126,12 +294,60 @@ public abstract class AbstractGenerationTask
 		}
 	}
 	
+	/**
+	 * Returns the base layer of the generator context (built only once for the task)
+	 * @return
+	 */
+	private GeneratorContextBase getContextBase() { // v 4.1.0
+		if ( contextBase == null ) {
+			contextBase = new GeneratorContextBase(telosysToolsCfg, bundleName);
+		}
+		return contextBase ;
+	}
+	
+	/**
+	 * Returns the model snapshot shared by all the targets (built only once for the task)
+	 * @return
+	 */
+	private ModelSnapshot getModelSnapshot() { // v 4.1.0
+		if ( modelSnapshot == null ) {
+			modelSnapshot = new ModelSnapshot(model, telosysToolsCfg, genTaskResult.getMetrics());
+		}
+		return modelSnapshot ;
+	}
+	
+	/**
+	 * Checks all the templates used by the selected targets before generating any file <br>
+	 * If a template is invalid the task is stopped with all the problems reported in a single error 
+	 * @throws InterruptedException if at least one template is invalid
+	 */
+	private void checkTemplates() throws InterruptedException { // v 4.1.0
+		logger.info("----- Templates preflight" );
+		List<String> templateFileNames = new LinkedList<>();
+		for ( TargetDefinition targetDefinition : selectedTargets ) {
+			templateFileNames.add(targetDefinition.getTemplate());
+		}
+		templatesPreflight = new TemplatesPreflight(telosysToolsCfg, bundleName);
+		List<String> problems = templatesPreflight.check(templateFileNames);
+		if ( ! problems.isEmpty() ) {
+			for ( String problem : problems ) {
+				logger.error(problem);
+			}
+			ErrorReport errorReport = new ErrorReport(problems.size() + " invalid template(s) : no file generated", problems);
+			genTaskResult.addError(errorReport);
+			onError(errorReport); // cannot continue whatever the choice
+			throw new InterruptedException("Generation task cancelled (invalid templates)");
+		}
+		logger.info(templatesPreflight.getTemplatesCount() + " template(s) checked" );
+	}
+	
 	private Variable[] getAllProjectVariables() {
 		return telosysToolsCfg.getAllVariables() ;
 	}
 	
 	/**
 	 * Run the task : <br>
+	 *  0) check all the templates (nothing copied or generated if a template is invalid)<br>
 	 *  1) copy the resources if any<br>
 	 *  2) launch the generation<br>
 	 * @param taskMonitor
@@ -142,11 +358,59 @@ public abstract class AbstractGenerationTask
 	protected void runTask(ITaskMonitor taskMonitor, OverwriteChooser overwriteChooser, CopyHandler copyHandler) 
 			throws InterruptedException {
 		
-		//--- 1) Copy the static resources of the bundle if any (if cancelled : 'InterruptedException' is thrown )
-		copyResourcesIfAny(overwriteChooser, copyHandler);
-		
-		//--- 2) Launch the generation (if cancelled : 'InterruptedException' is thrown )
-		generateSelectedTargets(taskMonitor, getAllProjectVariables());
+		try {
+			//--- 0) All the templates checked before any copy or generation (v 4.1.0)
+			checkTemplates(); // throws InterruptedException if invalid templates
+			
+			//--- 1) Copy the static resources of the bundle if any (if cancelled : 'InterruptedException' is thrown )
+			if ( shard == null || shard.containsOnceTargets() ) {
+				copyResourcesIfAny(overwriteChooser, copyHandler);
+			}
+			else {
+				logger.info("Shard " + shard + " : static resources copied by the first shard" );
+			}
+			
+			//--- 2) Launch the generation (if cancelled : 'InterruptedException' is thrown )
+			generateSelectedTargets(taskMonitor, getAllProjectVariables());
+		} finally {
+			closeReport(); // v 4.1.0
+			saveHistory(); // v 4.1.0
+		}
+	}
+	
+	private void saveHistory() { // v 4.1.0
+		if ( history != null ) {
+			try {
+				history.save();
+			} catch (IOException e) {
+				// not blocking : only the next generations order is affected
+				logger.error("Cannot save generation history : " + e.getMessage() );
+			}
+		}
+	}
+	
+	private void closeReport() { // v 4.1.0
+		if ( report != null ) {
+			try {
+				report.close();
+				logger.info("Generation report : " + report.getFile().getAbsolutePath() );
+			} catch (IOException e) {
+				// not blocking : the generation is done, only the report is incomplete
+				logger.error("Cannot write generation report : " + e.getMessage() );
+			}
+		}
+	}
+	
+	private void addToReport(Target target, GenerationReport.Status status, Generator generator, long size) { // v 4.1.0
+		if ( report != null ) {
+			if ( generator != null ) {
+				report.addTarget(target, status, generator.getRenderDuration(), generator.getWriteDuration(), 
+						size, generator.isRestoredFromCache());
+			}
+			else {
+				report.addTarget(target, status, 0, 0, 0, false);
+			}
+		}
 	}
 	
 	//--------------------------------------------------------------------------------------------------
@@ -192,66 +456,228 @@ public abstract class AbstractGenerationTask
 	 */
 	private void generateSelectedTargets( ITaskMonitor progressMonitor, Variable[] variables ) throws InterruptedException
 	{
-		//--- Separate targets in 2 list : "ONCE" and "ENTITY"
-		List<TargetDefinition> onceTargets   = new LinkedList<>() ; 
-		List<TargetDefinition> entityTargets = new LinkedList<>() ; 
-		for ( TargetDefinition targetDefinition : selectedTargets ) {
-			if ( targetDefinition.isOnce() ) {
-				onceTargets.add(targetDefinition); 
+		//--- New generation : templates and model may have changed since the last one (v 4.1.0)
+		if ( renderCache != null ) {
+			renderCache.newGeneration();
+		}
+		
+		//--- Separate targets in 2 list : "ONCE" and "ENTITY" (each target definition prepared only once)
+		List<CompiledTargetDefinition> onceTargets   = new LinkedList<>() ; 
+		List<CompiledTargetDefinition> entityTargets = new LinkedList<>() ; 
+		compileTargets(onceTargets, entityTargets);
+		
+		//--- All the targets in the requested order (only the targets of the shard and the output filter if any)
+		List<String> unknownEntities = new LinkedList<>();
+		GenerationPlan plan = buildPlan(onceTargets, entityTargets, unknownEntities); // v 4.1.0
+		for ( String entityName : unknownEntities ) {
+			if ( ! progressMonitor.isCanceled() ) {
+				String msg = "Generation error : entity '" + entityName + "' not found in the repository";
+				ErrorReport errorReport = new ErrorReport(msg);
+				logger.error("Entity '" + entityName + "' not found in the repository") ;
+				manageError(errorReport); // throws InterruptedException if 'canceled'
 			}
-			else {
-				entityTargets.add(targetDefinition);
+		}
+		
+		//--- References by name that cannot be resolved in the model : reported only once for all the targets (v 4.1.0)
+		if ( plan.size() > 0 ) {
+			for ( String msg : getModelSnapshot().getModelInContext().getUnresolvedReferences() ) {
+				logger.info("Unresolved reference : " + msg );
 			}
 		}
 		
 		//--- Number of generations expected
-		int totalWorkTasks = ( selectedEntities.size() * entityTargets.size() ) + onceTargets.size() ;
+		int totalWorkTasks = plan.size() ;
+		progress = new GenerationProgress(); // v 4.1.0
+		for ( PlannedTarget plannedTarget : plan.getTargets() ) {
+			progress.expect(plannedTarget.getTarget().getTemplate(), 1);
+		}
+		if ( shard != null ) {
+			logger.info("Shard " + shard + " : " + totalWorkTasks + " target(s) to generate" );
+		}
+		if ( plan.hasDuplicates() ) {
+			logger.info(plan.getDuplicates().size() + " output file(s) written by more than one target" );
+		}
 
 		progressMonitor.beginTask("Generation in progress", totalWorkTasks ); 
 				
-		//--- For each entity
-		for ( String entityName : selectedEntities ) {
-			
-			logger.info("----- Generation for entity " + entityName );
-			Entity entity = model.getEntityByClassName(entityName);
-			if ( entity != null ) {
-				//--- For each "entity target" 
-				for ( TargetDefinition targetDefinition : entityTargets ) {
-					
-					//--- Get a specialized target for the current entity
-					//Target target = new Target( targetDefinition, entity, variables ); // v 3.0.0
-					Target target = new Target( telosysToolsCfg, targetDefinition, entity ); // v 3.3.0
-					
-					generateTarget(progressMonitor, target, selectedEntities); // throws InterruptedException if error + 'cancel'
+		GenerationOrder order = getGenerationOrder(); // v 4.1.0
+		String currentGroup = null ;
+		for ( PlannedTarget plannedTarget : plan.getTargets() ) {
+			Target target = plannedTarget.getTarget();
+			if ( plannedTarget.isOnce() ) {
+				//--- Finally, generate the "ONCE" targets ( NEW in version 2.0.3 / Feb 2013 )
+				if ( ! ENTITY_NONE.equals(currentGroup) ) {
+					currentGroup = ENTITY_NONE ;
+					logger.info("----- Generation without entity" );
+				}
+			}
+			else if ( order == GenerationOrder.TEMPLATE_MAJOR ) {
+				if ( ! target.getTemplate().equals(currentGroup) ) {
+					currentGroup = target.getTemplate();
+					logger.info("----- Generation with template " + currentGroup );
 				}
-				//--- One TARGET done 
+			}
+			else if ( ! target.getEntityName().equals(currentGroup) ) {
+				currentGroup = target.getEntityName();
+				logger.info("----- Generation for entity " + currentGroup );
+			}
+			if ( skipOverwrittenTargets && plan.isOverwritten(plannedTarget) ) {
+				skipOverwrittenTarget(progressMonitor, target); // v 4.1.0
 			}
 			else {
-				String msg = "Generation error : entity '" + entityName + "' not found in the repository";
-				ErrorReport errorReport = new ErrorReport(msg);
-				logger.error("Entity '" + entityName + "' not found in the repository") ;
-				manageError(errorReport); // throws InterruptedException if 'canceled'
+				generateTarget(progressMonitor, target, selectedEntities); // throws InterruptedException if error + 'cancel'
 			}
-			//--- One ENTITY done
-		} // end of "For each entity"
-		
-		//--- Finally, generate the "ONCE" targets ( NEW in version 2.0.3 / Feb 2013 )
-		logger.info("----- Generation without entity" );
-		for ( TargetDefinition targetDefinition : onceTargets ) {
-			//--- Target without current entity
-			//Target target = new Target( targetDefinition, variables ); // v 3.0.0
-			Target target = new Target( telosysToolsCfg, targetDefinition ); // v 3.3.0
-			generateTarget(progressMonitor, target, selectedEntities);  // throws InterruptedException if error + 'cancel'
 		}
 		
 		//--- Notifies that the work is done; that is, either the main task is completed or the user canceled it.
 		progressMonitor.done();
 		
 		if ( progressMonitor.isCanceled() ) { // Cancellation of current operation has been requested
+			genTaskResult.setCancelled(true); // v 4.1.0
+			logger.info(genTaskResult.getCompletedTargets().size() + " target(s) completed, " 
+					+ genTaskResult.getNumberOfTargetsSkipped() + " target(s) skipped" );
 			throw new InterruptedException("The generation task was cancelled");
 		}
 		
 	}
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Separates the selected targets in "once" targets and "entity" targets <br>
+	 * (each target definition prepared only once with the project variables loaded only once)
+	 * @param onceTargets
+	 * @param entityTargets
+	 */
+	private void compileTargets(List<CompiledTargetDefinition> onceTargets, 
+			List<CompiledTargetDefinition> entityTargets) { // v 4.1.0
+		VariablesManager variablesManager = CompiledTargetDefinition.buildVariablesManager(telosysToolsCfg);
+		for ( TargetDefinition targetDefinition : selectedTargets ) {
+			CompiledTargetDefinition compiledTargetDefinition = 
+					new CompiledTargetDefinition(telosysToolsCfg, targetDefinition, variablesManager); 
+			if ( targetDefinition.isOnce() ) {
+				onceTargets.add(compiledTargetDefinition); 
+			}
+			else {
+				entityTargets.add(compiledTargetDefinition);
+			}
+		}
+	}
+	
+	/**
+	 * Builds the plan with all the targets to be generated, in the generation order <br>
+	 * The "entity" targets for the selected entities first, then the "once" targets <br>
+	 * Only the targets of the current shard and matching the output filter are kept (if any) 
+	 * @param onceTargets
+	 * @param entityTargets
+	 * @param unknownEntities the selected entities not found in the model (populated)
+	 * @return
+	 */
+	private GenerationPlan buildPlan(List<CompiledTargetDefinition> onceTargets, 
+			List<CompiledTargetDefinition> entityTargets, List<String> unknownEntities) { // v 4.1.0
+		//--- Entities of the model 
+		List<Entity> entities = new ArrayList<>();
+		for ( String entityName : selectedEntities ) {
+			Entity entity = model.getEntityByClassName(entityName);
+			if ( entity != null ) {
+				entities.add(entity);
+			}
+			else {
+				unknownEntities.add(entityName);
+			}
+		}
+		//--- Targets for each entity in the requested order 
+		List<Target> units = new ArrayList<>();
+		GenerationOrder order = getGenerationOrder();
+		if ( order == GenerationOrder.TEMPLATE_MAJOR ) {
+			//--- For each "entity target" : all the entities
+			for ( CompiledTargetDefinition targetDefinition : entityTargets ) {
+				for ( Entity entity : entities ) {
+					addEntityUnit(units, targetDefinition, entity);
+				}
+			}
+		}
+		else {
+			//--- For each entity : all the "entity targets" 
+			for ( Entity entity : entities ) {
+				for ( CompiledTargetDefinition targetDefinition : entityTargets ) {
+					addEntityUnit(units, targetDefinition, entity);
+				}
+			}
+			if ( order == GenerationOrder.COST_ORDERED ) {
+				sortByExpectedDuration(units);
+			}
+		}
+		//--- Resolved paths 
+		String destinationFolder = telosysToolsCfg.getDestinationFolderAbsolutePath();
+		String templatesFolder = telosysToolsCfg.getTemplatesFolderAbsolutePath(bundleName);
+		List<PlannedTarget> plannedTargets = new LinkedList<>();
+		for ( Target target : units ) {
+			plannedTargets.add(new PlannedTarget(target, false, destinationFolder, templatesFolder));
+		}
+		//--- "ONCE" targets generated only by the first shard 
+		if ( shard == null || shard.containsOnceTargets() ) {
+			for ( CompiledTargetDefinition targetDefinition : onceTargets ) {
+				//--- Target without current entity
+				//Target target = new Target( targetDefinition, variables ); // v 3.0.0
+				//Target target = new Target( telosysToolsCfg, targetDefinition ); // v 3.3.0
+				Target target = new Target( targetDefinition ); // v 4.1.0
+				plannedTargets.add(new PlannedTarget(target, true, destinationFolder, templatesFolder));
+			}
+		}
+		GenerationPlan plan = new GenerationPlan(plannedTargets, unknownEntities);
+		return outputFilter != null ? plan.filter(outputFilter) : plan ;
+	}
+	
+	private void addEntityUnit(List<Target> units, CompiledTargetDefinition targetDefinition, Entity entity) { // v 4.1.0
+		if ( inShard(entity.getClassName(), targetDefinition) ) { // else generated by another shard 
+			//--- Get a specialized target for the current entity
+			//Target target = new Target( targetDefinition, entity, variables ); // v 3.0.0
+			//Target target = new Target( telosysToolsCfg, targetDefinition, entity ); // v 3.3.0
+			units.add(new Target( targetDefinition, entity )); // v 4.1.0
+		}
+	}
+	
+	/**
+	 * Sorts the given targets by expected duration (longest first) <br>
+	 * Without history the expected duration is the entity size <br>
+	 * The targets writing the same output file are kept together, in their original order 
+	 * (the last writer of a file does not depend on the durations), each group is sorted 
+	 * by its total expected duration <br>
+	 * Groups with the same expected duration keep their original order
+	 * @param units
+	 */
+	private void sortByExpectedDuration(List<Target> units) { // v 4.1.0
+		Map<String, List<Target>> groups = new LinkedHashMap<>(); // output file --> targets in plan order
+		Map<String, Long> expectedDurations = new HashMap<>(); // output file --> expected duration
+		for ( Target target : units ) {
+			String outputFile = target.getOutputFileNameInProject();
+			groups.computeIfAbsent(outputFile, k -> new ArrayList<>()).add(target);
+			Entity entity = model.getEntityByClassName(target.getEntityName());
+			long expectedDuration = history != null ? history.getExpectedDuration(target.getTemplate(), entity) 
+					: GenerationHistory.getEntitySize(entity) ;
+			expectedDurations.merge(outputFile, expectedDuration, Long::sum);
+		}
+		List<String> outputFiles = new ArrayList<>(groups.keySet());
+		outputFiles.sort((f1, f2) -> Long.compare(expectedDurations.get(f2), expectedDurations.get(f1)));
+		units.clear();
+		for ( String outputFile : outputFiles ) {
+			units.addAll(groups.get(outputFile));
+		}
+	}
+	
+	/**
+	 * Skips a target with an output file written again by a later target
+	 * @param progressMonitor
+	 * @param target
+	 */
+	private void skipOverwrittenTarget(ITaskMonitor progressMonitor, Target target) { // v 4.1.0
+		logger.log(this, "Target file '" + target.getOutputFileNameInProject() + "' overwritten by a later target : target skipped");
+		genTaskResult.addSkippedTarget(target);
+		progress.targetNotGenerated(target.getTemplate(), 0);
+		addToReport(target, GenerationReport.Status.SKIPPED, null, 0);
+		progressMonitor.worked(1);
+		reportProgress(progressMonitor);
+	}
+	
 	//--------------------------------------------------------------------------------------------------
 	/**
 	 * Generates the given target. <br>
@@ -267,6 +693,27 @@ public abstract class AbstractGenerationTask
 		logger.log(this, "Generate TARGET : entity name '" + target.getEntityName() + "' - target file '" + target.getFile() + "' ");
 		
 		currentTarget = target ;
+		long startTime = System.nanoTime(); // v 4.1.0
+		
+		//--- Task cancelled : no more generation, the remaining targets are only reported as skipped (v 4.1.0)
+		if ( progressMonitor.isCanceled() ) {
+			genTaskResult.addSkippedTarget(target);
+			progress.targetNotGenerated(target.getTemplate(), 0);
+			addToReport(target, GenerationReport.Status.CANCELLED, null, 0);
+			return ;
+		}
+		
+		//--- Template no longer used after repeated failures (v 4.1.0)
+		if ( circuitBreaker.isOpen(target.getTemplate()) ) {
+			logger.log(this, "Template '" + target.getTemplate() + "' disabled : target skipped");
+			circuitBreaker.skipped(target.getTemplate(), getCurrentEntityName());
+			genTaskResult.addSkippedTarget(target);
+			progress.targetNotGenerated(target.getTemplate(), 0);
+			addToReport(target, GenerationReport.Status.SKIPPED, null, 0);
+			progressMonitor.worked(1);
+			reportProgress(progressMonitor);
+			return ;
+		}
 		
 		progressMonitor.subTask("Entity '" + target.getEntityName() + "' : target file '" + target.getFile() + "' ");
 		
@@ -274,19 +721,44 @@ public abstract class AbstractGenerationTask
 		LinkedList<Target> generatedTargets = new LinkedList<>();
 		
 		Generator generator = new Generator( telosysToolsCfg, bundleName, logger); // v 3.0.0
+		generator.setMetrics(genTaskResult.getMetrics()); // v 4.1.0
+		generator.setContextBase(getContextBase()); // v 4.1.0
+		generator.setModelSnapshot(getModelSnapshot()); // v 4.1.0
+		generator.setRenderCache(renderCache); // v 4.1.0
+		generator.setTemplatesPreflight(templatesPreflight); // v 4.1.0
+		generator.setCancellationCheck(progressMonitor::isCanceled); // v 4.1.0
+		generator.setSkipUnchangedFiles(skipUnchangedFiles); // v 4.1.0
+		boolean generated = false ;
+		GenerationReport.Status status = null ; // v 4.1.0
 		try {
 			generator.generateTarget(target, model, selectedEntitiesNames, generatedTargets);
+			circuitBreaker.success(target.getTemplate()); // v 4.1.0
+			genTaskResult.addCompletedTarget(target); // v 4.1.0
+			generated = true ;
+			if ( generator.isCancelledByTemplate() ) {
+				status = GenerationReport.Status.CANCELLED ;
+			}
+			else {
+				status = getOutputStatus(generator);
+			}
+		} catch (TaskCancelledException e) {
+			// cancelled during the generation : target not saved (sub-targets already generated are kept)
+			logger.log(this, e.getMessage());
+			genTaskResult.addSkippedTarget(target); // v 4.1.0
+			status = GenerationReport.Status.CANCELLED ;
 		} catch (GeneratorException e) {
 			genTaskResult.addGenerationError(target);
-			ErrorReport errorReport = buildErrorReportForGeneratorException(e);
-			manageError(errorReport); // throws InterruptedException if 'canceled'
+			addToReport(target, GenerationReport.Status.ERROR, generator, 0); // v 4.1.0
+			manageGenerationError(e); // throws InterruptedException if 'canceled'
 		}
 
 		//--- After normal end of generation : refresh the generated files and update count
+		long bytes = 0 ;
 		for ( Target generatedTarget : generatedTargets ) {
 			logger.log(this, "generated target : " + generatedTarget.getFile() );
 
 			String generatedFileAbsolutePath = generatedTarget.getOutputFileNameInFileSystem(telosysToolsCfg.getDestinationFolderAbsolutePath());
+			bytes += new File(generatedFileAbsolutePath).length(); // v 4.1.0
 			
 			//--- One more file : increment result count
 			genTaskResult.incrementNumberOfFilesGenerated();
@@ -300,6 +772,56 @@ public abstract class AbstractGenerationTask
 		// Note that this amount represents an installment, as opposed to a cumulative amount of work done to date.
 		progressMonitor.worked(1); // One unit done (not cumulative)
 		
+		if ( status != null ) {
+			addToReport(target, status, generator, bytes); // v 4.1.0
+		}
+		
+		//--- Throughput and remaining time (v 4.1.0)
+		long duration = System.nanoTime() - startTime ;
+		if ( generated ) {
+			progress.targetGenerated(target.getTemplate(), duration, generatedTargets.size(), bytes);
+			if ( ! generator.isRestoredFromCache() ) { // no rendering => duration not significant
+				recordInHistory(target, duration);
+			}
+		}
+		else {
+			progress.targetNotGenerated(target.getTemplate(), duration);
+		}
+		reportProgress(progressMonitor);
+	}
+	
+	private GenerationReport.Status getOutputStatus(Generator generator) { // v 4.1.0
+		if ( generator.isOutputVoid() ) {
+			return GenerationReport.Status.VOID ;
+		}
+		return generator.isOutputWritten() ? GenerationReport.Status.WRITTEN : GenerationReport.Status.UNCHANGED ;
+	}
+	
+	private void recordInHistory(Target target, long duration) { // v 4.1.0
+		if ( history != null && ! StrUtil.nullOrVoid(target.getEntityName()) ) {
+			Entity entity = model.getEntityByClassName(target.getEntityName());
+			if ( entity != null ) {
+				history.record(target.getTemplate(), entity, duration);
+			}
+		}
+	}
+	
+	/**
+	 * Provides the current progress to the monitor if it is able to use it
+	 * @param progressMonitor
+	 */
+	private void reportProgress(ITaskMonitor progressMonitor) { // v 4.1.0
+		if ( progressMonitor instanceof ITaskMonitorWithProgress ) {
+			((ITaskMonitorWithProgress) progressMonitor).progress(progress);
+		}
+	}
+	
+	/**
+	 * Returns the progress of the current (or last) generation 
+	 * @return
+	 */
+	protected GenerationProgress getProgress() { // v 4.1.0
+		return progress ;
 	}
 	
 	//--------------------------------------------------------------------------------------------------
@@ -350,6 +872,10 @@ public abstract class AbstractGenerationTask
 	 */
 	private void manageError( ErrorReport errorReport ) throws InterruptedException {
 		genTaskResult.addError(errorReport);
+		askToContinue(errorReport);
+	}
+	
+	private void askToContinue( ErrorReport errorReport ) throws InterruptedException { // v 4.1.0
 		//--- Open the dialog box (the user can choose to continue or to cancel)
 		boolean continueTask = onError(errorReport);
 		//--- If 'cancel' : throw InterruptedException
@@ -373,6 +899,39 @@ public abstract class AbstractGenerationTask
 		genTaskResult.addError(errorReport);
 		return errorReport ;
 	}
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Manages a generation error : <br>
+	 * . circuit breaker disabled : each error is reported (as in the previous versions) <br>
+	 * . circuit breaker enabled : the same error as the previous one for the current template 
+	 * is only added to the existing report, and reported again when the template is disabled
+	 * @param generatorException
+	 * @throws InterruptedException
+	 */
+	private void manageGenerationError(GeneratorException generatorException) throws InterruptedException { // v 4.1.0
+		if ( ! circuitBreaker.isEnabled() ) {
+			manageError(buildErrorReportForGeneratorException(generatorException)); // throws InterruptedException if 'canceled'
+			return ;
+		}
+		String templateName = getCurrentTemplateName();
+		String entityName = getCurrentEntityName();
+		String signature = TemplateCircuitBreaker.buildSignature(generatorException, entityName);
+		ErrorReport existingErrorReport = circuitBreaker.sameFailure(templateName, signature, entityName);
+		if ( existingErrorReport != null ) {
+			logger.log(this, "Same error again with template '" + templateName + "' (entity '" + entityName + "')");
+			if ( circuitBreaker.isOpen(templateName) ) {
+				logger.info("Template '" + templateName + "' disabled after " + circuitBreaker.getThreshold() + " identical errors");
+				// the user can still choose to continue (template disabled) or to cancel 
+				askToContinue(existingErrorReport); // throws InterruptedException if 'canceled'
+			}
+		}
+		else {
+			ErrorReport errorReport = buildErrorReportForGeneratorException(generatorException);
+			circuitBreaker.newFailure(templateName, signature, errorReport);
+			manageError(errorReport); // throws InterruptedException if 'canceled'
+		}
+	}
+	
 	//--------------------------------------------------------------------------------------------------
 	private ErrorReport buildErrorReportForGeneratorException(GeneratorException generatorException ) {
 		String entityName = this.getCurrentEntityName();
@@ -15,18 +15,39 @@
  */
 package org.telosys.tools.generator.task;
 
+import java.io.PrintStream;
+
 /**
- * Default ITaskMonitor implementation
+ * Default ITaskMonitor implementation <br>
+ * Prints a compact progress line (at most once per second) 
  * 
  * @author Laurent Guerin
  *
  */
-public class DefaultTaskMonitor implements ITaskMonitor {
+public class DefaultTaskMonitor implements ITaskMonitorWithProgress {
+
+	private static final long PRINT_INTERVAL_MILLIS = 1000 ;
 
 	private boolean canceled = false ;
 	
+	private final PrintStream out ; // v 4.1.0
+	private long lastPrintTime = 0 ; // v 4.1.0
+	private GenerationProgress lastProgress = null ; // v 4.1.0
+	
+	/**
+	 * Constructor printing the progress in the standard output
+	 */
 	public DefaultTaskMonitor() {
+		this(System.out);
+	}
+
+	/**
+	 * Constructor 
+	 * @param out the stream where to print the progress (or null for no output)
+	 */
+	public DefaultTaskMonitor(PrintStream out) { // v 4.1.0
 		super();
+		this.out = out ;
 	}
 
 	@Override
@@ -36,7 +57,9 @@ public class DefaultTaskMonitor implements ITaskMonitor {
 
 	@Override
 	public void done() {
-		// Nothing to do 
+		if ( lastProgress != null ) {
+			print(lastProgress); // final state
+		}
 	}
 
 	@Override
@@ -64,4 +87,19 @@ public class DefaultTaskMonitor implements ITaskMonitor {
 		// Nothing to do 
 	}
 
+	@Override
+	public void progress(GenerationProgress progress) { // v 4.1.0
+		lastProgress = progress ;
+		long now = System.currentTimeMillis();
+		if ( now - lastPrintTime >= PRINT_INTERVAL_MILLIS ) {
+			lastPrintTime = now ;
+			print(progress);
+		}
+	}
+
+	private void print(GenerationProgress progress) {
+		if ( out != null ) {
+			out.println("Generation : " + progress.toStatusLine());
+		}
+	}
 }
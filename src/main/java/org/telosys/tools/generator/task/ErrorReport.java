@@ -44,6 +44,12 @@ public class ErrorReport {
 	private final String    errorMessage ;
 	private final Throwable exception ;
 	private final List<String> errorDetails ;
+	
+	//--- Identical errors aggregated in this report (v 4.1.0)
+	private final String       templateName ;
+	private final List<String> entities = new LinkedList<>(); // entities in error
+	private final List<String> skippedEntities = new LinkedList<>(); // entities not generated after this error
+	private int occurrences = 1 ;
 		
 	/**
 	 * Constructor for basic error with only error type and error message
@@ -55,6 +61,20 @@ public class ErrorReport {
 		this.errorMessage   = errorMessage != null ? errorMessage : "(no error message)";
 		this.exception = null;
 		this.errorDetails = null;
+		this.templateName = null;
+	}
+
+	/**
+	 * Constructor for error with a message and a list of details (without exception)
+	 * @param errorMessage
+	 * @param errorDetails
+	 */
+	public ErrorReport(String errorMessage, List<String> errorDetails) { // v 4.1.0
+		super();
+		this.errorMessage = errorMessage != null ? errorMessage : "(no error message)";
+		this.exception = null;
+		this.errorDetails = errorDetails;
+		this.templateName = null;
 	}
 
 	/**
@@ -68,6 +88,10 @@ public class ErrorReport {
 		this.errorMessage = buildErrorMessage(exception);
 		this.exception = exception; 
 		this.errorDetails = buildErrorDetails(exception, templateName, entityName);
+		this.templateName = templateName;
+		if ( entityName != null ) {
+			this.entities.add(entityName);
+		}
 	}
 
 	//--------------------------------------------------------------------------------------
@@ -97,6 +121,57 @@ public class ErrorReport {
 		return errorDetails;
 	}
 
+	/**
+	 * Returns the name of the template in error (or null if unknown)
+	 * @return
+	 */
+	public String getTemplateName() { // v 4.1.0
+		return templateName;
+	}
+
+	/**
+	 * Returns the number of occurrences of this error (the same error can be reported for several entities)
+	 * @return
+	 */
+	public int getOccurrences() { // v 4.1.0
+		return occurrences;
+	}
+
+	/**
+	 * Returns the names of all the entities for which this error occurred
+	 * @return
+	 */
+	public List<String> getEntities() { // v 4.1.0
+		return entities;
+	}
+
+	/**
+	 * Returns the names of the entities not generated with the template after this error 
+	 * @return
+	 */
+	public List<String> getSkippedEntities() { // v 4.1.0
+		return skippedEntities;
+	}
+
+	/**
+	 * Adds a new occurrence of the same error 
+	 * @param entityName the entity in error (can be null)
+	 */
+	protected void addOccurrence(String entityName) { // v 4.1.0
+		occurrences++;
+		if ( entityName != null ) {
+			entities.add(entityName);
+		}
+	}
+
+	/**
+	 * Adds an entity not generated because of this error 
+	 * @param entityName
+	 */
+	protected void addSkippedEntity(String entityName) { // v 4.1.0
+		skippedEntities.add(entityName);
+	}
+
 	private String buildErrorMessage(Throwable exception) {
 		return exception.getMessage();
 	}
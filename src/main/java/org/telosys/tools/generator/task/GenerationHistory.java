@@ -0,0 +1,185 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.telosys.tools.generator.GeneratorFileWriter;
+import org.telosys.tools.generic.model.Entity;
+
+/**
+ * Durations history of the previous generations for each (template, entity) <br>
+ * Used to generate the longest targets first <br>
+ * If a target has never been generated, its duration is estimated with the entity size 
+ * (number of attributes and links) and the average cost of the template for one size unit <br>
+ * 
+ * File format (one line for each target, tab separated) : <br>
+ *   template  entity  duration(ns)  entity-size 
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public class GenerationHistory {
+
+	private static final String HEADER = "# Telosys generation history : template, entity, duration (ns), entity size" ;
+	private static final String SEPARATOR = "\t" ;
+
+	/**
+	 * Observed duration for a target
+	 */
+	private static class Observation {
+		final long duration ;
+		final int  size ;
+		Observation(long duration, int size) {
+			this.duration = duration ;
+			this.size = size ;
+		}
+	}
+
+	private final File file ;
+	
+	//--- Observations from the previous generations (used for the estimations) 
+	private final Map<String, Observation> previous = new HashMap<>();
+	private final Map<String, Double> templateCostBySizeUnit = new HashMap<>();
+	private final double globalCostBySizeUnit ;
+	
+	//--- Observations of the current generation (saved with the previous ones)
+	private final Map<String, Observation> current = new HashMap<>();
+
+	/**
+	 * Constructor : loads the history from the given file if it exists
+	 * @param file
+	 * @throws IOException if the file exists and cannot be read
+	 */
+	public GenerationHistory(File file) throws IOException {
+		super();
+		this.file = file ;
+		Map<String, long[]> templatesTotals = new HashMap<>(); // template --> [ total duration, total size ]
+		long totalDuration = 0 ;
+		long totalSize = 0 ;
+		if ( file.exists() ) {
+			List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			for ( String line : lines ) {
+				String[] parts = line.split(SEPARATOR);
+				if ( line.startsWith("#") || parts.length != 4 ) {
+					continue ; // comment or invalid line (ignored)
+				}
+				try {
+					Observation observation = new Observation(Long.parseLong(parts[2]), Integer.parseInt(parts[3]));
+					previous.put(key(parts[0], parts[1]), observation);
+					long[] totals = templatesTotals.computeIfAbsent(parts[0], k -> new long[2]);
+					totals[0] += observation.duration ;
+					totals[1] += observation.size ;
+					totalDuration += observation.duration ;
+					totalSize += observation.size ;
+				} catch (NumberFormatException e) {
+					// invalid line : ignored
+				}
+			}
+		}
+		for ( Map.Entry<String, long[]> entry : templatesTotals.entrySet() ) {
+			long[] totals = entry.getValue();
+			templateCostBySizeUnit.put(entry.getKey(), (double) totals[0] / Math.max(totals[1], 1));
+		}
+		this.globalCostBySizeUnit = totalSize > 0 ? (double) totalDuration / totalSize : 1.0 ;
+	}
+
+	private static String key(String template, String entityName) {
+		return template + SEPARATOR + entityName ;
+	}
+
+	/**
+	 * Returns the entity size used to estimate a generation cost (1 + attributes + links)
+	 * @param entity
+	 * @return
+	 */
+	protected static int getEntitySize(Entity entity) {
+		int size = 1 ;
+		if ( entity.getAttributes() != null ) {
+			size += entity.getAttributes().size();
+		}
+		if ( entity.getLinks() != null ) {
+			size += entity.getLinks().size();
+		}
+		return size ;
+	}
+
+	public File getFile() {
+		return file ;
+	}
+
+	/**
+	 * Returns the number of targets in the history of the previous generations 
+	 * @return
+	 */
+	public synchronized int size() {
+		return previous.size();
+	}
+
+	/**
+	 * Returns the expected duration for the given template and entity <br>
+	 * (the last observed duration or an estimation based on the entity size)
+	 * @param template
+	 * @param entity
+	 * @return the duration in nanoseconds
+	 */
+	public synchronized long getExpectedDuration(String template, Entity entity) {
+		Observation observation = previous.get(key(template, entity.getClassName()));
+		if ( observation != null ) {
+			return observation.duration ;
+		}
+		Double costBySizeUnit = templateCostBySizeUnit.get(template);
+		double cost = costBySizeUnit != null ? costBySizeUnit : globalCostBySizeUnit ;
+		return Math.round(cost * getEntitySize(entity));
+	}
+
+	/**
+	 * Records the duration of a target generated for an entity
+	 * @param template
+	 * @param entity
+	 * @param duration the duration in nanoseconds
+	 */
+	public synchronized void record(String template, Entity entity, long duration) {
+		current.put(key(template, entity.getClassName()), new Observation(duration, getEntitySize(entity)));
+	}
+
+	/**
+	 * Saves the history (the durations of the current generation replace the previous ones)
+	 * @throws IOException
+	 */
+	public synchronized void save() throws IOException {
+		Map<String, Observation> all = new HashMap<>(previous);
+		all.putAll(current);
+		File folder = file.getAbsoluteFile().getParentFile();
+		if ( folder != null && ! folder.exists() ) {
+			Files.createDirectories(folder.toPath());
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(HEADER).append('\n');
+		for ( Map.Entry<String, Observation> entry : all.entrySet() ) {
+			sb.append(entry.getKey()).append(SEPARATOR).append(entry.getValue().duration)
+				.append(SEPARATOR).append(entry.getValue().size).append('\n');
+		}
+		//--- Written in a temporary file (unique name) and renamed : no collision between processes
+		GeneratorFileWriter.replaceFile(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
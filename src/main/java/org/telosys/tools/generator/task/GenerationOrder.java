@@ -0,0 +1,43 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+/**
+ * Order of the (entity, target) generations in a task <br>
+ * The "once" targets (without entity) are always generated at the end 
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public enum GenerationOrder {
+
+	/**
+	 * For each entity : all the entity targets (historical order)
+	 */
+	ENTITY_MAJOR,
+
+	/**
+	 * For each target : all the entities <br>
+	 * (the same template is used for consecutive generations)
+	 */
+	TEMPLATE_MAJOR,
+
+	/**
+	 * Longest expected generations first <br>
+	 * (durations of the previous generations if a history is available, else estimation with the entity size)
+	 */
+	COST_ORDERED ;
+}
@@ -0,0 +1,180 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generation plan : all the targets of a generation task, in the generation order, 
+ * with their resolved paths (built without any rendering) <br>
+ * The targets writing the same output file are detected : only the last one determines the file content
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class GenerationPlan {
+
+	private final List<PlannedTarget> targets ;
+	private final List<String>        unknownEntities ;
+	private final Map<String, List<PlannedTarget>> duplicates = new LinkedHashMap<>();
+	private final Set<PlannedTarget>  overwritten = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Constructor
+	 * @param targets the targets in the generation order
+	 * @param unknownEntities the selected entities not found in the model 
+	 */
+	public GenerationPlan(List<PlannedTarget> targets, List<String> unknownEntities) {
+		super();
+		this.targets = Collections.unmodifiableList(targets);
+		this.unknownEntities = Collections.unmodifiableList(unknownEntities);
+		//--- Targets grouped by output file (in the generation order)
+		Map<String, List<PlannedTarget>> byOutputFile = new LinkedHashMap<>();
+		for ( PlannedTarget target : targets ) {
+			byOutputFile.computeIfAbsent(normalize(target.getOutputFileInProject()), k -> new LinkedList<>()).add(target);
+		}
+		for ( Map.Entry<String, List<PlannedTarget>> entry : byOutputFile.entrySet() ) {
+			List<PlannedTarget> list = entry.getValue();
+			if ( list.size() > 1 ) {
+				duplicates.put(entry.getKey(), Collections.unmodifiableList(list));
+				overwritten.addAll(list.subList(0, list.size() - 1)); // all except the last writer
+			}
+		}
+	}
+
+	private static String normalize(String path) {
+		return path.replace('\\', '/');
+	}
+
+	/**
+	 * Returns all the targets in the generation order 
+	 * @return
+	 */
+	public List<PlannedTarget> getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Returns the number of targets 
+	 * @return
+	 */
+	public int size() {
+		return targets.size();
+	}
+
+	/**
+	 * Returns the selected entities not found in the model 
+	 * @return
+	 */
+	public List<String> getUnknownEntities() {
+		return unknownEntities;
+	}
+
+	/**
+	 * Returns the templates used by the plan that doesn't exist
+	 * @return the templates names (sorted)
+	 */
+	public Set<String> getMissingTemplates() {
+		Set<String> missing = new TreeSet<>();
+		Set<String> checked = new TreeSet<>();
+		for ( PlannedTarget target : targets ) {
+			String template = target.getTarget().getTemplate();
+			if ( checked.add(template) && ! target.templateFileExists() ) {
+				missing.add(template);
+			}
+		}
+		return missing ;
+	}
+
+	/**
+	 * Returns true if at least 2 targets write the same output file
+	 * @return
+	 */
+	public boolean hasDuplicates() {
+		return ! duplicates.isEmpty();
+	}
+
+	/**
+	 * Returns the targets writing the same output file 
+	 * @return map : output file in project --> targets in the generation order (the last one is the final writer)
+	 */
+	public Map<String, List<PlannedTarget>> getDuplicates() {
+		return Collections.unmodifiableMap(duplicates);
+	}
+
+	/**
+	 * Returns true if the output file of the given target is written again by a later target of the plan
+	 * @param target
+	 * @return
+	 */
+	public boolean isOverwritten(PlannedTarget target) {
+		return overwritten.contains(target);
+	}
+
+	/**
+	 * Returns a new plan with only the targets having an output file matching the given glob pattern <br>
+	 * The pattern is applied to the output file path in the project (eg "src/main/java/**&#47;*.java")
+	 * @param outputGlob the glob pattern 
+	 * @return
+	 */
+	public GenerationPlan filter(String outputGlob) {
+		PathMatcher matcher = buildMatcher(outputGlob);
+		List<PlannedTarget> selected = new LinkedList<>();
+		for ( PlannedTarget target : targets ) {
+			if ( matches(matcher, target.getOutputFileInProject()) ) {
+				selected.add(target);
+			}
+		}
+		return new GenerationPlan(selected, unknownEntities);
+	}
+
+	/**
+	 * Builds a matcher for the given glob pattern 
+	 * @param glob
+	 * @return
+	 * @throws IllegalArgumentException if the pattern is invalid
+	 */
+	public static PathMatcher buildMatcher(String glob) {
+		if ( glob == null || glob.trim().isEmpty() ) {
+			throw new IllegalArgumentException("Invalid output filter : void pattern");
+		}
+		return FileSystems.getDefault().getPathMatcher("glob:" + normalize(glob.trim()));
+	}
+
+	protected static boolean matches(PathMatcher matcher, String fileInProject) {
+		try {
+			return matcher.matches(Paths.get(normalize(fileInProject)));
+		} catch (InvalidPathException e) {
+			return false ;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return targets.size() + " target(s), " + overwritten.size() + " overwritten" ;
+	}
+}
@@ -0,0 +1,276 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Generation progress : throughput, latency, utilisation and estimated remaining time <br>
+ * Updated by the generation task after each target and provided to the task monitor 
+ * if it implements 'ITaskMonitorWithProgress' <br>
+ * The remaining time is estimated with the durations observed for each template during the current run
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public class GenerationProgress {
+
+	public static final int LATENCY_WINDOW = 20 ; // number of targets for the rolling latency
+
+	private static final long NANOS_PER_MILLI = 1_000_000L ;
+	private static final double NANOS_PER_SECOND = 1_000_000_000.0 ;
+
+	/**
+	 * Timings observed for a template
+	 */
+	private static class TemplateTimings {
+		int  remaining = 0 ;     // targets not yet processed
+		int  count = 0 ;         // targets generated 
+		long totalNanos = 0 ;    // total duration for the generated targets
+	}
+
+	private final LongSupplier nanoClock ;
+	private final int          workers ;
+	private final long         startNanos ;
+
+	private final Map<String, TemplateTimings> templates = new HashMap<>();
+	private final LinkedList<Long> latencies = new LinkedList<>(); // last durations (most recent at the end)
+
+	private int  totalWork = 0 ;
+	private int  workDone = 0 ;
+	private int  filesCount = 0 ;
+	private long bytesCount = 0 ;
+	private long busyNanos = 0 ;  // total duration of the targets generation (all workers)
+	private long totalNanos = 0 ; // total duration of the generated targets (for the global average)
+	private int  timedTargets = 0 ;
+
+	/**
+	 * Constructor for a single worker
+	 */
+	public GenerationProgress() {
+		this(1);
+	}
+
+	/**
+	 * Constructor
+	 * @param workers number of targets generated at the same time
+	 */
+	public GenerationProgress(int workers) {
+		this(workers, System::nanoTime);
+	}
+
+	/**
+	 * Constructor with a specific clock (for tests)
+	 * @param workers
+	 * @param nanoClock
+	 */
+	protected GenerationProgress(int workers, LongSupplier nanoClock) {
+		super();
+		if ( workers < 1 ) {
+			throw new IllegalArgumentException("Invalid number of workers " + workers);
+		}
+		this.workers = workers ;
+		this.nanoClock = nanoClock ;
+		this.startNanos = nanoClock.getAsLong();
+	}
+
+	private TemplateTimings getTimings(String template) {
+		return templates.computeIfAbsent(template, k -> new TemplateTimings());
+	}
+
+	//--------------------------------------------------------------------------------------
+	// Updates (by the generation task)
+	//--------------------------------------------------------------------------------------
+	/**
+	 * Declares the number of targets expected for the given template
+	 * @param template
+	 * @param count
+	 */
+	protected synchronized void expect(String template, int count) {
+		getTimings(template).remaining += count ;
+		totalWork += count ;
+	}
+
+	/**
+	 * Records a generated target 
+	 * @param template
+	 * @param durationNanos generation duration (render and write)
+	 * @param files number of files generated (more than 1 with the embedded generator)
+	 * @param bytes size of the generated files
+	 */
+	protected synchronized void targetGenerated(String template, long durationNanos, int files, long bytes) {
+		TemplateTimings timings = workDone(template);
+		timings.count++ ;
+		timings.totalNanos += durationNanos ;
+		totalNanos += durationNanos ;
+		timedTargets++ ;
+		busyNanos += durationNanos ;
+		filesCount += files ;
+		bytesCount += bytes ;
+		latencies.addLast(durationNanos);
+		if ( latencies.size() > LATENCY_WINDOW ) {
+			latencies.removeFirst();
+		}
+	}
+
+	/**
+	 * Records a target not generated (error or skipped)
+	 * @param template
+	 * @param durationNanos time spent on the target 
+	 */
+	protected synchronized void targetNotGenerated(String template, long durationNanos) {
+		workDone(template);
+		busyNanos += durationNanos ;
+	}
+
+	private TemplateTimings workDone(String template) {
+		TemplateTimings timings = getTimings(template);
+		if ( timings.remaining > 0 ) {
+			timings.remaining-- ;
+		}
+		workDone++ ;
+		return timings ;
+	}
+
+	//--------------------------------------------------------------------------------------
+	// Results (for the task monitor)
+	//--------------------------------------------------------------------------------------
+	public synchronized int getTotalWork() {
+		return totalWork ;
+	}
+
+	public synchronized int getWorkDone() {
+		return workDone ;
+	}
+
+	public synchronized int getFilesCount() {
+		return filesCount ;
+	}
+
+	public synchronized long getBytesCount() {
+		return bytesCount ;
+	}
+
+	public int getWorkers() {
+		return workers ;
+	}
+
+	/**
+	 * Returns the elapsed time since the beginning of the generation
+	 * @return
+	 */
+	public long getElapsedMillis() {
+		return elapsedNanos() / NANOS_PER_MILLI ;
+	}
+
+	private long elapsedNanos() {
+		return Math.max(nanoClock.getAsLong() - startNanos, 1L);
+	}
+
+	/**
+	 * Returns the number of files generated per second
+	 * @return
+	 */
+	public synchronized double getFilesPerSecond() {
+		return filesCount * NANOS_PER_SECOND / elapsedNanos() ;
+	}
+
+	/**
+	 * Returns the number of bytes generated per second
+	 * @return
+	 */
+	public synchronized double getBytesPerSecond() {
+		return bytesCount * NANOS_PER_SECOND / elapsedNanos() ;
+	}
+
+	/**
+	 * Returns the average duration of the last generated targets (rolling window)
+	 * @return the duration in milliseconds (0 if no target generated)
+	 */
+	public synchronized long getLatencyMillis() {
+		if ( latencies.isEmpty() ) {
+			return 0 ;
+		}
+		long total = 0 ;
+		for ( Long latency : latencies ) {
+			total += latency ;
+		}
+		return total / latencies.size() / NANOS_PER_MILLI ;
+	}
+
+	/**
+	 * Returns the workers utilisation : time spent on targets / (elapsed time * workers) 
+	 * @return a value between 0 and 1
+	 */
+	public synchronized double getUtilisation() {
+		return Math.min(1.0, (double) busyNanos / ( elapsedNanos() * workers ) ) ;
+	}
+
+	/**
+	 * Returns the estimated remaining time <br>
+	 * Each remaining target is estimated with the average duration of its template, 
+	 * or with the global average if the template has not been used yet
+	 * @return the duration in milliseconds, or -1 if it cannot be estimated (no target generated yet)
+	 */
+	public synchronized long getEstimatedRemainingMillis() {
+		if ( timedTargets == 0 ) {
+			return -1 ;
+		}
+		double globalAverage = (double) totalNanos / timedTargets ;
+		double remainingNanos = 0 ;
+		for ( TemplateTimings timings : templates.values() ) {
+			double average = timings.count > 0 ? (double) timings.totalNanos / timings.count : globalAverage ;
+			remainingNanos += timings.remaining * average ;
+		}
+		return (long) ( remainingNanos / workers / NANOS_PER_MILLI ) ;
+	}
+
+	/**
+	 * Returns a compact one line status <br>
+	 * e.g. "42/120 (35%) 12.3 files/s 85.2 KB/s latency 81 ms ETA 1m04s"
+	 * @return
+	 */
+	public synchronized String toStatusLine() {
+		StringBuilder sb = new StringBuilder();
+		int percent = totalWork > 0 ? workDone * 100 / totalWork : 100 ;
+		sb.append(workDone).append('/').append(totalWork).append(" (").append(percent).append("%)");
+		sb.append(String.format(Locale.ROOT, " %.1f files/s %.1f KB/s", getFilesPerSecond(), getBytesPerSecond() / 1024 ));
+		sb.append(" latency ").append(getLatencyMillis()).append(" ms");
+		if ( workers > 1 ) {
+			sb.append(String.format(Locale.ROOT, " utilisation %d%%", Math.round(getUtilisation() * 100)));
+		}
+		long eta = getEstimatedRemainingMillis();
+		sb.append(" ETA ").append( eta >= 0 ? formatDuration(eta) : "?" );
+		return sb.toString();
+	}
+
+	private static String formatDuration(long millis) {
+		long seconds = millis / 1000 ;
+		if ( seconds < 60 ) {
+			return seconds + "s" ;
+		}
+		return String.format(Locale.ROOT, "%dm%02ds", seconds / 60, seconds % 60);
+	}
+
+	@Override
+	public String toString() {
+		return toStatusLine();
+	}
+}
@@ -0,0 +1,495 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.telosys.tools.generator.context.Target;
+
+/**
+ * Machine-readable generation report (JSON Lines format : one JSON object per line) <br>
+ * Each target is written as soon as it is processed (no target kept in memory) : <br>
+ *   {"type":"target","template":"bean.vm","entity":"Book","output":"src/Book.java","status":"written",...} <br>
+ * The aggregates are written when the report is closed : <br>
+ *   {"type":"summary",...} <br>
+ *   {"type":"template","name":"bean.vm",...} (one line for each template) <br>
+ *   {"type":"slowestTemplates","items":[...]} <br>
+ *   {"type":"slowestEntities","items":[...]} <br>
+ * <br>
+ * The reports written by several processes (e.g. one for each shard) can be merged in a single report 
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public class GenerationReport implements Closeable {
+
+	public static final int DEFAULT_TOP = 10 ;
+
+	private static final double NANOS_PER_MILLI = 1_000_000.0 ;
+
+	/**
+	 * Target status in the report
+	 */
+	public enum Status {
+		WRITTEN,    // file generated
+		UNCHANGED,  // same content as the existing file : file not written
+		VOID,       // void result : nothing written (the file may not exist)
+		CANCELLED,  // cancelled by the template ('#cancel') or by the user
+		SKIPPED,    // template disabled after repeated failures or output file overwritten by a later target
+		ERROR ;     // generation error
+
+		private String jsonValue() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	/**
+	 * Aggregated values for a template or an entity
+	 */
+	private static class Totals {
+		final String name ;
+		int  count = 0 ;
+		long nanos = 0 ;
+		long size = 0 ;
+		Totals(String name) {
+			this.name = name ;
+		}
+	}
+
+	private final File   file ;
+	private final int    top ;
+	private final Writer writer ;
+	private IOException  writeError = null ;
+	private boolean      closed = false ;
+
+	//--- Aggregates 
+	private final Map<Status, Integer> statusCount = new EnumMap<>(Status.class);
+	private final Map<String, Totals>  templates = new HashMap<>();
+	private final Map<String, Totals>  entities = new HashMap<>();
+	private int  targetsCount = 0 ;
+	private int  cacheHits = 0 ;
+	private long renderNanos = 0 ;
+	private long writeNanos = 0 ;
+	private long totalSize = 0 ;
+
+	/**
+	 * Constructor 
+	 * @param file the report file (created or replaced)
+	 * @param top number of elements in the 'slowest templates' and 'slowest entities' lists
+	 * @throws IOException
+	 */
+	public GenerationReport(File file, int top) throws IOException {
+		super();
+		if ( top < 0 ) {
+			throw new IllegalArgumentException("Invalid top value " + top);
+		}
+		this.file = file ;
+		this.top = top ;
+		File parent = file.getAbsoluteFile().getParentFile();
+		if ( parent != null && ! parent.exists() ) {
+			Files.createDirectories(parent.toPath());
+		}
+		this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Constructor with the default 'top' value
+	 * @param file
+	 * @throws IOException
+	 */
+	public GenerationReport(File file) throws IOException {
+		this(file, DEFAULT_TOP);
+	}
+
+	public File getFile() {
+		return file ;
+	}
+
+	public synchronized int getTargetsCount() {
+		return targetsCount ;
+	}
+
+	public synchronized int getCount(Status status) {
+		Integer count = statusCount.get(status);
+		return count != null ? count : 0 ;
+	}
+
+	/**
+	 * Returns the first error that occurred while writing the report (if any)
+	 * @return the error or null
+	 */
+	public synchronized IOException getWriteError() {
+		return writeError ;
+	}
+
+	//--------------------------------------------------------------------------------------
+	/**
+	 * Adds a target in the report 
+	 * @param target
+	 * @param status
+	 * @param renderDuration rendering duration in nanoseconds
+	 * @param writeDuration file writing duration in nanoseconds
+	 * @param size size of the generated file(s)
+	 * @param cacheHit true if the result has been restored from the render cache
+	 */
+	protected synchronized void addTarget(Target target, Status status, long renderDuration, long writeDuration, 
+			long size, boolean cacheHit) {
+		if ( closed ) {
+			return ;
+		}
+		String entityName = target.getEntityName() != null && ! target.getEntityName().trim().isEmpty() ? target.getEntityName() : null ;
+		addRecord(target.getTemplate(), entityName, target.getOutputFileNameInProject(), status, 
+				renderDuration, writeDuration, size, cacheHit);
+	}
+
+	private void addRecord(String template, String entityName, String output, Status status, 
+			long renderDuration, long writeDuration, long size, boolean cacheHit) {
+		//--- Aggregates
+		targetsCount++ ;
+		statusCount.merge(status, 1, Integer::sum);
+		if ( cacheHit ) {
+			cacheHits++ ;
+		}
+		renderNanos += renderDuration ;
+		writeNanos += writeDuration ;
+		totalSize += size ;
+		long duration = renderDuration + writeDuration ;
+		addTotals(templates, template, duration, size);
+		if ( entityName != null ) {
+			addTotals(entities, entityName, duration, size);
+		}
+		//--- Target record
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"type\":\"target\"");
+		appendField(sb, "template", template);
+		appendField(sb, "entity", entityName);
+		appendField(sb, "output", output);
+		appendField(sb, "status", status.jsonValue());
+		appendMillis(sb, "renderMs", renderDuration);
+		appendMillis(sb, "writeMs", writeDuration);
+		sb.append(",\"size\":").append(size);
+		sb.append(",\"cacheHit\":").append(cacheHit);
+		sb.append('}');
+		writeLine(sb.toString());
+	}
+
+	//--------------------------------------------------------------------------------------
+	/**
+	 * Merges the given reports (e.g. the reports of all the shards of a generation) in a new report <br>
+	 * All the targets are kept (in the given order) and the aggregates are computed again 
+	 * @param reports the report files to be merged
+	 * @param mergedFile the new report file (created or replaced)
+	 * @param top number of elements in the 'slowest templates' and 'slowest entities' lists
+	 * @return the merged report (closed)
+	 * @throws IOException
+	 */
+	public static GenerationReport merge(List<File> reports, File mergedFile, int top) throws IOException { // v 4.1.0
+		GenerationReport merged = new GenerationReport(mergedFile, top);
+		try {
+			for ( File report : reports ) {
+				try ( BufferedReader reader = Files.newBufferedReader(report.toPath(), StandardCharsets.UTF_8) ) {
+					String line ;
+					while ( ( line = reader.readLine() ) != null ) {
+						Map<String, String> record = parseRecord(line, report);
+						if ( "target".equals(record.get("type")) ) {
+							merged.addRecord(record, report);
+						}
+					}
+				}
+			}
+		} finally {
+			merged.close();
+		}
+		return merged ;
+	}
+
+	private synchronized void addRecord(Map<String, String> record, File report) throws IOException {
+		try {
+			addRecord(record.get("template"), record.get("entity"), record.get("output"), 
+					Status.valueOf(record.get("status").toUpperCase(Locale.ROOT)), 
+					parseMillis(record.get("renderMs")), parseMillis(record.get("writeMs")), 
+					Long.parseLong(record.get("size")), Boolean.parseBoolean(record.get("cacheHit")));
+		} catch (RuntimeException e) {
+			throw new IOException("Invalid target record in report '" + report + "'", e);
+		}
+	}
+
+	private static long parseMillis(String millis) {
+		return Math.round(Double.parseDouble(millis) * NANOS_PER_MILLI);
+	}
+
+	/**
+	 * Parses a JSON object written by this class (only the simple values of the first level are kept)
+	 * @param line
+	 * @param report
+	 * @return the values as strings (null for a JSON null)
+	 * @throws IOException
+	 */
+	protected static Map<String, String> parseRecord(String line, File report) throws IOException {
+		Map<String, String> record = new LinkedHashMap<>();
+		JsonReader reader = new JsonReader(line);
+		if ( ! reader.next('{') ) {
+			throw new IOException("Invalid line in report '" + report + "' : " + line);
+		}
+		while ( ! reader.next('}') ) {
+			String name = reader.readString();
+			reader.expect(':');
+			if ( reader.peek() == '[' ) {
+				reader.skipArray(); // top lists (not needed)
+			}
+			else {
+				record.put(name, reader.readValue());
+			}
+			reader.next(',');
+		}
+		return record ;
+	}
+
+	/**
+	 * Minimal reader for the JSON lines written by this class
+	 */
+	private static class JsonReader {
+		private final String s ;
+		private int pos = 0 ;
+		JsonReader(String s) {
+			this.s = s ;
+		}
+		char peek() throws IOException {
+			while ( pos < s.length() && Character.isWhitespace(s.charAt(pos)) ) {
+				pos++ ;
+			}
+			if ( pos >= s.length() ) {
+				throw new IOException("Unexpected end of line : " + s);
+			}
+			return s.charAt(pos);
+		}
+		boolean next(char c) throws IOException {
+			if ( peek() == c ) {
+				pos++ ;
+				return true ;
+			}
+			return false ;
+		}
+		void expect(char c) throws IOException {
+			if ( ! next(c) ) {
+				throw new IOException("'" + c + "' expected at position " + pos + " : " + s);
+			}
+		}
+		String readValue() throws IOException {
+			if ( peek() == '"' ) {
+				return readString();
+			}
+			int start = pos ;
+			while ( pos < s.length() && ",}]".indexOf(s.charAt(pos)) < 0 ) {
+				pos++ ;
+			}
+			String value = s.substring(start, pos).trim();
+			return "null".equals(value) ? null : value ;
+		}
+		String readString() throws IOException {
+			expect('"');
+			StringBuilder sb = new StringBuilder();
+			while ( pos < s.length() ) {
+				char c = s.charAt(pos++);
+				if ( c == '"' ) {
+					return sb.toString();
+				}
+				if ( c == '\\' && pos < s.length() ) {
+					char e = s.charAt(pos++);
+					switch ( e ) {
+					case 'n' : sb.append('\n'); break;
+					case 'r' : sb.append('\r'); break;
+					case 't' : sb.append('\t'); break;
+					case 'u' : 
+						if ( pos + 4 > s.length() ) {
+							throw new IOException("Invalid escape sequence : " + s);
+						}
+						sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16)); 
+						pos += 4 ;
+						break;
+					default  : sb.append(e); // '"', '\\', '/'
+					}
+				}
+				else {
+					sb.append(c);
+				}
+			}
+			throw new IOException("Unterminated string : " + s);
+		}
+		void skipArray() throws IOException {
+			int depth = 0 ;
+			do {
+				char c = peek();
+				if ( c == '"' ) {
+					readString();
+					continue ;
+				}
+				if ( c == '[' || c == '{' ) {
+					depth++ ;
+				}
+				else if ( c == ']' || c == '}' ) {
+					depth-- ;
+				}
+				pos++ ;
+			} while ( depth > 0 );
+		}
+	}
+
+	private void addTotals(Map<String, Totals> map, String name, long nanos, long size) {
+		Totals totals = map.computeIfAbsent(name, Totals::new);
+		totals.count++ ;
+		totals.nanos += nanos ;
+		totals.size += size ;
+	}
+
+	/**
+	 * Writes the aggregates and closes the report (no more targets can be added)
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if ( closed ) {
+			return ;
+		}
+		closed = true ;
+		try {
+			writeLine(buildSummary());
+			List<Totals> templatesList = sortByDuration(templates);
+			for ( Totals totals : templatesList ) {
+				StringBuilder sb = new StringBuilder("{\"type\":\"template\",");
+				appendTotals(sb, totals);
+				writeLine(sb.append('}').toString());
+			}
+			writeLine(buildTop("slowestTemplates", templatesList));
+			writeLine(buildTop("slowestEntities", sortByDuration(entities)));
+		} finally {
+			writer.close();
+		}
+		if ( writeError != null ) {
+			throw writeError ;
+		}
+	}
+
+	private String buildSummary() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"type\":\"summary\",\"targets\":").append(targetsCount);
+		for ( Status status : Status.values() ) {
+			sb.append(",\"").append(status.jsonValue()).append("\":").append(getCount(status));
+		}
+		sb.append(",\"cacheHits\":").append(cacheHits);
+		appendMillis(sb, "renderMs", renderNanos);
+		appendMillis(sb, "writeMs", writeNanos);
+		sb.append(",\"size\":").append(totalSize);
+		sb.append('}');
+		return sb.toString();
+	}
+
+	private String buildTop(String type, List<Totals> sortedList) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"type\":\"").append(type).append("\",\"items\":[");
+		int n = Math.min(top, sortedList.size());
+		for ( int i = 0 ; i < n ; i++ ) {
+			if ( i > 0 ) {
+				sb.append(',');
+			}
+			sb.append('{');
+			appendTotals(sb, sortedList.get(i));
+			sb.append('}');
+		}
+		sb.append("]}");
+		return sb.toString();
+	}
+
+	private List<Totals> sortByDuration(Map<String, Totals> map) {
+		List<Totals> list = new ArrayList<>(map.values());
+		list.sort((t1, t2) -> t1.nanos != t2.nanos ? Long.compare(t2.nanos, t1.nanos) : t1.name.compareTo(t2.name));
+		return list ;
+	}
+
+	private void appendTotals(StringBuilder sb, Totals totals) {
+		sb.append("\"name\":").append(jsonString(totals.name));
+		sb.append(",\"count\":").append(totals.count);
+		appendMillis(sb, "totalMs", totals.nanos);
+		appendMillis(sb, "averageMs", totals.nanos / totals.count);
+		sb.append(",\"size\":").append(totals.size);
+	}
+
+	//--------------------------------------------------------------------------------------
+	private void writeLine(String line) {
+		if ( writeError == null ) {
+			try {
+				writer.write(line);
+				writer.write('\n');
+			} catch (IOException e) {
+				writeError = e ; // not blocking for the generation
+			}
+		}
+	}
+
+	private static void appendField(StringBuilder sb, String name, String value) {
+		sb.append(",\"").append(name).append("\":").append(jsonString(value));
+	}
+
+	private static void appendMillis(StringBuilder sb, String name, long nanos) {
+		sb.append(",\"").append(name).append("\":").append(String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI));
+	}
+
+	/**
+	 * Returns the JSON representation of the given string (with quotes and escaped characters)
+	 * @param s
+	 * @return
+	 */
+	protected static String jsonString(String s) {
+		if ( s == null ) {
+			return "null" ;
+		}
+		StringBuilder sb = new StringBuilder(s.length() + 2);
+		sb.append('"');
+		for ( int i = 0 ; i < s.length() ; i++ ) {
+			char c = s.charAt(i);
+			switch ( c ) {
+			case '"'  : sb.append("\\\""); break;
+			case '\\' : sb.append("\\\\"); break;
+			case '\n' : sb.append("\\n"); break;
+			case '\r' : sb.append("\\r"); break;
+			case '\t' : sb.append("\\t"); break;
+			default :
+				if ( c < 0x20 ) {
+					sb.append(String.format("\\u%04x", (int) c));
+				}
+				else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+		return sb.toString();
+	}
+}
@@ -16,8 +16,10 @@
 package org.telosys.tools.generator.task;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import org.telosys.tools.generator.GenerationMetrics;
 import org.telosys.tools.generator.context.Target;
 
 /**
@@ -31,9 +33,15 @@ public class GenerationTaskResult {
 	private int numberOfResourcesCopied ;
 	private int numberOfFilesGenerated ;
 	private int numberOfGenerationErrors ;
+	private boolean cancelled = false ; // v 4.1.0
 
 	private List<ErrorReport> errors = new ArrayList<ErrorReport>();
 
+	private final List<Target> completedTargets = new ArrayList<>(); // v 4.1.0
+	private final List<Target> skippedTargets = new ArrayList<>(); // v 4.1.0
+
+	private final GenerationMetrics metrics = new GenerationMetrics(); // v 4.1.0
+
 	//--------------------------------------------------------------------------------------
 	/**
 	 * Default constructor with 0 for all values
@@ -69,6 +77,50 @@ public class GenerationTaskResult {
 		return numberOfGenerationErrors;
 	}
 	
+	//--------------------------------------------------------------------------------------
+	protected void addCompletedTarget(Target target) { // v 4.1.0
+		completedTargets.add(target);
+	}
+	/**
+	 * Returns the targets successfully generated (in the generation order) 
+	 * @return
+	 */
+	public List<Target> getCompletedTargets() { // v 4.1.0
+		return completedTargets;
+	}
+	
+	//--------------------------------------------------------------------------------------
+	protected void addSkippedTarget(Target target) { // v 4.1.0
+		skippedTargets.add(target);
+	}
+	/**
+	 * Returns the targets not generated because the task has been cancelled 
+	 * or because their template failed repeatedly
+	 * @return
+	 */
+	public List<Target> getSkippedTargets() { // v 4.1.0
+		return skippedTargets;
+	}
+	/**
+	 * Returns the number of targets not generated (task cancelled or template failed repeatedly)
+	 * @return
+	 */
+	public int getNumberOfTargetsSkipped() { // v 4.1.0
+		return skippedTargets.size();
+	}
+	
+	//--------------------------------------------------------------------------------------
+	protected void setCancelled(boolean cancelled) { // v 4.1.0
+		this.cancelled = cancelled;
+	}
+	/**
+	 * Returns true if the task has been cancelled before the end of the generation
+	 * @return
+	 */
+	public boolean isCancelled() { // v 4.1.0
+		return cancelled;
+	}
+	
 	//--------------------------------------------------------------------------------------
 	protected void addError(ErrorReport errorReport) {
 		errors.add(errorReport);
@@ -78,5 +130,39 @@ public class GenerationTaskResult {
 		return this.errors;
 	}
 	
+	//--------------------------------------------------------------------------------------
+	/**
+	 * Merges the results of several tasks (e.g. the results of all the shards of a generation) <br>
+	 * The counters and metrics are added, the lists are concatenated (in the given order) 
+	 * and the merged result is 'cancelled' if at least one result is 'cancelled' <br>
+	 * NB : only for the tasks executed in the same JVM, for the shards executed in different processes 
+	 * use a report for each shard and merge the report files ( see GenerationReport.merge )
+	 * @param results
+	 * @return a new result 
+	 */
+	public static GenerationTaskResult merge(Collection<GenerationTaskResult> results) { // v 4.1.0
+		GenerationTaskResult merged = new GenerationTaskResult();
+		for ( GenerationTaskResult result : results ) {
+			merged.numberOfResourcesCopied  += result.numberOfResourcesCopied ;
+			merged.numberOfFilesGenerated   += result.numberOfFilesGenerated ;
+			merged.numberOfGenerationErrors += result.numberOfGenerationErrors ;
+			merged.cancelled = merged.cancelled || result.cancelled ;
+			merged.errors.addAll(result.errors);
+			merged.completedTargets.addAll(result.completedTargets);
+			merged.skippedTargets.addAll(result.skippedTargets);
+			merged.metrics.addAll(result.metrics);
+		}
+		return merged ;
+	}
+	
+	//--------------------------------------------------------------------------------------
+	/**
+	 * Returns the metrics collected during the generation (caches hits/misses, etc) 
+	 * @return
+	 */
+	public GenerationMetrics getMetrics() { // v 4.1.0
+		return this.metrics;
+	}
+	
 
 }
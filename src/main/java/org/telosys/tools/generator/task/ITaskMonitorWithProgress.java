@@ -0,0 +1,32 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+/**
+ * Task monitor extension receiving the generation progress details <br>
+ * (throughput, latency, estimated remaining time, etc) 
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public interface ITaskMonitorWithProgress extends ITaskMonitor {
+
+	/**
+	 * Called after each target (generated or not) 
+	 * @param progress the current progress (updated by the task, do not keep a reference to compare values)
+	 */
+	public abstract void progress(GenerationProgress progress);
+}
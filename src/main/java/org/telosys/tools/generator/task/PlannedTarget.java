@@ -0,0 +1,113 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+import java.io.File;
+
+import org.telosys.tools.commons.FileUtil;
+import org.telosys.tools.generator.context.Target;
+
+/**
+ * A target of a generation plan with its resolved paths <br>
+ * The existence flags are evaluated on each call (no rendering, no context)
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class PlannedTarget {
+
+	private final Target  target ;
+	private final boolean once ;
+	private final String  outputFile ;
+	private final String  templateFile ;
+
+	/**
+	 * Constructor
+	 * @param target the target 
+	 * @param once true for a "once" target (without entity)
+	 * @param destinationFolder the destination folder absolute path
+	 * @param templatesFolder the templates folder absolute path (bundle folder)
+	 */
+	public PlannedTarget(Target target, boolean once, String destinationFolder, String templatesFolder) {
+		super();
+		this.target = target ;
+		this.once = once ;
+		this.outputFile = target.getOutputFileNameInFileSystem(destinationFolder);
+		this.templateFile = FileUtil.buildFilePath(templatesFolder, target.getTemplate());
+	}
+
+	/**
+	 * Returns the target to be generated
+	 * @return
+	 */
+	public Target getTarget() {
+		return target;
+	}
+
+	/**
+	 * Returns true if the target is a "once" target (generated without entity)
+	 * @return
+	 */
+	public boolean isOnce() {
+		return once;
+	}
+
+	/**
+	 * Returns the output file path in the project (eg "src/org/demo/Book.java")
+	 * @return
+	 */
+	public String getOutputFileInProject() {
+		return target.getOutputFileNameInProject();
+	}
+
+	/**
+	 * Returns the output file absolute path in the file system
+	 * @return
+	 */
+	public String getOutputFile() {
+		return outputFile;
+	}
+
+	/**
+	 * Returns the template file absolute path in the file system
+	 * @return
+	 */
+	public String getTemplateFile() {
+		return templateFile;
+	}
+
+	/**
+	 * Returns true if the output file already exists
+	 * @return
+	 */
+	public boolean outputFileExists() {
+		return new File(outputFile).exists();
+	}
+
+	/**
+	 * Returns true if the template file exists
+	 * @return
+	 */
+	public boolean templateFileExists() {
+		return new File(templateFile).isFile();
+	}
+
+	@Override
+	public String toString() {
+		return getOutputFileInProject() + " <- " + target.getTemplate() 
+			+ ( once ? "" : " (" + target.getEntityName() + ")" ) ;
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+import org.telosys.tools.commons.bundles.TargetDefinition;
+
+/**
+ * Shard specification : index 'i' of 'n' (e.g. "2/4") <br>
+ * The generation units (entity, target) are partitioned between the 'n' shards so that 'n' 
+ * processes (or machines) can each generate a disjoint part of the same generation <br>
+ * The partition only depends on the entity name and on the target definition 
+ * (same result in any JVM, whatever the selection order) <br>
+ * The "once" targets (without entity) and the static resources are all generated by the first shard <br>
+ * The JSON Lines reports of all the shards can be merged ( see GenerationReport.merge )
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public class ShardSpec {
+
+	private final int index ; // from 1 to count
+	private final int count ;
+
+	/**
+	 * Constructor
+	 * @param index the shard index (from 1 to count)
+	 * @param count the total number of shards
+	 */
+	public ShardSpec(int index, int count) {
+		super();
+		if ( count < 1 ) {
+			throw new IllegalArgumentException("Invalid shards count " + count);
+		}
+		if ( index < 1 || index > count ) {
+			throw new IllegalArgumentException("Invalid shard index " + index + " (expected 1 to " + count + ")");
+		}
+		this.index = index ;
+		this.count = count ;
+	}
+
+	/**
+	 * Builds a shard specification from the given string 
+	 * @param spec the specification 'i/n' (e.g. "1/4")
+	 * @return
+	 */
+	public static ShardSpec parse(String spec) {
+		if ( spec == null ) {
+			throw new IllegalArgumentException("Shard specification is null");
+		}
+		String[] parts = spec.trim().split("/");
+		if ( parts.length != 2 ) {
+			throw new IllegalArgumentException("Invalid shard specification '" + spec + "' (expected 'i/n')");
+		}
+		try {
+			return new ShardSpec(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid shard specification '" + spec + "' (expected 'i/n')");
+		}
+	}
+
+	public int getIndex() {
+		return index ;
+	}
+
+	public int getCount() {
+		return count ;
+	}
+
+	/**
+	 * Returns true if the given target for the given entity belongs to this shard 
+	 * @param entityName
+	 * @param targetDefinition
+	 * @return
+	 */
+	public boolean contains(String entityName, TargetDefinition targetDefinition) {
+		return contains(entityName + '|' + targetDefinition.getTemplate() 
+				+ '|' + targetDefinition.getFolder() + '|' + targetDefinition.getFile());
+	}
+
+	/**
+	 * Returns true if the "once" targets (without entity) are generated by this shard 
+	 * @return
+	 */
+	public boolean containsOnceTargets() {
+		return index == 1 ;
+	}
+
+	/**
+	 * Returns true if the given unit key belongs to this shard 
+	 * @param unitKey 
+	 * @return
+	 */
+	protected boolean contains(String unitKey) {
+		return shardIndex(unitKey, count) == index ;
+	}
+
+	/**
+	 * Returns the index (from 1 to count) of the shard for the given unit key <br>
+	 * (String.hashCode is specified, so the result is the same in all the JVMs)
+	 * @param unitKey
+	 * @param count
+	 * @return
+	 */
+	protected static int shardIndex(String unitKey, int count) {
+		int h = unitKey.hashCode();
+		//--- Bits mixed to spread similar keys (same finalizer as MurmurHash3)
+		h ^= h >>> 16 ;
+		h *= 0x85ebca6b ;
+		h ^= h >>> 13 ;
+		h *= 0xc2b2ae35 ;
+		h ^= h >>> 16 ;
+		return Math.floorMod(h, count) + 1 ;
+	}
+
+	@Override
+	public String toString() {
+		return index + "/" + count ;
+	}
+}
@@ -22,6 +22,7 @@ import org.telosys.tools.commons.TelosysToolsException;
 import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.bundles.TargetDefinition;
 import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generator.GenerationMetrics;
 import org.telosys.tools.generator.context.Target;
 import org.telosys.tools.generic.model.Model;
 
@@ -118,6 +119,25 @@ public class StandardGenerationTask extends AbstractGenerationTask implements Ge
 			lines.add(generationTaskResult.getNumberOfResourcesCopied() + " resources(s) copied.");
 			lines.add(generationTaskResult.getNumberOfFilesGenerated() + " file(s) generated.");
 			lines.add(generationTaskResult.getNumberOfGenerationErrors() + " generation error(s).");
+			for ( ErrorReport errorReport : generationTaskResult.getErrors() ) { // v 4.1.0
+				if ( errorReport.getOccurrences() > 1 ) {
+					lines.add(" template '" + errorReport.getTemplateName() + "' : same error for " 
+							+ errorReport.getOccurrences() + " entities, " 
+							+ errorReport.getSkippedEntities().size() + " entities skipped.");
+				}
+			}
+			GenerationMetrics metrics = generationTaskResult.getMetrics();
+			long renderCacheHits = metrics.get(GenerationMetrics.RENDER_CACHE_HITS);
+			long renderCacheMisses = metrics.get(GenerationMetrics.RENDER_CACHE_MISSES);
+			if ( renderCacheHits + renderCacheMisses > 0 ) { // v 4.1.0
+				lines.add(renderCacheHits + " file(s) restored from render cache (" + renderCacheMisses + " miss(es)).");
+			}
+			if ( getReport() != null ) { // v 4.1.0
+				lines.add("Report : " + getReport().getFile().getAbsolutePath() );
+			}
+			logHitRate(metrics, "Render cache", GenerationMetrics.RENDER_CACHE_HITS, GenerationMetrics.RENDER_CACHE_MISSES); // v 4.1.0
+			logHitRate(metrics, "Imports cache", GenerationMetrics.IMPORTS_CACHE_HITS, GenerationMetrics.IMPORTS_CACHE_MISSES); // v 4.1.0
+			logHitRate(metrics, "Generated text cache", GenerationMetrics.TEXT_CACHE_HITS, GenerationMetrics.TEXT_CACHE_MISSES); // v 4.1.0
 			
 			MsgBox.info(title, lines );
 		}
@@ -125,6 +145,15 @@ public class StandardGenerationTask extends AbstractGenerationTask implements Ge
     	return super.getResult();		
 	}
 	
+	private void logHitRate(GenerationMetrics metrics, String cacheName, String hitsName, String missesName) { // v 4.1.0
+		long hits = metrics.get(hitsName);
+		long misses = metrics.get(missesName);
+		if ( hits + misses > 0 ) {
+			log(cacheName + " : " + Math.round(metrics.getHitRate(hitsName, missesName) * 100) + "% hit rate (" 
+					+ hits + " hit(s), " + misses + " miss(es))" );
+		}
+	}
+	
 	//--------------------------------------------------------------------------------------
 	// Methods for Eclipse like behavior (like Eclipse interface 'IRunnableWithProgress')
 	//--------------------------------------------------------------------------------------
@@ -0,0 +1,159 @@
+/**
+ *  Copyright (C) 2008-2017  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Circuit breaker for the templates failing repeatedly with the same error <br>
+ * . identical errors (same template, same error signature) are aggregated in a single error report <br>
+ * . a template is no longer used after N consecutive failures with the same error <br>
+ * Disabled by default (threshold 0) : each error is reported as in the previous versions <br>
+ * 
+ * @author Laurent Guerin
+ *
+ */
+public class TemplateCircuitBreaker {
+
+	public static final int DEFAULT_THRESHOLD = 0 ; // disabled (opt-in)
+
+	/**
+	 * Failures state for a template
+	 */
+	private static class TemplateState {
+		String      lastSignature = null ;
+		ErrorReport lastErrorReport = null ;
+		int         consecutiveFailures = 0 ;
+	}
+
+	private final int threshold ;
+	private final Map<String, TemplateState> templates = new HashMap<>();
+
+	/**
+	 * Constructor
+	 * @param threshold number of consecutive identical failures before stopping to use the template (0 for never) 
+	 */
+	public TemplateCircuitBreaker(int threshold) {
+		super();
+		if ( threshold < 0 ) {
+			throw new IllegalArgumentException("Invalid threshold " + threshold);
+		}
+		this.threshold = threshold ;
+	}
+
+	public int getThreshold() {
+		return threshold ;
+	}
+
+	/**
+	 * Returns true if the circuit breaker is enabled (threshold > 0) <br>
+	 * If disabled the errors are neither aggregated nor counted
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return threshold > 0 ;
+	}
+
+	/**
+	 * Builds the signature of the given error (independent of the entity) <br>
+	 * Only the exceptions classes and messages are used (no stack trace)
+	 * @param exception
+	 * @param entityName the current entity (replaced in the messages)
+	 * @return
+	 */
+	public static String buildSignature(Throwable exception, String entityName) {
+		StringBuilder sb = new StringBuilder();
+		Throwable e = exception ;
+		while ( e != null ) {
+			String message = e.getMessage();
+			if ( message != null && entityName != null && ! entityName.isEmpty() ) {
+				message = message.replace(entityName, "*");
+			}
+			sb.append(e.getClass().getName()).append(':').append(message).append('\n');
+			e = e.getCause() ;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns true if the given template must no longer be used
+	 * @param templateName
+	 * @return
+	 */
+	public boolean isOpen(String templateName) {
+		TemplateState state = templates.get(templateName);
+		return isEnabled() && state != null && state.consecutiveFailures >= threshold ;
+	}
+
+	/**
+	 * Registers a template success (resets the consecutive failures count)
+	 * @param templateName
+	 */
+	public void success(String templateName) {
+		TemplateState state = templates.get(templateName);
+		if ( state != null ) {
+			state.consecutiveFailures = 0 ;
+		}
+	}
+
+	/**
+	 * Registers a template failure if it's the same error as the previous failure of this template
+	 * @param templateName
+	 * @param signature
+	 * @param entityName
+	 * @return the error report already existing for this error (updated with this occurrence), 
+	 *   or null if it's a new error (to be registered with 'newFailure')
+	 */
+	public ErrorReport sameFailure(String templateName, String signature, String entityName) {
+		TemplateState state = templates.get(templateName);
+		if ( state != null && state.lastErrorReport != null && signature.equals(state.lastSignature) ) {
+			state.consecutiveFailures++ ;
+			state.lastErrorReport.addOccurrence(entityName);
+			return state.lastErrorReport ;
+		}
+		return null ;
+	}
+
+	/**
+	 * Registers a new template failure
+	 * @param templateName
+	 * @param signature
+	 * @param errorReport
+	 */
+	public void newFailure(String templateName, String signature, ErrorReport errorReport) {
+		TemplateState state = templates.get(templateName);
+		if ( state == null ) {
+			state = new TemplateState();
+			templates.put(templateName, state);
+		}
+		state.lastSignature = signature ;
+		state.lastErrorReport = errorReport ;
+		state.consecutiveFailures = 1 ;
+	}
+
+	/**
+	 * Registers an entity skipped because the template is no longer used
+	 * @param templateName
+	 * @param entityName
+	 */
+	public void skipped(String templateName, String entityName) {
+		TemplateState state = templates.get(templateName);
+		if ( state != null && state.lastErrorReport != null ) {
+			state.lastErrorReport.addSkippedEntity(entityName);
+		}
+	}
+}
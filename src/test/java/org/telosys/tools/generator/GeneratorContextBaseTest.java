@@ -0,0 +1,65 @@
+package org.telosys.tools.generator;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generator.context.names.ContextName;
+import org.telosys.tools.generator.engine.GeneratorContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.context.Builder;
+
+public class GeneratorContextBaseTest {
+
+	@Test
+	public void testSharedObjects() {
+		TelosysToolsCfg cfg = Builder.buildTelosysToolsCfg();
+		GeneratorContextBase base = new GeneratorContextBase(cfg, "mybundle");
+		Map<String, Object> objects = base.getSharedObjects();
+		assertNotNull(objects.get(ContextName.JAVA));
+		assertNotNull(objects.get(ContextName.DOLLAR));
+		assertNotNull(objects.get(ContextName.BUNDLE));
+		assertNotNull(objects.get(ContextName.PROJECT));
+		// objects with a state are created for each target
+		assertFalse(objects.containsKey(ContextName.ENV));
+		assertFalse(objects.containsKey(ContextName.MODEL));
+		assertEquals("mybundle", base.getBundleName());
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testImmutable() {
+		GeneratorContextBase base = new GeneratorContextBase(Builder.buildTelosysToolsCfg(), "mybundle");
+		base.getSharedObjects().put("foo", "bar");
+	}
+
+	@Test
+	public void testIsUsableFor() {
+		TelosysToolsCfg cfg = Builder.buildTelosysToolsCfg();
+		GeneratorContextBase base = new GeneratorContextBase(cfg, "mybundle");
+		assertTrue(base.isUsableFor(cfg, "mybundle"));
+		assertFalse(base.isUsableFor(cfg, "otherbundle"));
+		assertFalse(base.isUsableFor(Builder.buildTelosysToolsCfg(), "mybundle"));
+	}
+
+	@Test
+	public void testPopulateNotOverridable() {
+		GeneratorContextBase base = new GeneratorContextBase(Builder.buildTelosysToolsCfg(), "mybundle");
+		GeneratorContext generatorContext = new GeneratorContext();
+		base.populate(generatorContext);
+		// objects overridden by a plugin 
+		generatorContext.put(ContextName.PROJECT, "plugin-project");
+		generatorContext.put(ContextName.LOADER,  "plugin-loader");
+		generatorContext.put(ContextName.JAVA,    "plugin-java");
+		base.populateNotOverridable(generatorContext);
+		assertSame(base.getSharedObjects().get(ContextName.PROJECT), generatorContext.get(ContextName.PROJECT));
+		assertSame(base.getSharedObjects().get(ContextName.LOADER),  generatorContext.get(ContextName.LOADER));
+		// put before the plugins in the original context : still overridable
+		assertEquals("plugin-java", generatorContext.get(ContextName.JAVA));
+	}
+}
@@ -0,0 +1,173 @@
+package org.telosys.tools.generator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.dsl.model.DslModel;
+import org.telosys.tools.generator.context.EntityInContext;
+import org.telosys.tools.generator.context.EnvInContext;
+import org.telosys.tools.generator.context.Java;
+import org.telosys.tools.generator.context.ModelInContext;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.context.names.ContextName;
+import org.telosys.tools.generator.engine.GeneratorContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import junit.env.telosys.tools.generator.context.Builder;
+import junit.env.telosys.tools.generator.fakemodel.entities.Book;
+import junit.env.telosys.tools.generator.fakemodel.entities.Employee;
+
+public class GeneratorContextBuilderTest {
+
+	private Target buildTarget(TelosysToolsCfg cfg, DslModel model, String entityName) {
+		TargetDefinition targetDefinition = new TargetDefinition("Target", "${BEANNAME}.java", "src", "bean.vm", "*");
+		return new Target(cfg, targetDefinition, model.getEntityByClassName(entityName));
+	}
+
+	@Test
+	public void testSubTargetContext() throws GeneratorException {
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(new Book());
+		model.addEntity(new Employee());
+		TelosysToolsCfg cfg = Builder.buildTelosysToolsCfg();
+		List<String> selectedEntities = Arrays.asList("Book", "Employee");
+		GeneratorContextBase contextBase = new GeneratorContextBase(cfg, "mybundle");
+
+		GeneratorContextBuilder builder = new GeneratorContextBuilder(cfg, null);
+		builder.setContextBase(contextBase);
+		GeneratorContext parentContext = builder.initFullContext(model, "mybundle", selectedEntities, 
+				buildTarget(cfg, model, "Book"), null);
+
+		GeneratorContextBuilder subBuilder = new GeneratorContextBuilder(cfg, null);
+		subBuilder.setContextBase(contextBase);
+		subBuilder.setParentContext(parentContext);
+		GeneratorContext subContext = subBuilder.initFullContext(model, "mybundle", selectedEntities, 
+				buildTarget(cfg, model, "Employee"), null);
+
+		// same model and env, same shared objects
+		assertTrue(parentContext.get(ContextName.MODEL) == subContext.get(ContextName.MODEL));
+		assertTrue(parentContext.get(ContextName.ENV) == subContext.get(ContextName.ENV));
+		assertTrue(parentContext.get(ContextName.JAVA) == subContext.get(ContextName.JAVA));
+		// specific target and entity
+		assertFalse(parentContext.get(ContextName.TARGET) == subContext.get(ContextName.TARGET));
+		assertEquals("Book", ((EntityInContext) parentContext.get(ContextName.ENTITY)).getName());
+		assertEquals("Employee", ((EntityInContext) subContext.get(ContextName.ENTITY)).getName());
+	}
+
+	@Test
+	public void testModelSnapshot() throws GeneratorException {
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(new Book());
+		TelosysToolsCfg cfg = Builder.buildTelosysToolsCfg();
+		List<String> selectedEntities = Arrays.asList("Book");
+		GenerationMetrics metrics = new GenerationMetrics();
+		ModelSnapshot snapshot = new ModelSnapshot(model, cfg, metrics);
+
+		GeneratorContextBuilder builder1 = new GeneratorContextBuilder(cfg, null);
+		builder1.setModelSnapshot(snapshot);
+		GeneratorContext context1 = builder1.initFullContext(model, "mybundle", selectedEntities, 
+				buildTarget(cfg, model, "Book"), null);
+		EnvInContext env1 = (EnvInContext) context1.get(ContextName.ENV);
+		env1.setEntityClassNamePrefix("Foo");
+		EntityInContext book1 = (EntityInContext) context1.get(ContextName.ENTITY);
+		assertEquals("FooBook", book1.getName());
+		new Java().imports(book1);
+
+		GeneratorContextBuilder builder2 = new GeneratorContextBuilder(cfg, null);
+		builder2.setModelSnapshot(snapshot);
+		GeneratorContext context2 = builder2.initFullContext(model, "mybundle", selectedEntities, 
+				buildTarget(cfg, model, "Book"), null);
+		// same model for all the targets 
+		assertTrue(context1.get(ContextName.MODEL) == context2.get(ContextName.MODEL));
+		// '$env' reset for each target
+		assertTrue(env1 == context2.get(ContextName.ENV));
+		assertEquals("", env1.getEntityClassNamePrefix());
+		EntityInContext book2 = (EntityInContext) context2.get(ContextName.ENTITY);
+		assertTrue(book1 == book2);
+		assertEquals("Book", book2.getName());
+		// values computed for the first target are reused 
+		assertEquals(0, metrics.get(GenerationMetrics.IMPORTS_CACHE_HITS));
+		new Java().imports(book2);
+		assertEquals(1, metrics.get(GenerationMetrics.IMPORTS_CACHE_HITS));
+		assertEquals(1, metrics.get(GenerationMetrics.IMPORTS_CACHE_MISSES));
+
+		// snapshot not usable for another model
+		DslModel otherModel = new DslModel("FakeModel");
+		otherModel.addEntity(new Book());
+		assertFalse(snapshot.isUsableFor(otherModel, cfg));
+	}
+
+	@Test
+	public void testContextWithoutParent() throws GeneratorException {
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(new Book());
+		TelosysToolsCfg cfg = Builder.buildTelosysToolsCfg();
+		List<String> selectedEntities = Arrays.asList("Book");
+		GeneratorContext context1 = new GeneratorContextBuilder(cfg, null).initFullContext(model, "mybundle", 
+				selectedEntities, buildTarget(cfg, model, "Book"), null);
+		GeneratorContext context2 = new GeneratorContextBuilder(cfg, null).initFullContext(model, "mybundle", 
+				selectedEntities, buildTarget(cfg, model, "Book"), null);
+		assertFalse(context1.get(ContextName.MODEL) == context2.get(ContextName.MODEL));
+	}
+
+	private void assertNotModifiable(List<?> list) {
+		try {
+			list.remove(0);
+			fail("List can be modified");
+		} catch (UnsupportedOperationException e) {
+			// expected 
+		}
+		try {
+			list.clear();
+			fail("List can be modified");
+		} catch (UnsupportedOperationException e) {
+			// expected 
+		}
+	}
+
+	@Test
+	public void testSharedListsNotModifiable() throws GeneratorException {
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(new Book());
+		model.addEntity(new Employee());
+		TelosysToolsCfg cfg = Builder.buildTelosysToolsCfg();
+		List<String> selectedEntities = Arrays.asList("Book", "Employee");
+		ModelSnapshot snapshot = new ModelSnapshot(model, cfg, new GenerationMetrics());
+
+		//--- First target : mutation attempts (e.g. '$entity.attributes.remove(0)' in a template)
+		GeneratorContextBuilder builder1 = new GeneratorContextBuilder(cfg, null);
+		builder1.setModelSnapshot(snapshot);
+		GeneratorContext context1 = builder1.initFullContext(model, "mybundle", selectedEntities, 
+				buildTarget(cfg, model, "Employee"), null);
+		EntityInContext employee1 = (EntityInContext) context1.get(ContextName.ENTITY);
+		int attributesCount = employee1.getAttributesCount();
+		String equalsMethod = new Java().equalsMethod("Employee", employee1.getAttributes());
+		assertNotModifiable(employee1.getAttributes());
+		assertNotModifiable(employee1.getKeyAttributes());
+		assertNotModifiable(employee1.getNonKeyAttributes());
+		assertNotModifiable(employee1.getLinks());
+		assertNotModifiable(((ModelInContext) context1.get(ContextName.MODEL)).getAllEntities());
+
+		//--- Next target : same model, nothing changed 
+		GeneratorContextBuilder builder2 = new GeneratorContextBuilder(cfg, null);
+		builder2.setModelSnapshot(snapshot);
+		GeneratorContext context2 = builder2.initFullContext(model, "mybundle", selectedEntities, 
+				buildTarget(cfg, model, "Employee"), null);
+		EntityInContext employee2 = (EntityInContext) context2.get(ContextName.ENTITY);
+		assertTrue(employee1 == employee2);
+		assertEquals(attributesCount, employee2.getAttributes().size());
+		assertEquals(model.getEntityByClassName("Employee").getAttributes().size(), employee2.getAttributes().size());
+		assertEquals(1, employee2.getKeyAttributes().size());
+		assertEquals(1, employee2.getLinks().size());
+		assertEquals(2, ((ModelInContext) context2.get(ContextName.MODEL)).getAllEntities().size());
+		// 'equals' method code (kept in cache for the entity list) still valid
+		assertEquals(equalsMethod, new Java().equalsMethod("Employee", employee2.getAttributes()));
+	}
+}
@@ -1,9 +1,22 @@
 package org.telosys.tools.generator;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
 
+import org.junit.Assume;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import junit.env.telosys.tools.generator.TestsEnv;
 
 public class GeneratorFileWriterTest {
@@ -20,4 +33,51 @@ public class GeneratorFileWriterTest {
 		GeneratorFileWriter.writeGenerationResult(content, file);
 	}
 
+	@Test
+	public void testReplaceExistingFile() throws GeneratorException, IOException {
+		File file = getFile("file-replaced.txt");
+		GeneratorFileWriter.writeGenerationResult("first content", file);
+		GeneratorFileWriter.writeGenerationResult("second", file);
+		assertEquals("second", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+		// no temporary file left
+		File[] tmpFiles = file.getParentFile().listFiles((dir, name) -> name.startsWith(".file-replaced.txt."));
+		assertEquals(0, tmpFiles.length);
+	}
+
+	@Test
+	public void testPermissionsKept() throws GeneratorException, IOException {
+		File file = getFile("file-permissions.txt");
+		GeneratorFileWriter.writeGenerationResult("first content", file);
+		Assume.assumeTrue(Files.getFileAttributeView(file.toPath(), PosixFileAttributeView.class) != null);
+		Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rwxr-x---");
+		Files.setPosixFilePermissions(file.toPath(), permissions);
+		GeneratorFileWriter.writeGenerationResult("second", file);
+		assertEquals(permissions, Files.getPosixFilePermissions(file.toPath()));
+	}
+
+	@Test
+	public void testSymbolicLinkKept() throws GeneratorException, IOException {
+		File file = getFile("file-link-target.txt");
+		GeneratorFileWriter.writeGenerationResult("first content", file);
+		Path link = file.toPath().resolveSibling("file-link.txt");
+		Files.deleteIfExists(link);
+		try {
+			Files.createSymbolicLink(link, file.toPath().getFileName());
+		} catch (IOException | UnsupportedOperationException e) {
+			Assume.assumeNoException(e); // symbolic links not supported
+		}
+		GeneratorFileWriter.writeGenerationResult("second", link.toFile());
+		assertTrue(Files.isSymbolicLink(link));
+		assertEquals("second", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testWriteIfChanged() throws GeneratorException {
+		File file = getFile("file-if-changed.txt");
+		GeneratorFileWriter.writeGenerationResult("content", file);
+		assertFalse(GeneratorFileWriter.writeGenerationResultIfChanged("content", file));
+		assertTrue(GeneratorFileWriter.writeGenerationResultIfChanged("content v2", file));
+		assertFalse(GeneratorFileWriter.writeGenerationResultIfChanged("content v2", file));
+	}
+
 }
@@ -1,5 +1,6 @@
 package org.telosys.tools.generator;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -12,6 +13,10 @@ import org.telosys.tools.generator.context.Target;
 import org.telosys.tools.generic.model.Entity;
 import org.telosys.tools.generic.model.Model;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import junit.env.telosys.tools.generator.FakeProject;
 import junit.env.telosys.tools.generator.fakemodel.FakeModelProvider;
 import junit.env.telosys.tools.generator.fakemodel.entities.Employee;
@@ -68,4 +73,53 @@ public class ProjectUTF8Test {
 	public void testOpenapiYamlTxt() throws GeneratorException {
 		launchGeneration("openapi_yaml.vm", "openapi_yaml.txt");
 	}
+
+	private File getOutputFile(Target target) {
+		return new File(target.getOutputFileNameInFileSystem(fakeProject.getTelosysToolsCfg().getDestinationFolderAbsolutePath()));
+	}
+
+	@Test
+	public void testAlwaysWrittenByDefault() throws GeneratorException {
+		Generator generator = fakeProject.getGenerator("bundle-utf8") ;
+		Model model = FakeModelProvider.buildModel();
+		Target target = getTarget("static_txt.vm", "static-default.txt", model.getEntityByClassName(Employee.ENTITY_NAME));
+		for ( int i = 0 ; i < 2 ; i++ ) {
+			List<Target> generatedTargets = new LinkedList<>();
+			generator.generateTarget(target, model, getSelectedEntities(), generatedTargets);
+			assertTrue(generator.isOutputWritten());
+			assertEquals(1, generatedTargets.size());
+		}
+	}
+
+	@Test
+	public void testSkipUnchangedFiles() throws GeneratorException {
+		Generator generator = fakeProject.getGenerator("bundle-utf8") ;
+		generator.setSkipUnchangedFiles(true);
+		Model model = FakeModelProvider.buildModel();
+		Target target = getTarget("static_txt.vm", "static-skip.txt", model.getEntityByClassName(Employee.ENTITY_NAME));
+		getOutputFile(target).delete();
+		// 1st generation : new file 
+		List<Target> generatedTargets = new LinkedList<>();
+		generator.generateTarget(target, model, getSelectedEntities(), generatedTargets);
+		assertTrue(generator.isOutputWritten());
+		assertEquals(1, generatedTargets.size());
+		// 2nd generation : same content => not written and not counted as generated
+		generatedTargets = new LinkedList<>();
+		generator.generateTarget(target, model, getSelectedEntities(), generatedTargets);
+		assertFalse(generator.isOutputWritten());
+		assertFalse(generator.isOutputVoid());
+		assertEquals(0, generatedTargets.size());
+	}
+
+	@Test
+	public void testVoidResult() throws GeneratorException {
+		Generator generator = fakeProject.getGenerator("bundle-utf8") ;
+		generator.setSkipUnchangedFiles(true);
+		Model model = FakeModelProvider.buildModel();
+		Target target = getTarget("void_txt.vm", "void.txt", model.getEntityByClassName(Employee.ENTITY_NAME));
+		generator.generateTarget(target, model, getSelectedEntities(), null);
+		assertTrue(generator.isOutputVoid());
+		assertFalse(generator.isOutputWritten());
+		assertFalse(getOutputFile(target).exists());
+	}
 }
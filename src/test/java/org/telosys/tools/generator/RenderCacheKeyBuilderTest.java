@@ -0,0 +1,169 @@
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.cfg.TelosysToolsCfgManager;
+import org.telosys.tools.dsl.model.DslModel;
+import org.telosys.tools.dsl.model.DslModelAttribute;
+import org.telosys.tools.dsl.model.DslModelEntity;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generic.model.Model;
+import org.telosys.tools.generic.model.types.NeutralType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import junit.env.telosys.tools.generator.TestsEnv;
+import junit.env.telosys.tools.generator.fakemodel.entities.Author;
+import junit.env.telosys.tools.generator.fakemodel.entities.Book;
+import junit.env.telosys.tools.generator.fakemodel.entities.Employee;
+
+public class RenderCacheKeyBuilderTest {
+
+	private static final String BUNDLE = "bundle-keys" ;
+
+	private TelosysToolsCfg telosysToolsCfg ;
+	private File bundleFolder ;
+
+	@Before
+	public void init() {
+		File projectFolder = TestsEnv.createTmpProjectFolders("render-keys");
+		telosysToolsCfg = new TelosysToolsCfgManager(projectFolder.getAbsolutePath()).createDefaultTelosysToolsCfg();
+		bundleFolder = new File(telosysToolsCfg.getTemplatesFolderAbsolutePath(BUNDLE));
+		bundleFolder.mkdirs();
+	}
+
+	private void writeTemplate(String fileName, String content) throws IOException {
+		Files.write(new File(bundleFolder, fileName).toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private DslModel buildModel() {
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(new Book()); // FK to 'Author'
+		model.addEntity(new Author());
+		model.addEntity(new Employee());
+		return model ;
+	}
+
+	private String buildKey(Model model, String templateFile, String entityName) {
+		RenderCacheKeyBuilder keyBuilder = new RenderCacheKeyBuilder(telosysToolsCfg, BUNDLE, model);
+		return buildKey(keyBuilder, model, templateFile, entityName);
+	}
+
+	private String buildKey(RenderCacheKeyBuilder keyBuilder, Model model, String templateFile, String entityName) {
+		TargetDefinition targetDefinition = new TargetDefinition("Fake target", "${BEANNAME}.txt", "generated-files", templateFile, "*");
+		Target target = new Target(telosysToolsCfg, targetDefinition, model.getEntityByClassName(entityName));
+		return keyBuilder.buildKey(target, null);
+	}
+
+	private String buildKey(Model model, String templateFile, String entityName, List<String> selectedEntitiesNames) {
+		RenderCacheKeyBuilder keyBuilder = new RenderCacheKeyBuilder(telosysToolsCfg, BUNDLE, model);
+		TargetDefinition targetDefinition = new TargetDefinition("Fake target", "${BEANNAME}.txt", "generated-files", templateFile, "*");
+		Target target = new Target(telosysToolsCfg, targetDefinition, model.getEntityByClassName(entityName));
+		return keyBuilder.buildKey(target, selectedEntitiesNames);
+	}
+
+	@Test
+	public void testStableKey() throws IOException {
+		writeTemplate("stable.vm", "class ${entity.name} #foreach( $a in $entity.attributes ) $a.name #end");
+		String key = buildKey(buildModel(), "stable.vm", "Book");
+		assertNotNull(key);
+		assertEquals(64, key.length());
+		assertEquals(key, buildKey(buildModel(), "stable.vm", "Book"));
+		assertNotEquals(key, buildKey(buildModel(), "stable.vm", "Employee"));
+	}
+
+	@Test
+	public void testVolatileTemplates() throws IOException {
+		writeTemplate("today.vm", "Generated on $today.date");
+		writeTemplate("now.vm", "Generated at ${now.time}");
+		writeTemplate("generator.vm", "$generator.generate('Foo', 'foo.txt', 'gen', 'foo.vm')");
+		writeTemplate("file.vm", "#if( $fn.fileExists('foo.txt') ) exists #end");
+		writeTemplate("variable-parse.vm", "#set( $name = 'inc.vm' )\n#parse($name)");
+		DslModel model = buildModel();
+		assertNull(buildKey(model, "today.vm", "Book"));
+		assertNull(buildKey(model, "now.vm", "Book"));
+		assertNull(buildKey(model, "generator.vm", "Book"));
+		assertNull(buildKey(model, "file.vm", "Book"));
+		assertNull(buildKey(model, "variable-parse.vm", "Book"));
+		assertNull(buildKey(model, "no-such-template.vm", "Book"));
+	}
+
+	@Test
+	public void testParseDigest() throws IOException {
+		writeTemplate("main.vm", "main ${entity.name}\n#parse(\"inc/included.vm\")");
+		new File(bundleFolder, "inc").mkdirs();
+		writeTemplate("inc/included.vm", "included v1");
+		DslModel model = buildModel();
+		RenderCacheKeyBuilder keyBuilder = new RenderCacheKeyBuilder(telosysToolsCfg, BUNDLE, model);
+		String key1 = buildKey(keyBuilder, model, "main.vm", "Book");
+		assertNotNull(key1);
+		// included file changed
+		writeTemplate("inc/included.vm", "included v2");
+		assertEquals(key1, buildKey(keyBuilder, model, "main.vm", "Book")); // templates analyzed once per builder
+		String key2 = buildKey(model, "main.vm", "Book");
+		assertNotEquals(key1, key2);
+		// back to the first version
+		writeTemplate("inc/included.vm", "included v1");
+		assertEquals(key1, buildKey(model, "main.vm", "Book"));
+		// volatile object in the included file
+		writeTemplate("inc/included.vm", "included on $today.date");
+		assertNull(buildKey(model, "main.vm", "Book"));
+	}
+
+	@Test
+	public void testTemplateChanged() throws IOException {
+		writeTemplate("changed.vm", "v1 ${entity.name}");
+		String key1 = buildKey(buildModel(), "changed.vm", "Book");
+		writeTemplate("changed.vm", "v2 ${entity.name}");
+		String key2 = buildKey(buildModel(), "changed.vm", "Book");
+		assertNotNull(key2);
+		assertNotEquals(key1, key2);
+	}
+
+	@Test
+	public void testEntityChanged() throws IOException {
+		writeTemplate("entity.vm", "${entity.name}");
+		DslModel model1 = buildModel();
+		DslModel model2 = buildModel();
+		DslModelEntity author = (DslModelEntity) model2.getEntityByClassName("Author");
+		author.addAttribute(new DslModelAttribute("nickname", NeutralType.STRING));
+		assertNotEquals(buildKey(model1, "entity.vm", "Author"), buildKey(model2, "entity.vm", "Author"));
+		// 'Book' unchanged but references 'Author'
+		assertNotEquals(buildKey(model1, "entity.vm", "Book"), buildKey(model2, "entity.vm", "Book"));
+		// 'Employee' not related to 'Author'
+		assertEquals(buildKey(model1, "entity.vm", "Employee"), buildKey(model2, "entity.vm", "Employee"));
+		// whole model used by the template
+		writeTemplate("model.vm", "${entity.name} : $model.entities.size()");
+		assertNotEquals(buildKey(model1, "model.vm", "Employee"), buildKey(model2, "model.vm", "Employee"));
+	}
+
+	@Test
+	public void testSelectedEntityChanged() throws IOException {
+		writeTemplate("selected.vm", "#foreach( $e in $selectedEntities ) $e.name : $e.attributes.size() #end");
+		List<String> selected = Arrays.asList("Author", "Book", "Employee");
+		DslModel model1 = buildModel();
+		DslModel model2 = buildModel();
+		DslModelEntity author = (DslModelEntity) model2.getEntityByClassName("Author");
+		author.addAttribute(new DslModelAttribute("nickname", NeutralType.STRING));
+		// 'Employee' not related to 'Author' but 'Author' is selected
+		String key1 = buildKey(model1, "selected.vm", "Employee", selected);
+		assertNotNull(key1);
+		assertEquals(key1, buildKey(buildModel(), "selected.vm", "Employee", selected));
+		assertNotEquals(key1, buildKey(model2, "selected.vm", "Employee", selected));
+		// 'Author' not selected
+		List<String> notSelected = Arrays.asList("Employee");
+		assertEquals(buildKey(model1, "selected.vm", "Employee", notSelected), buildKey(model2, "selected.vm", "Employee", notSelected));
+	}
+}
@@ -0,0 +1,104 @@
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generic.model.Model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.FakeProject;
+import junit.env.telosys.tools.generator.TestsEnv;
+import junit.env.telosys.tools.generator.fakemodel.FakeModelProvider;
+import junit.env.telosys.tools.generator.fakemodel.entities.Employee;
+
+public class RenderCacheTest {
+
+	private File getCacheFolder(String name) {
+		File folder = TestsEnv.getTmpExistingFolder("/render-cache/" + name);
+		for ( File file : folder.listFiles() ) {
+			file.delete();
+		}
+		return folder ;
+	}
+
+	@Test
+	public void testGetAndPut() throws GeneratorException {
+		RenderCache cache = new RenderCache(getCacheFolder("cache1"), 1000);
+		assertNull(cache.get("k1"));
+		assertEquals(0, cache.put("k1", "abc"));
+		assertEquals("abc", cache.get("k1"));
+		assertEquals(0, cache.put("k1", "abcd")); // replaced
+		assertEquals("abcd", cache.get("k1"));
+		assertEquals(1, cache.size());
+		assertEquals(4, cache.getCurrentSize());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() throws GeneratorException {
+		RenderCache cache = new RenderCache(getCacheFolder("cache2"), 10);
+		cache.put("k1", "1111");
+		cache.put("k2", "2222");
+		cache.get("k1"); // 'k2' is now the least recently used 
+		assertEquals(1, cache.put("k3", "3333"));
+		assertEquals("1111", cache.get("k1"));
+		assertNull(cache.get("k2"));
+		assertEquals("3333", cache.get("k3"));
+		assertEquals(8, cache.getCurrentSize());
+	}
+
+	@Test
+	public void testReuseExistingFolder() throws GeneratorException {
+		File folder = getCacheFolder("cache3");
+		RenderCache cache = new RenderCache(folder, 1000);
+		cache.put("k1", "aaa");
+		cache.put("k2", "bbb");
+		RenderCache cache2 = new RenderCache(folder, 1000);
+		assertEquals(2, cache2.size());
+		assertEquals("aaa", cache2.get("k1"));
+		// max size reduced => oldest results removed
+		RenderCache cache3 = new RenderCache(folder, 3);
+		assertEquals(1, cache3.size());
+	}
+
+	@Test
+	public void testGeneratorCacheHit() throws GeneratorException, IOException {
+		FakeProject fakeProject = new FakeProject("proj-utf8");
+		RenderCache cache = new RenderCache(getCacheFolder("cache4"), 100000);
+		GenerationMetrics metrics = new GenerationMetrics();
+		Model model = FakeModelProvider.buildModel();
+		TargetDefinition targetDefinition = new TargetDefinition("Fake target", "static-cached.txt", "generated-files", "static_txt.vm", "*");
+		Target target = new Target(fakeProject.getTelosysToolsCfg(), targetDefinition, model.getEntityByClassName(Employee.ENTITY_NAME));
+		File file = new File(target.getOutputFileNameInFileSystem(fakeProject.getTelosysToolsCfg().getDestinationFolderAbsolutePath()));
+		
+		//--- 1st generation : rendered and stored in the cache
+		Generator generator = fakeProject.getGenerator("bundle-utf8") ;
+		generator.setMetrics(metrics);
+		generator.setRenderCache(cache);
+		generator.generateTarget(target, model, null, null);
+		assertFalse(generator.isRestoredFromCache());
+		assertEquals(1, metrics.get(GenerationMetrics.RENDER_CACHE_MISSES));
+		assertEquals(1, cache.size());
+		byte[] content = Files.readAllBytes(file.toPath());
+		
+		//--- 2nd generation : restored from the cache (file written again)
+		file.delete();
+		cache.newGeneration();
+		generator = fakeProject.getGenerator("bundle-utf8") ;
+		generator.setMetrics(metrics);
+		generator.setRenderCache(cache);
+		generator.generateTarget(target, model, null, null);
+		assertTrue(generator.isRestoredFromCache());
+		assertTrue(generator.isOutputWritten());
+		assertEquals(1, metrics.get(GenerationMetrics.RENDER_CACHE_HITS));
+		assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+	}
+}
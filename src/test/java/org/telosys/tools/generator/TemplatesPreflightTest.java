@@ -0,0 +1,53 @@
+package org.telosys.tools.generator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.TestsEnv;
+
+public class TemplatesPreflightTest {
+
+	private static final String BUNDLE_NAME = "basic-templates-TT210" ;
+
+	private TelosysToolsCfg loadTelosysToolsCfg() {
+		return TestsEnv.loadTelosysToolsCfg(TestsEnv.getTestFolder("myproject"));
+	}
+
+	@Test
+	public void testValidTemplates() {
+		TemplatesPreflight preflight = new TemplatesPreflight(loadTelosysToolsCfg(), BUNDLE_NAME);
+		List<String> problems = preflight.check(Arrays.asList("java_bean.vm", "pom_xml.vm", "java_bean.vm"));
+		assertEquals(0, problems.size());
+		assertEquals(2, preflight.getTemplatesCount()); // each template checked once
+		assertNotNull(preflight.getTemplate("java_bean.vm"));
+		assertNull(preflight.getTemplate("python_bean.vm")); // not checked
+	}
+
+	@Test
+	public void testAllProblemsReported() {
+		TemplatesPreflight preflight = new TemplatesPreflight(loadTelosysToolsCfg(), BUNDLE_NAME);
+		List<String> problems = preflight.check(Arrays.asList("nofile1.vm", "java_bean.vm", "misc", "nofile2.vm"));
+		assertEquals(3, problems.size());
+		assertTrue(problems.get(0).contains("nofile1.vm"));
+		assertTrue(problems.get(1).contains("not a file"));
+		assertTrue(problems.get(2).contains("nofile2.vm"));
+		assertEquals(1, preflight.getTemplatesCount());
+		assertNull(preflight.getTemplate("nofile1.vm"));
+	}
+
+	@Test
+	public void testInvalidBundle() {
+		TemplatesPreflight preflight = new TemplatesPreflight(loadTelosysToolsCfg(), "no-such-bundle");
+		List<String> problems = preflight.check(Arrays.asList("java_bean.vm"));
+		assertEquals(1, problems.size());
+		assertEquals(0, preflight.getTemplatesCount());
+	}
+}
@@ -0,0 +1,51 @@
+package org.telosys.tools.generator.context;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.generator.Generator;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.Model;
+
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.FakeProject;
+import junit.env.telosys.tools.generator.fakemodel.FakeModelProvider;
+import junit.env.telosys.tools.generator.fakemodel.entities.Employee;
+
+public class EmbeddedGeneratorTest {
+
+	private final FakeProject fakeProject = new FakeProject("proj-utf8");
+
+	private String readGeneratedFile(String fileName) throws IOException {
+		File file = new File(fakeProject.getProjectFolder(), "generated-files/" + fileName);
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testSubTargetEnv() throws GeneratorException, IOException {
+		Generator generator = fakeProject.getGenerator("bundle-utf8");
+		Model model = FakeModelProvider.buildModel();
+		Entity entity = model.getEntityByClassName(Employee.ENTITY_NAME);
+		TargetDefinition targetDefinition = new TargetDefinition("Env target", "env_parent.txt", "generated-files", "env_parent_txt.vm", "*");
+		Target target = new Target(fakeProject.getTelosysToolsCfg(), targetDefinition, entity);
+		List<String> selectedEntities = Arrays.asList(Employee.ENTITY_NAME);
+		generator.generateTarget(target, model, selectedEntities, null);
+
+		// the sub-target starts with a new '$env'
+		String sub = readGeneratedFile("env_sub.txt");
+		assertTrue(sub.contains("sub-before:Java:Employee"));
+		assertTrue(sub.contains("sub-after:Python:EmployeeSub"));
+		// the '$env' changes in the sub-target do not affect the current target
+		String parent = readGeneratedFile("env_parent.txt");
+		assertTrue(parent.contains("before:C#:ParentEmployee"));
+		assertTrue(parent.contains("after:C#:ParentEmployee"));
+	}
+}
@@ -1,12 +1,17 @@
 package org.telosys.tools.generator.context;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.junit.Test;
 import org.telosys.tools.commons.StrUtil;
+import org.telosys.tools.dsl.model.DslModel;
+import org.telosys.tools.dsl.model.DslModelEntity;
+import org.telosys.tools.dsl.model.DslModelLink;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generic.model.Attribute;
 import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.enums.Cardinality;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -226,6 +231,65 @@ public class EntityInContextTest {
 		assertEquals("", entityInContext.nonKeyAttributesNamesAsString(", ", "{{", "}}"));
 	}
 
+	@Test
+	public void lazyInitializationTest() {
+		EntityInContext e = Builder.buildEntityInContext(new Car());
+		// built on first access and then always the same instances
+		List<AttributeInContext> attributes = e.getAttributes();
+		assertEquals(3, attributes.size());
+		assertTrue(attributes == e.getAttributes());
+		assertTrue(attributes.get(0) == e.getKeyAttributes().get(0));
+		assertTrue(attributes.get(1) == e.getNonKeyAttributes().get(0));
+		List<LinkInContext> links = e.getLinks();
+		assertEquals(1, links.size());
+		assertTrue(links == e.getLinks());
+		assertTrue(e.getDatabaseForeignKeys() == e.getDatabaseForeignKeys());
+	}
+
+	@Test
+	public void referencesInDepthWithCycleTest() {
+		// A --> B --> C --> A  and  B <--> A (bidirectional)
+		DslModel model = new DslModel("CyclicModel");
+		model.addEntity(buildEntityWithLinks("A", "B"));
+		model.addEntity(buildEntityWithLinks("B", "C", "A"));
+		model.addEntity(buildEntityWithLinks("C", "A"));
+		model.addEntity(buildEntityWithLinks("D"));
+		ModelInContext modelInContext = Builder.buildModelInContext(model);
+		
+		EntityInContext a = modelInContext.getEntityByClassName("A");
+		Collection<EntityInContext> entities = a.getReferencedEntitiesForAllLevels();
+		assertEquals(3, entities.size()); // B, C and A itself (cycle)
+		assertTrue(entities.contains(modelInContext.getEntityByClassName("C")));
+		assertFalse(entities.contains(modelInContext.getEntityByClassName("D")));
+		// computed only once 
+		assertTrue(entities == a.getReferencedEntitiesForAllLevels());
+
+		Collection<ReferenceInContext> references = a.getReferencesInDepth();
+		assertEquals(3, references.size()); 
+		for ( ReferenceInContext r : references ) {
+			if ( "A".equals(r.getEntityName()) ) {
+				assertEquals(2, r.getToOneCount()); // B --> A and C --> A 
+			}
+			else {
+				assertEquals(1, r.getToOneCount()); 
+			}
+		}
+		assertTrue(references == a.getReferencesInDepth());
+		
+		assertEquals(0, modelInContext.getEntityByClassName("D").getReferencesInDepth().size());
+	}
+
+	private DslModelEntity buildEntityWithLinks(String entityName, String... referencedEntities) {
+		DslModelEntity entity = new DslModelEntity(entityName);
+		for ( String referencedEntity : referencedEntities ) {
+			DslModelLink link = new DslModelLink("link" + referencedEntity);
+			link.setReferencedEntityName(referencedEntity);
+			link.setCardinality(Cardinality.MANY_TO_ONE);
+			entity.addLink(link);
+		}
+		return entity;
+	}
+
 	//---------------------------------------------------------------------------
 	// Tooling
 	//---------------------------------------------------------------------------
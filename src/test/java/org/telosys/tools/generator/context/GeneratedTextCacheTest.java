@@ -0,0 +1,37 @@
+package org.telosys.tools.generator.context;
+
+import org.junit.Test;
+import org.telosys.tools.generator.GenerationMetrics;
+import org.telosys.tools.generator.GeneratorException;
+
+import static org.junit.Assert.assertEquals;
+
+public class GeneratedTextCacheTest {
+
+	@Test
+	public void testEnvState() throws GeneratorException {
+		EnvInContext env = new EnvInContext();
+		GenerationMetrics metrics = new GenerationMetrics();
+		GeneratedTextCache cache = new GeneratedTextCache(env, metrics);
+		assertEquals("Book", cache.get("name", () -> env.getEntityClassNamePrefix() + "Book"));
+		assertEquals("Book", cache.get("name", () -> "not used"));
+		assertEquals(1, metrics.get(GenerationMetrics.TEXT_CACHE_HITS));
+
+		// the texts depend on the prefix, the suffix and the collection type 
+		env.setEntityClassNamePrefix("Jpa");
+		assertEquals("JpaBook", cache.get("name", () -> env.getEntityClassNamePrefix() + "Book"));
+		env.setEntityClassNameSuffix("Entity");
+		assertEquals("JpaBookEntity", cache.get("name", () -> "JpaBookEntity"));
+		env.setCollectionType("java.util.Set");
+		assertEquals("Set", cache.get("name", () -> "Set"));
+		env.setLanguage("C#");
+		assertEquals("C#", cache.get("name", () -> "C#"));
+		assertEquals(5, metrics.get(GenerationMetrics.TEXT_CACHE_MISSES));
+
+		// texts kept for each state 
+		env.reset();
+		assertEquals("Book", cache.get("name", () -> "not used"));
+		assertEquals(2, metrics.get(GenerationMetrics.TEXT_CACHE_HITS));
+		assertEquals(1, cache.size());
+	}
+}
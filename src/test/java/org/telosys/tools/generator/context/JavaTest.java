@@ -0,0 +1,99 @@
+package org.telosys.tools.generator.context;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import junit.env.telosys.tools.generator.context.Builder;
+import junit.env.telosys.tools.generator.fakemodel.entities.Book;
+
+public class JavaTest {
+
+	@Test
+	public void equalsMethodTest() {
+		EntityInContext entity = Builder.buildEntityInContext(new Book());
+		List<AttributeInContext> attributes = entity.getAttributes();
+		Java java = new Java();
+		String code = java.equalsMethod("Book", attributes);
+		assertTrue(code.startsWith("\tpublic boolean equals(Object obj) { \n"));
+		assertTrue(code.contains("\t\tBook other = (Book) obj; \n"));
+		assertTrue(code.contains("\t\tif ( title == null ) { \n\t\t\tif ( other.title != null ) \n"));
+		assertTrue(code.endsWith("\t} "));
+		// same inputs => same code (from cache)
+		assertTrue(code == java.equalsMethod("Book", attributes));
+		assertTrue(code == new Java().equalsMethod("Book", entity.getAttributes()));
+		// other inputs 
+		assertFalse(code.equals(java.equalsMethod("Book", attributes, 4)));
+		assertTrue(java.equalsMethod("Book", attributes, 4).startsWith("    public boolean equals("));
+		assertFalse(code.equals(java.equalsMethod("BookDTO", attributes)));
+		assertFalse(code.equals(java.equalsMethod("Book", entity.getKeyAttributes())));
+	}
+
+	@Test
+	public void hashCodeMethodTest() {
+		EntityInContext entity = Builder.buildEntityInContext(new Book());
+		Java java = new Java();
+		String code = java.hashCodeMethod("Book", entity.getAttributes(), 2);
+		assertTrue(code.startsWith("  public int hashCode() { \n    final int prime = 31; \n"));
+		assertTrue(code.contains("    result = prime * result + ((title == null) ? 0 : title.hashCode() ) ; \n"));
+		assertTrue(code == java.hashCodeMethod("Book", entity.getAttributes(), 2));
+	}
+
+	@Test
+	public void toStringMethodTest() {
+		EntityInContext entity = Builder.buildEntityInContext(new Book());
+		Java java = new Java();
+		String code = java.toStringMethod(entity, 1);
+		assertTrue(code.startsWith("\tpublic String toString() { \n"));
+		assertTrue(code.contains("\t\tsb.append(\"Book[\");\n"));
+		assertTrue(code.contains("\t\tsb.append(separator).append(\"title=\").append(title);\n"));
+		assertTrue(code == java.toStringMethod(entity, 1, "\t"));
+		assertEquals(code.replace("\t", "  "), java.toStringMethod(entity, 1, "  "));
+	}
+
+	@Test
+	public void methodsCacheKeyTest() {
+		EntityInContext entity = Builder.buildEntityInContext(new Book());
+		Java java = new Java();
+		// key attributes and all attributes : 2 different lists of the entity
+		String code = java.toStringMethod(entity, entity.getKeyAttributes(), 1);
+		assertTrue(code == java.toStringMethod(entity, entity.getKeyAttributes(), 1));
+		assertFalse(code.equals(java.toStringMethod(entity, entity.getAttributes(), 1)));
+		// a list built by the template is not cached (same code)
+		List<AttributeInContext> copy = new LinkedList<>(entity.getKeyAttributes());
+		String code2 = java.toStringMethod(entity, copy, 1);
+		assertEquals(code, code2);
+		assertFalse(code == code2);
+	}
+
+	@Test
+	public void methodsCacheWithMutationAttemptTest() {
+		EntityInContext entity = Builder.buildEntityInContext(new Book());
+		Java java = new Java();
+		String code = java.equalsMethod("Book", entity.getAttributes());
+		// the list identifying the cached code cannot be changed by a template
+		try {
+			entity.getAttributes().remove(0);
+			fail("List can be modified");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertTrue(code == java.equalsMethod("Book", entity.getAttributes()));
+		// a modified copy is not cached (code for the copy)
+		List<AttributeInContext> copy = new LinkedList<>(entity.getAttributes());
+		copy.remove(copy.size() - 1);
+		assertFalse(code.equals(java.equalsMethod("Book", copy)));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void toStringMethodWithoutEntityTest() {
+		EntityInContext entity = Builder.buildEntityInContext(new Book());
+		new Java().toStringMethod(null, entity.getAttributes(), 1);
+	}
+}
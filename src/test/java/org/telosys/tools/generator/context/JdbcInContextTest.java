@@ -0,0 +1,47 @@
+package org.telosys.tools.generator.context;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.context.Builder;
+import junit.env.telosys.tools.generator.fakemodel.entities.Book;
+
+public class JdbcInContextTest {
+
+	@Test
+	public void sqlRequestsTest() {
+		EntityInContext entity = Builder.buildEntityInContext(new Book());
+		JdbcInContext jdbc = new FactoryInContext().newJdbc(entity);
+		String table = entity.getSqlTableName();
+		assertEquals("select count(*) from " + table, jdbc.getSqlSelectCount());
+		assertEquals("select count(*) from " + table + " where id = ?", jdbc.getSqlSelectCountWherePK());
+		assertEquals("delete from " + table + " where id = ?", jdbc.getSqlDelete());
+		assertTrue(jdbc.getSqlSelectWherePK().startsWith(jdbc.getSqlSelect() + " where "));
+		assertTrue(jdbc.getSqlUpdate().endsWith(" where id = ?"));
+		assertEquals(1, jdbc.getAttributesForPrimaryKey().size());
+		assertEquals(3, jdbc.getAttributesForSelect().size());
+		assertEquals(2, jdbc.getAttributesForUpdate().size());
+	}
+
+	@Test
+	public void cacheTest() {
+		EntityInContext entity = Builder.buildEntityInContext(new Book());
+		JdbcInContext jdbc = new FactoryInContext().newJdbc(entity);
+		// same instance for the same entity
+		assertTrue(jdbc == new FactoryInContext().newJdbc(entity));
+		assertTrue(jdbc == new JdbcFactoryInContext().getInstance(entity));
+		JdbcFactoryInContext jdbcFactory = new JdbcFactoryInContext();
+		jdbcFactory.useSchema(true);
+		assertFalse(jdbc == jdbcFactory.getInstance(entity));
+		assertTrue(jdbcFactory.getInstance(entity) == jdbcFactory.getInstance(entity));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void immutableAttributesTest() {
+		EntityInContext entity = Builder.buildEntityInContext(new Book());
+		new FactoryInContext().newJdbc(entity).getAttributesForSelect().clear();
+	}
+}
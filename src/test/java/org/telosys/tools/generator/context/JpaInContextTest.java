@@ -375,6 +375,30 @@ public class JpaInContextTest {
 		fakeLink.setCardinality(cardinality);
 		return fakeLink;
 	}
+	@Test 
+	public void testFieldAnnotationsCache() {
+		DslModelAttribute attribute = new DslModelAttribute("firstName", "string");
+		attribute.setNotNull(true);
+		EnvInContext env = new EnvInContext();
+		AttributeInContext attribInCtx = new AttributeInContext(buildEntityInContext("City"), attribute, null, env);
+		JpaInContext jpa = new JpaInContext() ;
+		String annotations = jpa.fieldAnnotations(4, attribInCtx);
+		// same inputs => same result (from cache)
+		assertTrue(annotations == jpa.fieldAnnotations(4, attribInCtx));
+		assertTrue(annotations == new JpaInContext().fieldAnnotations(4, attribInCtx));
+		assertFalse(annotations.equals(jpa.fieldAnnotations(0, attribInCtx)));
+		// settings changed => annotations built again 
+		jpa.setGenColumnDefinition(true);
+		assertTrue(jpa.fieldAnnotations(4, attribInCtx).contains("columnDefinition"));
+		jpa.setGenColumnDefinition(false);
+		assertTrue(annotations == jpa.fieldAnnotations(4, attribInCtx));
+		// SQL conventions changed => cache reset
+		env.setDatabase("postgresql");
+		String annotations2 = jpa.fieldAnnotations(4, attribInCtx);
+		assertEquals(annotations, annotations2);
+		assertFalse(annotations == annotations2);
+	}
+
 	private LinkInContext buildLinkInContext(String entityName, DslModelLink fakeLink ) {
 		DslModelEntity fakeOriginEntity = new DslModelEntity(entityName);
 		DslModelEntity fakeTargetEntity = new DslModelEntity(fakeLink.getReferencedEntityName());
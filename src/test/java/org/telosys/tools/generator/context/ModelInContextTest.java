@@ -0,0 +1,346 @@
+package org.telosys.tools.generator.context;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+import org.telosys.tools.dsl.model.DslModel;
+import org.telosys.tools.dsl.model.DslModelAttribute;
+import org.telosys.tools.dsl.model.DslModelEntity;
+import org.telosys.tools.dsl.model.DslModelForeignKeyAttribute;
+import org.telosys.tools.dsl.model.DslModelLink;
+import org.telosys.tools.generator.GenerationMetrics;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generic.model.Attribute;
+import org.telosys.tools.generic.model.Link;
+import org.telosys.tools.generic.model.enums.Cardinality;
+import org.telosys.tools.generic.model.enums.GeneratedValueStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import junit.env.telosys.tools.generator.context.Builder;
+
+public class ModelInContextTest {
+
+	private DslModelEntity buildEntity(String entityName) {
+		return new DslModelEntity(entityName);
+	}
+
+	private void addLink(DslModelEntity entity, String linkName, String referencedEntity, Cardinality cardinality) {
+		DslModelLink link = new DslModelLink(linkName);
+		link.setReferencedEntityName(referencedEntity);
+		link.setCardinality(cardinality);
+		entity.addLink(link);
+	}
+
+	private void addForeignKey(DslModelEntity entity, String referencedEntity) {
+		junit.env.telosys.tools.generator.fakemodel.entities.Builder.foreignKey(entity,
+				"FK_" + entity.getClassName() + "_" + referencedEntity, entity.getClassName(), referencedEntity,
+				new DslModelForeignKeyAttribute(1, "fk" + referencedEntity, "id"));
+	}
+
+	private String names(Collection<EntityInContext> entities) {
+		StringBuilder sb = new StringBuilder();
+		for ( EntityInContext e : entities ) {
+			sb.append(e.getName()).append(" ");
+		}
+		return sb.toString().trim();
+	}
+
+	@Test
+	public void incomingLinksTest() {
+		DslModel model = new DslModel("FakeModel");
+		DslModelEntity country = buildEntity("Country");
+		DslModelEntity town = buildEntity("Town");
+		DslModelEntity person = buildEntity("Person");
+		addLink(country, "towns", "Town", Cardinality.ONE_TO_MANY);
+		addLink(town, "country", "Country", Cardinality.MANY_TO_ONE);
+		addLink(person, "country", "Country", Cardinality.MANY_TO_ONE);
+		addLink(person, "nationalities", "Country", Cardinality.MANY_TO_MANY);
+		addLink(person, "birthTown", "Town", Cardinality.MANY_TO_ONE);
+		model.addEntity(country);
+		model.addEntity(town);
+		model.addEntity(person);
+		ModelInContext modelInContext = Builder.buildModelInContext(model);
+
+		List<LinkInContext> links = modelInContext.getIncomingLinks("Country");
+		assertEquals(3, links.size());
+		assertTrue(links == modelInContext.getEntityByClassName("Country").getIncomingLinks());
+		assertEquals(2, modelInContext.getIncomingLinks("Town").size());
+		assertEquals(0, modelInContext.getIncomingLinks("Person").size());
+		assertFalse(modelInContext.getEntityByClassName("Person").hasIncomingLinks());
+
+		Collection<ReferenceInContext> references = modelInContext.getIncomingReferences("Country");
+		assertEquals(2, references.size());
+		for ( ReferenceInContext r : references ) {
+			if ( "Person".equals(r.getEntityName()) ) {
+				assertEquals(1, r.getToOneCount());
+				assertEquals(1, r.getToManyCount());
+			}
+			else {
+				assertEquals("Town", r.getEntityName());
+				assertEquals(1, r.getToOneCount());
+				assertEquals(0, r.getToManyCount());
+			}
+		}
+		assertTrue(references == modelInContext.getEntityByClassName("Country").getIncomingReferences());
+	}
+
+	@Test
+	public void entitiesInDependencyOrderTest() {
+		DslModel model = new DslModel("FakeModel");
+		DslModelEntity empTeam = buildEntity("EmpTeam");
+		DslModelEntity employee = buildEntity("Employee");
+		DslModelEntity team = buildEntity("Team");
+		addForeignKey(empTeam, "Employee");
+		addForeignKey(empTeam, "Team");
+		addForeignKey(employee, "Employee"); // self reference : not a cycle
+		model.addEntity(empTeam);
+		model.addEntity(employee);
+		model.addEntity(team);
+		ModelInContext modelInContext = Builder.buildModelInContext(model);
+
+		assertEquals("Employee Team EmpTeam", names(modelInContext.getEntitiesInDependencyOrder()));
+		assertFalse(modelInContext.hasDependencyCycles());
+		assertEquals(0, modelInContext.getDependencyCycles().size());
+	}
+
+	@Test
+	public void entitiesInDependencyOrderWithPrefixTest() {
+		DslModel model = new DslModel("FakeModel");
+		DslModelEntity empTeam = buildEntity("EmpTeam");
+		DslModelEntity employee = buildEntity("Employee");
+		DslModelEntity team = buildEntity("Team");
+		addForeignKey(empTeam, "Employee");
+		addForeignKey(empTeam, "Team");
+		addForeignKey(team, "EmpTeam"); // cycle 
+		model.addEntity(empTeam);
+		model.addEntity(employee);
+		model.addEntity(team);
+		EnvInContext env = new EnvInContext();
+		env.setEntityClassNamePrefix("Jpa");
+		env.setEntityClassNameSuffix("Entity");
+		ModelInContext modelInContext = new ModelInContext(model, Builder.buildTelosysToolsCfg(), env, new GenerationMetrics());
+
+		// foreign keys resolved with the original class names
+		assertEquals("JpaEmployeeEntity JpaEmpTeamEntity JpaTeamEntity", names(modelInContext.getEntitiesInDependencyOrder()));
+		assertTrue(modelInContext.hasDependencyCycles());
+		assertEquals("JpaEmpTeamEntity JpaTeamEntity", names(modelInContext.getDependencyCycles().get(0)));
+	}
+
+	@Test
+	public void longForeignKeysChainTest() {
+		// E0 <-- E1 <-- E2 <-- ... (no stack overflow)
+		int n = 20000 ;
+		DslModel model = new DslModel("FakeModel");
+		for ( int i = n - 1 ; i >= 0 ; i-- ) {
+			DslModelEntity entity = buildEntity("E" + i);
+			if ( i > 0 ) {
+				addForeignKey(entity, "E" + (i - 1));
+			}
+			model.addEntity(entity);
+		}
+		ModelInContext modelInContext = Builder.buildModelInContext(model);
+		List<EntityInContext> entities = modelInContext.getEntitiesInDependencyOrder();
+		assertEquals(n, entities.size());
+		assertEquals("E0", entities.get(0).getName());
+		assertEquals("E" + (n - 1), entities.get(n - 1).getName());
+		assertFalse(modelInContext.hasDependencyCycles());
+	}
+
+	@Test
+	public void dependencyCyclesTest() {
+		// D --> A --> B --> C --> A
+		DslModel model = new DslModel("FakeModel");
+		DslModelEntity d = buildEntity("D");
+		DslModelEntity c = buildEntity("C");
+		DslModelEntity b = buildEntity("B");
+		DslModelEntity a = buildEntity("A");
+		DslModelEntity e = buildEntity("E");
+		addForeignKey(d, "A");
+		addForeignKey(a, "B");
+		addForeignKey(b, "C");
+		addForeignKey(c, "A");
+		addForeignKey(e, "Unknown"); // invalid FK : ignored
+		model.addEntity(d);
+		model.addEntity(c);
+		model.addEntity(b);
+		model.addEntity(a);
+		model.addEntity(e);
+		ModelInContext modelInContext = Builder.buildModelInContext(model);
+
+		// cycle group kept together in the model order, before the entity referencing it
+		assertEquals("C B A D E", names(modelInContext.getEntitiesInDependencyOrder()));
+		assertTrue(modelInContext.hasDependencyCycles());
+		List<List<EntityInContext>> cycles = modelInContext.getDependencyCycles();
+		assertEquals(1, cycles.size());
+		assertEquals("C B A", names(cycles.get(0)));
+		// computed only once
+		assertTrue(cycles == modelInContext.getDependencyCycles());
+	}
+
+	@Test
+	public void resolvedReferencesTest() throws GeneratorException {
+		DslModel model = new DslModel("FakeModel");
+		DslModelEntity town = buildEntity("Town");
+		DslModelEntity country = buildEntity("Country");
+		addLink(town, "country", "Country", Cardinality.MANY_TO_ONE);
+		addLink(town, "region", "Region", Cardinality.MANY_TO_ONE); // unknown entity
+		model.addEntity(town);
+		model.addEntity(country);
+		ModelInContext modelInContext = Builder.buildModelInContext(model);
+
+		List<LinkInContext> links = modelInContext.getEntityByClassName("Town").getLinks();
+		LinkInContext countryLink = links.get(0);
+		assertTrue(modelInContext.getEntityByClassName("Country") == countryLink.getTargetEntity());
+		assertTrue(countryLink.getTargetEntity() == countryLink.getTargetEntity());
+
+		// dangling reference reported once
+		assertTrue(modelInContext.hasUnresolvedReferences());
+		List<String> unresolved = modelInContext.getUnresolvedReferences();
+		assertEquals(1, unresolved.size());
+		assertTrue(unresolved.get(0).contains("'Region'"));
+		assertTrue(unresolved == modelInContext.getUnresolvedReferences());
+
+		LinkInContext regionLink = links.get(1);
+		try {
+			regionLink.getTargetEntity();
+			fail("Exception expected");
+		} catch (GeneratorException e) {
+			assertTrue(e.getMessage().contains("'Region'"));
+		}
+	}
+
+	@Test
+	public void referencesResolvedLazilyTest() throws GeneratorException {
+		DslModel model = new DslModel("FakeModel");
+		DslModelEntity town = buildEntity("Town");
+		DslModelEntity country = buildEntity("Country");
+		final List<String> materialized = new LinkedList<>();
+		DslModelEntity zone = new DslModelEntity("Zone") { // not referenced by 'Town'
+			@Override
+			public List<Attribute> getAttributes() {
+				materialized.add("attributes");
+				return super.getAttributes();
+			}
+			@Override
+			public List<Link> getLinks() {
+				materialized.add("links");
+				return super.getLinks();
+			}
+		};
+		addLink(town, "country", "Country", Cardinality.MANY_TO_ONE);
+		addLink(zone, "region", "Region", Cardinality.MANY_TO_ONE); // unknown entity
+		model.addEntity(town);
+		model.addEntity(country);
+		model.addEntity(zone);
+		ModelInContext modelInContext = Builder.buildModelInContext(model);
+
+		// only the references of the link are resolved
+		LinkInContext countryLink = modelInContext.getEntityByClassName("Town").getLinks().get(0);
+		assertTrue(modelInContext.getEntityByClassName("Country") == countryLink.getTargetEntity());
+		assertTrue(materialized.isEmpty());
+
+		// all the entities are materialized only to report the unresolved references
+		List<String> unresolved = modelInContext.getUnresolvedReferences();
+		assertFalse(materialized.isEmpty());
+		assertEquals(1, unresolved.size());
+		assertTrue(unresolved.get(0).contains("'Region'"));
+	}
+
+	@Test
+	public void importsCacheTest() {
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(new junit.env.telosys.tools.generator.fakemodel.entities.Book());
+		GenerationMetrics metrics = new GenerationMetrics();
+		ModelInContext modelInContext = new ModelInContext(model, Builder.buildTelosysToolsCfg(), new EnvInContext(), metrics);
+		EntityInContext entity = modelInContext.getEntityByClassName("Book");
+
+		Java java = new Java();
+		List<String> imports = java.imports(entity);
+		assertEquals(1, metrics.get(GenerationMetrics.IMPORTS_CACHE_MISSES));
+		assertTrue(imports == java.imports(entity));
+		assertTrue(imports == new Java().imports(entity));
+		assertEquals(2, metrics.get(GenerationMetrics.IMPORTS_CACHE_HITS));
+		// same attributes => same imports
+		assertTrue(java.imports(entity.getAttributes()) == java.imports(entity.getAttributes()));
+		assertEquals(2, metrics.get(GenerationMetrics.IMPORTS_CACHE_MISSES));
+		assertEquals(3, metrics.get(GenerationMetrics.IMPORTS_CACHE_HITS));
+	}
+
+	@Test
+	public void fingerprintsTest() {
+		DslModel model1 = new DslModel("FakeModel");
+		model1.addEntity(new junit.env.telosys.tools.generator.fakemodel.entities.Book());
+		model1.addEntity(new junit.env.telosys.tools.generator.fakemodel.entities.Author());
+		DslModel model2 = new DslModel("FakeModel");
+		model2.addEntity(new junit.env.telosys.tools.generator.fakemodel.entities.Book());
+		model2.addEntity(new junit.env.telosys.tools.generator.fakemodel.entities.Author());
+		ModelInContext modelInContext1 = Builder.buildModelInContext(model1);
+		ModelInContext modelInContext2 = Builder.buildModelInContext(model2);
+
+		assertEquals(16, modelInContext1.getFingerprint().length());
+		assertEquals(modelInContext1.getFingerprint(), modelInContext2.getFingerprint());
+		EntityInContext book1 = modelInContext1.getEntityByClassName("Book");
+		EntityInContext book2 = modelInContext2.getEntityByClassName("Book");
+		assertEquals(book1.getFingerprint(), book2.getFingerprint());
+		assertEquals(book1.getDeepFingerprint(), book2.getDeepFingerprint());
+		// 'Book' references 'Author'
+		assertFalse(book1.getFingerprint().equals(book1.getDeepFingerprint()));
+		assertFalse(book1.getFingerprint().equals(modelInContext1.getEntityByClassName("Author").getFingerprint()));
+	}
+
+	private DslModel buildFingerprintModel(String databaseType) {
+		DslModel model = new DslModel("FakeModel") {
+			@Override
+			public String getDatabaseType() {
+				return databaseType ;
+			}
+		};
+		model.addEntity(new junit.env.telosys.tools.generator.fakemodel.entities.Book());
+		model.addEntity(new junit.env.telosys.tools.generator.fakemodel.entities.Author());
+		return model ;
+	}
+
+	private DslModelAttribute authorId(DslModel model) {
+		for ( Attribute attribute : model.getEntityByClassName("Author").getAttributes() ) {
+			if ( "id".equals(attribute.getName()) ) {
+				return (DslModelAttribute) attribute ;
+			}
+		}
+		throw new IllegalStateException("No 'id' attribute");
+	}
+
+	@Test
+	public void fingerprintsChangesTest() throws GeneratorException {
+		ModelInContext modelInContext1 = Builder.buildModelInContext(buildFingerprintModel("POSTGRESQL"));
+		EntityInContext book1 = modelInContext1.getEntityByClassName("Book");
+		EntityInContext author1 = modelInContext1.getEntityByClassName("Author");
+		
+		// model database type
+		ModelInContext modelInContext2 = Builder.buildModelInContext(buildFingerprintModel("ORACLE"));
+		assertFalse(modelInContext1.getFingerprint().equals(modelInContext2.getFingerprint()));
+		assertEquals(book1.getFingerprint(), modelInContext2.getEntityByClassName("Book").getFingerprint());
+
+		// attribute auto-incremented 
+		DslModel model3 = buildFingerprintModel("POSTGRESQL");
+		authorId(model3).setGeneratedValueStrategy(GeneratedValueStrategy.IDENTITY);
+		ModelInContext modelInContext3 = Builder.buildModelInContext(model3);
+		assertTrue(modelInContext3.getEntityByClassName("Author").getAttributeByName("id").isAutoIncremented());
+		assertFalse(author1.getFingerprint().equals(modelInContext3.getEntityByClassName("Author").getFingerprint()));
+		// 'Book' references 'Author'
+		assertEquals(book1.getFingerprint(), modelInContext3.getEntityByClassName("Book").getFingerprint());
+		assertFalse(book1.getDeepFingerprint().equals(modelInContext3.getEntityByClassName("Book").getDeepFingerprint()));
+		assertFalse(modelInContext1.getFingerprint().equals(modelInContext3.getFingerprint()));
+
+		// attribute type expectation 
+		DslModel model4 = buildFingerprintModel("POSTGRESQL");
+		authorId(model4).setObjectTypeExpected(true);
+		ModelInContext modelInContext4 = Builder.buildModelInContext(model4);
+		assertFalse(author1.getFingerprint().equals(modelInContext4.getEntityByClassName("Author").getFingerprint()));
+	}
+}
@@ -0,0 +1,83 @@
+package org.telosys.tools.generator.context;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.telosys.tools.dsl.model.DslModel;
+import org.telosys.tools.dsl.model.DslModelEntity;
+import org.telosys.tools.generic.model.types.NeutralType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.context.Builder;
+import junit.env.telosys.tools.generator.fakemodel.entities.Author;
+import junit.env.telosys.tools.generator.fakemodel.entities.Book;
+import junit.env.telosys.tools.generator.fakemodel.entities.Employee;
+
+public class ModelSelectInContextTest {
+
+	private ModelInContext buildModelInContext() {
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(new Employee()); // tag 'Foo'
+		model.addEntity(new Book());
+		DslModelEntity author = new Author();
+		junit.env.telosys.tools.generator.fakemodel.entities.Builder.tag(author, "Foo");
+		model.addEntity(author);
+		return Builder.buildModelInContext(model);
+	}
+
+	@Test
+	public void entitiesWithTagTest() {
+		ModelInContext modelInContext = buildModelInContext();
+		ModelSelectInContext select = modelInContext.getSelect();
+		List<EntityInContext> list = select.entitiesWithTag("Foo");
+		assertEquals(2, list.size());
+		assertEquals("Employee", list.get(0).getName());
+		assertEquals("Author", list.get(1).getName());
+		// computed only once
+		assertTrue(list == select.entitiesWithTag("Foo"));
+		assertEquals(0, select.entitiesWithTag("Bar").size());
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void immutableResultTest() {
+		ModelInContext modelInContext = buildModelInContext();
+		modelInContext.getSelect().entitiesWithTag("Foo").clear();
+	}
+
+	@Test
+	public void entitiesIndexesTest() {
+		ModelInContext modelInContext = buildModelInContext();
+		ModelSelectInContext select = modelInContext.getSelect();
+		String packageName = modelInContext.getEntityByClassName("Book").getPackage();
+		assertEquals(3, select.entitiesInPackage(packageName).size());
+		assertEquals(0, select.entitiesInPackage("no.such.pkg").size());
+		assertEquals(0, select.entitiesInDomain("nodomain").size());
+		assertEquals(0, select.entitiesInContext("nocontext").size());
+		assertEquals(0, select.getAggregateRoots().size());
+		assertEquals(3, select.getDatabaseTables().size());
+		assertEquals(0, select.getDatabaseViews().size());
+		assertTrue(select.getDatabaseTables() == select.getDatabaseTables());
+	}
+
+	@Test
+	public void attributesIndexesTest() {
+		ModelInContext modelInContext = buildModelInContext();
+		ModelSelectInContext select = modelInContext.getSelect();
+		int count = 0 ;
+		for ( EntityInContext entity : modelInContext.getAllEntities() ) {
+			for ( AttributeInContext attribute : entity.getAttributes() ) {
+				if ( NeutralType.STRING.equals(attribute.getNeutralType()) ) {
+					count++;
+				}
+			}
+		}
+		List<AttributeInContext> list = select.attributesWithNeutralType(NeutralType.STRING);
+		assertTrue(count > 0);
+		assertEquals(count, list.size());
+		assertTrue(list == select.attributesWithNeutralType(NeutralType.STRING));
+		assertEquals(0, select.attributesWithNeutralType("nosuchtype").size());
+		assertEquals(0, select.attributesWithTag("NoSuchTag").size());
+	}
+}
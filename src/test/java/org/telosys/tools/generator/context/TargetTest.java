@@ -113,6 +113,46 @@ public class TargetTest {
 		assertEquals("C:\\FOO\\BAR/src/main/resources/foo/config.xml", target.getOutputFileFullPath());
 	}
 
+	@Test
+	public void testTargetCreationWithCompiledDefinition() {
+		
+		TargetDefinition targetDef = new TargetDefinition(
+				"Target 4", 
+				"${BEANNAME}Dao.java", 
+				"${SRC}/${ROOT_PKG}/dao", 
+				"dao.vm", 
+				"*");
+		CompiledTargetDefinition compiledTargetDef = new CompiledTargetDefinition(getTelosysToolsCfg(), targetDef); // v 4.1.0
+		assertEquals("/src/org/demo/foo/bar/dao", compiledTargetDef.getFolder()); // resolved once for all entities
+		
+		Target target1 = new Target( compiledTargetDef, buildEntity("Book") ); 
+		Target target2 = new Target( compiledTargetDef, buildEntity("Author") ); 
+		assertEquals("BookDao.java", target1.getFile());
+		assertEquals("AuthorDao.java", target2.getFile());
+		assertEquals("/src/org/demo/foo/bar/dao", target1.getFolder());
+		assertEquals("/src/org/demo/foo/bar/dao", target2.getFolder());
+		target1.forceEntityName("Foo");
+		assertEquals("FooDao.java", target1.getFile());
+		assertEquals("AuthorDao.java", target2.getFile());
+	}
+
+	@Test
+	public void testTargetCreationWithCompiledDefinitionAndEntityInFolder() {
+		
+		TargetDefinition targetDef = new TargetDefinition(
+				"Target 5", 
+				"${BEANNAME}.java", 
+				"${SRC}/${ROOT_PKG}/${BEANNAME_LC}", 
+				"bean.vm", 
+				"*");
+		CompiledTargetDefinition compiledTargetDef = new CompiledTargetDefinition(getTelosysToolsCfg(), targetDef); // v 4.1.0
+		assertEquals(null, compiledTargetDef.getFolder()); // depends on the entity 
+		
+		Target target = new Target( compiledTargetDef, buildEntity("Book") ); 
+		assertEquals("Book.java", target.getFile());
+		assertEquals("/src/org/demo/foo/bar/book", target.getFolder());
+	}
+
 	private void print(Target target) {
 		println("Target : " );
 		println(" . targetName               = " + target.getTargetName() );
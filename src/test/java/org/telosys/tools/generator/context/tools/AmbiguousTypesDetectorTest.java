@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class AmbiguousTypesDetectorTest  {
@@ -39,6 +40,33 @@ public class AmbiguousTypesDetectorTest  {
 		report(detector, 6, 4);
 	}
 	
+	@Test
+	public void test4() {		
+		AmbiguousTypesDetector detector = new AmbiguousTypesDetector();
+		detector.registerType("java.util.Date");
+		detector.registerType("java.util.Date"); // already registered
+		detector.registerType("java.math.BigDecimal");
+		report(detector, 2, 0);
+		assertFalse(detector.isAmbiguousType("java.util.Date"));
+		// new type registered => ambiguous types recomputed
+		detector.registerType("java.sql.Date");
+		report(detector, 3, 2);
+		assertTrue(detector.isAmbiguousType("java.util.Date"));
+		assertTrue(detector.isAmbiguousType("java.sql.Date"));
+		assertFalse(detector.isAmbiguousType("java.math.BigDecimal"));
+	}
+	
+	@Test
+	public void test5() {		
+		AmbiguousTypesDetector detector = new AmbiguousTypesDetector();
+		detector.registerType("Date"); // no package : not counted but ambiguous 
+		detector.registerType("java.util.Date");
+		detector.registerType("java.sql.Date");
+		detector.registerType("MyClass");
+		report(detector, 4, 3);
+		assertFalse(detector.isAmbiguousType("MyClass"));
+	}
+	
 	private void report(AmbiguousTypesDetector detector, int countAll, int countAmbiguous) {
 		List<String> allTypes = detector.getAllTypes();
 		print(allTypes);
@@ -38,4 +38,16 @@ public class LinesBuilderTest {
 
 		assertEquals("aaa\nbbb\nccc", s); 
 	}	
+
+	@Test
+	public void testAppendParts() {
+		LinesBuilder lb = new LinesBuilder("  ", 16);
+		lb.appendParts(1, "if ( ", "name", " != null )");
+		lb.appendParts(3, "return", " ;");
+		lb.appendParts(0);
+		lb.append(2, "end");
+		String s = lb.toString();
+
+		assertEquals("  if ( name != null )\n      return ;\n\n    end", s); 
+	}	
 }
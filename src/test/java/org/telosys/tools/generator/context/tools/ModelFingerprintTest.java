@@ -0,0 +1,227 @@
+package org.telosys.tools.generator.context.tools;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.telosys.tools.dsl.model.DslModel;
+import org.telosys.tools.dsl.model.DslModelAttribute;
+import org.telosys.tools.dsl.model.DslModelEntity;
+import org.telosys.tools.dsl.model.DslModelLink;
+import org.telosys.tools.generic.model.enums.Cardinality;
+import org.telosys.tools.generic.model.enums.GeneratedValueStrategy;
+import org.telosys.tools.generic.model.types.NeutralType;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import junit.env.telosys.tools.generator.fakemodel.entities.Author;
+import junit.env.telosys.tools.generator.fakemodel.entities.Book;
+import junit.env.telosys.tools.generator.fakemodel.entities.Employee;
+
+public class ModelFingerprintTest {
+
+	private DslModel buildModel() {
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(new Book()); // FK to 'Author'
+		model.addEntity(new Author());
+		model.addEntity(new Employee());
+		return model ;
+	}
+
+	@Test
+	public void testStableFingerprints() {
+		ModelFingerprint fp1 = new ModelFingerprint(buildModel());
+		ModelFingerprint fp2 = new ModelFingerprint(buildModel());
+		assertEquals(fp1.getEntityFingerprint("Book"), fp2.getEntityFingerprint("Book"));
+		assertEquals(fp1.getDeepEntityFingerprint("Book"), fp2.getDeepEntityFingerprint("Book"));
+		assertEquals(fp1.getModelFingerprint(), fp2.getModelFingerprint());
+		assertNotEquals(fp1.getEntityFingerprint("Book"), fp1.getEntityFingerprint("Author"));
+		assertEquals(0L, fp1.getEntityFingerprint("NoSuchEntity"));
+		assertEquals(16, ModelFingerprint.toHex(fp1.getModelFingerprint()).length());
+		assertEquals("000000000000000f", ModelFingerprint.toHex(15L));
+	}
+
+	@Test
+	public void testChangedEntity() {
+		DslModel model = buildModel();
+		ModelFingerprint fp1 = new ModelFingerprint(model);
+		DslModel model2 = buildModel();
+		DslModelEntity author = (DslModelEntity) model2.getEntityByClassName("Author");
+		author.addAttribute(new DslModelAttribute("nickname", NeutralType.STRING));
+		ModelFingerprint fp2 = new ModelFingerprint(model2);
+
+		assertNotEquals(fp1.getEntityFingerprint("Author"), fp2.getEntityFingerprint("Author"));
+		// 'Book' unchanged but references 'Author'
+		assertEquals(fp1.getEntityFingerprint("Book"), fp2.getEntityFingerprint("Book"));
+		assertNotEquals(fp1.getDeepEntityFingerprint("Book"), fp2.getDeepEntityFingerprint("Book"));
+		// 'Employee' not related to 'Author'
+		assertEquals(fp1.getDeepEntityFingerprint("Employee"), fp2.getDeepEntityFingerprint("Employee"));
+		assertNotEquals(fp1.getModelFingerprint(), fp2.getModelFingerprint());
+	}
+
+	@Test
+	public void testDigests() {
+		ModelFingerprint fp1 = new ModelFingerprint(buildModel());
+		ModelFingerprint fp2 = new ModelFingerprint(buildModel());
+		assertEquals(32, fp1.getEntityDigest("Book").length);
+		assertArrayEquals(fp1.getEntityDigest("Book"), fp2.getEntityDigest("Book"));
+		assertArrayEquals(fp1.getDeepEntityDigest("Book"), fp2.getDeepEntityDigest("Book"));
+		assertArrayEquals(fp1.getModelDigest(), fp2.getModelDigest());
+		assertNull(fp1.getEntityDigest("NoSuchEntity"));
+		
+		DslModel model3 = buildModel();
+		DslModelEntity author = (DslModelEntity) model3.getEntityByClassName("Author");
+		author.addAttribute(new DslModelAttribute("nickname", NeutralType.STRING));
+		ModelFingerprint fp3 = new ModelFingerprint(model3);
+		assertFalse(Arrays.equals(fp1.getEntityDigest("Author"), fp3.getEntityDigest("Author")));
+		assertArrayEquals(fp1.getEntityDigest("Book"), fp3.getEntityDigest("Book"));
+		assertFalse(Arrays.equals(fp1.getDeepEntityDigest("Book"), fp3.getDeepEntityDigest("Book")));
+		assertArrayEquals(fp1.getDeepEntityDigest("Employee"), fp3.getDeepEntityDigest("Employee"));
+		assertFalse(Arrays.equals(fp1.getModelDigest(), fp3.getModelDigest()));
+	}
+
+	private long fingerprint(DslModelAttribute attribute, DslModelLink link) {
+		DslModelEntity entity = new DslModelEntity("Foo");
+		entity.addAttribute(attribute);
+		if ( link != null ) {
+			entity.addLink(link);
+		}
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(entity);
+		return new ModelFingerprint(model).getEntityFingerprint("Foo");
+	}
+	private long fingerprint(DslModelAttribute attribute) {
+		return fingerprint(attribute, null);
+	}
+	private DslModelLink buildLink() {
+		DslModelLink link = new DslModelLink("bars");
+		link.setReferencedEntityName("Bar");
+		link.setCardinality(Cardinality.MANY_TO_MANY);
+		return link ;
+	}
+
+	@Test
+	public void testPrimitiveTypeExpected() {
+		long fp = fingerprint(new DslModelAttribute("id", NeutralType.INTEGER));
+		DslModelAttribute attribute = new DslModelAttribute("id", NeutralType.INTEGER) {
+			@Override
+			public boolean isPrimitiveTypeExpected() {
+				return true ;
+			}
+		};
+		assertNotEquals(fp, fingerprint(attribute));
+	}
+
+	@Test
+	public void testObjectTypeExpected() {
+		long fp = fingerprint(new DslModelAttribute("id", NeutralType.INTEGER));
+		DslModelAttribute attribute = new DslModelAttribute("id", NeutralType.INTEGER);
+		attribute.setObjectTypeExpected(true);
+		assertNotEquals(fp, fingerprint(attribute));
+	}
+
+	@Test
+	public void testUnsignedTypeExpected() {
+		long fp = fingerprint(new DslModelAttribute("id", NeutralType.INTEGER));
+		DslModelAttribute attribute = new DslModelAttribute("id", NeutralType.INTEGER) {
+			@Override
+			public boolean isUnsignedTypeExpected() {
+				return true ;
+			}
+		};
+		assertNotEquals(fp, fingerprint(attribute));
+	}
+
+	@Test
+	public void testAutoIncremented() {
+		// '$attribute.autoIncremented' is based on the generated value strategy
+		long fp = fingerprint(new DslModelAttribute("id", NeutralType.INTEGER));
+		DslModelAttribute attribute = new DslModelAttribute("id", NeutralType.INTEGER);
+		attribute.setGeneratedValueStrategy(GeneratedValueStrategy.IDENTITY);
+		assertNotEquals(fp, fingerprint(attribute));
+	}
+
+	@Test
+	public void testDatabaseNotNull() {
+		// '$attribute.databaseNotNull' is based on the 'not null' flag
+		long fp = fingerprint(new DslModelAttribute("id", NeutralType.INTEGER));
+		DslModelAttribute attribute = new DslModelAttribute("id", NeutralType.INTEGER);
+		attribute.setNotNull(true);
+		assertNotEquals(fp, fingerprint(attribute));
+	}
+
+	@Test
+	public void testOwningSide() {
+		// '$link.owningSide' is based on the cardinality, the 'mapped by' and the join entity
+		long fp = fingerprint(new DslModelAttribute("id", NeutralType.INTEGER), buildLink());
+		DslModelLink link = buildLink();
+		link.setMappedBy("foos");
+		assertNotEquals(fp, fingerprint(new DslModelAttribute("id", NeutralType.INTEGER), link));
+		link = buildLink();
+		link.setCardinality(Cardinality.ONE_TO_MANY);
+		assertNotEquals(fp, fingerprint(new DslModelAttribute("id", NeutralType.INTEGER), link));
+	}
+
+	@Test
+	public void testBasedOnJoinEntity() {
+		long fp = fingerprint(new DslModelAttribute("id", NeutralType.INTEGER), buildLink());
+		DslModelLink link = new DslModelLink("bars") {
+			@Override
+			public String getJoinEntityName() {
+				return "FooBar" ;
+			}
+		};
+		link.setReferencedEntityName("Bar");
+		link.setCardinality(Cardinality.MANY_TO_MANY);
+		assertNotEquals(fp, fingerprint(new DslModelAttribute("id", NeutralType.INTEGER), link));
+	}
+
+	private static class DatabaseModel extends DslModel {
+		private final String databaseId ;
+		private final String databaseName ;
+		private final String databaseType ;
+		DatabaseModel(String databaseId, String databaseName, String databaseType) {
+			super("FakeModel");
+			this.databaseId = databaseId ;
+			this.databaseName = databaseName ;
+			this.databaseType = databaseType ;
+		}
+		@Override
+		public String getDatabaseId() {
+			return databaseId ;
+		}
+		@Override
+		public String getDatabaseName() {
+			return databaseName ;
+		}
+		@Override
+		public String getDatabaseType() {
+			return databaseType ;
+		}
+	}
+
+	@Test
+	public void testModelDatabaseId() {
+		ModelFingerprint fp = new ModelFingerprint(new DatabaseModel("1", "db", "POSTGRESQL"));
+		assertEquals(fp.getModelFingerprint(), new ModelFingerprint(new DatabaseModel("1", "db", "POSTGRESQL")).getModelFingerprint());
+		assertNotEquals(fp.getModelFingerprint(), new ModelFingerprint(new DatabaseModel("2", "db", "POSTGRESQL")).getModelFingerprint());
+		assertFalse(Arrays.equals(fp.getModelDigest(), new ModelFingerprint(new DatabaseModel("2", "db", "POSTGRESQL")).getModelDigest()));
+	}
+
+	@Test
+	public void testModelDatabaseName() {
+		ModelFingerprint fp = new ModelFingerprint(new DatabaseModel("1", "db", "POSTGRESQL"));
+		assertNotEquals(fp.getModelFingerprint(), new ModelFingerprint(new DatabaseModel("1", "db2", "POSTGRESQL")).getModelFingerprint());
+		assertFalse(Arrays.equals(fp.getModelDigest(), new ModelFingerprint(new DatabaseModel("1", "db2", "POSTGRESQL")).getModelDigest()));
+	}
+
+	@Test
+	public void testModelDatabaseType() {
+		ModelFingerprint fp = new ModelFingerprint(new DatabaseModel("1", "db", "POSTGRESQL"));
+		assertNotEquals(fp.getModelFingerprint(), new ModelFingerprint(new DatabaseModel("1", "db", "ORACLE")).getModelFingerprint());
+		assertFalse(Arrays.equals(fp.getModelDigest(), new ModelFingerprint(new DatabaseModel("1", "db", "ORACLE")).getModelDigest()));
+	}
+}
@@ -0,0 +1,99 @@
+package org.telosys.tools.generator.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.telosys.tools.generic.model.Entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.TestsEnv;
+import junit.env.telosys.tools.generator.fakemodel.entities.Author;
+import junit.env.telosys.tools.generator.fakemodel.entities.Book;
+
+public class GenerationHistoryTest {
+
+	private File getHistoryFile(String name) {
+		File file = TestsEnv.getTmpFile("history/" + name);
+		file.delete();
+		return file ;
+	}
+
+	@Test
+	public void testEstimationWithoutHistory() throws IOException {
+		GenerationHistory history = new GenerationHistory(getHistoryFile("history1.txt"));
+		assertEquals(0, history.size());
+		Entity book = new Book();
+		// no history : cost = entity size
+		assertEquals(GenerationHistory.getEntitySize(book), history.getExpectedDuration("bean.vm", book));
+	}
+
+	@Test
+	public void testSaveAndReload() throws IOException {
+		File file = getHistoryFile("history2.txt");
+		Entity book = new Book();
+		Entity author = new Author();
+		GenerationHistory history = new GenerationHistory(file);
+		history.record("bean.vm", book, 5000);
+		history.save();
+
+		GenerationHistory history2 = new GenerationHistory(file);
+		assertEquals(1, history2.size());
+		assertEquals(5000, history2.getExpectedDuration("bean.vm", book));
+		// 'Author' never generated with 'bean.vm' : estimated with the template cost by size unit 
+		long expected = Math.round(5000.0 / GenerationHistory.getEntitySize(book) * GenerationHistory.getEntitySize(author));
+		assertEquals(expected, history2.getExpectedDuration("bean.vm", author));
+		// unknown template : global cost by size unit
+		assertEquals(expected, history2.getExpectedDuration("dao.vm", author));
+
+		// new durations replace the previous ones
+		history2.record("bean.vm", book, 7000);
+		history2.record("bean.vm", author, 1000);
+		history2.save();
+		GenerationHistory history3 = new GenerationHistory(file);
+		assertEquals(2, history3.size());
+		assertEquals(7000, history3.getExpectedDuration("bean.vm", book));
+		assertTrue(history3.getExpectedDuration("bean.vm", book) > history3.getExpectedDuration("bean.vm", author));
+	}
+
+	@Test
+	public void testConcurrentSaves() throws IOException, InterruptedException, ExecutionException {
+		// several processes (e.g. shards) sharing the same history file
+		File file = getHistoryFile("history3.txt");
+		Entity book = new Book();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for ( int i = 0 ; i < 4 ; i++ ) {
+				final long duration = 1000L * ( i + 1 );
+				futures.add(executor.submit(() -> {
+					GenerationHistory history = new GenerationHistory(file);
+					history.record("bean.vm", book, duration);
+					for ( int n = 0 ; n < 20 ; n++ ) {
+						history.save();
+					}
+					return null ;
+				}));
+			}
+			for ( Future<?> future : futures ) {
+				future.get(); // no collision on the temporary file
+			}
+		} finally {
+			executor.shutdown();
+		}
+		GenerationHistory history = new GenerationHistory(file);
+		assertEquals(1, history.size());
+		assertTrue(history.getExpectedDuration("bean.vm", book) % 1000 == 0);
+		// no temporary file left
+		String[] files = file.getParentFile().list((dir, name) -> name.startsWith("." + file.getName()));
+		assertEquals(0, files.length);
+	}
+}
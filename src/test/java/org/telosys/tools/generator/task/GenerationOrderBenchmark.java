@@ -0,0 +1,88 @@
+package org.telosys.tools.generator.task;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.dsl.model.DslModel;
+import org.telosys.tools.dsl.model.DslModelAttribute;
+import org.telosys.tools.dsl.model.DslModelEntity;
+import org.telosys.tools.generic.model.types.NeutralType;
+
+import junit.env.telosys.tools.generator.LoggerProvider;
+import junit.env.telosys.tools.generator.TestsProject;
+
+/**
+ * Manual benchmark : duration of the same generation with each generation order 
+ * (not a JUnit test) <br>
+ * The model must be large enough to show any locality effect : by default 500 entities 
+ * with 30 attributes each ( args : number of entities, number of attributes ) <br>
+ * No result is assumed : the orders are compared on the machine where it is launched
+ */
+public class GenerationOrderBenchmark {
+
+	private static final int WARMUP_RUNS = 3 ;
+	private static final int RUNS = 10 ;
+
+	private static DslModel buildModel(int entitiesCount, int attributesCount, List<String> selectedEntities) {
+		DslModel model = new DslModel("BenchmarkModel");
+		NeutralType[] types = { NeutralType.STRING, NeutralType.INTEGER, NeutralType.DECIMAL, NeutralType.DATE, NeutralType.BOOLEAN };
+		for ( int e = 1 ; e <= entitiesCount ; e++ ) {
+			DslModelEntity entity = new DslModelEntity("Entity" + e);
+			DslModelAttribute id = new DslModelAttribute("id", NeutralType.LONG);
+			id.setKeyElement(true);
+			entity.addAttribute(id);
+			for ( int a = 1 ; a < attributesCount ; a++ ) {
+				entity.addAttribute(new DslModelAttribute("field" + a, types[a % types.length]));
+			}
+			model.addEntity(entity);
+			selectedEntities.add(entity.getClassName());
+		}
+		return model ;
+	}
+
+	private static List<TargetDefinition> buildTargets() {
+		List<TargetDefinition> targets = new LinkedList<>();
+		targets.add(new TargetDefinition("Java bean", "${BEANNAME}.java", "bench/java", "java_bean.vm", "*"));
+		targets.add(new TargetDefinition("Java bean cache", "${BEANNAME}Cache.java", "bench/java", "java_bean_cache.vm", "*"));
+		targets.add(new TargetDefinition("JUnit bean", "${BEANNAME}Test.java", "bench/test", "java_junit_bean.vm", "*"));
+		targets.add(new TargetDefinition("Python bean", "${BEANNAME}.py", "bench/python", "python_bean.vm", "*"));
+		targets.add(new TargetDefinition("Doc", "${BEANNAME}.html", "bench/doc", "doc_entity_html.vm", "*"));
+		return targets ;
+	}
+
+	private static long run(GenerationOrder order, TelosysToolsCfg cfg, DslModel model, 
+			List<String> selectedEntities, List<TargetDefinition> targets, TelosysToolsLogger logger) throws Exception {
+		StandardGenerationTask task = new StandardGenerationTask(model, selectedEntities, TestsProject.BUNDLE_NAME, 
+				targets, null, cfg, logger);
+		task.setGenerationOrder(order);
+		long start = System.nanoTime();
+		task.launch();
+		return System.nanoTime() - start ;
+	}
+
+	public static void main(String[] args) throws Exception {
+		TelosysProject telosysProject = TestsProject.initProjectEnv("myproject", TestsProject.BUNDLE_NAME) ;
+		TelosysToolsCfg cfg = telosysProject.loadTelosysToolsCfg();
+		int entitiesCount   = args.length > 0 ? Integer.parseInt(args[0]) : 500 ;
+		int attributesCount = args.length > 1 ? Integer.parseInt(args[1]) : 30 ;
+		List<String> selectedEntities = new LinkedList<>();
+		DslModel model = buildModel(entitiesCount, attributesCount, selectedEntities);
+		System.out.println(entitiesCount + " entities x " + attributesCount + " attributes");
+		List<TargetDefinition> targets = buildTargets();
+		TelosysToolsLogger logger = LoggerProvider.getLogger();
+
+		for ( GenerationOrder order : GenerationOrder.values() ) {
+			for ( int i = 0 ; i < WARMUP_RUNS ; i++ ) {
+				run(order, cfg, model, selectedEntities, targets, logger);
+			}
+			long total = 0 ;
+			for ( int i = 0 ; i < RUNS ; i++ ) {
+				total += run(order, cfg, model, selectedEntities, targets, logger);
+			}
+			System.out.println(order + " : average " + ( total / RUNS / 1_000_000 ) + " ms (" + RUNS + " runs)");
+		}
+	}
+}
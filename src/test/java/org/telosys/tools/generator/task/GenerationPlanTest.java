@@ -0,0 +1,93 @@
+package org.telosys.tools.generator.task;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generic.model.Entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.context.Builder;
+import junit.env.telosys.tools.generator.fakemodel.entities.Author;
+import junit.env.telosys.tools.generator.fakemodel.entities.Book;
+
+public class GenerationPlanTest {
+
+	private final TelosysToolsCfg cfg = Builder.buildTelosysToolsCfg();
+
+	private PlannedTarget planned(TargetDefinition targetDefinition, Entity entity) {
+		Target target = entity != null ? new Target(cfg, targetDefinition, entity) : new Target(cfg, targetDefinition);
+		return new PlannedTarget(target, entity == null, "/tmp/project", "/tmp/templates/bundle");
+	}
+
+	private GenerationPlan buildPlan() {
+		TargetDefinition bean = new TargetDefinition("Bean", "${BEANNAME}.java", "src/main/java/bean", "bean.vm", "*");
+		TargetDefinition dto = new TargetDefinition("DTO", "${BEANNAME}Dto.java", "src/main/java/dto", "dto.vm", "*");
+		TargetDefinition beanV2 = new TargetDefinition("Bean V2", "${BEANNAME}.java", "src/main/java/bean", "bean2.vm", "*");
+		TargetDefinition readme = new TargetDefinition("Readme", "README.md", "/", "readme.vm", "1");
+		List<PlannedTarget> targets = new LinkedList<>();
+		for ( Entity entity : new Entity[] { new Book(), new Author() } ) {
+			targets.add(planned(bean, entity));
+			targets.add(planned(dto, entity));
+			targets.add(planned(beanV2, entity));
+		}
+		targets.add(planned(readme, null));
+		List<String> unknownEntities = new LinkedList<>();
+		unknownEntities.add("Foo");
+		return new GenerationPlan(targets, unknownEntities);
+	}
+
+	@Test
+	public void testResolvedPaths() {
+		GenerationPlan plan = buildPlan();
+		assertEquals(7, plan.size());
+		PlannedTarget first = plan.getTargets().get(0);
+		assertEquals("src/main/java/bean/Book.java", first.getOutputFileInProject());
+		assertTrue(first.getOutputFile().replace('\\', '/').endsWith("/tmp/project/src/main/java/bean/Book.java"));
+		assertTrue(first.getTemplateFile().replace('\\', '/').endsWith("/tmp/templates/bundle/bean.vm"));
+		assertFalse(first.isOnce());
+		assertTrue(plan.getTargets().get(6).isOnce());
+		assertEquals("README.md", plan.getTargets().get(6).getOutputFileInProject());
+		assertEquals(1, plan.getUnknownEntities().size());
+		assertEquals(4, plan.getMissingTemplates().size()); // no template in this bundle folder
+	}
+
+	@Test
+	public void testDuplicates() {
+		GenerationPlan plan = buildPlan();
+		assertTrue(plan.hasDuplicates());
+		assertEquals(2, plan.getDuplicates().size());
+		List<PlannedTarget> books = plan.getDuplicates().get("src/main/java/bean/Book.java");
+		assertEquals(2, books.size());
+		// the last writer is kept 
+		assertTrue(plan.isOverwritten(books.get(0)));
+		assertFalse(plan.isOverwritten(books.get(1)));
+		assertEquals("bean2.vm", books.get(1).getTarget().getTemplate());
+		assertFalse(plan.isOverwritten(plan.getTargets().get(1))); // BookDto.java
+	}
+
+	@Test
+	public void testFilter() {
+		GenerationPlan plan = buildPlan();
+		GenerationPlan beans = plan.filter("src/main/java/bean/*.java");
+		assertEquals(4, beans.size());
+		assertTrue(beans.hasDuplicates());
+		GenerationPlan dtos = plan.filter("src/**/*Dto.java");
+		assertEquals(2, dtos.size());
+		assertFalse(dtos.hasDuplicates());
+		assertEquals(1, plan.filter("*.md").size());
+		assertEquals(0, plan.filter("src/main/resources/**").size());
+		assertEquals(7, plan.size()); // original plan unchanged
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testVoidFilter() {
+		buildPlan().filter(" ");
+	}
+}
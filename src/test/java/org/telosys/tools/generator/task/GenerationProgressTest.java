@@ -0,0 +1,53 @@
+package org.telosys.tools.generator.task;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GenerationProgressTest {
+
+	private static final long MS = 1_000_000L ;
+
+	@Test
+	public void testThroughputAndEta() {
+		AtomicLong clock = new AtomicLong(0);
+		GenerationProgress progress = new GenerationProgress(1, clock::get);
+		progress.expect("bean.vm", 3);
+		progress.expect("dao.vm", 3);
+		progress.expect("pom.vm", 1);
+		assertEquals(7, progress.getTotalWork());
+		assertEquals(-1, progress.getEstimatedRemainingMillis()); // nothing observed yet
+
+		progress.targetGenerated("bean.vm", 100 * MS, 1, 1000);
+		progress.targetGenerated("dao.vm", 300 * MS, 2, 3000);
+		clock.set(500 * MS);
+		assertEquals(2, progress.getWorkDone());
+		assertEquals(3, progress.getFilesCount());
+		assertEquals(4000, progress.getBytesCount());
+		assertEquals(6.0, progress.getFilesPerSecond(), 0.001);
+		assertEquals(8000.0, progress.getBytesPerSecond(), 0.001);
+		assertEquals(200, progress.getLatencyMillis());
+		assertEquals(0.8, progress.getUtilisation(), 0.001);
+		// 2 x 100 (bean) + 2 x 300 (dao) + 1 x 200 (pom : global average)
+		assertEquals(1000, progress.getEstimatedRemainingMillis());
+
+		progress.targetNotGenerated("pom.vm", 0);
+		assertEquals(800, progress.getEstimatedRemainingMillis());
+		assertTrue(progress.toStatusLine().startsWith("3/7 (42%) 6.0 files/s"));
+	}
+
+	@Test
+	public void testSeveralWorkers() {
+		AtomicLong clock = new AtomicLong(0);
+		GenerationProgress progress = new GenerationProgress(2, clock::get);
+		progress.expect("bean.vm", 5);
+		progress.targetGenerated("bean.vm", 100 * MS, 1, 10);
+		clock.set(100 * MS);
+		assertEquals(0.5, progress.getUtilisation(), 0.001);
+		assertEquals(200, progress.getEstimatedRemainingMillis()); // 4 x 100 / 2 workers
+		assertTrue(progress.toStatusLine().contains("utilisation 50%"));
+	}
+}
@@ -0,0 +1,107 @@
+package org.telosys.tools.generator.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.dsl.model.DslModel;
+import org.telosys.tools.generator.context.Target;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.TestsEnv;
+import junit.env.telosys.tools.generator.context.Builder;
+import junit.env.telosys.tools.generator.fakemodel.entities.Author;
+import junit.env.telosys.tools.generator.fakemodel.entities.Book;
+
+public class GenerationReportTest {
+
+	private static final long MS = 1_000_000L ;
+
+	private Target buildTarget(TelosysToolsCfg cfg, DslModel model, String template, String entityName) {
+		TargetDefinition targetDefinition = new TargetDefinition("Target", "${BEANNAME}.java", "src", template, "*");
+		return new Target(cfg, targetDefinition, model.getEntityByClassName(entityName));
+	}
+
+	@Test
+	public void testReport() throws IOException {
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(new Book());
+		model.addEntity(new Author());
+		TelosysToolsCfg cfg = Builder.buildTelosysToolsCfg();
+		File file = TestsEnv.getTmpFile("report/generation-report.jsonl");
+
+		GenerationReport report = new GenerationReport(file, 1);
+		report.addTarget(buildTarget(cfg, model, "bean.vm", "Book"), GenerationReport.Status.WRITTEN, 10 * MS, 1 * MS, 100, false);
+		report.addTarget(buildTarget(cfg, model, "bean.vm", "Author"), GenerationReport.Status.UNCHANGED, 0, 1 * MS, 80, true);
+		report.addTarget(buildTarget(cfg, model, "dao.vm", "Book"), GenerationReport.Status.ERROR, 30 * MS, 0, 0, false);
+		report.close();
+		assertEquals(3, report.getTargetsCount());
+		assertEquals(1, report.getCount(GenerationReport.Status.WRITTEN));
+		assertEquals(0, report.getCount(GenerationReport.Status.CANCELLED));
+
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		assertEquals(3 + 1 + 2 + 2, lines.size()); // targets, summary, templates, top lists
+		assertEquals("{\"type\":\"target\",\"template\":\"bean.vm\",\"entity\":\"Book\",\"output\":\"src/Book.java\","
+				+ "\"status\":\"written\",\"renderMs\":10.000,\"writeMs\":1.000,\"size\":100,\"cacheHit\":false}", lines.get(0));
+		assertTrue(lines.get(3).startsWith("{\"type\":\"summary\",\"targets\":3,\"written\":1,\"unchanged\":1,"));
+		assertTrue(lines.get(4).startsWith("{\"type\":\"template\",\"name\":\"dao.vm\",\"count\":1,\"totalMs\":30.000"));
+		assertEquals("{\"type\":\"slowestEntities\",\"items\":[{\"name\":\"Book\",\"count\":2,\"totalMs\":41.000,\"averageMs\":20.500,\"size\":100}]}", 
+				lines.get(7));
+	}
+
+	@Test
+	public void testJsonString() {
+		assertEquals("null", GenerationReport.jsonString(null));
+		assertEquals("\"a\\\"b\\\\c\\n\\u0001\"", GenerationReport.jsonString("a\"b\\c\n\u0001"));
+	}
+
+	@Test
+	public void testMerge() throws IOException {
+		DslModel model = new DslModel("FakeModel");
+		model.addEntity(new Book());
+		model.addEntity(new Author());
+		TelosysToolsCfg cfg = Builder.buildTelosysToolsCfg();
+		File file1 = TestsEnv.getTmpFile("report/report-shard1.jsonl");
+		try ( GenerationReport report = new GenerationReport(file1) ) {
+			report.addTarget(buildTarget(cfg, model, "bean.vm", "Book"), GenerationReport.Status.WRITTEN, 10 * MS, 1 * MS, 100, false);
+			report.addTarget(buildTarget(cfg, model, "dao.vm", "Book"), GenerationReport.Status.ERROR, 30 * MS, 0, 0, false);
+		}
+		File file2 = TestsEnv.getTmpFile("report/report-shard2.jsonl");
+		try ( GenerationReport report = new GenerationReport(file2) ) {
+			report.addTarget(buildTarget(cfg, model, "bean.vm", "Author"), GenerationReport.Status.VOID, 0, 1 * MS, 80, true);
+		}
+		File mergedFile = TestsEnv.getTmpFile("report/report-merged.jsonl");
+		GenerationReport merged = GenerationReport.merge(Arrays.asList(file1, file2), mergedFile, 1);
+		assertEquals(3, merged.getTargetsCount());
+		assertEquals(1, merged.getCount(GenerationReport.Status.WRITTEN));
+		assertEquals(1, merged.getCount(GenerationReport.Status.VOID));
+		assertEquals(1, merged.getCount(GenerationReport.Status.ERROR));
+
+		List<String> lines = Files.readAllLines(mergedFile.toPath(), StandardCharsets.UTF_8);
+		assertEquals(3 + 1 + 2 + 2, lines.size()); // targets, summary, templates, top lists
+		assertEquals(Files.readAllLines(file1.toPath(), StandardCharsets.UTF_8).get(0), lines.get(0));
+		assertEquals("{\"type\":\"slowestEntities\",\"items\":[{\"name\":\"Book\",\"count\":2,\"totalMs\":41.000,\"averageMs\":20.500,\"size\":100}]}", 
+				lines.get(7));
+	}
+
+	@Test
+	public void testParseRecord() throws IOException {
+		Map<String, String> record = GenerationReport.parseRecord(
+				"{\"type\":\"target\",\"entity\":null,\"output\":\"a \\\"b\\\" \\u00e9\",\"size\":12,\"items\":[{\"name\":\"x\"}]}", null);
+		assertEquals("target", record.get("type"));
+		assertTrue(record.containsKey("entity"));
+		assertEquals(null, record.get("entity"));
+		assertEquals("a \"b\" \u00e9", record.get("output"));
+		assertEquals("12", record.get("size"));
+		assertEquals(4, record.size());
+	}
+}
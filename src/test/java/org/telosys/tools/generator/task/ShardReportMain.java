@@ -0,0 +1,77 @@
+package org.telosys.tools.generator.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.cfg.TelosysToolsCfgManager;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.Model;
+
+import junit.env.telosys.tools.generator.LoggerProvider;
+import junit.env.telosys.tools.generator.TestsEnv;
+import junit.env.telosys.tools.generator.fakemodel.FakeModelProvider;
+
+/**
+ * Generates a shard in a separate JVM : <br>
+ * a standard generation task is launched for the shard, with a report file <br>
+ * args : shard specification ( e.g. "2/3" ) and report file
+ */
+public class ShardReportMain {
+
+	protected static final String PROJECT = "shards-project" ;
+	protected static final String BUNDLE  = "bundle-shards" ;
+
+	protected static final List<TargetDefinition> ENTITY_TARGETS = Arrays.asList(
+			new TargetDefinition("Bean",    "${BEANNAME}.java",           "src/bean", "bean.vm",    "*"),
+			new TargetDefinition("DAO",     "${BEANNAME}Dao.java",        "src/dao",  "dao.vm",     "*"),
+			new TargetDefinition("Service", "${BEANNAME}Service.java",    "src/srv",  "service.vm", "*"),
+			new TargetDefinition("Test",    "${BEANNAME}DaoTest.java",    "test/dao", "test.vm",    "*") );
+
+	protected static final TargetDefinition ONCE_TARGET =
+			new TargetDefinition("Readme", "README.md", "", "readme.vm", "1");
+
+	private static void writeTemplate(File bundleFolder, String fileName, String content) throws IOException {
+		Files.write(new File(bundleFolder, fileName).toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static void main(String[] args) throws IOException, TelosysToolsException {
+		ShardSpec shard = ShardSpec.parse(args[0]);
+		File reportFile = new File(args[1]);
+
+		//--- Project and bundle shared by all the shards
+		File projectFolder = TestsEnv.createTmpProjectFolders(PROJECT);
+		TelosysToolsCfg cfg = new TelosysToolsCfgManager(projectFolder.getAbsolutePath()).createDefaultTelosysToolsCfg();
+		File bundleFolder = new File(cfg.getTemplatesFolderAbsolutePath(BUNDLE));
+		bundleFolder.mkdirs();
+		writeTemplate(bundleFolder, "bean.vm",    "public class ${entity.name} { }");
+		writeTemplate(bundleFolder, "dao.vm",     "public class ${entity.name}Dao { }");
+		writeTemplate(bundleFolder, "service.vm", "public class ${entity.name}Service { }");
+		writeTemplate(bundleFolder, "test.vm",    "public class ${entity.name}DaoTest { }");
+		writeTemplate(bundleFolder, "readme.vm",  "$model.entities.size() entities");
+
+		//--- Generation of the shard
+		Model model = FakeModelProvider.buildModel();
+		List<String> entities = new LinkedList<>();
+		for ( Entity entity : model.getEntities() ) {
+			entities.add(entity.getClassName());
+		}
+		List<TargetDefinition> targets = new LinkedList<>(ENTITY_TARGETS);
+		targets.add(ONCE_TARGET);
+		StandardGenerationTask task = new StandardGenerationTask(model, entities, BUNDLE, targets, null,
+				cfg, LoggerProvider.getLogger());
+		task.setShard(shard);
+		task.setReport(new GenerationReport(reportFile)); // closed by the task
+		GenerationTaskResult result = task.launch();
+		if ( ! result.getErrors().isEmpty() ) {
+			throw new IllegalStateException("Shard " + shard + " : " + result.getErrors().size() + " error(s)");
+		}
+	}
+}
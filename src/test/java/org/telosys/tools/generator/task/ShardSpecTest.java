@@ -0,0 +1,151 @@
+package org.telosys.tools.generator.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.cfg.TelosysToolsCfgManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.TestsEnv;
+import junit.env.telosys.tools.generator.fakemodel.FakeModelProvider;
+
+public class ShardSpecTest {
+
+	@Test
+	public void testParse() {
+		ShardSpec shard = ShardSpec.parse(" 2/4 ");
+		assertEquals(2, shard.getIndex());
+		assertEquals(4, shard.getCount());
+		assertEquals("2/4", shard.toString());
+		assertTrue(ShardSpec.parse("1/3").containsOnceTargets());
+		assertFalse(shard.containsOnceTargets());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidIndex() {
+		ShardSpec.parse("0/4");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidSpec() {
+		ShardSpec.parse("2-4");
+	}
+
+	@Test
+	public void testSameShardInAllJvm() {
+		// String.hashCode is specified => these values must never change
+		TargetDefinition target = new TargetDefinition("Bean", "${BEANNAME}.java", "src", "bean.vm", "*");
+		assertTrue(new ShardSpec(4, 4).contains("Book", target));
+		assertTrue(new ShardSpec(3, 4).contains("Author", target));
+	}
+
+	@Test
+	public void testDisjointAndComplete() {
+		int shardsCount = 4 ;
+		int[] unitsByShard = new int[shardsCount];
+		for ( int e = 0 ; e < 400 ; e++ ) {
+			for ( int t = 0 ; t < 30 ; t++ ) {
+				String unitKey = "Entity" + e + "|template" + t + ".vm" ;
+				int n = 0 ;
+				for ( int i = 1 ; i <= shardsCount ; i++ ) {
+					if ( new ShardSpec(i, shardsCount).contains(unitKey) ) {
+						unitsByShard[i-1]++ ;
+						n++ ;
+					}
+				}
+				assertEquals(1, n); // each unit in one and only one shard
+			}
+		}
+		// balanced partition (12000 units => about 3000 by shard)
+		for ( int count : unitsByShard ) {
+			assertTrue(Arrays.toString(unitsByShard), count > 2700 && count < 3300);
+		}
+	}
+
+	@Test
+	public void testMergeResults() {
+		GenerationTaskResult r1 = new GenerationTaskResult();
+		r1.incrementNumberOfFilesGenerated();
+		r1.getMetrics().increment("foo");
+		GenerationTaskResult r2 = new GenerationTaskResult();
+		r2.incrementNumberOfFilesGenerated();
+		r2.incrementNumberOfFilesGenerated();
+		r2.addError(new ErrorReport("error"));
+		r2.getMetrics().increment("foo");
+		r2.setCancelled(true);
+		GenerationTaskResult merged = GenerationTaskResult.merge(Arrays.asList(r1, r2));
+		assertEquals(3, merged.getNumberOfFilesGenerated());
+		assertEquals(1, merged.getErrors().size());
+		assertEquals(2, merged.getMetrics().get("foo"));
+		assertTrue(merged.isCancelled());
+	}
+
+	private void launchShardProcess(String shardSpec, File reportFile) throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java" ;
+		Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), 
+				ShardReportMain.class.getName(), shardSpec, reportFile.getAbsolutePath())
+				.redirectErrorStream(true)
+				.redirectOutput(TestsEnv.getTmpFile("shards/" + reportFile.getName() + ".log"))
+				.start();
+		assertTrue("shard process timeout", process.waitFor(60, TimeUnit.SECONDS));
+		assertEquals("shard process exit code", 0, process.exitValue());
+	}
+
+	private List<String> getOutputs(File reportFile) throws IOException {
+		List<String> outputs = new LinkedList<>();
+		for ( String line : Files.readAllLines(reportFile.toPath(), StandardCharsets.UTF_8) ) {
+			if ( line.startsWith("{\"type\":\"target\"") ) {
+				outputs.add(GenerationReport.parseRecord(line, reportFile).get("output"));
+			}
+		}
+		return outputs ;
+	}
+
+	@Test
+	public void testShardsInSeparateJvms() throws IOException, InterruptedException {
+		int shardsCount = 3 ;
+		TestsEnv.getTmpExistingFolder("shards");
+		List<File> reports = new LinkedList<>();
+		for ( int i = 1 ; i <= shardsCount ; i++ ) {
+			File reportFile = TestsEnv.getTmpFile("shards/report-" + i + ".jsonl");
+			launchShardProcess(i + "/" + shardsCount, reportFile);
+			reports.add(reportFile);
+		}
+		//--- Merge the reports written by the shards 
+		File mergedFile = TestsEnv.getTmpFile("shards/report-merged.jsonl");
+		GenerationReport merged = GenerationReport.merge(reports, mergedFile, GenerationReport.DEFAULT_TOP);
+		int expected = FakeModelProvider.buildModel().getEntities().size() * ShardReportMain.ENTITY_TARGETS.size() + 1 ;
+		assertEquals(expected, merged.getTargetsCount());
+		assertEquals(expected, merged.getCount(GenerationReport.Status.WRITTEN));
+		//--- Each output generated once and only once (disjoint and complete)
+		List<String> outputs = getOutputs(mergedFile);
+		Set<String> distinctOutputs = new HashSet<>(outputs);
+		assertEquals(expected, outputs.size());
+		assertEquals(expected, distinctOutputs.size());
+		assertTrue(distinctOutputs.contains("README.md"));
+		//--- Each output generated by the task of its shard
+		File projectFolder = TestsEnv.getTmpFileOrFolder(ShardReportMain.PROJECT);
+		TelosysToolsCfg cfg = new TelosysToolsCfgManager(projectFolder.getAbsolutePath()).createDefaultTelosysToolsCfg();
+		for ( String output : distinctOutputs ) {
+			assertTrue(output, new File(cfg.getDestinationFolderAbsolutePath(), output).isFile());
+		}
+		//--- Same outputs as a single process
+		File singleFile = TestsEnv.getTmpFile("shards/report-single.jsonl");
+		launchShardProcess("1/1", singleFile);
+		assertEquals(distinctOutputs, new HashSet<>(getOutputs(singleFile)));
+	}
+}
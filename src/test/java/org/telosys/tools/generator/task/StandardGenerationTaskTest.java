@@ -0,0 +1,228 @@
+package org.telosys.tools.generator.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.bundles.TargetDefinition;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.cfg.TelosysToolsCfgManager;
+import org.telosys.tools.generator.GenerationMetrics;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.RenderCache;
+import org.telosys.tools.generic.model.Model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import junit.env.telosys.tools.generator.LoggerProvider;
+import junit.env.telosys.tools.generator.TestsEnv;
+import junit.env.telosys.tools.generator.fakemodel.FakeModelProvider;
+
+public class StandardGenerationTaskTest {
+
+	private static final String BUNDLE = "bundle-task" ;
+
+	private TelosysToolsCfg telosysToolsCfg ;
+	private File bundleFolder ;
+	private final Model model = FakeModelProvider.buildModel(); // Employee, Book, Author, Composite
+
+	@Before
+	public void init() throws IOException {
+		File projectFolder = TestsEnv.createTmpProjectFolders("task-tests");
+		telosysToolsCfg = new TelosysToolsCfgManager(projectFolder.getAbsolutePath()).createDefaultTelosysToolsCfg();
+		bundleFolder = new File(telosysToolsCfg.getTemplatesFolderAbsolutePath(BUNDLE));
+		bundleFolder.mkdirs();
+		writeTemplate("a.vm", "A ${entity.name}");
+		writeTemplate("b.vm", "B ${entity.name}");
+		writeTemplate("c.vm", "C ${entity.name}");
+		writeTemplate("once.vm", "$model.entities.size() entities");
+	}
+
+	private void writeTemplate(String fileName, String content) throws IOException {
+		Files.write(new File(bundleFolder, fileName).toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private String readGeneratedFile(String fileName) throws IOException {
+		File file = new File(telosysToolsCfg.getDestinationFolderAbsolutePath(), fileName);
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private void deleteFiles(File folder) {
+		File[] files = folder.listFiles();
+		if ( files != null ) {
+			for ( File file : files ) {
+				file.delete();
+			}
+		}
+	}
+
+	private StandardGenerationTask buildTask(List<String> entities, TargetDefinition... targets) throws TelosysToolsException {
+		return new StandardGenerationTask(model, entities, BUNDLE, Arrays.asList(targets), null,
+				telosysToolsCfg, LoggerProvider.getLogger());
+	}
+
+	private String unit(PlannedTarget plannedTarget) {
+		return plannedTarget.isOnce() ? plannedTarget.getTarget().getTemplate()
+				: plannedTarget.getTarget().getEntityName() + "/" + plannedTarget.getTarget().getTemplate() ;
+	}
+
+	private String units(GenerationPlan plan) {
+		StringBuilder sb = new StringBuilder();
+		for ( PlannedTarget plannedTarget : plan.getTargets() ) {
+			if ( sb.length() > 0 ) {
+				sb.append(" ");
+			}
+			sb.append(unit(plannedTarget));
+		}
+		return sb.toString();
+	}
+
+	private StandardGenerationTask buildPlanTask(List<String> entities) throws TelosysToolsException {
+		// "once" target defined between the "entity" targets
+		return buildTask(entities, 
+				new TargetDefinition("A", "${BEANNAME}_a.txt", "plan", "a.vm", "*"),
+				new TargetDefinition("Once", "once.txt", "plan", "once.vm", "1"),
+				new TargetDefinition("B", "${BEANNAME}_b.txt", "plan", "b.vm", "*") );
+	}
+
+	@Test
+	public void testEntityMajorPlan() throws TelosysToolsException {
+		StandardGenerationTask task = buildPlanTask(Arrays.asList("Book", "Author"));
+		assertEquals(GenerationOrder.ENTITY_MAJOR, task.getGenerationOrder());
+		GenerationPlan plan = task.plan();
+		assertEquals("Book/a.vm Book/b.vm Author/a.vm Author/b.vm once.vm", units(plan));
+		assertTrue(plan.getTargets().get(4).isOnce());
+		assertTrue(plan.getUnknownEntities().isEmpty());
+	}
+
+	@Test
+	public void testTemplateMajorPlan() throws TelosysToolsException {
+		StandardGenerationTask task = buildPlanTask(Arrays.asList("Book", "Author"));
+		task.setGenerationOrder(GenerationOrder.TEMPLATE_MAJOR);
+		assertEquals("Book/a.vm Author/a.vm Book/b.vm Author/b.vm once.vm", units(task.plan()));
+	}
+
+	@Test
+	public void testCostOrderedPlan() throws TelosysToolsException, IOException {
+		File historyFile = new File(telosysToolsCfg.getDestinationFolderAbsolutePath(), "plan/history.tsv");
+		historyFile.delete();
+		GenerationHistory history = new GenerationHistory(historyFile);
+		history.record("b.vm", model.getEntityByClassName("Author"), 4000L);
+		history.record("a.vm", model.getEntityByClassName("Book"),   3000L);
+		history.record("a.vm", model.getEntityByClassName("Author"), 2000L);
+		history.record("b.vm", model.getEntityByClassName("Book"),   1000L);
+		history.save();
+
+		StandardGenerationTask task = buildPlanTask(Arrays.asList("Book", "Author"));
+		task.setHistory(new GenerationHistory(historyFile));
+		task.setGenerationOrder(GenerationOrder.COST_ORDERED);
+		// longest first, "once" targets still at the end
+		assertEquals("Author/b.vm Book/a.vm Author/a.vm Book/b.vm once.vm", units(task.plan()));
+	}
+
+	@Test
+	public void testUnknownEntities() throws TelosysToolsException {
+		StandardGenerationTask task = buildPlanTask(Arrays.asList("Book", "Foo", "Author", "Bar"));
+		GenerationPlan plan = task.plan();
+		assertEquals(Arrays.asList("Foo", "Bar"), plan.getUnknownEntities());
+		assertEquals("Book/a.vm Book/b.vm Author/a.vm Author/b.vm once.vm", units(plan));
+	}
+
+	@Test
+	public void testOutputFilter() throws TelosysToolsException {
+		StandardGenerationTask task = buildPlanTask(Arrays.asList("Book", "Author", "Employee"));
+		assertEquals(7, task.plan().size());
+		task.setOutputFilter("plan/*_a.txt");
+		GenerationPlan plan = task.plan();
+		assertEquals(3, plan.size());
+		assertEquals("Book/a.vm Author/a.vm Employee/a.vm", units(plan));
+		task.setOutputFilter("plan/once.txt");
+		assertEquals("once.vm", units(task.plan()));
+	}
+
+	@Test
+	public void testSkipOverwrittenTargets() throws TelosysToolsException, IOException {
+		File reportFile = new File(telosysToolsCfg.getDestinationFolderAbsolutePath(), "skip/report.jsonl");
+		reportFile.getParentFile().mkdirs();
+		// 'a.vm' and 'b.vm' write the same file ('b.vm' is the last writer)
+		StandardGenerationTask task = buildTask(Arrays.asList("Book", "Author"),
+				new TargetDefinition("A", "${BEANNAME}.txt", "skip", "a.vm", "*"),
+				new TargetDefinition("B", "${BEANNAME}.txt", "skip", "b.vm", "*"),
+				new TargetDefinition("C", "${BEANNAME}_c.txt", "skip", "c.vm", "*") );
+		task.setSkipOverwrittenTargets(true);
+		GenerationReport report = new GenerationReport(reportFile);
+		task.setReport(report);
+		task.launch();
+		assertEquals(6, report.getTargetsCount());
+		assertEquals(2, report.getCount(GenerationReport.Status.SKIPPED));
+		assertEquals(4, report.getCount(GenerationReport.Status.WRITTEN));
+		assertEquals("B Book", readGeneratedFile("skip/Book.txt"));
+		assertEquals("B Author", readGeneratedFile("skip/Author.txt"));
+	}
+
+	@Test
+	public void testCostOrderedKeepsLastWriter() throws TelosysToolsException, IOException {
+		File historyFile = new File(telosysToolsCfg.getDestinationFolderAbsolutePath(), "cost/history.tsv");
+		historyFile.delete();
+		GenerationHistory history = new GenerationHistory(historyFile);
+		for ( String template : Arrays.asList("a.vm", "b.vm", "c.vm") ) {
+			history.record(template, model.getEntityByClassName("Author"), 1000L);
+			history.record(template, model.getEntityByClassName("Book"), 1000L);
+		}
+		history.record("b.vm", model.getEntityByClassName("Book"), 1_000_000_000L); // 'B' for 'Book' : longest
+		history.save();
+
+		// 'a.vm' and 'b.vm' write the same file ('b.vm' is the last writer)
+		StandardGenerationTask task = buildTask(Arrays.asList("Author", "Book"),
+				new TargetDefinition("A", "${BEANNAME}.txt", "cost", "a.vm", "*"),
+				new TargetDefinition("B", "${BEANNAME}.txt", "cost", "b.vm", "*"),
+				new TargetDefinition("C", "${BEANNAME}_c.txt", "cost", "c.vm", "*") );
+		task.setHistory(new GenerationHistory(historyFile));
+		assertEquals(GenerationOrder.COST_ORDERED, task.getGenerationOrder());
+		List<PlannedTarget> targets = task.plan().getTargets();
+		assertEquals(6, targets.size());
+		// the group of 'Book.txt' first (longest), 'a.vm' still before 'b.vm'
+		assertEquals("Book/a.vm", unit(targets.get(0)));
+		assertEquals("Book/b.vm", unit(targets.get(1)));
+
+		task.launch();
+		assertEquals("B Book", readGeneratedFile("cost/Book.txt"));
+		assertEquals("B Author", readGeneratedFile("cost/Author.txt"));
+	}
+
+	@Test
+	public void testRenderCacheHitsNotInHistory() throws TelosysToolsException, GeneratorException, IOException {
+		File historyFile = new File(telosysToolsCfg.getDestinationFolderAbsolutePath(), "hist/history.tsv");
+		historyFile.delete();
+		File cacheFolder = new File(telosysToolsCfg.getDestinationFolderAbsolutePath(), "hist/cache");
+		deleteFiles(cacheFolder);
+		RenderCache cache = new RenderCache(cacheFolder, 100000);
+		List<String> entities = Arrays.asList("Author", "Book", "Employee");
+		TargetDefinition target = new TargetDefinition("A", "${BEANNAME}.txt", "hist", "a.vm", "*");
+
+		//--- 1st generation : rendered, durations recorded
+		StandardGenerationTask task = buildTask(entities, target);
+		task.setRenderCache(cache);
+		task.setHistory(new GenerationHistory(historyFile));
+		task.launch();
+		assertEquals(3, new GenerationHistory(historyFile).size());
+		List<String> lines = Files.readAllLines(historyFile.toPath(), StandardCharsets.UTF_8);
+
+		//--- 2nd generation : restored from the cache, previous durations kept
+		task = buildTask(entities, target);
+		task.setRenderCache(cache);
+		task.setHistory(new GenerationHistory(historyFile));
+		GenerationTaskResult result = task.launch();
+		assertEquals(3, result.getMetrics().get(GenerationMetrics.RENDER_CACHE_HITS));
+		assertEquals(new HashSet<>(lines), new HashSet<>(Files.readAllLines(historyFile.toPath(), StandardCharsets.UTF_8)));
+		assertEquals("A Book", readGeneratedFile("hist/Book.txt"));
+	}
+}
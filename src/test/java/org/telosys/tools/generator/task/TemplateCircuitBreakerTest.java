@@ -0,0 +1,89 @@
+package org.telosys.tools.generator.task;
+
+import org.junit.Test;
+import org.telosys.tools.generator.GeneratorException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TemplateCircuitBreakerTest {
+
+	private GeneratorException buildException(String entityName, String error) {
+		return new GeneratorException("Entity '" + entityName + "' - Template 'foo.vm' : " + error, 
+				new RuntimeException(error));
+	}
+
+	private void fail(TemplateCircuitBreaker cb, String entityName, String error) {
+		GeneratorException e = buildException(entityName, error);
+		String signature = TemplateCircuitBreaker.buildSignature(e, entityName);
+		if ( cb.sameFailure("foo.vm", signature, entityName) == null ) {
+			cb.newFailure("foo.vm", signature, new ErrorReport(e, "foo.vm", entityName));
+		}
+	}
+
+	@Test
+	public void testSignature() {
+		assertEquals(TemplateCircuitBreaker.buildSignature(buildException("Book", "err1"), "Book"),
+				TemplateCircuitBreaker.buildSignature(buildException("Author", "err1"), "Author"));
+		assertNotEquals(TemplateCircuitBreaker.buildSignature(buildException("Book", "err1"), "Book"),
+				TemplateCircuitBreaker.buildSignature(buildException("Book", "err2"), "Book"));
+	}
+
+	@Test
+	public void testOpenAfterThreshold() {
+		TemplateCircuitBreaker cb = new TemplateCircuitBreaker(3);
+		fail(cb, "A", "err1");
+		fail(cb, "B", "err1");
+		assertFalse(cb.isOpen("foo.vm"));
+		fail(cb, "C", "err1");
+		assertTrue(cb.isOpen("foo.vm"));
+		assertFalse(cb.isOpen("bar.vm"));
+	}
+
+	@Test
+	public void testResetOnSuccessOrNewError() {
+		TemplateCircuitBreaker cb = new TemplateCircuitBreaker(2);
+		fail(cb, "A", "err1");
+		cb.success("foo.vm");
+		fail(cb, "B", "err1");
+		assertFalse(cb.isOpen("foo.vm"));
+		fail(cb, "C", "err2"); // another error
+		assertFalse(cb.isOpen("foo.vm"));
+		fail(cb, "D", "err2");
+		assertTrue(cb.isOpen("foo.vm"));
+	}
+
+	@Test
+	public void testAggregatedReport() {
+		TemplateCircuitBreaker cb = new TemplateCircuitBreaker(0); // never open
+		GeneratorException e = buildException("A", "err1");
+		String signature = TemplateCircuitBreaker.buildSignature(e, "A");
+		assertNull(cb.sameFailure("foo.vm", signature, "A"));
+		ErrorReport report = new ErrorReport(e, "foo.vm", "A");
+		cb.newFailure("foo.vm", signature, report);
+		for ( String entityName : new String[] {"B", "C", "D"} ) {
+			String s = TemplateCircuitBreaker.buildSignature(buildException(entityName, "err1"), entityName);
+			assertTrue(report == cb.sameFailure("foo.vm", s, entityName));
+		}
+		assertFalse(cb.isOpen("foo.vm"));
+		assertEquals(4, report.getOccurrences());
+		assertEquals("[A, B, C, D]", report.getEntities().toString());
+		cb.skipped("foo.vm", "E");
+		assertEquals(1, report.getSkippedEntities().size());
+		assertEquals("foo.vm", report.getTemplateName());
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		TemplateCircuitBreaker cb = new TemplateCircuitBreaker(TemplateCircuitBreaker.DEFAULT_THRESHOLD);
+		assertFalse(cb.isEnabled());
+		for ( String entityName : new String[] {"A", "B", "C", "D", "E", "F", "G"} ) {
+			fail(cb, entityName, "err1");
+		}
+		assertFalse(cb.isOpen("foo.vm"));
+		assertTrue(new TemplateCircuitBreaker(1).isEnabled());
+	}
+}